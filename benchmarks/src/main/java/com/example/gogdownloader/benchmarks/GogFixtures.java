@@ -0,0 +1,196 @@
+package com.example.gogdownloader.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Random;
+
+/**
+ * Payloads sintéticos para os benchmarks, gerados de forma determinística
+ * (mesma semente, mesmos dados): página da biblioteca (account/getFilteredProducts)
+ * e detalhes de produto com downloads (products/{id}?expand=downloads).
+ * Não são respostas gravadas: só imitam os campos e o aninhamento que o app lê,
+ * então servem para comparar versões do código, não para prever o custo exato
+ * com uma biblioteca real.
+ */
+public final class GogFixtures {
+
+    private static final String[] WORDS = {
+            "Witcher", "Cyberpunk", "Baldur's", "Gate", "Divinity", "Original", "Sin", "Pillars", "of", "Eternity",
+            "Heroes", "Might", "Magic", "Fallout", "Tactics", "Planescape", "Torment", "Disco", "Elysium", "Hollow",
+            "Knight", "Stardew", "Valley", "Frostpunk", "Pathfinder", "Wrath", "Righteous", "Shadowrun", "Returns",
+            "Dragonfall", "Hong", "Kong", "Grim", "Dawn", "Kingdom", "Come", "Deliverance", "Mount", "Blade",
+            "Warband", "Age", "Wonders", "Ori", "Blind", "Forest", "Crônicas", "Épico", "Lenda", "Mundo", "Sombra"
+    };
+    private static final String[] GENRES = {
+            "Action", "Adventure", "Role-playing", "Strategy", "Simulation", "Shooter", "Puzzle", "Racing", "Indie", "Sports"
+    };
+    private static final String[] STUDIOS = {
+            "CD PROJEKT RED", "Larian Studios", "Obsidian Entertainment", "inXile Entertainment", "Harebrained Schemes",
+            "Crate Entertainment", "Warhorse Studios", "ConcernedApe", "11 bit studios", "Owlcat Games", "ZA/UM"
+    };
+    private static final String[] OS = {"windows", "windows", "windows", "mac", "linux"};
+    private static final String[] LANGUAGES = {"en", "en", "de", "fr", "pl", "ru", "brazilian"};
+
+    private GogFixtures() {
+    }
+
+    /**
+     * Página da biblioteca com {@code count} produtos
+     */
+    public static String libraryPage(int count) throws JSONException {
+        Random random = new Random(count);
+        JSONArray products = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            products.put(libraryProduct(random, 1000000000L + i * 7919L));
+        }
+        JSONObject page = new JSONObject();
+        page.put("page", 1);
+        page.put("totalProducts", count);
+        page.put("totalPages", 1);
+        page.put("productsPerPage", count);
+        page.put("products", products);
+        return page.toString();
+    }
+
+    private static JSONObject libraryProduct(Random random, long id) throws JSONException {
+        String title = title(random);
+        JSONObject product = new JSONObject();
+        product.put("id", id);
+        product.put("title", title);
+        product.put("slug", title.toLowerCase().replaceAll("[^a-z0-9]+", "_"));
+        product.put("image", "//images-" + (1 + random.nextInt(4)) + ".gog-statics.com/" + hash(random));
+        product.put("url", "/game/" + title.toLowerCase().replace(' ', '_'));
+        product.put("category", GENRES[random.nextInt(GENRES.length)]);
+        product.put("rating", random.nextInt(50));
+        product.put("isGame", true);
+        product.put("isNew", random.nextInt(20) == 0);
+        product.put("updates", random.nextInt(3));
+        product.put("dlcCount", random.nextInt(5));
+
+        JSONObject worksOn = new JSONObject();
+        worksOn.put("Windows", true);
+        worksOn.put("Mac", random.nextBoolean());
+        worksOn.put("Linux", random.nextInt(3) == 0);
+        product.put("worksOn", worksOn);
+
+        JSONObject releaseDate = new JSONObject();
+        releaseDate.put("date", (1995 + random.nextInt(30)) + "-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(9) + " 00:00:00.000000");
+        releaseDate.put("timezone_type", 3);
+        releaseDate.put("timezone", "Europe/Nicosia");
+        product.put("releaseDate", releaseDate);
+
+        JSONArray genres = new JSONArray();
+        for (int g = 0, n = 1 + random.nextInt(3); g < n; g++) {
+            JSONObject genre = new JSONObject();
+            genre.put("name", GENRES[random.nextInt(GENRES.length)]);
+            genre.put("slug", "genre");
+            genres.put(genre);
+        }
+        product.put("genres", genres);
+
+        product.put("developer", STUDIOS[random.nextInt(STUDIOS.length)]);
+        product.put("publisher", STUDIOS[random.nextInt(STUDIOS.length)]);
+        return product;
+    }
+
+    /**
+     * Detalhes de um produto com downloads (instaladores, patches e extras)
+     */
+    public static JSONObject productDetails(long id, Random random) throws JSONException {
+        JSONObject details = new JSONObject();
+        details.put("id", id);
+        details.put("title", title(random));
+
+        JSONObject images = new JSONObject();
+        String base = "//images-1.gog-statics.com/" + hash(random);
+        images.put("background", base + ".jpg");
+        images.put("logo", base + "_glx_logo.jpg");
+        images.put("logo2x", base + "_glx_logo_2x.jpg");
+        images.put("icon", base + ".png");
+        images.put("sidebarIcon", base + "_sbicon.png");
+        images.put("sidebarIcon2x", base + "_sbicon_2x.png");
+        details.put("images", images);
+
+        JSONObject downloads = new JSONObject();
+        JSONArray installers = new JSONArray();
+        for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+            installers.put(fileGroup(random, id, "installer", i));
+        }
+        downloads.put("installers", installers);
+
+        JSONArray patches = new JSONArray();
+        for (int i = 0, n = random.nextInt(3); i < n; i++) {
+            patches.put(fileGroup(random, id, "patch", i));
+        }
+        downloads.put("patches", patches);
+        downloads.put("language_packs", new JSONArray());
+
+        JSONArray bonus = new JSONArray();
+        for (int i = 0, n = random.nextInt(8); i < n; i++) {
+            JSONObject extra = new JSONObject();
+            extra.put("id", 10000 + i);
+            extra.put("name", WORDS[random.nextInt(WORDS.length)] + " soundtrack");
+            extra.put("type", "extra");
+            extra.put("count", 1);
+            extra.put("size", 1024L * 1024 * (1 + random.nextInt(500)));
+            extra.put("downlink", "https://api.gog.com/products/" + id + "/downlink/extra/" + (10000 + i));
+            bonus.put(extra);
+        }
+        downloads.put("bonus_content", bonus);
+        details.put("downloads", downloads);
+        return details;
+    }
+
+    private static JSONObject fileGroup(Random random, long id, String kind, int index) throws JSONException {
+        String os = OS[random.nextInt(OS.length)];
+        String language = LANGUAGES[random.nextInt(LANGUAGES.length)];
+
+        JSONObject group = new JSONObject();
+        group.put("id", kind + "_" + os + "_" + language + index);
+        group.put("name", title(random));
+        group.put("os", os);
+        group.put("language", language);
+        group.put("language_full", "English");
+        group.put("version", "1." + random.nextInt(20) + "." + random.nextInt(100));
+
+        JSONArray files = new JSONArray();
+        long total = 0;
+        for (int f = 0, n = 1 + random.nextInt(6); f < n; f++) {
+            long size = 1024L * 1024 * (50 + random.nextInt(4000));
+            total += size;
+            JSONObject file = new JSONObject();
+            String fileId = language + "1" + kind + f;
+            file.put("id", fileId);
+            file.put("size", size);
+            file.put("downlink", "https://api.gog.com/products/" + id + "/downlink/" + kind + "/" + fileId);
+            files.put(file);
+        }
+        group.put("total_size", total);
+        group.put("files", files);
+        return group;
+    }
+
+    private static String title(Random random) {
+        StringBuilder title = new StringBuilder();
+        for (int w = 0, n = 1 + random.nextInt(4); w < n; w++) {
+            if (w > 0) {
+                title.append(' ');
+            }
+            title.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            title.append(' ').append(1 + random.nextInt(4));
+        }
+        return title.toString();
+    }
+
+    private static String hash(Random random) {
+        StringBuilder hash = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            hash.append(Character.forDigit(random.nextInt(16), 16));
+        }
+        return hash.toString();
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.gogdownloader.benchmarks;
+
+import com.example.gogdownloader.models.DownloadLink;
+import com.example.gogdownloader.models.Game;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de uma página da busca da biblioteca no banco, com o mesmo esquema
+ * (tabela games, FTS4 games_fts e índices) e o mesmo SQL de
+ * DatabaseHelper.searchLibrary: MATCH por prefixo, relevância no ORDER BY e
+ * paginação por (relevância, título, id). Roda no SQLite do sqlite-jdbc, não no
+ * do Android, então serve para comparar versões da consulta, não para prever o
+ * tempo num aparelho. Ao mudar o SQL do DatabaseHelper, mudar aqui também.
+ * Consultas: uma letra (quase tudo passa), um termo comum e um que não existe.
+ * Ver ModelParsingBenchmark para rodar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LibrarySearchBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final String COLUMNS = "id, title, cover_image, background_image, status, download_progress, "
+            + "total_size, developer, genres, platforms";
+    private static final String MATCH = "id IN (SELECT docid FROM games_fts WHERE games_fts MATCH ?)";
+    private static final String RANK = "CASE WHEN title LIKE ? ESCAPE '\\' THEN 0"
+            + " WHEN id IN (SELECT docid FROM games_fts WHERE games_fts MATCH ?) THEN 1 ELSE 2 END";
+    private static final String KEYSET = "title >= ? COLLATE NOCASE AND (title > ? COLLATE NOCASE OR id > ?)";
+    private static final String ORDER = " ORDER BY " + RANK + " ASC, title COLLATE NOCASE ASC, id ASC LIMIT "
+            + PAGE_SIZE;
+    // Windows ou Mac: todas as máscaras com um dos dois bits, mais 0 (desconhecido)
+    private static final String PLATFORMS = "platforms IN (0, 1, 2, 3, 5, 6, 7)";
+
+    @Param({"1000", "5000"})
+    public int products;
+
+    @Param({"a", "witcher", "zzz"})
+    public String query;
+
+    private Connection connection;
+    private PreparedStatement firstPage;
+    private PreparedStatement nextPage;
+    private PreparedStatement filteredPage;
+    private PreparedStatement count;
+
+    @Setup
+    public void setUp() throws SQLException, JSONException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE games (id INTEGER PRIMARY KEY, title TEXT, cover_image TEXT, "
+                    + "background_image TEXT, status TEXT, download_progress INTEGER, total_size INTEGER, "
+                    + "developer TEXT, publisher TEXT, genres TEXT, platforms INTEGER DEFAULT 0)");
+            statement.execute("CREATE VIRTUAL TABLE games_fts USING fts4(title, developer, publisher, genres, "
+                    + "tokenize=unicode61 \"remove_diacritics=1\")");
+            statement.execute("CREATE INDEX idx_games_title ON games(title COLLATE NOCASE)");
+            statement.execute("CREATE INDEX idx_games_status ON games(status)");
+            statement.execute("CREATE INDEX idx_games_platforms ON games(platforms)");
+            statement.execute("CREATE INDEX idx_games_total_size ON games(total_size)");
+        }
+        insertGames();
+
+        firstPage = connection.prepareStatement("SELECT " + COLUMNS + " FROM games WHERE " + MATCH + ORDER);
+        nextPage = connection.prepareStatement("SELECT " + COLUMNS + " FROM games WHERE " + MATCH
+                + " AND (" + RANK + " > 0 OR (" + RANK + " = 0 AND " + KEYSET + "))" + ORDER);
+        filteredPage = connection.prepareStatement("SELECT " + COLUMNS + " FROM games WHERE " + MATCH
+                + " AND status IN (?, ?) AND " + PLATFORMS + " AND total_size >= ?" + ORDER);
+        count = connection.prepareStatement("SELECT COUNT(*) FROM games WHERE " + MATCH);
+    }
+
+    private void insertGames() throws SQLException, JSONException {
+        Random random = new Random(products);
+        Game.DownloadStatus[] statuses = Game.DownloadStatus.values();
+        JSONArray array = new JSONObject(GogFixtures.libraryPage(products)).getJSONArray("products");
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement games = connection.prepareStatement("INSERT INTO games (id, title, status, "
+                + "total_size, developer, publisher, genres, platforms) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement fts = connection.prepareStatement("INSERT INTO games_fts "
+                     + "(docid, title, developer, publisher, genres) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < array.length(); i++) {
+                Game game = Game.fromJson(array.getJSONObject(i));
+                int platforms = 0;
+                for (DownloadLink.Platform platform : game.getPlatforms()) {
+                    platforms |= 1 << platform.ordinal();
+                }
+                games.setLong(1, game.getId());
+                games.setString(2, game.getTitle());
+                games.setString(3, statuses[random.nextInt(statuses.length)].name());
+                games.setLong(4, random.nextInt(80) * 1_000_000_000L);
+                games.setString(5, game.getDeveloper());
+                games.setString(6, game.getPublisher());
+                games.setString(7, game.getGenresString());
+                games.setInt(8, platforms);
+                games.addBatch();
+
+                fts.setLong(1, game.getId());
+                fts.setString(2, game.getTitle());
+                fts.setString(3, game.getDeveloper());
+                fts.setString(4, game.getPublisher());
+                fts.setString(5, game.getGenresString());
+                fts.addBatch();
+            }
+            games.executeBatch();
+            fts.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int searchFirstPage() throws SQLException {
+        int index = bindMatch(firstPage, 1);
+        bindRank(firstPage, index);
+        return drain(firstPage);
+    }
+
+    /**
+     * Página seguinte a partir de um título no meio do alfabeto
+     */
+    @Benchmark
+    public int searchNextPage() throws SQLException {
+        int index = bindMatch(nextPage, 1);
+        index = bindRank(nextPage, index);
+        index = bindRank(nextPage, index);
+        nextPage.setString(index++, "M");
+        nextPage.setString(index++, "M");
+        nextPage.setLong(index++, 0);
+        bindRank(nextPage, index);
+        return drain(nextPage);
+    }
+
+    @Benchmark
+    public int searchWithFilters() throws SQLException {
+        int index = bindMatch(filteredPage, 1);
+        filteredPage.setString(index++, Game.DownloadStatus.NOT_DOWNLOADED.name());
+        filteredPage.setString(index++, Game.DownloadStatus.DOWNLOADED.name());
+        filteredPage.setLong(index++, 10_000_000_000L);
+        bindRank(filteredPage, index);
+        return drain(filteredPage);
+    }
+
+    @Benchmark
+    public int searchCount() throws SQLException {
+        bindMatch(count, 1);
+        try (ResultSet resultSet = count.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private int bindMatch(PreparedStatement statement, int index) throws SQLException {
+        statement.setString(index, query + "*");
+        return index + 1;
+    }
+
+    private int bindRank(PreparedStatement statement, int index) throws SQLException {
+        statement.setString(index, query + "%");
+        statement.setString(index + 1, "title:" + query + "*");
+        return index + 2;
+    }
+
+    /**
+     * Lê todas as colunas, como cursorToListGame
+     */
+    private static int drain(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                for (int column = 1; column <= columns; column++) {
+                    resultSet.getObject(column);
+                }
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.gogdownloader.benchmarks;
+
+import com.example.gogdownloader.api.DownloadLinkParser;
+import com.example.gogdownloader.models.DownloadLink;
+import com.example.gogdownloader.models.Game;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de CPU da leitura da biblioteca: parse da página de produtos,
+ * Game.fromJson/toJson, DownloadLink.fromJson e o parse dos downloads dos
+ * detalhes, sobre os payloads sintéticos de GogFixtures. Rodar numa JVM comum:
+ *
+ *   ./gradlew :benchmarks:jmh -PjmhArgs="-prof gc"
+ *
+ * Rodar antes e depois de cada otimização, com os mesmos parâmetros.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelParsingBenchmark {
+
+    @Param({"1000", "5000"})
+    public int products;
+
+    private String libraryPage;
+    private List<JSONObject> productJsons;
+    private List<Game> games;
+    private List<JSONObject> details;
+    private List<JSONObject> files;
+
+    @Setup
+    public void setUp() throws JSONException {
+        libraryPage = GogFixtures.libraryPage(products);
+
+        productJsons = new ArrayList<>();
+        games = new ArrayList<>();
+        JSONArray array = new JSONObject(libraryPage).getJSONArray("products");
+        for (int i = 0; i < array.length(); i++) {
+            productJsons.add(array.getJSONObject(i));
+            games.add(Game.fromJson(array.getJSONObject(i)));
+        }
+
+        // Detalhes são buscados por jogo; 1 a cada 10 produtos dá a proporção de uma sincronização típica
+        Random random = new Random(products);
+        details = new ArrayList<>();
+        files = new ArrayList<>();
+        for (int i = 0; i < products / 10; i++) {
+            JSONObject product = GogFixtures.productDetails(games.get(i).getId(), random);
+            details.add(product);
+            JSONArray installers = product.getJSONObject("downloads").getJSONArray("installers");
+            for (int j = 0; j < installers.length(); j++) {
+                JSONArray groupFiles = installers.getJSONObject(j).getJSONArray("files");
+                for (int k = 0; k < groupFiles.length(); k++) {
+                    files.add(groupFiles.getJSONObject(k));
+                }
+            }
+        }
+    }
+
+    /**
+     * Como em GOGLibraryManager: texto da resposta até a lista de jogos
+     */
+    @Benchmark
+    public List<Game> parseLibraryPage() throws JSONException {
+        JSONArray array = new JSONObject(libraryPage).getJSONArray("products");
+        List<Game> parsed = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            parsed.add(Game.fromJson(array.getJSONObject(i)));
+        }
+        return parsed;
+    }
+
+    @Benchmark
+    public void gameFromJson(Blackhole blackhole) throws JSONException {
+        for (JSONObject json : productJsons) {
+            blackhole.consume(Game.fromJson(json));
+        }
+    }
+
+    @Benchmark
+    public void gameToJson(Blackhole blackhole) throws JSONException {
+        for (Game game : games) {
+            blackhole.consume(game.toJson().toString());
+        }
+    }
+
+    @Benchmark
+    public void downloadLinkFromJson(Blackhole blackhole) throws JSONException {
+        for (JSONObject file : files) {
+            blackhole.consume(DownloadLink.fromJson(file));
+        }
+    }
+
+    @Benchmark
+    public void parseDownloadLinks(Blackhole blackhole) {
+        for (JSONObject product : details) {
+            blackhole.consume(DownloadLinkParser.parse(product).getLinks());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.gogdownloader.benchmarks;
+
+import com.example.gogdownloader.utils.ProgressFormatter;
+import com.example.gogdownloader.utils.SpeedMeter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por chamada do que roda a cada leitura ou atualização de progresso:
+ * SpeedMeter (addBytes por read(), getSpeed por atualização) e o texto da
+ * notificação montado com String.format. Ver ModelParsingBenchmark para rodar.
+ * O caso com várias threads simula conexões com medidor próprio ligadas ao
+ * mesmo medidor agregado, como as tarefas do DownloadService.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedAggregate {
+        final SpeedMeter aggregate = new SpeedMeter();
+    }
+
+    @State(Scope.Thread)
+    public static class Connection {
+        SpeedMeter meter;
+
+        @Setup(Level.Trial)
+        public void setUp(SharedAggregate shared) {
+            meter = new SpeedMeter(shared.aggregate);
+        }
+    }
+
+    private final SpeedMeter aggregate = new SpeedMeter();
+    private final SpeedMeter meter = new SpeedMeter(aggregate);
+    private long bytesDownloaded = 1_234_567_890L;
+
+    @Benchmark
+    public void speedMeterAddBytes() {
+        meter.addBytes(65536);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void speedMeterAddBytesConcurrent(Connection connection) {
+        connection.meter.addBytes(65536);
+    }
+
+    @Benchmark
+    public double speedMeterGetSpeed() {
+        meter.addBytes(65536);
+        return meter.getSpeed();
+    }
+
+    @Benchmark
+    public String singleProgressText() {
+        bytesDownloaded += 65536;
+        return ProgressFormatter.format(0, 1, bytesDownloaded, 4_000_000_000L, 12.5 * 1024 * 1024, 3725);
+    }
+
+    @Benchmark
+    public String batchProgressText() {
+        bytesDownloaded += 65536;
+        return ProgressFormatter.format(2, 7, bytesDownloaded, 18_000_000_000L, 12.5 * 1024 * 1024, 3725);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.gogdownloader.core;
+
+import okhttp3.Request;
+
+/**
+ * Requisições para a CDN do GOG com os cabeçalhos que o navegador enviaria.
+ * Accept-Encoding fica em identity: com Range os offsets precisam ser do
+ * arquivo original, não de um corpo comprimido.
+ */
+public final class DownloadRequests {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Android 10; Mobile; rv:91.0) Gecko/91.0 Firefox/91.0";
+
+    private DownloadRequests() {
+    }
+
+    public static Request.Builder newRequest(String url) {
+        return new Request.Builder()
+                .url(url)
+                .get()
+                .addHeader("User-Agent", USER_AGENT)
+                .addHeader("Accept", "*/*")
+                .addHeader("Accept-Language", "en-US,en;q=0.5")
+                .addHeader("Accept-Encoding", "identity")
+                .addHeader("Referer", "https://www.gog.com/");
+    }
+
+    /**
+     * @param to último byte, inclusive; negativo para ir até o fim
+     */
+    public static Request.Builder newRangeRequest(String url, long from, long to) {
+        return newRequest(url).addHeader("Range", rangeHeader(from, to));
+    }
+
+    public static String rangeHeader(long from, long to) {
+        return "bytes=" + from + "-" + (to >= 0 ? String.valueOf(to) : "");
+    }
+}
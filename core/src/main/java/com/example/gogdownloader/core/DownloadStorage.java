@@ -0,0 +1,16 @@
+package com.example.gogdownloader.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Destino sequencial de um download. No app é o arquivo do SAF na área de
+ * preparação; nos benchmarks, um arquivo comum ou um descarte.
+ */
+public interface DownloadStorage {
+
+    /**
+     * @param append continuar do fim do conteúdo existente; false trunca o destino
+     */
+    OutputStream openOutputStream(boolean append) throws IOException;
+}
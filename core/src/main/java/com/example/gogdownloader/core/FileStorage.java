@@ -0,0 +1,60 @@
+package com.example.gogdownloader.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Destino num arquivo comum do sistema de arquivos, sequencial ou posicional
+ */
+public class FileStorage implements DownloadStorage, SegmentStorage {
+
+    private final File file;
+    private FileChannel channel;
+
+    public FileStorage(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public OutputStream openOutputStream(boolean append) throws IOException {
+        return new FileOutputStream(file, append);
+    }
+
+    @Override
+    public synchronized void allocate(long size) throws IOException {
+        if (channel == null) {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+        }
+        channel.truncate(size);
+        if (channel.size() < size) {
+            // Estende o arquivo; as faixas são preenchidas pelos segmentos
+            channel.write(ByteBuffer.allocate(1), size - 1);
+        }
+    }
+
+    @Override
+    public void write(long position, byte[] buffer, int offset, int length) throws IOException {
+        // Escrita posicional do FileChannel é segura entre threads
+        ByteBuffer source = ByteBuffer.wrap(buffer, offset, length);
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.gogdownloader.core;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * MD5 usado nos checksums do GOG (arquivo inteiro e chunks do manifesto)
+ */
+public final class Hashes {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Hashes() {
+    }
+
+    public static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            out[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.gogdownloader.core;
+
+/**
+ * Progresso de um download do core. Chamado na thread que lê a rede, a cada
+ * leitura: quem precisa atualizar interface ou banco deve espaçar as atualizações.
+ */
+public interface ProgressListener {
+
+    boolean isStopped();
+
+    /**
+     * @param bytesDone bytes já no destino, incluindo o ponto de retomada
+     * @param totalBytes tamanho final, ou -1 se desconhecido
+     */
+    void onProgress(long bytesDone, long totalBytes);
+}
@@ -0,0 +1,203 @@
+package com.example.gogdownloader.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Baixa um arquivo numa única conexão, retomando com Range a partir do que já
+ * está no destino. Se a conexão cair no meio do corpo, tenta de novo a partir
+ * do último byte gravado; se o servidor ignorar o Range, recomeça do zero.
+ * Não depende de Android: roda na JVM comum (benchmarks e testes).
+ */
+public class RangeDownloader {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final int BUFFER_SIZE = 65536;
+
+    public static class Result {
+        private long bytesDone;
+        private long totalBytes = -1;
+        private long bytesFromNetwork;
+        private int attempts;
+        private boolean restarted;
+        private boolean complete;
+        private String md5;
+
+        public long getBytesDone() { return bytesDone; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getBytesFromNetwork() { return bytesFromNetwork; }
+        public int getAttempts() { return attempts; }
+        /** O servidor ignorou o Range e o arquivo foi reescrito do início */
+        public boolean isRestarted() { return restarted; }
+        public boolean isComplete() { return complete; }
+        /** MD5 do arquivo inteiro; null se o download começou de uma retomada ou o hash está desligado */
+        public String getMd5() { return md5; }
+    }
+
+    private final OkHttpClient httpClient;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private boolean computeMd5;
+    private TransferObserver observer;
+
+    public RangeDownloader(OkHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public void setComputeMd5(boolean computeMd5) {
+        this.computeMd5 = computeMd5;
+    }
+
+    public void setObserver(TransferObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * @param expectedSize tamanho conhecido pela API, usado quando não há Content-Length; -1 se desconhecido
+     * @param resumeOffset bytes já presentes e válidos no destino
+     */
+    public Result download(String url, long expectedSize, long resumeOffset,
+                           DownloadStorage storage, ProgressListener listener) throws IOException {
+        Result result = new Result();
+        result.bytesDone = resumeOffset;
+        result.totalBytes = expectedSize;
+        MessageDigest md5 = computeMd5 && resumeOffset == 0 ? Hashes.newMd5() : null;
+        IOException lastError = null;
+
+        while (result.attempts < maxAttempts) {
+            if (listener.isStopped()) {
+                return result;
+            }
+            result.attempts++;
+            if (observer != null) {
+                observer.onRequestStarted(result.attempts > 1);
+            }
+
+            long offset = result.bytesDone;
+            try (Response response = httpClient.newCall(offset > 0
+                    ? DownloadRequests.newRangeRequest(url, offset, -1).build()
+                    : DownloadRequests.newRequest(url).build()).execute()) {
+
+                if (response.code() == 416 && offset > 0 && expectedSize > 0 && offset >= expectedSize) {
+                    // Nada a baixar: o destino já tem o arquivo inteiro
+                    result.complete = true;
+                    return result;
+                }
+                if (!response.isSuccessful()) {
+                    lastError = new IOException("HTTP Error: " + response.code() + " - " + response.message());
+                    if (response.code() < 500) {
+                        // Fora do catch abaixo: erro do cliente não melhora com nova tentativa
+                        break;
+                    }
+                    continue;
+                }
+                if (observer != null) {
+                    observer.onResponse(response.request().url().host());
+                }
+
+                if (offset > 0 && response.code() != 206) {
+                    // Servidor ignorou o Range: recomeçar o arquivo
+                    offset = 0;
+                    result.bytesDone = 0;
+                    result.restarted = true;
+                    md5 = computeMd5 ? Hashes.newMd5() : null;
+                }
+
+                // Sem Content-Length o tamanho da API serve só para o progresso
+                long contentLength = response.body().contentLength();
+                boolean lengthKnown = contentLength > 0;
+                if (lengthKnown) {
+                    result.totalBytes = offset + contentLength;
+                }
+
+                if (transfer(response.body().byteStream(), storage, offset > 0, md5, result, listener)) {
+                    result.complete = !lengthKnown || result.bytesDone >= result.totalBytes;
+                    if (!result.complete) {
+                        lastError = new IOException("Download incompleto: " + result.bytesDone + "/" + result.totalBytes + " bytes");
+                        continue;
+                    }
+                    if (md5 != null) {
+                        result.md5 = Hashes.toHex(md5.digest());
+                    }
+                }
+                return result;
+            } catch (IOException e) {
+                // Erros de escrita no destino não melhoram com nova tentativa
+                if (e instanceof StorageException) {
+                    throw (IOException) e.getCause();
+                }
+                lastError = e;
+            }
+        }
+
+        throw lastError;
+    }
+
+    /**
+     * @return false se foi interrompido pelo listener
+     */
+    private boolean transfer(InputStream inputStream, DownloadStorage storage, boolean append,
+                             MessageDigest md5, Result result, ProgressListener listener) throws IOException {
+        OutputStream outputStream;
+        try {
+            outputStream = storage.openOutputStream(append);
+        } catch (IOException e) {
+            throw new StorageException(e);
+        }
+
+        try {
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                if (listener.isStopped()) {
+                    return false;
+                }
+                if (observer != null) {
+                    observer.onBytes(bytesRead);
+                }
+                long writeStart = System.nanoTime();
+                try {
+                    outputStream.write(buffer, 0, bytesRead);
+                } catch (IOException e) {
+                    throw new StorageException(e);
+                }
+                if (observer != null) {
+                    observer.onWrite(System.nanoTime() - writeStart);
+                }
+                if (md5 != null) {
+                    md5.update(buffer, 0, bytesRead);
+                }
+                result.bytesDone += bytesRead;
+                result.bytesFromNetwork += bytesRead;
+                listener.onProgress(result.bytesDone, result.totalBytes);
+            }
+            return true;
+        } finally {
+            // Fecha também em caso de erro: o que foi gravado é o ponto da próxima tentativa
+            try {
+                outputStream.close();
+            } catch (IOException e) {
+                throw new StorageException(e);
+            }
+        }
+    }
+
+    /**
+     * Separa falhas do destino das falhas de rede, que são as únicas repetidas
+     */
+    private static class StorageException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StorageException(IOException cause) {
+            super(cause);
+        }
+    }
+}
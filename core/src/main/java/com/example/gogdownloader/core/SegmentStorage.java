@@ -0,0 +1,21 @@
+package com.example.gogdownloader.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destino com escrita posicional, usado pelo {@link SegmentedDownloader}:
+ * cada segmento escreve na sua faixa do arquivo, de threads diferentes.
+ */
+public interface SegmentStorage extends Closeable {
+
+    /**
+     * Reserva o tamanho final do arquivo antes das escritas
+     */
+    void allocate(long size) throws IOException;
+
+    /**
+     * Pode ser chamado de várias threads ao mesmo tempo, em faixas disjuntas
+     */
+    void write(long position, byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,181 @@
+package com.example.gogdownloader.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Baixa um arquivo de tamanho conhecido em vários segmentos paralelos, cada um
+ * com a sua faixa de Range e as suas novas tentativas. Exige um servidor que
+ * respeite Range (206); o progresso reportado é a soma dos segmentos.
+ */
+public class SegmentedDownloader {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final int BUFFER_SIZE = 65536;
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
+    public static class Result {
+        private long bytesDone;
+        private int segments;
+        private int retries;
+        private boolean complete;
+
+        public long getBytesDone() { return bytesDone; }
+        public int getSegments() { return segments; }
+        public int getRetries() { return retries; }
+        public boolean isComplete() { return complete; }
+    }
+
+    private final OkHttpClient httpClient;
+    private final int segmentCount;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    public SegmentedDownloader(OkHttpClient httpClient, int segmentCount) {
+        this.httpClient = httpClient;
+        this.segmentCount = Math.max(1, segmentCount);
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * @param size tamanho do arquivo; os segmentos dividem [0, size)
+     */
+    public Result download(String url, long size, SegmentStorage storage, ProgressListener listener) throws IOException {
+        int segments = (int) Math.max(1, Math.min(segmentCount, size / MIN_SEGMENT_SIZE));
+        long segmentSize = (size + segments - 1) / segments;
+
+        Result result = new Result();
+        result.segments = segments;
+        AtomicLong bytesDone = new AtomicLong();
+        AtomicLong retries = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+
+        // O listener é chamado de várias threads; serializar para quem espera uma só
+        ProgressListener shared = new ProgressListener() {
+            @Override
+            public boolean isStopped() {
+                return failed.get() || listener.isStopped();
+            }
+
+            @Override
+            public synchronized void onProgress(long done, long total) {
+                listener.onProgress(done, total);
+            }
+        };
+
+        storage.allocate(size);
+        ExecutorService executor = Executors.newFixedThreadPool(segments);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < segments; i++) {
+                long from = i * segmentSize;
+                long to = Math.min(size, from + segmentSize) - 1;
+                futures.add(executor.submit(() -> {
+                    try {
+                        downloadSegment(url, from, to, size, storage, bytesDone, retries, shared);
+                    } catch (IOException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+
+            IOException error = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause() instanceof IOException
+                                ? (IOException) e.getCause() : new IOException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download interrompido", e);
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        result.bytesDone = bytesDone.get();
+        result.retries = (int) retries.get();
+        result.complete = result.bytesDone == size && !listener.isStopped();
+        return result;
+    }
+
+    private void downloadSegment(String url, long from, long to, long size, SegmentStorage storage,
+                                 AtomicLong bytesDone, AtomicLong retries, ProgressListener listener) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = from;
+        IOException lastError = null;
+
+        for (int attempt = 1; attempt <= maxAttempts && position <= to; attempt++) {
+            if (attempt > 1) {
+                retries.incrementAndGet();
+            }
+            try (Response response = httpClient.newCall(
+                    DownloadRequests.newRangeRequest(url, position, to).build()).execute()) {
+                if (!response.isSuccessful()) {
+                    throw new IOException("HTTP Error: " + response.code() + " - " + response.message());
+                }
+                if (response.code() != 206) {
+                    throw new RangeNotSupportedException(response.code());
+                }
+
+                try (InputStream inputStream = response.body().byteStream()) {
+                    int bytesRead;
+                    while (position <= to && (bytesRead = inputStream.read(buffer)) != -1) {
+                        if (listener.isStopped()) {
+                            return;
+                        }
+                        int length = (int) Math.min(bytesRead, to - position + 1);
+                        storage.write(position, buffer, 0, length);
+                        position += length;
+                        listener.onProgress(bytesDone.addAndGet(length), size);
+                    }
+                }
+                if (position > to) {
+                    return;
+                }
+                lastError = new IOException("Segmento incompleto em " + position + " de " + from + "-" + to);
+            } catch (RangeNotSupportedException e) {
+                throw e;
+            } catch (IOException e) {
+                lastError = e;
+            }
+        }
+
+        if (position <= to) {
+            throw lastError;
+        }
+    }
+
+    /**
+     * Sem Range não há como dividir o arquivo; nova tentativa não resolve
+     */
+    public static class RangeNotSupportedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RangeNotSupportedException(int code) {
+            super("Servidor não respeitou o Range: HTTP " + code);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.gogdownloader.core;
+
+/**
+ * Ganchos de medição de uma transferência (telemetria do app, benchmarks).
+ * Chamados só pela thread que faz o download.
+ */
+public interface TransferObserver {
+
+    /**
+     * @param retry se a requisição repete uma que falhou
+     */
+    void onRequestStarted(boolean retry);
+
+    /**
+     * Host que respondeu, depois dos redirects
+     */
+    void onResponse(String host);
+
+    /**
+     * Bytes recebidos numa leitura da rede
+     */
+    void onBytes(long bytes);
+
+    /**
+     * Tempo gasto numa gravação no destino
+     */
+    void onWrite(long elapsedNanos);
+}
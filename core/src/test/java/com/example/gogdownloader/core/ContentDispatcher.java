@@ -0,0 +1,106 @@
+package com.example.gogdownloader.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+/**
+ * Dispatcher dos testes: serve um conteúdo fixo respeitando (ou não) o Range,
+ * com erros HTTP e quedas de conexão programados. Guarda o Range de cada
+ * requisição, na ordem de chegada.
+ */
+class ContentDispatcher extends Dispatcher {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final byte[] content;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    // Início da faixa -> bytes enviados antes de derrubar a conexão (uma vez)
+    private final Map<Long, Integer> cuts = new ConcurrentHashMap<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile boolean honorRange = true;
+    private volatile int failureCode;
+
+    ContentDispatcher(byte[] content) {
+        this.content = content;
+    }
+
+    void setHonorRange(boolean honorRange) {
+        this.honorRange = honorRange;
+    }
+
+    /**
+     * Responde {@code code} às próximas {@code count} requisições; count negativo para todas
+     */
+    void fail(int code, int count) {
+        failureCode = code;
+        failures.set(count);
+    }
+
+    /**
+     * Na próxima resposta que começar em {@code from}, a conexão cai depois de {@code bytes}
+     */
+    void cutOnce(long from, int bytes) {
+        cuts.put(from, bytes);
+    }
+
+    /**
+     * Range de cada requisição recebida; null quando não havia Range
+     */
+    List<String> getRanges() {
+        return ranges;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        String range = request.getHeader("Range");
+        ranges.add(range);
+
+        if (failures.get() != 0) {
+            failures.decrementAndGet();
+            return new MockResponse().setResponseCode(failureCode);
+        }
+
+        int from = 0;
+        int to = content.length - 1;
+        boolean partial = false;
+        if (range != null && honorRange) {
+            Matcher matcher = RANGE.matcher(range);
+            if (matcher.matches()) {
+                from = Integer.parseInt(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    to = Math.min(to, Integer.parseInt(matcher.group(2)));
+                }
+                partial = true;
+            }
+        }
+        if (from >= content.length) {
+            return new MockResponse().setResponseCode(416);
+        }
+
+        int length = to - from + 1;
+        Integer cut = cuts.remove((long) from);
+        MockResponse response = new MockResponse()
+                .setResponseCode(partial ? 206 : 200)
+                .setBody(new Buffer().write(content, from, cut != null ? Math.min(cut, length) : length));
+        if (partial) {
+            response.addHeader("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+        }
+        if (cut != null) {
+            // Anuncia a faixa inteira e fecha a conexão antes do fim do corpo
+            response.setHeader("Content-Length", length);
+            response.setSocketPolicy(SocketPolicy.DISCONNECT_AT_END);
+        }
+        return response;
+    }
+}
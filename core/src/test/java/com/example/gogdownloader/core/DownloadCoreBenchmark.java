@@ -0,0 +1,288 @@
+package com.example.gogdownloader.core;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+/**
+ * Benchmark do core de download contra um MockWebServer local, numa JVM comum:
+ *
+ *   ./gradlew :core:downloadBenchmark
+ *
+ * Cenários: servidor rápido (com e sem MD5), banda limitada, conexão que cai
+ * no meio do corpo, servidor que trava entre rajadas, servidor que ignora Range
+ * e download segmentado com Range. Para cada um mostra MB/s, tempo de CPU por
+ * GB e bytes alocados por GB. A CPU é a do processo inteiro (inclui o servidor);
+ * a alocação soma as threads vivas ao fim da medição, o que deixa de fora as
+ * threads de conexão do servidor e aproxima o custo do lado do cliente.
+ */
+public class DownloadCoreBenchmark {
+
+    private static final int PAYLOAD_SIZE = 64 * 1024 * 1024;
+    private static final int MEDIUM_PAYLOAD_SIZE = 32 * 1024 * 1024;
+    private static final int SMALL_PAYLOAD_SIZE = 8 * 1024 * 1024;
+    private static final int MEASURED_RUNS = 3;
+    private static final double GB = 1024.0 * 1024 * 1024;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private static byte[] payload;
+
+    /**
+     * Comportamento do servidor num cenário
+     */
+    private static class Scenario {
+        final String name;
+        final int size;
+        boolean honorRange = true;
+        boolean md5;
+        int failFirstRequests;        // requisições que caem no meio do corpo
+        long throttleBytes;           // bytes por período (0 = sem limite)
+        long throttlePeriodMs;
+        int segments;                 // > 0 usa o SegmentedDownloader
+
+        Scenario(String name, int size) {
+            this.name = name;
+            this.size = size;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+        payload = new byte[PAYLOAD_SIZE];
+        new Random(42).nextBytes(payload);
+
+        Scenario fast = new Scenario("rápido", PAYLOAD_SIZE);
+        Scenario fastMd5 = new Scenario("rápido + MD5", PAYLOAD_SIZE);
+        fastMd5.md5 = true;
+        Scenario throttled = new Scenario("limitado 20 MB/s", MEDIUM_PAYLOAD_SIZE);
+        throttled.throttleBytes = 2 * 1024 * 1024;
+        throttled.throttlePeriodMs = 100;
+        Scenario flaky = new Scenario("instável (2 quedas)", PAYLOAD_SIZE);
+        flaky.failFirstRequests = 2;
+        Scenario stalling = new Scenario("travando (1 MB a cada 250 ms)", SMALL_PAYLOAD_SIZE);
+        stalling.throttleBytes = 1024 * 1024;
+        stalling.throttlePeriodMs = 250;
+        Scenario noRange = new Scenario("ignora Range (retomada)", PAYLOAD_SIZE);
+        noRange.honorRange = false;
+        noRange.failFirstRequests = 1;
+        Scenario segmented = new Scenario("segmentado x4", PAYLOAD_SIZE);
+        segmented.segments = 4;
+        Scenario segmentedThrottled = new Scenario("segmentado x4, limitado", MEDIUM_PAYLOAD_SIZE);
+        segmentedThrottled.segments = 4;
+        segmentedThrottled.throttleBytes = 2 * 1024 * 1024;
+        segmentedThrottled.throttlePeriodMs = 100;
+
+        Scenario[] scenarios = {fast, fastMd5, throttled, flaky, stalling, noRange, segmented, segmentedThrottled};
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .readTimeout(30, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+
+        System.out.println(String.format("%-30s %10s %12s %14s %8s", "cenário", "MB/s", "CPU ms/GB", "alocado MB/GB", "reqs"));
+        for (Scenario scenario : scenarios) {
+            run(client, scenario); // aquecimento
+            Measurement best = null;
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                Measurement measurement = run(client, scenario);
+                if (best == null || measurement.elapsedNanos < best.elapsedNanos) {
+                    best = measurement;
+                }
+            }
+            System.out.println(String.format("%-30s %10.1f %12.0f %14.1f %8d", scenario.name,
+                    best.megabytesPerSecond(), best.cpuMillisPerGb(), best.allocatedMegabytesPerGb(), best.requests));
+        }
+
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private static class Measurement {
+        long bytes;
+        long elapsedNanos;
+        long cpuNanos;
+        long allocatedBytes;
+        int requests;
+
+        double megabytesPerSecond() {
+            return bytes / (1024.0 * 1024) / (elapsedNanos / 1e9);
+        }
+
+        double cpuMillisPerGb() {
+            return cpuNanos / 1e6 * (GB / bytes);
+        }
+
+        double allocatedMegabytesPerGb() {
+            return allocatedBytes / (1024.0 * 1024) * (GB / bytes);
+        }
+    }
+
+    private static Measurement run(OkHttpClient client, Scenario scenario) throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new RangeDispatcher(scenario, requests));
+        server.start();
+        String url = server.url("/installer.bin").toString();
+
+        ProgressListener listener = new ProgressListener() {
+            @Override
+            public boolean isStopped() {
+                return false;
+            }
+
+            @Override
+            public void onProgress(long bytesDone, long totalBytes) {
+            }
+        };
+
+        File file = scenario.segments > 0 ? File.createTempFile("segmented", ".bin") : null;
+        try {
+            System.gc();
+            long cpuStart = processCpuTime();
+            long allocatedStart = allocatedBytes();
+            long start = System.nanoTime();
+            long bytes;
+
+            if (scenario.segments > 0) {
+                SegmentedDownloader downloader = new SegmentedDownloader(client, scenario.segments);
+                try (FileStorage storage = new FileStorage(file)) {
+                    SegmentedDownloader.Result result = downloader.download(url, scenario.size, storage, listener);
+                    check(result.isComplete(), scenario);
+                    bytes = result.getBytesDone();
+                }
+            } else {
+                RangeDownloader downloader = new RangeDownloader(client);
+                downloader.setComputeMd5(scenario.md5);
+                downloader.setMaxAttempts(scenario.failFirstRequests + 1);
+                DiscardStorage storage = new DiscardStorage();
+                RangeDownloader.Result result = downloader.download(url, scenario.size, 0, storage, listener);
+                check(result.isComplete() && storage.size == scenario.size, scenario);
+                bytes = result.getBytesFromNetwork();
+            }
+
+            Measurement measurement = new Measurement();
+            measurement.elapsedNanos = System.nanoTime() - start;
+            measurement.cpuNanos = processCpuTime() - cpuStart;
+            measurement.allocatedBytes = allocatedBytes() - allocatedStart;
+            measurement.bytes = bytes;
+            measurement.requests = requests.get();
+            return measurement;
+        } finally {
+            server.shutdown();
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    private static void check(boolean ok, Scenario scenario) {
+        if (!ok) {
+            throw new IllegalStateException("Download incompleto no cenário " + scenario.name);
+        }
+    }
+
+    /**
+     * Serve o payload respeitando (ou não) o Range, com limite de banda e quedas
+     */
+    private static class RangeDispatcher extends Dispatcher {
+        private final Scenario scenario;
+        private final AtomicInteger requests;
+
+        RangeDispatcher(Scenario scenario, AtomicInteger requests) {
+            this.scenario = scenario;
+            this.requests = requests;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            int index = requests.getAndIncrement();
+            long from = 0;
+            long to = scenario.size - 1;
+            boolean partial = false;
+
+            String range = request.getHeader("Range");
+            if (range != null && scenario.honorRange) {
+                Matcher matcher = RANGE.matcher(range);
+                if (matcher.matches()) {
+                    from = Long.parseLong(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        to = Math.min(to, Long.parseLong(matcher.group(2)));
+                    }
+                    partial = true;
+                }
+            }
+            if (from >= scenario.size) {
+                return new MockResponse().setResponseCode(416);
+            }
+
+            MockResponse response = new MockResponse()
+                    .setResponseCode(partial ? 206 : 200)
+                    .setBody(new Buffer().write(payload, (int) from, (int) (to - from + 1)));
+            if (partial) {
+                response.addHeader("Content-Range", "bytes " + from + "-" + to + "/" + scenario.size);
+            }
+            if (scenario.throttleBytes > 0) {
+                response.throttleBody(scenario.throttleBytes, scenario.throttlePeriodMs, TimeUnit.MILLISECONDS);
+            }
+            if (index < scenario.failFirstRequests) {
+                response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Descarta os bytes: mede o core e a rede, não o disco
+     */
+    private static class DiscardStorage implements DownloadStorage {
+        long size;
+
+        @Override
+        public OutputStream openOutputStream(boolean append) {
+            if (!append) {
+                size = 0;
+            }
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    size++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    size += len;
+                }
+            };
+        }
+    }
+
+    private static long processCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+}
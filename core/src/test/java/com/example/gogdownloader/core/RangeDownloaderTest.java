@@ -0,0 +1,168 @@
+package com.example.gogdownloader.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class RangeDownloaderTest {
+
+    private static final int SIZE = 256 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] content = new byte[SIZE];
+    private MockWebServer server;
+    private ContentDispatcher dispatcher;
+    private RangeDownloader downloader;
+    private File file;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(SIZE).nextBytes(content);
+        dispatcher = new ContentDispatcher(content);
+        server = new MockWebServer();
+        server.setDispatcher(dispatcher);
+        server.start();
+        url = server.url("/installer.exe").toString();
+        downloader = new RangeDownloader(new OkHttpClient());
+        file = folder.newFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void resumesFromOffset() throws IOException {
+        writeFile(Arrays.copyOf(content, 1000));
+
+        RangeDownloader.Result result = downloader.download(url, SIZE, 1000, new FileStorage(file), listener());
+
+        assertTrue(result.isComplete());
+        assertFalse(result.isRestarted());
+        assertEquals(SIZE, result.getBytesDone());
+        assertEquals(SIZE - 1000, result.getBytesFromNetwork());
+        assertEquals(Arrays.asList("bytes=1000-"), dispatcher.getRanges());
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void restartsFromZeroWhenServerIgnoresRange() throws IOException {
+        // O que já está no destino não é do arquivo: precisa ser descartado, não completado
+        writeFile(new byte[1000]);
+        dispatcher.setHonorRange(false);
+        downloader.setComputeMd5(true);
+
+        RangeDownloader.Result result = downloader.download(url, SIZE, 1000, new FileStorage(file), listener());
+
+        assertTrue(result.isComplete());
+        assertTrue(result.isRestarted());
+        assertEquals(SIZE, result.getBytesDone());
+        assertEquals(md5(content), result.getMd5());
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void retriesFromLastWrittenByteAfterDroppedConnection() throws IOException {
+        dispatcher.cutOnce(0, 10000);
+
+        RangeDownloader.Result result = downloader.download(url, SIZE, 0, new FileStorage(file), listener());
+
+        assertTrue(result.isComplete());
+        assertEquals(2, result.getAttempts());
+        assertEquals(Arrays.asList(null, "bytes=10000-"), dispatcher.getRanges());
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void abortsAfterMaxAttempts() {
+        dispatcher.fail(503, -1);
+        downloader.setMaxAttempts(3);
+
+        assertThrows(IOException.class,
+                () -> downloader.download(url, SIZE, 0, new FileStorage(file), listener()));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void retriesServerErrorsUntilSuccess() throws IOException {
+        dispatcher.fail(503, 2);
+        downloader.setMaxAttempts(3);
+
+        RangeDownloader.Result result = downloader.download(url, SIZE, 0, new FileStorage(file), listener());
+
+        assertTrue(result.isComplete());
+        assertEquals(3, result.getAttempts());
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() {
+        dispatcher.fail(404, -1);
+
+        assertThrows(IOException.class,
+                () -> downloader.download(url, SIZE, 0, new FileStorage(file), listener()));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void completesWithoutDownloadingWhenFileIsWhole() throws IOException {
+        writeFile(content);
+
+        RangeDownloader.Result result = downloader.download(url, SIZE, SIZE, new FileStorage(file), listener());
+
+        assertTrue(result.isComplete());
+        assertEquals(0, result.getBytesFromNetwork());
+        assertNull(result.getMd5());
+    }
+
+    private void writeFile(byte[] bytes) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private byte[] readFile() throws IOException {
+        return Files.readAllBytes(file.toPath());
+    }
+
+    static String md5(byte[] bytes) {
+        return Hashes.toHex(Hashes.newMd5().digest(bytes));
+    }
+
+    static ProgressListener listener() {
+        return new ProgressListener() {
+            @Override
+            public boolean isStopped() {
+                return false;
+            }
+
+            @Override
+            public void onProgress(long bytesDone, long totalBytes) {
+            }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.gogdownloader.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class SegmentedDownloaderTest {
+
+    private static final int SEGMENT = 1024 * 1024;
+    private static final int SIZE = 3 * SEGMENT;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] content = new byte[SIZE];
+    private MockWebServer server;
+    private ContentDispatcher dispatcher;
+    private File file;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(SIZE).nextBytes(content);
+        dispatcher = new ContentDispatcher(content);
+        server = new MockWebServer();
+        server.setDispatcher(dispatcher);
+        server.start();
+        url = server.url("/installer.bin").toString();
+        file = folder.newFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void downloadsEachSegmentWithItsRange() throws IOException {
+        SegmentedDownloader.Result result = download(new SegmentedDownloader(new OkHttpClient(), 3), SIZE);
+
+        assertTrue(result.isComplete());
+        assertEquals(3, result.getSegments());
+        assertEquals(0, result.getRetries());
+        assertTrue(dispatcher.getRanges().contains("bytes=0-" + (SEGMENT - 1)));
+        assertTrue(dispatcher.getRanges().contains("bytes=" + SEGMENT + "-" + (2 * SEGMENT - 1)));
+        assertTrue(dispatcher.getRanges().contains("bytes=" + 2 * SEGMENT + "-" + (SIZE - 1)));
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void resumesSegmentFromLastWrittenByte() throws IOException {
+        dispatcher.cutOnce(SEGMENT, 1000);
+
+        SegmentedDownloader.Result result = download(new SegmentedDownloader(new OkHttpClient(), 3), SIZE);
+
+        assertTrue(result.isComplete());
+        assertEquals(1, result.getRetries());
+        assertEquals(4, server.getRequestCount());
+        assertTrue(dispatcher.getRanges().contains("bytes=" + (SEGMENT + 1000) + "-" + (2 * SEGMENT - 1)));
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void failsWithoutRetryWhenServerIgnoresRange() {
+        dispatcher.setHonorRange(false);
+
+        // Um segmento só: o resultado não depende da ordem das threads
+        assertThrows(SegmentedDownloader.RangeNotSupportedException.class,
+                () -> download(new SegmentedDownloader(new OkHttpClient(), 3), SEGMENT / 2));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void abortsAfterMaxAttempts() {
+        dispatcher.fail(503, -1);
+        SegmentedDownloader downloader = new SegmentedDownloader(new OkHttpClient(), 3);
+        downloader.setMaxAttempts(2);
+
+        assertThrows(IOException.class, () -> download(downloader, SEGMENT / 2));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private SegmentedDownloader.Result download(SegmentedDownloader downloader, long size) throws IOException {
+        try (FileStorage storage = new FileStorage(file)) {
+            return downloader.download(url, size, storage, RangeDownloaderTest.listener());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.gogdownloader.activities;
+
+import android.app.Activity;
+import android.content.ContentValues;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.widget.Toolbar;
+
+import com.example.gogdownloader.R;
+import com.example.gogdownloader.database.DatabaseHelper;
+import com.example.gogdownloader.utils.DownloadTelemetry;
+import com.example.gogdownloader.utils.NetworkMetrics;
+import com.example.gogdownloader.utils.SpeedMeter;
+import com.example.gogdownloader.utils.TraceBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Mostra os tempos de rede por endpoint (percentis de DNS, conexão, TLS,
+ * servidor e resposta desde que o app foi aberto) e o resumo da telemetria
+ * das transferências recentes (vazão, TTFB, travamentos, novas tentativas,
+ * host e latência de gravação); exporta as amostras brutas em JSON ou CSV
+ * e o trace de eventos recentes em texto.
+ */
+public class DiagnosticsActivity extends BaseActivity {
+
+    private static final String TAG = "DiagnosticsActivity";
+    private static final int MAX_TRANSFERS = 50;
+
+    private LinearLayout networkContainer;
+    private TextView networkEmptyText;
+    private LinearLayout telemetryContainer;
+    private TextView telemetryEmptyText;
+    private Button exportJsonButton;
+    private Button exportCsvButton;
+    private Button clearTelemetryButton;
+    private Button exportTraceButton;
+
+    private DatabaseHelper databaseHelper;
+    private DownloadTelemetry telemetry;
+
+    private ActivityResultLauncher<Intent> exportLauncher;
+    private ActivityResultLauncher<Intent> traceExportLauncher;
+    private DownloadTelemetry.ExportFormat pendingExportFormat;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        networkContainer = findViewById(R.id.networkContainer);
+        networkEmptyText = findViewById(R.id.networkEmptyText);
+        telemetryContainer = findViewById(R.id.telemetryContainer);
+        telemetryEmptyText = findViewById(R.id.telemetryEmptyText);
+        exportJsonButton = findViewById(R.id.exportJsonButton);
+        exportCsvButton = findViewById(R.id.exportCsvButton);
+        clearTelemetryButton = findViewById(R.id.clearTelemetryButton);
+        exportTraceButton = findViewById(R.id.exportTraceButton);
+
+        databaseHelper = new DatabaseHelper(this);
+        telemetry = DownloadTelemetry.getInstance(this);
+
+        setupToolbar();
+
+        exportLauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> {
+                    if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null
+                            && result.getData().getData() != null) {
+                        exportTo(result.getData().getData(), pendingExportFormat);
+                    }
+                });
+
+        traceExportLauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> {
+                    if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null
+                            && result.getData().getData() != null) {
+                        exportTraceTo(result.getData().getData());
+                    }
+                });
+
+        exportJsonButton.setOnClickListener(v -> openExportPicker(DownloadTelemetry.ExportFormat.JSON));
+        exportCsvButton.setOnClickListener(v -> openExportPicker(DownloadTelemetry.ExportFormat.CSV));
+        clearTelemetryButton.setOnClickListener(v -> showClearConfirmation());
+        exportTraceButton.setOnClickListener(v -> openTraceExportPicker());
+
+        showNetworkMetrics();
+        loadTransfers();
+    }
+
+    private void setupToolbar() {
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setDisplayShowHomeEnabled(true);
+        }
+
+        toolbar.setNavigationOnClickListener(v -> onBackPressed());
+    }
+
+    private void showNetworkMetrics() {
+        networkContainer.removeAllViews();
+        List<NetworkMetrics.EndpointStats> endpoints = NetworkMetrics.getInstance().getSnapshot();
+        networkEmptyText.setVisibility(endpoints.isEmpty() ? View.VISIBLE : View.GONE);
+
+        LayoutInflater inflater = LayoutInflater.from(this);
+        for (NetworkMetrics.EndpointStats stats : endpoints) {
+            View item = inflater.inflate(R.layout.item_telemetry_transfer, networkContainer, false);
+            ((TextView) item.findViewById(R.id.transferTitle)).setText(stats.getHost() + stats.getEndpoint());
+            ((TextView) item.findViewById(R.id.transferDetails)).setText(stats.describe());
+            networkContainer.addView(item);
+        }
+    }
+
+    private void loadTransfers() {
+        new Thread(() -> {
+            try {
+                telemetry.flushNow(); // incluir as transferências em andamento
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to flush telemetry", e);
+            }
+            List<ContentValues> transfers = databaseHelper.getTelemetrySummaries(MAX_TRANSFERS);
+            runOnUiThread(() -> {
+                if (!isFinishing()) {
+                    showTransfers(transfers);
+                }
+            });
+        }).start();
+    }
+
+    private void showTransfers(List<ContentValues> transfers) {
+        telemetryContainer.removeAllViews();
+        telemetryEmptyText.setVisibility(transfers.isEmpty() ? View.VISIBLE : View.GONE);
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM HH:mm:ss", Locale.getDefault());
+        LayoutInflater inflater = LayoutInflater.from(this);
+        for (ContentValues transfer : transfers) {
+            View item = inflater.inflate(R.layout.item_telemetry_transfer, telemetryContainer, false);
+
+            String fileName = transfer.getAsString("file_name");
+            TextView title = item.findViewById(R.id.transferTitle);
+            title.setText((fileName != null ? fileName : "Jogo " + transfer.getAsLong("game_id"))
+                    + " · " + dateFormat.format(new Date(transfer.getAsLong("transfer_id"))));
+
+            String host = transfer.getAsString("host");
+            String details = "Vazão média " + SpeedMeter.formatSpeed(transfer.getAsLong("avg_throughput"))
+                    + ", pico " + SpeedMeter.formatSpeed(transfer.getAsLong("max_throughput"))
+                    + " (" + transfer.getAsInteger("samples") + " s)"
+                    + "\nTTFB médio " + transfer.getAsLong("avg_ttfb") + " ms"
+                    + " · Travamentos " + transfer.getAsInteger("stalls")
+                    + " (" + transfer.getAsLong("stall_ms") / 1000 + " s)"
+                    + " · Novas tentativas " + transfer.getAsInteger("retries")
+                    + "\nGravação " + transfer.getAsLong("avg_write_latency") + " µs por bloco"
+                    + "\nHost " + (host != null ? host : "desconhecido");
+            ((TextView) item.findViewById(R.id.transferDetails)).setText(details);
+
+            telemetryContainer.addView(item);
+        }
+    }
+
+    private void openExportPicker(DownloadTelemetry.ExportFormat format) {
+        pendingExportFormat = format;
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmm", Locale.US).format(new Date());
+        boolean json = format == DownloadTelemetry.ExportFormat.JSON;
+
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType(json ? "application/json" : "text/csv");
+        intent.putExtra(Intent.EXTRA_TITLE, "gog_telemetria_" + timestamp + (json ? ".json" : ".csv"));
+        exportLauncher.launch(intent);
+    }
+
+    private void exportTo(Uri uri, DownloadTelemetry.ExportFormat format) {
+        new Thread(() -> {
+            String message;
+            try (OutputStream outputStream = getContentResolver().openOutputStream(uri)) {
+                if (outputStream == null) {
+                    throw new IOException("Não foi possível abrir o arquivo");
+                }
+                telemetry.export(format, outputStream);
+                message = "Telemetria exportada";
+            } catch (Exception e) {
+                Log.e(TAG, "Telemetry export failed", e);
+                message = "Erro ao exportar: " + e.getMessage();
+            }
+
+            String finalMessage = message;
+            runOnUiThread(() -> Toast.makeText(this, finalMessage, Toast.LENGTH_SHORT).show());
+        }).start();
+    }
+
+    private void openTraceExportPicker() {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmm", Locale.US).format(new Date());
+
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_TITLE, "gog_trace_" + timestamp + ".txt");
+        traceExportLauncher.launch(intent);
+    }
+
+    private void exportTraceTo(Uri uri) {
+        // Copiar o buffer agora, antes que novos eventos sobrescrevam os que levaram à exportação
+        String trace = TraceBuffer.dump();
+        new Thread(() -> {
+            String message;
+            try (OutputStream outputStream = getContentResolver().openOutputStream(uri)) {
+                if (outputStream == null) {
+                    throw new IOException("Não foi possível abrir o arquivo");
+                }
+                outputStream.write(trace.getBytes(StandardCharsets.UTF_8));
+                message = "Trace exportado";
+            } catch (Exception e) {
+                Log.e(TAG, "Trace export failed", e);
+                message = "Erro ao exportar: " + e.getMessage();
+            }
+
+            String finalMessage = message;
+            runOnUiThread(() -> Toast.makeText(this, finalMessage, Toast.LENGTH_SHORT).show());
+        }).start();
+    }
+
+    private void showClearConfirmation() {
+        new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+                .setTitle("Limpar telemetria")
+                .setMessage("Apagar todas as amostras registradas e os tempos de rede?")
+                .setPositiveButton("Limpar", (dialog, which) -> new Thread(() -> {
+                    NetworkMetrics.getInstance().reset();
+                    runOnUiThread(this::showNetworkMetrics);
+                    try {
+                        telemetry.clear();
+                    } catch (IOException e) {
+                        Log.e(TAG, "Failed to clear telemetry", e);
+                    }
+                    loadTransfers();
+                }).start())
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (databaseHelper != null) {
+            databaseHelper.close();
+        }
+    }
+}
@@ -1,25 +1,33 @@
 package com.example.gogdownloader.activities;
 
 import android.content.BroadcastReceiver;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.DocumentsContract;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
+import androidx.annotation.NonNull;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
@@ -29,6 +37,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.gogdownloader.R;
+import com.example.gogdownloader.adapters.CoverPrefetcher;
 import com.example.gogdownloader.adapters.DownloadLinkAdapter;
 import com.example.gogdownloader.adapters.GamesAdapter;
 import com.example.gogdownloader.api.GOGAuthManager;
@@ -36,25 +45,38 @@ import com.example.gogdownloader.api.GOGLibraryManager;
 import com.example.gogdownloader.database.DatabaseHelper;
 import com.example.gogdownloader.models.DownloadLink;
 import com.example.gogdownloader.models.Game;
+import com.example.gogdownloader.models.LibraryFilter;
+import com.example.gogdownloader.models.MirrorFilter;
 import com.example.gogdownloader.services.DownloadService;
 import com.example.gogdownloader.utils.DynamicColorTester;
 import com.example.gogdownloader.utils.ImageLoader;
 import com.example.gogdownloader.utils.PermissionHelper;
 import com.example.gogdownloader.utils.PreferencesManager;
 import com.example.gogdownloader.utils.SAFDownloadManager;
+import com.example.gogdownloader.utils.UpdateChecker;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.textfield.TextInputEditText;
 
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGameActionListener {
     
     private static final int SETTINGS_REQUEST_CODE = 100;
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+    private static final int LIBRARY_PAGE_SIZE = 50;
     
     private RecyclerView gamesRecyclerView;
     private GamesAdapter gamesAdapter;
@@ -79,6 +101,18 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
     private DownloadLink pendingDownloadLink; // Para compatibilidade com código antigo
     private List<DownloadLink> pendingSelectedLinks; // Para múltiplos downloads
     private BroadcastReceiver downloadProgressReceiver;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::applySearch;
+    // Filtros da biblioteca (status, plataforma, gênero, tamanho), executados no banco
+    private LibraryFilter libraryFilter = new LibraryFilter();
+    // Leituras da biblioteca no banco, uma de cada vez e na ordem pedida
+    private final ExecutorService libraryExecutor = Executors.newSingleThreadExecutor();
+    private int libraryQueryGeneration;
+    // Paginação do cache local: último jogo carregado, null quando não há mais páginas
+    private Game lastPageGame;
+    private boolean pageLoading;
+    // Busca e filtros das páginas exibidas, ou null para a biblioteca inteira
+    private LibraryFilter pageFilter;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -226,8 +260,20 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
         gamesAdapter = new GamesAdapter(this);
         gamesAdapter.setOnGameActionListener(this);
         
-        gamesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        gamesRecyclerView.setLayoutManager(layoutManager);
         gamesRecyclerView.setAdapter(gamesAdapter);
+        // Capas da próxima tela carregam antes da linha aparecer
+        gamesRecyclerView.addOnScrollListener(new CoverPrefetcher(gamesAdapter, layoutManager));
+        // Próxima página do cache quando faltar meia página para o fim da lista
+        gamesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= gamesAdapter.getItemCount() - LIBRARY_PAGE_SIZE / 2) {
+                    loadNextPage();
+                }
+            }
+        });
     }
     
     private void setupClickListeners() {
@@ -244,7 +290,9 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                gamesAdapter.filter(s.toString());
+                // Filtrar só quando a digitação pausar
+                searchHandler.removeCallbacks(searchRunnable);
+                searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
             }
 
             @Override
@@ -275,10 +323,8 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
     private void loadLibrary() {
         showLoading(true);
         
-        // Primeiro, tentar carregar do cache local
-        List<Game> cachedGames = databaseHelper.getAllGames();
-        if (!cachedGames.isEmpty()) {
-            displayGames(cachedGames);
+        // Primeiro, tentar carregar do cache local (só a primeira página, fora da thread principal)
+        loadCachedLibrary(() -> {
             showLoading(false);
             
             // Atualizar informações do usuário
@@ -286,10 +332,80 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
             
             // Atualizar em background
             refreshLibraryInBackground();
-        } else {
-            // Se não há cache, carregar diretamente da API
-            loadLibraryFromAPI();
+        }, this::loadLibraryFromAPI); // Se não há cache, carregar diretamente da API
+    }
+    
+    /**
+     * Exibe a primeira página do cache local; as demais chegam com a rolagem
+     * @param onLoaded executado quando há jogos no cache, ou null
+     * @param onEmpty executado quando o cache está vazio; null exibe a lista vazia
+     */
+    private void loadCachedLibrary(Runnable onLoaded, Runnable onEmpty) {
+        int generation = startLibraryQuery();
+        libraryExecutor.execute(() -> {
+            List<Game> page = databaseHelper.getLibraryPage(null, LIBRARY_PAGE_SIZE);
+            int total = page.size() < LIBRARY_PAGE_SIZE ? page.size() : databaseHelper.getGameCount();
+            runOnUiThread(() -> {
+                if (generation != libraryQueryGeneration || isFinishing()) {
+                    return;
+                }
+                if (page.isEmpty() && onEmpty != null) {
+                    onEmpty.run();
+                    return;
+                }
+                
+                if (libraryFilter.isActive()) {
+                    // Busca ou filtros aplicados enquanto a página carregava
+                    runLibraryQuery();
+                } else {
+                    lastPageGame = page.size() == LIBRARY_PAGE_SIZE ? page.get(page.size() - 1) : null;
+                    gamesAdapter.setGames(page);
+                    updateGameCount(total);
+                }
+                if (!page.isEmpty()) {
+                    showContent();
+                }
+                if (onLoaded != null) {
+                    onLoaded.run();
+                }
+            });
+        });
+    }
+    
+    /**
+     * Próxima página do cache local, ou do resultado da busca e dos filtros
+     */
+    private void loadNextPage() {
+        if (lastPageGame == null || pageLoading) {
+            return;
         }
+        pageLoading = true;
+        int generation = libraryQueryGeneration;
+        Game after = lastPageGame;
+        LibraryFilter filter = pageFilter;
+        libraryExecutor.execute(() -> {
+            List<Game> page = filter != null
+                    ? databaseHelper.searchLibrary(filter, after, LIBRARY_PAGE_SIZE)
+                    : databaseHelper.getLibraryPage(after, LIBRARY_PAGE_SIZE);
+            runOnUiThread(() -> {
+                if (generation != libraryQueryGeneration || isFinishing()) {
+                    return;
+                }
+                pageLoading = false;
+                lastPageGame = page.size() == LIBRARY_PAGE_SIZE ? page.get(page.size() - 1) : null;
+                gamesAdapter.appendGames(page);
+            });
+        });
+    }
+    
+    /**
+     * Nova lista da biblioteca: descarta consultas e páginas ainda em andamento
+     */
+    private int startLibraryQuery() {
+        lastPageGame = null;
+        pageLoading = false;
+        pageFilter = null;
+        return ++libraryQueryGeneration;
     }
     
     private void refreshLibrary() {
@@ -345,22 +461,24 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
                     showError(error);
                     
                     // Se há cache, mostrar dados em cache
-                    List<Game> cachedGames = databaseHelper.getAllGames();
-                    if (!cachedGames.isEmpty()) {
-                        displayGames(cachedGames);
-                        updateUserInfo();
-                    } else {
-                        showEmpty();
-                    }
+                    loadCachedLibrary(LibraryActivity.this::updateUserInfo, LibraryActivity.this::showEmpty);
                 });
             }
         });
     }
     
     private void displayGames(List<Game> games) {
+        if (libraryFilter.isActive() && !games.isEmpty()) {
+            // Biblioteca recarregada com busca ou filtros ativos: o banco já foi atualizado
+            runLibraryQuery();
+            showContent();
+            return;
+        }
         if (games.isEmpty()) {
             showEmpty();
         } else {
+            // Lista completa vinda da API: páginas do cache em andamento não valem mais
+            startLibraryQuery();
             gamesAdapter.setGames(games);
             showContent();
             updateGameCount(games.size());
@@ -605,7 +723,16 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
         
-        if (id == R.id.action_settings) {
+        if (id == R.id.action_filter) {
+            showLibraryFilterDialog();
+            return true;
+        } else if (id == R.id.action_updates) {
+            showAvailableUpdates();
+            return true;
+        } else if (id == R.id.action_mirror) {
+            showMirrorDialog();
+            return true;
+        } else if (id == R.id.action_settings) {
             openSettings();
             return true;
         } else if (id == R.id.action_logout) {
@@ -616,6 +743,281 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
         return super.onOptionsItemSelected(item);
     }
     
+    private void applySearch() {
+        String text = searchEditText.getText() != null ? searchEditText.getText().toString() : "";
+        libraryFilter.setText(text);
+        runLibraryQuery();
+    }
+    
+    /**
+     * Busca (FTS) e filtros no banco, paginados como a biblioteca; só o resultado
+     * da consulta mais recente é exibido
+     */
+    private void runLibraryQuery() {
+        if (!libraryFilter.isActive()) {
+            // Sem busca nem filtros: de volta à biblioteca paginada
+            loadCachedLibrary(null, null);
+            return;
+        }
+        int generation = startLibraryQuery();
+        LibraryFilter filter = libraryFilter.copy();
+        pageFilter = filter;
+        libraryExecutor.execute(() -> {
+            List<Game> page = databaseHelper.searchLibrary(filter, null, LIBRARY_PAGE_SIZE);
+            int total = page.size() < LIBRARY_PAGE_SIZE ? page.size() : databaseHelper.getLibrarySearchCount(filter);
+            runOnUiThread(() -> {
+                if (generation != libraryQueryGeneration || isFinishing()) {
+                    return;
+                }
+                lastPageGame = page.size() == LIBRARY_PAGE_SIZE ? page.get(page.size() - 1) : null;
+                gamesAdapter.setGames(page);
+                updateGameCount(total);
+            });
+        });
+    }
+    
+    private void showLibraryFilterDialog() {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_library_filter, null);
+        CheckBox notDownloadedCheck = dialogView.findViewById(R.id.filterNotDownloadedCheck);
+        CheckBox downloadingCheck = dialogView.findViewById(R.id.filterDownloadingCheck);
+        CheckBox pausedCheck = dialogView.findViewById(R.id.filterPausedCheck);
+        CheckBox downloadedCheck = dialogView.findViewById(R.id.filterDownloadedCheck);
+        CheckBox failedCheck = dialogView.findViewById(R.id.filterFailedCheck);
+        CheckBox windowsCheck = dialogView.findViewById(R.id.filterWindowsCheck);
+        CheckBox macCheck = dialogView.findViewById(R.id.filterMacCheck);
+        CheckBox linuxCheck = dialogView.findViewById(R.id.filterLinuxCheck);
+        Spinner genreSpinner = dialogView.findViewById(R.id.filterGenreSpinner);
+        TextInputEditText minSizeEditText = dialogView.findViewById(R.id.filterMinSizeEditText);
+        TextInputEditText maxSizeEditText = dialogView.findViewById(R.id.filterMaxSizeEditText);
+        
+        Map<Game.DownloadStatus, CheckBox> statusChecks = new EnumMap<>(Game.DownloadStatus.class);
+        statusChecks.put(Game.DownloadStatus.NOT_DOWNLOADED, notDownloadedCheck);
+        statusChecks.put(Game.DownloadStatus.DOWNLOADING, downloadingCheck);
+        statusChecks.put(Game.DownloadStatus.PAUSED, pausedCheck);
+        statusChecks.put(Game.DownloadStatus.DOWNLOADED, downloadedCheck);
+        statusChecks.put(Game.DownloadStatus.FAILED, failedCheck);
+        for (Map.Entry<Game.DownloadStatus, CheckBox> entry : statusChecks.entrySet()) {
+            entry.getValue().setChecked(libraryFilter.getStatuses().contains(entry.getKey()));
+        }
+        windowsCheck.setChecked(libraryFilter.getPlatforms().contains(DownloadLink.Platform.WINDOWS));
+        macCheck.setChecked(libraryFilter.getPlatforms().contains(DownloadLink.Platform.MAC));
+        linuxCheck.setChecked(libraryFilter.getPlatforms().contains(DownloadLink.Platform.LINUX));
+        if (libraryFilter.getMinSize() > 0) {
+            minSizeEditText.setText(formatGigabytes(libraryFilter.getMinSize()));
+        }
+        if (libraryFilter.getMaxSize() > 0) {
+            maxSizeEditText.setText(formatGigabytes(libraryFilter.getMaxSize()));
+        }
+        
+        // Gêneros e contagens vêm do banco
+        List<String> genres = new ArrayList<>();
+        genres.add(getString(R.string.filter_all_genres));
+        List<String> genreLabels = new ArrayList<>(genres);
+        ArrayAdapter<String> genreAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, genreLabels);
+        genreAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        genreSpinner.setAdapter(genreAdapter);
+        
+        libraryExecutor.execute(() -> {
+            List<ContentValues> genreFacets = databaseHelper.getGenreFacets();
+            Map<Game.DownloadStatus, Integer> statusFacets = databaseHelper.getStatusFacets();
+            runOnUiThread(() -> {
+                for (ContentValues facet : genreFacets) {
+                    genres.add(facet.getAsString("genre"));
+                    genreLabels.add(facet.getAsString("genre") + " (" + facet.getAsInteger("count") + ")");
+                }
+                genreAdapter.notifyDataSetChanged();
+                int selected = libraryFilter.getGenre() != null ? genres.indexOf(libraryFilter.getGenre()) : 0;
+                genreSpinner.setSelection(Math.max(0, selected));
+                
+                for (Map.Entry<Game.DownloadStatus, CheckBox> entry : statusChecks.entrySet()) {
+                    Integer count = statusFacets.get(entry.getKey());
+                    CheckBox check = entry.getValue();
+                    check.setText(check.getText() + " (" + (count != null ? count : 0) + ")");
+                }
+            });
+        });
+        
+        new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+                .setTitle(R.string.filter_library)
+                .setView(dialogView)
+                .setPositiveButton("Aplicar", (dialog, which) -> {
+                    LibraryFilter filter = new LibraryFilter();
+                    filter.setText(libraryFilter.getText());
+                    
+                    EnumSet<Game.DownloadStatus> statuses = EnumSet.noneOf(Game.DownloadStatus.class);
+                    for (Map.Entry<Game.DownloadStatus, CheckBox> entry : statusChecks.entrySet()) {
+                        if (entry.getValue().isChecked()) statuses.add(entry.getKey());
+                    }
+                    filter.setStatuses(statuses);
+                    
+                    EnumSet<DownloadLink.Platform> platforms = EnumSet.noneOf(DownloadLink.Platform.class);
+                    if (windowsCheck.isChecked()) platforms.add(DownloadLink.Platform.WINDOWS);
+                    if (macCheck.isChecked()) platforms.add(DownloadLink.Platform.MAC);
+                    if (linuxCheck.isChecked()) platforms.add(DownloadLink.Platform.LINUX);
+                    filter.setPlatforms(platforms);
+                    
+                    int genrePosition = genreSpinner.getSelectedItemPosition();
+                    filter.setGenre(genrePosition > 0 && genrePosition < genres.size() ? genres.get(genrePosition) : null);
+                    filter.setMinSize(parseGigabytes(minSizeEditText));
+                    filter.setMaxSize(parseGigabytes(maxSizeEditText));
+                    
+                    libraryFilter = filter;
+                    runLibraryQuery();
+                })
+                .setNeutralButton("Limpar", (dialog, which) -> {
+                    LibraryFilter filter = new LibraryFilter();
+                    filter.setText(libraryFilter.getText());
+                    libraryFilter = filter;
+                    runLibraryQuery();
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+    
+    private static String formatGigabytes(long bytes) {
+        return String.format(Locale.US, "%.1f", bytes / (1024.0 * 1024 * 1024));
+    }
+    
+    private static long parseGigabytes(TextInputEditText editText) {
+        String text = editText.getText() != null ? editText.getText().toString().trim().replace(',', '.') : "";
+        if (text.isEmpty()) {
+            return 0;
+        }
+        try {
+            return (long) (Double.parseDouble(text) * 1024 * 1024 * 1024);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Lista os jogos com atualização encontrada pela verificação em segundo plano
+     */
+    private void showAvailableUpdates() {
+        new Thread(() -> {
+            List<ContentValues> updates = databaseHelper.getAvailableUpdates();
+            runOnUiThread(() -> showAvailableUpdatesDialog(updates));
+        }).start();
+    }
+    
+    private void showAvailableUpdatesDialog(List<ContentValues> updates) {
+        if (isFinishing()) {
+            return;
+        }
+        
+        com.google.android.material.dialog.MaterialAlertDialogBuilder builder = new com.google.android.material.dialog.MaterialAlertDialogBuilder(this);
+        builder.setTitle(R.string.updates);
+        
+        if (updates.isEmpty()) {
+            builder.setMessage("Nenhuma atualização encontrada.");
+        } else {
+            String[] items = new String[updates.size()];
+            for (int i = 0; i < updates.size(); i++) {
+                ContentValues update = updates.get(i);
+                items[i] = update.getAsString("title") + " — " + update.getAsInteger("changed_files")
+                        + " arquivo(s), " + Game.formatFileSize(update.getAsLong("update_size"));
+            }
+            builder.setItems(items, (dialog, which) -> {
+                long gameId = updates.get(which).getAsLong("game_id");
+                Game game = databaseHelper.getGame(gameId);
+                if (game != null) {
+                    startGameUpdate(game);
+                }
+            });
+        }
+        
+        builder.setNeutralButton("Verificar agora", (dialog, which) -> checkUpdatesNow());
+        builder.setPositiveButton("OK", null);
+        builder.show();
+    }
+    
+    private void checkUpdatesNow() {
+        Toast.makeText(this, "Verificando atualizações...", Toast.LENGTH_SHORT).show();
+        new Thread(() -> {
+            int count = new UpdateChecker(this).checkAll();
+            runOnUiThread(() -> Toast.makeText(this,
+                    count == 0 ? "Todos os jogos estão atualizados" : count + " jogo(s) com atualização",
+                    Toast.LENGTH_LONG).show());
+        }).start();
+    }
+    
+    /**
+     * Configura os filtros e inicia o espelhamento de toda a biblioteca
+     */
+    private void showMirrorDialog() {
+        if (!safDownloadManager.hasDownloadLocationConfigured()) {
+            showFolderSelectionDialog();
+            return;
+        }
+        
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_mirror_options, null);
+        CheckBox windowsCheck = dialogView.findViewById(R.id.mirrorWindowsCheck);
+        CheckBox macCheck = dialogView.findViewById(R.id.mirrorMacCheck);
+        CheckBox linuxCheck = dialogView.findViewById(R.id.mirrorLinuxCheck);
+        CheckBox installersCheck = dialogView.findViewById(R.id.mirrorInstallersCheck);
+        CheckBox patchesCheck = dialogView.findViewById(R.id.mirrorPatchesCheck);
+        CheckBox extrasCheck = dialogView.findViewById(R.id.mirrorExtrasCheck);
+        TextInputEditText languagesEditText = dialogView.findViewById(R.id.mirrorLanguagesEditText);
+        TextView statusText = dialogView.findViewById(R.id.mirrorStatusText);
+        
+        MirrorFilter filter = preferencesManager.getMirrorFilter();
+        windowsCheck.setChecked(filter.getPlatforms().contains(DownloadLink.Platform.WINDOWS));
+        macCheck.setChecked(filter.getPlatforms().contains(DownloadLink.Platform.MAC));
+        linuxCheck.setChecked(filter.getPlatforms().contains(DownloadLink.Platform.LINUX));
+        installersCheck.setChecked(filter.getFileTypes().contains(DownloadLink.FileType.INSTALLER));
+        patchesCheck.setChecked(filter.getFileTypes().contains(DownloadLink.FileType.PATCH));
+        extrasCheck.setChecked(filter.getFileTypes().contains(DownloadLink.FileType.EXTRA));
+        languagesEditText.setText(TextUtils.join(", ", filter.getLanguages()));
+        
+        new Thread(() -> {
+            ContentValues summary = databaseHelper.getMirrorSummary();
+            String status = formatMirrorSummary(summary);
+            runOnUiThread(() -> statusText.setText(status));
+        }).start();
+        
+        new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+                .setTitle(R.string.mirror_library)
+                .setView(dialogView)
+                .setPositiveButton("Espelhar", (dialog, which) -> {
+                    EnumSet<DownloadLink.Platform> platforms = EnumSet.noneOf(DownloadLink.Platform.class);
+                    if (windowsCheck.isChecked()) platforms.add(DownloadLink.Platform.WINDOWS);
+                    if (macCheck.isChecked()) platforms.add(DownloadLink.Platform.MAC);
+                    if (linuxCheck.isChecked()) platforms.add(DownloadLink.Platform.LINUX);
+                    
+                    EnumSet<DownloadLink.FileType> fileTypes = EnumSet.noneOf(DownloadLink.FileType.class);
+                    if (installersCheck.isChecked()) fileTypes.add(DownloadLink.FileType.INSTALLER);
+                    if (patchesCheck.isChecked()) fileTypes.add(DownloadLink.FileType.PATCH);
+                    if (extrasCheck.isChecked()) fileTypes.add(DownloadLink.FileType.EXTRA);
+                    
+                    String languages = languagesEditText.getText() != null ? languagesEditText.getText().toString() : "";
+                    
+                    filter.setPlatforms(platforms);
+                    filter.setFileTypes(fileTypes);
+                    filter.setLanguages(new HashSet<>(Arrays.asList(languages.split(","))));
+                    preferencesManager.setMirrorFilter(filter);
+                    
+                    startForegroundService(DownloadService.createMirrorIntent(this, filter));
+                    Toast.makeText(this, "Comparando biblioteca com o arquivo local...", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+    
+    private String formatMirrorSummary(ContentValues summary) {
+        Integer done = summary.getAsInteger("files_" + DatabaseHelper.MIRROR_STATE_DONE);
+        Integer pending = summary.getAsInteger("files_" + DatabaseHelper.MIRROR_STATE_PENDING);
+        Integer failed = summary.getAsInteger("files_" + DatabaseHelper.MIRROR_STATE_FAILED);
+        if (done == null && pending == null && failed == null) {
+            return "Nenhum espelhamento realizado ainda.";
+        }
+        
+        Long pendingBytes = summary.getAsLong("bytes_" + DatabaseHelper.MIRROR_STATE_PENDING);
+        return "Último espelhamento: " + (done != null ? done : 0) + " sincronizado(s), "
+                + (pending != null ? pending : 0) + " pendente(s) ("
+                + Game.formatFileSize(pendingBytes != null ? pendingBytes : 0) + "), "
+                + (failed != null ? failed : 0) + " com falha";
+    }
+    
     private void showLogoutDialog() {
         new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
                 .setTitle("Logout")
@@ -842,14 +1244,43 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
     @Override
     public void onOpenGame(Game game) {
         // Mostrar informações do jogo baixado ou abrir pasta
-        if (game.getLocalPath() != null && !game.getLocalPath().isEmpty()) {
-            showGameDetails(game);
-        }
+        withFullGame(game, fullGame -> {
+            if (fullGame.getLocalPath() != null && !fullGame.getLocalPath().isEmpty()) {
+                showGameDetails(fullGame);
+            }
+        });
     }
     
     @Override
     public void onGameClick(Game game) {
-        showGameDetails(game);
+        withFullGame(game, this::showGameDetails);
+    }
+    
+    /**
+     * Jogos da lista só têm as colunas exibidas; descrição, caminho e o resto são lidos ao abrir
+     */
+    private void withFullGame(Game game, Consumer<Game> action) {
+        if (!game.isSummary()) {
+            action.accept(game);
+            return;
+        }
+        libraryExecutor.execute(() -> {
+            Game fullGame = databaseHelper.getGame(game.getId());
+            runOnUiThread(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                if (fullGame == null) {
+                    action.accept(game);
+                    return;
+                }
+                // Status e progresso da lista podem estar mais novos que o banco
+                fullGame.setStatus(game.getStatus());
+                fullGame.setDownloadProgress(game.getDownloadProgress());
+                fullGame.setTotalSize(game.getTotalSize());
+                action.accept(fullGame);
+            });
+        });
     }
     
     private void showGameDetails(Game game) {
@@ -897,9 +1328,25 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
         
         builder.setMessage(details.toString());
         builder.setPositiveButton("OK", null);
+        if (game.getStatus() == Game.DownloadStatus.DOWNLOADED) {
+            builder.setNeutralButton("Atualizar", (dialog, which) -> startGameUpdate(game));
+        }
         builder.show();
     }
     
+    private void startGameUpdate(Game game) {
+        if (!safDownloadManager.hasDownloadLocationConfigured()) {
+            showFolderSelectionDialog();
+            return;
+        }
+        
+        // Baixa apenas os chunks que mudaram desde a versão instalada
+        Intent updateIntent = DownloadService.createUpdateIntent(this, game);
+        startForegroundService(updateIntent);
+        
+        Toast.makeText(this, "Verificando atualizações: " + game.getTitle(), Toast.LENGTH_SHORT).show();
+    }
+    
     /**
      * Tests Dynamic Color compatibility with Material 1.10
      */
@@ -922,6 +1369,9 @@ public class LibraryActivity extends BaseActivity implements GamesAdapter.OnGame
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        searchHandler.removeCallbacks(searchRunnable);
+        // Leituras ainda na fila não têm mais tela para exibir
+        libraryExecutor.shutdownNow();
         if (databaseHelper != null) {
             databaseHelper.close();
         }
@@ -18,24 +18,42 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.example.gogdownloader.R;
+import com.example.gogdownloader.models.Game;
 import com.example.gogdownloader.database.DatabaseHelper;
+import com.example.gogdownloader.utils.ChunkStore;
+import com.example.gogdownloader.utils.DiskImageCache;
 import com.example.gogdownloader.utils.ImageLoader;
+import com.example.gogdownloader.utils.LibraryVerifier;
 import com.example.gogdownloader.utils.PreferencesManager;
 import com.example.gogdownloader.utils.SAFDownloadManager;
+import com.example.gogdownloader.utils.SpeedMeter;
+import com.example.gogdownloader.utils.StorageBenchmark;
 
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SettingsActivity extends BaseActivity {
     
+    private static final long STORAGE_BENCHMARK_SIZE = 64L * 1024 * 1024;
+    
     private TextView userEmailText;
     private TextView appVersionText;
     private TextView safPathText;
     private Button changeSafFolderButton;
     private Button logoutButton;
     private Button clearCacheButton;
+    private Button verifyLibraryButton;
+    private Button storageBenchmarkButton;
+    private Button diagnosticsButton;
     
     private PreferencesManager preferencesManager;
     private DatabaseHelper databaseHelper;
+    // Limpeza de cache e outras tarefas de disco da tela, fora da thread principal
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+    // Verificação em andamento, cancelada se a tela for destruída
+    private LibraryVerifier activeVerifier;
     
     private ActivityResultLauncher<Intent> folderPickerLauncher;
     private String selectedPath;
@@ -70,6 +88,9 @@ public class SettingsActivity extends BaseActivity {
         changeSafFolderButton = findViewById(R.id.changeSafFolderButton);
         logoutButton = findViewById(R.id.logoutButton);
         clearCacheButton = findViewById(R.id.clearCacheButton);
+        verifyLibraryButton = findViewById(R.id.verifyLibraryButton);
+        storageBenchmarkButton = findViewById(R.id.storageBenchmarkButton);
+        diagnosticsButton = findViewById(R.id.diagnosticsButton);
     }
     
     private void initializeManagers() {
@@ -107,6 +128,9 @@ public class SettingsActivity extends BaseActivity {
         changeSafFolderButton.setOnClickListener(v -> openFolderPicker());
         logoutButton.setOnClickListener(v -> showLogoutConfirmation());
         clearCacheButton.setOnClickListener(v -> showClearCacheConfirmation());
+        verifyLibraryButton.setOnClickListener(v -> verifyLibrary());
+        storageBenchmarkButton.setOnClickListener(v -> runStorageBenchmark());
+        diagnosticsButton.setOnClickListener(v -> startActivity(new Intent(this, DiagnosticsActivity.class)));
     }
     
     private void loadCurrentSettings() {
@@ -222,24 +246,146 @@ public class SettingsActivity extends BaseActivity {
     }
     
     private void clearCache() {
-        try {
-            // Limpar cache de imagens
-            ImageLoader.getInstance().clearCache();
-            
-            // Limpar banco de dados
-            databaseHelper.clearAllGames();
+        // Limpar cache de imagens em memória
+        ImageLoader.getInstance().clearCache();
+        
+        // Disco e banco podem levar segundos com caches grandes
+        backgroundExecutor.execute(() -> {
+            String message;
+            int duration = Toast.LENGTH_SHORT;
+            try {
+                DiskImageCache.getInstance(this).clear();
+                
+                // Limpar banco de dados
+                databaseHelper.clearAllGames();
+                
+                // Limpar cache de chunks (sem referências após limpar os jogos)
+                ChunkStore.getInstance(this).clear();
+                
+                message = "Cache limpo com sucesso";
+            } catch (Exception e) {
+                message = "Erro ao limpar cache: " + e.getMessage();
+                duration = Toast.LENGTH_LONG;
+            }
             
-            Toast.makeText(this, "Cache limpo com sucesso", Toast.LENGTH_SHORT).show();
+            String finalMessage = message;
+            int finalDuration = duration;
+            runOnUiThread(() -> Toast.makeText(this, finalMessage, finalDuration).show());
+        });
+    }
+    
+    /**
+     * Confere os arquivos baixados contra os checksums do GOG
+     */
+    private void verifyLibrary() {
+        LibraryVerifier verifier = new LibraryVerifier(this, databaseHelper);
+        activeVerifier = verifier;
+        
+        AlertDialog progressDialog = new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+                .setTitle("Verificando biblioteca")
+                .setMessage("Listando arquivos...")
+                .setCancelable(false)
+                .setNegativeButton("Cancelar", (dialog, which) -> verifier.cancel())
+                .show();
+        
+        backgroundExecutor.execute(() -> {
+            LibraryVerifier.Summary summary = verifier.verify((filesDone, filesTotal, bytesHashed, bytesPerSecond) -> 
+                    runOnUiThread(() -> progressDialog.setMessage(filesDone + "/" + filesTotal + " arquivos\n"
+                            + Game.formatFileSize(bytesHashed) + " conferidos (" 
+                            + SpeedMeter.formatSpeed(bytesPerSecond) + ")")));
             
-        } catch (Exception e) {
-            Toast.makeText(this, "Erro ao limpar cache: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            runOnUiThread(() -> {
+                if (activeVerifier == verifier) {
+                    activeVerifier = null;
+                }
+                if (isDestroyed()) {
+                    return;
+                }
+                progressDialog.dismiss();
+                if (!isFinishing()) {
+                    showVerifySummary(summary);
+                }
+            });
+        });
+    }
+    
+    private void showVerifySummary(LibraryVerifier.Summary summary) {
+        StringBuilder message = new StringBuilder();
+        message.append(summary.getTotalFiles()).append(" arquivo(s), ")
+                .append(summary.getSkippedFiles()).append(" sem alterações desde a última verificação\n")
+                .append(summary.getOkFiles()).append(" íntegro(s), ")
+                .append(summary.getNoChecksumFiles()).append(" sem checksum, ")
+                .append(summary.getErrorFiles()).append(" com erro de leitura\n")
+                .append(Game.formatFileSize(summary.getBytesHashed())).append(" conferidos a ")
+                .append(SpeedMeter.formatSpeed(summary.getBytesPerSecond()));
+        
+        if (!summary.getProblems().isEmpty()) {
+            message.append("\n\nProblemas:");
+            for (String problem : summary.getProblems()) {
+                message.append("\n• ").append(problem);
+            }
         }
+        
+        new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+                .setTitle(summary.getProblems().isEmpty() ? "Biblioteca íntegra" : "Arquivos com problema")
+                .setMessage(message.toString())
+                .setPositiveButton("OK", null)
+                .show();
     }
     
+    /**
+     * Compara a gravação pelo SAF com a gravação direta na pasta de download
+     */
+    private void runStorageBenchmark() {
+        AlertDialog progressDialog = new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+                .setTitle("Testando armazenamento")
+                .setMessage("Gravando " + Game.formatFileSize(STORAGE_BENCHMARK_SIZE) + " na pasta de download...")
+                .setCancelable(false)
+                .show();
+        
+        new Thread(() -> {
+            String message;
+            try {
+                List<StorageBenchmark.Result> results = new StorageBenchmark(this, new SAFDownloadManager(this))
+                        .run(STORAGE_BENCHMARK_SIZE);
+                StringBuilder builder = new StringBuilder();
+                for (StorageBenchmark.Result result : results) {
+                    builder.append(result.getBackendName()).append(": gravação ")
+                            .append(SpeedMeter.formatSpeed(result.getWriteBytesPerSecond()))
+                            .append(", leitura ")
+                            .append(SpeedMeter.formatSpeed(result.getReadBytesPerSecond()))
+                            .append("\n");
+                }
+                if (results.size() < 2) {
+                    builder.append("\nAcesso direto indisponível para esta pasta; os downloads usam o SAF.");
+                }
+                message = builder.toString().trim();
+            } catch (Exception e) {
+                message = "Erro no teste: " + e.getMessage();
+            }
+            
+            String finalMessage = message;
+            runOnUiThread(() -> {
+                progressDialog.dismiss();
+                if (!isFinishing()) {
+                    new com.google.android.material.dialog.MaterialAlertDialogBuilder(this)
+                            .setTitle("Velocidade de armazenamento")
+                            .setMessage(finalMessage)
+                            .setPositiveButton("OK", null)
+                            .show();
+                }
+            });
+        }).start();
+    }
     
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        // Uma limpeza já pedida termina; uma verificação em andamento é cancelada
+        if (activeVerifier != null) {
+            activeVerifier.cancel();
+        }
+        backgroundExecutor.shutdown();
         if (databaseHelper != null) {
             databaseHelper.close();
         }
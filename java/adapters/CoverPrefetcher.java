@@ -0,0 +1,109 @@
+package com.example.gogdownloader.adapters;
+
+import android.os.SystemClock;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.gogdownloader.R;
+import com.example.gogdownloader.models.Game;
+import com.example.gogdownloader.utils.ImageLoader;
+
+/**
+ * Adianta as capas da próxima tela na direção da rolagem, para as linhas já
+ * chegarem com a imagem decodificada no cache de memória.
+ * Durante um fling rápido não pede nada: as linhas do meio nem chegam a ser
+ * vistas, e o pré-carregamento só disputaria a rede com elas. Quando a rolagem
+ * desacelera ou para, retoma a partir da posição atual.
+ */
+public class CoverPrefetcher extends RecyclerView.OnScrollListener {
+
+    // Quanto de bitmaps pré-carregados pode estar no cache de 20MB do ImageLoader
+    private static final long MEMORY_BUDGET = 4L * 1024 * 1024;
+    // Acima disso a rolagem é um fling
+    private static final float MAX_SCREENS_PER_SECOND = 3f;
+    private static final int DEFAULT_COVER_SIZE = 300;
+
+    private final GamesAdapter adapter;
+    private final LinearLayoutManager layoutManager;
+    private long lastScrollTime;
+    private int direction = 1;
+    private int coverWidth = DEFAULT_COVER_SIZE;
+    private int coverHeight = DEFAULT_COVER_SIZE;
+
+    public CoverPrefetcher(GamesAdapter adapter, LinearLayoutManager layoutManager) {
+        this.adapter = adapter;
+        this.layoutManager = layoutManager;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0) {
+            return; // passagem de layout, não rolagem
+        }
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - lastScrollTime;
+        lastScrollTime = now;
+        direction = dy > 0 ? 1 : -1;
+
+        // Intervalos longos são o início de uma rolagem, não velocidade
+        if (elapsed > 0 && elapsed < 100) {
+            float screensPerSecond = Math.abs(dy) * 1000f / elapsed / Math.max(1, recyclerView.getHeight());
+            if (screensPerSecond > MAX_SCREENS_PER_SECOND) {
+                return;
+            }
+        }
+        prefetch(recyclerView);
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            prefetch(recyclerView);
+        }
+    }
+
+    private void prefetch(RecyclerView recyclerView) {
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+        measureCover(recyclerView);
+
+        // Uma tela à frente, limitada pelo orçamento (ARGB_8888 no pior caso)
+        long bytesPerCover = (long) coverWidth * coverHeight * 4;
+        int count = (int) Math.min(last - first + 1, MEMORY_BUDGET / bytesPerCover);
+
+        int from;
+        int to;
+        if (direction > 0) {
+            from = last + 1;
+            to = Math.min(adapter.getItemCount() - 1, last + count);
+        } else {
+            from = Math.max(0, first - count);
+            to = first - 1;
+        }
+
+        // preloadImage ignora o que já está no cache ou sendo carregado
+        ImageLoader imageLoader = ImageLoader.getInstance();
+        for (int i = from; i <= to; i++) {
+            Game game = adapter.getGame(i);
+            imageLoader.preloadImage(game.getCoverImage(), coverWidth, coverHeight);
+        }
+    }
+
+    /**
+     * Decodificar no tamanho real da capa, igual ao bind, para o cache servir
+     */
+    private void measureCover(RecyclerView recyclerView) {
+        View child = recyclerView.getChildAt(0);
+        View cover = child != null ? child.findViewById(R.id.gameCoverImage) : null;
+        if (cover != null && cover.getWidth() > 0 && cover.getHeight() > 0) {
+            coverWidth = cover.getWidth();
+            coverHeight = cover.getHeight();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.gogdownloader.adapters;
 
 import android.content.Context;
+import android.util.LongSparseArray;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,22 +13,64 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.gogdownloader.R;
 import com.example.gogdownloader.models.Game;
 import com.example.gogdownloader.utils.ImageLoader;
+import com.example.gogdownloader.utils.LongIntMap;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GamesAdapter extends RecyclerView.Adapter<GamesAdapter.GameViewHolder> {
 
     private static final String PAYLOAD_PROGRESS_UPDATE = "PAYLOAD_PROGRESS_UPDATE";
     
+    /**
+     * Mesmo jogo pelo id; conteúdo pelo que a linha exibe. O progresso de download
+     * não entra: ele é atualizado no próprio objeto e chega por payload.
+     */
+    private static final DiffUtil.ItemCallback<Game> DIFF_CALLBACK = new DiffUtil.ItemCallback<Game>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Game oldGame, @NonNull Game newGame) {
+            return oldGame.getId() == newGame.getId();
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull Game oldGame, @NonNull Game newGame) {
+            return oldGame.getStatus() == newGame.getStatus()
+                    && oldGame.getTotalSize() == newGame.getTotalSize()
+                    && Objects.equals(oldGame.getTitle(), newGame.getTitle())
+                    && Objects.equals(oldGame.getDeveloper(), newGame.getDeveloper())
+                    && Objects.equals(oldGame.getCoverImage(), newGame.getCoverImage())
+                    && Objects.equals(oldGame.getBackgroundImage(), newGame.getBackgroundImage())
+                    && Objects.equals(oldGame.getGenres(), newGame.getGenres());
+        }
+    };
+    
+    // Diff fora da thread principal, um de cada vez
+    private static final ExecutorService diffExecutor = Executors.newSingleThreadExecutor();
+    
     private Context context;
+    // Lista exibida; substituída (nunca alterada) para o diff poder lê-la em background.
+    // Busca e filtros já chegam aplicados pelo banco
     private List<Game> games;
-    private List<Game> filteredGames;
+    private final AsyncListDiffer<Game> differ;
+    private final LongIntMap positions = new LongIntMap();
+    // Id do jogo -> índice em `games`; acessado só na thread principal
+    private final LongIntMap gameIndexes = new LongIntMap();
+    // Jogos com progresso ainda não desenhado; acessado só na thread principal
+    private final LongSparseArray<Boolean> pendingProgress = new LongSparseArray<>();
+    private final Choreographer.FrameCallback progressFrameCallback = frameTimeNanos -> dispatchPendingProgress();
+    private boolean frameScheduled;
     private OnGameActionListener listener;
     
     public interface OnGameActionListener {
@@ -41,7 +85,13 @@ public class GamesAdapter extends RecyclerView.Adapter<GamesAdapter.GameViewHold
     public GamesAdapter(Context context) {
         this.context = context;
         this.games = new ArrayList<>();
-        this.filteredGames = new ArrayList<>();
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                        .setBackgroundThreadExecutor(diffExecutor)
+                        .build());
+        differ.addListListener((previousList, currentList) -> rebuildPositions(currentList));
+        // Ids estáveis: a RecyclerView reaproveita a linha do mesmo jogo em vez de religá-la
+        setHasStableIds(true);
     }
     
     public void setOnGameActionListener(OnGameActionListener listener) {
@@ -50,23 +100,42 @@ public class GamesAdapter extends RecyclerView.Adapter<GamesAdapter.GameViewHold
     
     public void setGames(List<Game> games) {
         this.games = new ArrayList<>(games);
-        this.filteredGames = new ArrayList<>(games);
-        notifyDataSetChanged();
+        gameIndexes.clear(this.games.size());
+        indexGames(0);
+        differ.submitList(this.games);
+    }
+    
+    /**
+     * Acrescenta uma página ao fim da biblioteca; o diff só insere as linhas novas
+     */
+    public void appendGames(List<Game> page) {
+        if (page.isEmpty()) {
+            return;
+        }
+        List<Game> appended = new ArrayList<>(games.size() + page.size());
+        appended.addAll(games);
+        appended.addAll(page);
+        games = appended;
+        indexGames(appended.size() - page.size());
+        differ.submitList(appended);
     }
     
     public void updateGame(Game updatedGame) {
-        for (int i = 0; i < games.size(); i++) {
-            if (games.get(i).getId() == updatedGame.getId()) {
-                games.set(i, updatedGame);
-                break;
-            }
+        int index = gameIndexes.get(updatedGame.getId(), -1);
+        // Objeto novo: nova lista para o diff; o mesmo objeto alterado é religado direto
+        if (index >= 0 && games.get(index) != updatedGame) {
+            List<Game> updatedGames = new ArrayList<>(games);
+            updatedGames.set(index, updatedGame);
+            games = updatedGames;
         }
         
-        for (int i = 0; i < filteredGames.size(); i++) {
-            if (filteredGames.get(i).getId() == updatedGame.getId()) {
-                filteredGames.set(i, updatedGame);
-                notifyItemChanged(i);
-                break;
+        int position = positions.get(updatedGame.getId(), RecyclerView.NO_POSITION);
+        if (position != RecyclerView.NO_POSITION) {
+            if (getGame(position) == updatedGame) {
+                // Alterado no próprio objeto: o diff compararia o jogo com ele mesmo
+                notifyItemChanged(position);
+            } else {
+                differ.submitList(games);
             }
         }
     }
@@ -77,41 +146,62 @@ public class GamesAdapter extends RecyclerView.Adapter<GamesAdapter.GameViewHold
     
     public void updateGameProgress(long gameId, long bytesDownloaded, long totalBytes, 
                                    float downloadSpeed, long eta, int currentFileIndex, int totalFiles) {
-        for (int i = 0; i < filteredGames.size(); i++) {
-            Game game = filteredGames.get(i);
-            if (game.getId() == gameId) {
-                game.setDownloadProgress(bytesDownloaded);
-                game.setTotalSize(totalBytes);
-                
-                // Armazenar informações adicionais no game se necessário
-                game.setDownloadSpeed(downloadSpeed);
-                game.setEta(eta);
-                game.setCurrentFileIndex(currentFileIndex);
-                game.setTotalFiles(totalFiles);
-                
-                notifyItemChanged(i, PAYLOAD_PROGRESS_UPDATE);
-                break;
-            }
+        int position = positions.get(gameId, RecyclerView.NO_POSITION);
+        if (position == RecyclerView.NO_POSITION) {
+            return; // fora do filtro atual
+        }
+        
+        Game game = getGame(position);
+        game.setDownloadProgress(bytesDownloaded);
+        game.setTotalSize(totalBytes);
+        
+        // Armazenar informações adicionais no game se necessário
+        game.setDownloadSpeed(downloadSpeed);
+        game.setEta(eta);
+        game.setCurrentFileIndex(currentFileIndex);
+        game.setTotalFiles(totalFiles);
+        
+        // A linha é atualizada no próximo quadro, uma vez só mesmo com vários broadcasts
+        pendingProgress.put(gameId, Boolean.TRUE);
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(progressFrameCallback);
         }
     }
     
-    public void filter(String query) {
-        filteredGames.clear();
-        
-        if (query == null || query.isEmpty()) {
-            filteredGames.addAll(games);
-        } else {
-            String lowercaseQuery = query.toLowerCase();
-            for (Game game : games) {
-                if (game.getTitle().toLowerCase().contains(lowercaseQuery) ||
-                    (game.getDeveloper() != null && game.getDeveloper().toLowerCase().contains(lowercaseQuery)) ||
-                    game.getGenresString().toLowerCase().contains(lowercaseQuery)) {
-                    filteredGames.add(game);
-                }
+    private void dispatchPendingProgress() {
+        frameScheduled = false;
+        for (int i = 0; i < pendingProgress.size(); i++) {
+            // Posição do quadro atual: a lista pode ter mudado desde o broadcast
+            int position = positions.get(pendingProgress.keyAt(i), RecyclerView.NO_POSITION);
+            if (position != RecyclerView.NO_POSITION) {
+                notifyItemChanged(position, PAYLOAD_PROGRESS_UPDATE);
             }
         }
-        
-        notifyDataSetChanged();
+        pendingProgress.clear();
+    }
+    
+    /**
+     * Indexa os jogos de `games` a partir de {@code from} (a lista inteira ou só a página acrescentada)
+     */
+    private void indexGames(int from) {
+        for (int i = from; i < games.size(); i++) {
+            gameIndexes.put(games.get(i).getId(), i);
+        }
+    }
+    
+    /**
+     * Id do jogo -> posição na lista exibida, refeito a cada lista aplicada pelo diff
+     */
+    private void rebuildPositions(List<Game> current) {
+        positions.clear(current.size());
+        for (int i = 0; i < current.size(); i++) {
+            positions.put(current.get(i).getId(), i);
+        }
+    }
+    
+    public Game getGame(int position) {
+        return differ.getCurrentList().get(position);
     }
     
     @NonNull
@@ -123,7 +213,7 @@ public class GamesAdapter extends RecyclerView.Adapter<GamesAdapter.GameViewHold
     
     @Override
     public void onBindViewHolder(@NonNull GameViewHolder holder, int position) {
-        Game game = filteredGames.get(position);
+        Game game = getGame(position);
         holder.bind(game);
     }
 
@@ -134,16 +224,27 @@ public class GamesAdapter extends RecyclerView.Adapter<GamesAdapter.GameViewHold
         } else {
             for (Object payload : payloads) {
                 if (payload.equals(PAYLOAD_PROGRESS_UPDATE)) {
-                    Game game = filteredGames.get(position);
+                    Game game = getGame(position);
                     holder.updateProgressViews(game);
                 }
             }
         }
     }
     
+    @Override
+    public void onViewRecycled(@NonNull GameViewHolder holder) {
+        // Capa de uma linha que saiu da tela: não baixar nem segurar o bitmap
+        ImageLoader.getInstance().clear(holder.gameCoverImage);
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return getGame(position).getId();
+    }
+    
     @Override
     public int getItemCount() {
-        return filteredGames.size();
+        return differ.getCurrentList().size();
     }
     
     public class GameViewHolder extends RecyclerView.ViewHolder {
@@ -176,14 +277,14 @@ public class GamesAdapter extends RecyclerView.Adapter<GamesAdapter.GameViewHold
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onGameClick(filteredGames.get(position));
+                    listener.onGameClick(getGame(position));
                 }
             });
 
             cancelButton.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onCancelDownload(filteredGames.get(position));
+                    listener.onCancelDownload(getGame(position));
                 }
             });
         }
@@ -221,7 +322,7 @@ public class GamesAdapter extends RecyclerView.Adapter<GamesAdapter.GameViewHold
             if (game.getCoverImage() != null && !game.getCoverImage().isEmpty()) {
                 ImageLoader.loadImage(context, game.getCoverImage(), game.getBackgroundImage(), gameCoverImage);
             } else {
-                gameCoverImage.setImageResource(android.R.drawable.ic_menu_gallery);
+                ImageLoader.getInstance().clear(gameCoverImage);
             }
             
             // Status e ações baseados no estado do download
@@ -0,0 +1,111 @@
+package com.example.gogdownloader.api;
+
+import com.example.gogdownloader.models.DownloadLink;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converte o objeto "downloads" dos detalhes de um jogo (instaladores, patches
+ * e extras) em {@link DownloadLink}. Sem dependências de Android, para poder
+ * ser medido nos benchmarks; entradas mal formadas são puladas e contadas.
+ */
+public final class DownloadLinkParser {
+
+    public static class Result {
+        private final List<DownloadLink> links = new ArrayList<>();
+        private int skipped;
+        private boolean hasDownloads;
+
+        public List<DownloadLink> getLinks() { return links; }
+        /** Entradas ignoradas por estarem mal formadas */
+        public int getSkipped() { return skipped; }
+        /** Se os detalhes tinham o objeto "downloads" */
+        public boolean hasDownloads() { return hasDownloads; }
+    }
+
+    private DownloadLinkParser() {
+    }
+
+    public static Result parse(JSONObject gameJson) {
+        Result result = new Result();
+
+        // Estrutura atual da API GOG (2025)
+        JSONObject downloads = gameJson.optJSONObject("downloads");
+        if (downloads == null) {
+            return result;
+        }
+        result.hasDownloads = true;
+
+        // Instaladores e patches: arquivos agrupados, plataforma e idioma no grupo
+        parseGroups(downloads.optJSONArray("installers"), DownloadLink.FileType.INSTALLER, "Unknown", result);
+        parseGroups(downloads.optJSONArray("patches"), DownloadLink.FileType.PATCH, "Patch", result);
+
+        // Bonus content (se existir)
+        JSONArray bonusContent = downloads.optJSONArray("bonus_content");
+        if (bonusContent != null) {
+            for (int i = 0; i < bonusContent.length(); i++) {
+                try {
+                    DownloadLink link = DownloadLink.fromJson(bonusContent.getJSONObject(i));
+                    link.setType(DownloadLink.FileType.EXTRA);
+                    result.links.add(link);
+                } catch (JSONException e) {
+                    result.skipped++;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static void parseGroups(JSONArray groups, DownloadLink.FileType type, String defaultName, Result result) {
+        if (groups == null) {
+            return;
+        }
+
+        for (int i = 0; i < groups.length(); i++) {
+            JSONObject group = groups.optJSONObject(i);
+            if (group == null) {
+                result.skipped++;
+                continue;
+            }
+
+            JSONArray files = group.optJSONArray("files");
+            if (files == null) {
+                continue;
+            }
+
+            String name = group.optString("name", defaultName);
+            DownloadLink.Platform platform = platformFor(group.optString("os", "windows"));
+            for (int j = 0; j < files.length(); j++) {
+                try {
+                    DownloadLink link = DownloadLink.fromJson(files.getJSONObject(j));
+                    link.setName(name);
+                    link.setType(type);
+                    link.setPlatform(platform);
+                    // Instalador sem idioma fica em inglês; patch mantém o do arquivo
+                    link.setLanguage(group.optString("language",
+                            type == DownloadLink.FileType.INSTALLER ? "en" : link.getLanguage()));
+                    result.links.add(link);
+                } catch (JSONException e) {
+                    result.skipped++;
+                }
+            }
+        }
+    }
+
+    private static DownloadLink.Platform platformFor(String os) {
+        switch (os.toLowerCase()) {
+            case "mac":
+                return DownloadLink.Platform.MAC;
+            case "linux":
+                return DownloadLink.Platform.LINUX;
+            default:
+                return DownloadLink.Platform.WINDOWS;
+        }
+    }
+}
@@ -3,6 +3,10 @@ package com.example.gogdownloader.api;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.gogdownloader.utils.AppLog;
+import com.example.gogdownloader.utils.NetworkMetrics;
+import com.example.gogdownloader.utils.TraceBuffer;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -102,6 +106,7 @@ public class GOGAuthManager {
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
                 .cookieJar(cookieJar)
+                .eventListenerFactory(NetworkMetrics.getInstance().getEventListenerFactory())
                 .build();
     }
     
@@ -126,7 +131,7 @@ public class GOGAuthManager {
      * @param callback Callback para resultado
      */
     public void exchangeCodeForToken(String authorizationCode, TokenExchangeCallback callback) {
-        Log.d(TAG, "Exchanging authorization code for token");
+        AppLog.d(TAG, "Exchanging authorization code for token");
         
         if (authorizationCode == null || authorizationCode.trim().isEmpty()) {
             callback.onError("Código de autorização é obrigatório");
@@ -161,8 +166,8 @@ public class GOGAuthManager {
                 try (ResponseBody responseBody = response.body()) {
                     String responseString = responseBody != null ? responseBody.string() : "";
                     
-                    Log.d(TAG, "Token exchange response code: " + response.code());
-                    Log.d(TAG, "Token exchange response: " + responseString);
+                    AppLog.d(TAG, "Token exchange response code: " + response.code());
+                    AppLog.d(TAG, "Token exchange response: " + responseString.length() + " bytes");
                     
                     if (response.isSuccessful() && responseBody != null) {
                         try {
@@ -173,8 +178,8 @@ public class GOGAuthManager {
                             long expiresIn = jsonResponse.optLong("expires_in", 3600);
                             String scope = jsonResponse.optString("scope", "");
                             
-                            Log.d(TAG, "Token exchange successful");
-                            Log.d(TAG, "Token scope received: '" + scope + "'");
+                            AppLog.d(TAG, "Token exchange successful");
+                            AppLog.d(TAG, "Token scope received: '" + scope + "'");
                             if (scope.isEmpty()) {
                                 Log.w(TAG, "WARNING: Token has empty scope - may not have sufficient permissions");
                             }
@@ -186,7 +191,7 @@ public class GOGAuthManager {
                             callback.onError("Erro ao processar resposta do servidor");
                         }
                     } else {
-                        Log.e(TAG, "Token exchange failed with code: " + response.code() + " body: " + responseString);
+                        Log.e(TAG, "Token exchange failed with code: " + response.code());
                         
                         try {
                             JSONObject errorJson = new JSONObject(responseString);
@@ -214,7 +219,7 @@ public class GOGAuthManager {
      * @param callback Callback para resultado
      */
     public void validateToken(String token, AuthCallback callback) {
-        Log.d(TAG, "Validating token");
+        AppLog.d(TAG, "Validating token");
         
         if (token == null || token.trim().isEmpty()) {
             callback.onError("Token é obrigatório");
@@ -225,7 +230,7 @@ public class GOGAuthManager {
         getUserInfo(token, new UserInfoCallback() {
             @Override
             public void onSuccess(JSONObject userInfo) {
-                Log.d(TAG, "Token validation successful");
+                AppLog.d(TAG, "Token validation successful");
                 callback.onSuccess(token, "");
             }
             
@@ -243,7 +248,7 @@ public class GOGAuthManager {
      * @param callback Callback para resultado
      */
     public void getUserInfo(String authToken, UserInfoCallback callback) {
-        Log.d(TAG, "Getting user info for validation");
+        AppLog.d(TAG, "Getting user info for validation");
         
         if (authToken == null || authToken.trim().isEmpty()) {
             callback.onError("Token de acesso é obrigatório");
@@ -271,14 +276,14 @@ public class GOGAuthManager {
                 try (ResponseBody responseBody = response.body()) {
                     String responseString = responseBody != null ? responseBody.string() : "";
                     
-                    Log.d(TAG, "User info response code: " + response.code());
-                    Log.d(TAG, "User info response: " + responseString);
+                    AppLog.d(TAG, "User info response code: " + response.code());
+                    AppLog.d(TAG, "User info response: " + responseString.length() + " bytes");
                     
                     if (response.isSuccessful() && responseBody != null) {
                         try {
                             JSONObject responseJson = new JSONObject(responseString);
                             
-                            Log.d(TAG, "Token validation successful - API responded correctly");
+                            AppLog.d(TAG, "Token validation successful - API responded correctly");
                             
                             // Extrair informações básicas do usuário
                             JSONObject userInfo = new JSONObject();
@@ -303,7 +308,7 @@ public class GOGAuthManager {
                             callback.onError("Erro ao processar resposta de validação");
                         }
                     } else {
-                        Log.e(TAG, "User info failed with code: " + response.code() + " body: " + responseString);
+                        Log.e(TAG, "User info failed with code: " + response.code());
                         
                         if (response.code() == 401) {
                             callback.onError("Token expirado ou inválido");
@@ -323,7 +328,7 @@ public class GOGAuthManager {
      * @param callback Callback para resultado
      */
     public void getUserData(String authToken, UserInfoCallback callback) {
-        Log.d(TAG, "=== GETTING USER DATA ===");
+        AppLog.d(TAG, "=== GETTING USER DATA ===");
         
         if (authToken == null || authToken.trim().isEmpty()) {
             Log.e(TAG, "AUTH TOKEN IS EMPTY!");
@@ -332,7 +337,7 @@ public class GOGAuthManager {
         }
         
         // Primeiro, tentar o endpoint de conta básica
-        Log.d(TAG, "Trying account basic endpoint: " + USER_ACCOUNT_URL);
+        AppLog.d(TAG, "Trying account basic endpoint: " + USER_ACCOUNT_URL);
         
         Request request = new Request.Builder()
                 .url(USER_ACCOUNT_URL)
@@ -355,13 +360,13 @@ public class GOGAuthManager {
                 try (ResponseBody responseBody = response.body()) {
                     String responseString = responseBody != null ? responseBody.string() : "";
                     
-                    Log.d(TAG, "Account basic response code: " + response.code());
-                    Log.d(TAG, "Account basic response: " + responseString);
+                    AppLog.d(TAG, "Account basic response code: " + response.code());
+                    AppLog.d(TAG, "Account basic response: " + responseString.length() + " bytes");
                     
                     if (response.isSuccessful() && responseBody != null) {
                         try {
                             JSONObject userData = new JSONObject(responseString);
-                            Log.d(TAG, "=== ACCOUNT BASIC DATA PARSED SUCCESSFULLY ===");
+                            AppLog.d(TAG, "=== ACCOUNT BASIC DATA PARSED SUCCESSFULLY ===");
                             
                             // Processar dados da conta básica
                             JSONObject processedData = processAccountBasicData(userData);
@@ -384,7 +389,7 @@ public class GOGAuthManager {
      * Tenta obter dados do endpoint userData.json como fallback
      */
     private void tryUserDataEndpoint(String authToken, UserInfoCallback callback) {
-        Log.d(TAG, "Trying userData.json endpoint: " + USER_DATA_URL);
+        AppLog.d(TAG, "Trying userData.json endpoint: " + USER_DATA_URL);
         
         Request request = new Request.Builder()
                 .url(USER_DATA_URL)
@@ -406,13 +411,13 @@ public class GOGAuthManager {
                 try (ResponseBody responseBody = response.body()) {
                     String responseString = responseBody != null ? responseBody.string() : "";
                     
-                    Log.d(TAG, "userData.json response code: " + response.code());
-                    Log.d(TAG, "userData.json response: " + responseString);
+                    AppLog.d(TAG, "userData.json response code: " + response.code());
+                    AppLog.d(TAG, "userData.json response: " + responseString.length() + " bytes");
                     
                     if (response.isSuccessful() && responseBody != null) {
                         try {
                             JSONObject userData = new JSONObject(responseString);
-                            Log.d(TAG, "=== USER DATA JSON PARSED SUCCESSFULLY ===");
+                            AppLog.d(TAG, "=== USER DATA JSON PARSED SUCCESSFULLY ===");
                             
                             // Se userData.json não tem dados úteis, criar dados básicos
                             JSONObject processedData = processUserDataJson(userData, authToken);
@@ -474,7 +479,7 @@ public class GOGAuthManager {
 
         userData.put("avatar", avatarUrl);
         
-        Log.d(TAG, "Processed account basic data: " + userData.toString());
+        AppLog.d(TAG, "Processed account basic data");
         return userData;
     }
     
@@ -492,7 +497,7 @@ public class GOGAuthManager {
         userData.put("last_name", "");
         userData.put("avatar", "");
         
-        Log.d(TAG, "Created basic data from userData.json");
+        AppLog.d(TAG, "Created basic data from userData.json");
         return userData;
     }
     
@@ -513,7 +518,7 @@ public class GOGAuthManager {
             Log.e(TAG, "Error creating basic user data", e);
         }
         
-        Log.d(TAG, "Created fallback basic user data");
+        AppLog.d(TAG, "Created fallback basic user data");
         return userData;
     }
     
@@ -523,7 +528,7 @@ public class GOGAuthManager {
      * @param callback Callback para resultado
      */
     public void refreshToken(String refreshToken, AuthCallback callback) {
-        Log.d(TAG, "Refreshing token");
+        AppLog.d(TAG, "Refreshing token");
         
         if (refreshToken == null || refreshToken.trim().isEmpty()) {
             callback.onError("Refresh token é obrigatório");
@@ -556,8 +561,9 @@ public class GOGAuthManager {
                 try (ResponseBody responseBody = response.body()) {
                     String responseString = responseBody != null ? responseBody.string() : "";
                     
-                    Log.d(TAG, "Token refresh response code: " + response.code());
-                    Log.d(TAG, "Token refresh response: " + responseString);
+                    TraceBuffer.record("auth", "token_refresh", response.code());
+                    AppLog.d(TAG, "Token refresh response code: " + response.code());
+                    AppLog.d(TAG, "Token refresh response: " + responseString.length() + " bytes");
                     
                     if (response.isSuccessful() && responseBody != null) {
                         try {
@@ -566,7 +572,7 @@ public class GOGAuthManager {
                             String accessToken = jsonResponse.getString("access_token");
                             String newRefreshToken = jsonResponse.optString("refresh_token", refreshToken);
                             
-                            Log.d(TAG, "Token refresh successful");
+                            AppLog.d(TAG, "Token refresh successful");
                             callback.onSuccess(accessToken, newRefreshToken);
                             
                         } catch (JSONException e) {
@@ -574,7 +580,7 @@ public class GOGAuthManager {
                             callback.onError("Erro ao processar resposta do servidor");
                         }
                     } else {
-                        Log.e(TAG, "Token refresh failed with code: " + response.code() + " body: " + responseString);
+                        Log.e(TAG, "Token refresh failed with code: " + response.code());
                         
                         if (response.code() == 401) {
                             callback.onError("Refresh token expirado. Faça login novamente.");
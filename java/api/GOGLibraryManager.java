@@ -3,8 +3,11 @@ package com.example.gogdownloader.api;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.gogdownloader.models.ChunkManifest;
 import com.example.gogdownloader.models.DownloadLink;
 import com.example.gogdownloader.models.Game;
+import com.example.gogdownloader.utils.AppLog;
+import com.example.gogdownloader.utils.NetworkMetrics;
 import com.example.gogdownloader.utils.PreferencesManager;
 
 import org.json.JSONArray;
@@ -13,7 +16,9 @@ import org.json.JSONObject;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
@@ -32,6 +37,7 @@ public class GOGLibraryManager {
     private static final String GAME_DETAILS_URL = "https://api.gog.com/products/%d?expand=downloads";
     private static final String DOWNLOAD_LINK_URL = "https://api.gog.com/products/%d/downlink/download/%s";
     private static final String DOWNLINK_INFO_URL = "https://api.gog.com/products/%d/downlink/%s";
+    private static final String PRODUCTS_BATCH_URL = "https://api.gog.com/products?ids=%s&expand=downloads";
     
     // Fallback URLs para embed.gog.com se api.gog.com falhar
     private static final String EMBED_USER_GAMES_URL = "https://embed.gog.com/user/data/games";
@@ -48,6 +54,7 @@ public class GOGLibraryManager {
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
+                .eventListenerFactory(NetworkMetrics.getInstance().getEventListenerFactory())
                 .build();
     }
     
@@ -66,6 +73,19 @@ public class GOGLibraryManager {
         void onError(String error);
     }
     
+    /**
+     * Resultado de uma consulta em lote de produtos
+     */
+    public static class ProductBatchResult {
+        private boolean notModified;
+        private String etag;
+        private Map<Long, List<DownloadLink>> downloadLinks = new HashMap<>();
+        
+        public boolean isNotModified() { return notModified; }
+        public String getEtag() { return etag; }
+        public Map<Long, List<DownloadLink>> getDownloadLinks() { return downloadLinks; }
+    }
+    
     /**
      * Carrega a biblioteca do usuário a partir da API real do GOG
      * Tenta api.gog.com primeiro, fallback para embed.gog.com
@@ -78,7 +98,7 @@ public class GOGLibraryManager {
             return;
         }
         
-        Log.d(TAG, "Loading user library from GOG API");
+        AppLog.d(TAG, "Loading user library from GOG API");
         
         // Usar embed.gog.com diretamente (como o minigalaxy faz)
         tryEmbedGogLibrary(authToken, callback);
@@ -90,7 +110,7 @@ public class GOGLibraryManager {
      * pois api.gog.com pode retornar 403 para aplicações de terceiros
      */
     private void tryApiGogLibrary(String authToken, LibraryCallback callback) {
-        Log.d(TAG, "Trying api.gog.com for user library");
+        AppLog.d(TAG, "Trying api.gog.com for user library");
         
         Request request = new Request.Builder()
                 .url(USER_GAMES_URL)
@@ -112,13 +132,13 @@ public class GOGLibraryManager {
                 try (Response autoCloseResponse = response) {
                     String responseBody = autoCloseResponse.body() != null ? autoCloseResponse.body().string() : "";
                     
-                    Log.d(TAG, "api.gog.com response code: " + response.code());
-                    Log.d(TAG, "api.gog.com response: " + responseBody);
+                    AppLog.d(TAG, "api.gog.com response code: " + response.code());
+                    AppLog.d(TAG, "api.gog.com response: " + responseBody.length() + " bytes");
                     
                     if (response.isSuccessful()) {
                         try {
                             List<Game> games = parseApiGogResponse(responseBody);
-                            Log.d(TAG, "Successfully loaded " + games.size() + " games from api.gog.com");
+                            AppLog.d(TAG, "Successfully loaded " + games.size() + " games from api.gog.com");
                             
                             // Retornar jogos imediatamente para mostrar a lista
                             callback.onSuccess(games);
@@ -143,7 +163,7 @@ public class GOGLibraryManager {
      * Fallback para embed.gog.com
      */
     private void tryEmbedGogLibrary(String authToken, LibraryCallback callback) {
-        Log.d(TAG, "Trying embed.gog.com for user library");
+        AppLog.d(TAG, "Trying embed.gog.com for user library");
         
         Request request = new Request.Builder()
                 .url(EMBED_USER_GAMES_URL)
@@ -163,8 +183,8 @@ public class GOGLibraryManager {
                 try (Response autoCloseResponse = response) {
                     String responseBody = autoCloseResponse.body() != null ? autoCloseResponse.body().string() : "";
                     
-                    Log.d(TAG, "embed.gog.com response code: " + response.code());
-                    Log.d(TAG, "embed.gog.com response: " + responseBody);
+                    AppLog.d(TAG, "embed.gog.com response code: " + response.code());
+                    AppLog.d(TAG, "embed.gog.com response: " + responseBody.length() + " bytes");
                     
                     if (response.isSuccessful()) {
                         try {
@@ -172,10 +192,10 @@ public class GOGLibraryManager {
                             JSONArray ownedGames = json.optJSONArray("owned");
                             
                             if (ownedGames != null && ownedGames.length() > 0) {
-                                Log.d(TAG, "Found " + ownedGames.length() + " owned games, getting detailed info");
+                                AppLog.d(TAG, "Found " + ownedGames.length() + " owned games, getting detailed info");
                                 loadDetailedLibrary(authToken, 1, new ArrayList<>(), callback);
                             } else {
-                                Log.d(TAG, "No owned games found");
+                                AppLog.d(TAG, "No owned games found");
                                 callback.onSuccess(new ArrayList<>());
                             }
                             
@@ -203,7 +223,7 @@ public class GOGLibraryManager {
     private List<Game> parseApiGogResponse(String responseBody) throws JSONException {
         List<Game> games = new ArrayList<>();
         
-        Log.d(TAG, "Parsing api.gog.com response");
+        AppLog.d(TAG, "Parsing api.gog.com response");
         
         JSONObject json = new JSONObject(responseBody);
         
@@ -233,7 +253,7 @@ public class GOGLibraryManager {
             }
         }
         
-        Log.d(TAG, "Parsed " + games.size() + " games from api.gog.com");
+        AppLog.d(TAG, "Parsed " + games.size() + " games from api.gog.com");
         return games;
     }
     
@@ -243,7 +263,7 @@ public class GOGLibraryManager {
      * @param callback Callback para resultado
      */
     private void loadDetailedLibrary(String authToken, int page, List<Game> accumulatedGames, LibraryCallback callback) {
-        Log.d(TAG, "Loading detailed library from embed.gog.com - Page " + page);
+        AppLog.d(TAG, "Loading detailed library from embed.gog.com - Page " + page);
 
         String url = String.format(EMBED_LIBRARY_FILTERED_URL, page);
         Request request = new Request.Builder()
@@ -273,9 +293,8 @@ public class GOGLibraryManager {
                 try (Response autoCloseResponse = response) {
                     String responseBody = autoCloseResponse.body() != null ? autoCloseResponse.body().string() : "";
 
-                    Log.d(TAG, "Detailed library response code: " + response.code());
-                    Log.d(TAG, "Detailed library response preview: " + 
-                           responseBody.substring(0, Math.min(300, responseBody.length())));
+                    AppLog.d(TAG, "Detailed library response code: " + response.code());
+                    AppLog.d(TAG, "Detailed library response: " + responseBody.length() + " bytes");
 
                     if (response.isSuccessful()) {
                         try {
@@ -287,7 +306,7 @@ public class GOGLibraryManager {
                             if (page < totalPages && page < 10) { // Limite de 10 páginas para evitar loops infinitos
                                 loadDetailedLibrary(authToken, page + 1, accumulatedGames, callback);
                             } else {
-                                Log.d(TAG, "Library loaded successfully: " + accumulatedGames.size() + " games");
+                                AppLog.d(TAG, "Library loaded successfully: " + accumulatedGames.size() + " games");
                                 
                                 // Retornar jogos imediatamente para mostrar a lista
                                 callback.onSuccess(accumulatedGames);
@@ -335,7 +354,7 @@ public class GOGLibraryManager {
     private List<Game> parseLibraryResponse(String responseBody) throws JSONException {
         List<Game> games = new ArrayList<>();
         
-        Log.d(TAG, "Parsing library response: " + responseBody.substring(0, Math.min(500, responseBody.length())));
+        AppLog.d(TAG, "Parsing library response: " + responseBody.length() + " bytes");
         
         JSONObject json = new JSONObject(responseBody);
         
@@ -343,19 +362,19 @@ public class GOGLibraryManager {
         JSONArray products = json.optJSONArray("products");
         
         if (products != null) {
-            Log.d(TAG, "Found products array with " + products.length() + " items");
+            AppLog.d(TAG, "Found products array with " + products.length() + " items");
             
             for (int i = 0; i < products.length(); i++) {
                 try {
                     JSONObject productJson = products.getJSONObject(i);
                     
                     // Log dos dados do produto para debug
-                    Log.d(TAG, "Processing product " + i + ": " + productJson.toString());
+                    AppLog.d(TAG, "Processing product " + i + ": " + productJson.toString());
                     
                     Game game = Game.fromJson(productJson);
                     games.add(game);
                     
-                    Log.d(TAG, "Successfully parsed game: " + game.getTitle() + " (ID: " + game.getId() + ")");
+                    AppLog.d(TAG, "Successfully parsed game: " + game.getTitle() + " (ID: " + game.getId() + ")");
                     
                 } catch (JSONException e) {
                     Log.e(TAG, "Error parsing game at index " + i + ": " + e.getMessage(), e);
@@ -366,7 +385,7 @@ public class GOGLibraryManager {
             // Para /user/data/games, a resposta tem formato: {"owned": [id1, id2, id3, ...]}
             JSONArray owned = json.optJSONArray("owned");
             if (owned != null) {
-                Log.d(TAG, "Found owned array with " + owned.length() + " items (IDs only)");
+                AppLog.d(TAG, "Found owned array with " + owned.length() + " items (IDs only)");
                 
                 for (int i = 0; i < owned.length(); i++) {
                     try {
@@ -376,7 +395,7 @@ public class GOGLibraryManager {
                         Game game = new Game(gameId, "Carregando...");
                         games.add(game);
                         
-                        Log.d(TAG, "Created game placeholder for ID: " + gameId);
+                        AppLog.d(TAG, "Created game placeholder for ID: " + gameId);
                         
                     } catch (JSONException e) {
                         Log.w(TAG, "Error parsing owned game ID at index " + i, e);
@@ -384,7 +403,7 @@ public class GOGLibraryManager {
                 }
             } else {
                 Log.w(TAG, "No products or owned array found in response");
-                Log.d(TAG, "Full response: " + responseBody);
+                AppLog.d(TAG, "Full response: " + responseBody.length() + " bytes");
                 
                 // Verificar se a resposta é um erro
                 if (json.has("error")) {
@@ -395,7 +414,7 @@ public class GOGLibraryManager {
             }
         }
         
-        Log.d(TAG, "Total games parsed: " + games.size());
+        AppLog.d(TAG, "Total games parsed: " + games.size());
         return games;
     }
     
@@ -411,7 +430,7 @@ public class GOGLibraryManager {
             return;
         }
         
-        Log.d(TAG, "Loading game details for game ID: " + gameId);
+        AppLog.d(TAG, "Loading game details for game ID: " + gameId);
         
         String url = String.format(GAME_DETAILS_URL, gameId);
         
@@ -435,8 +454,8 @@ public class GOGLibraryManager {
                 try (Response autoCloseResponse = response) {
                     String responseBody = autoCloseResponse.body() != null ? autoCloseResponse.body().string() : "";
                     
-                    Log.d(TAG, "Game details response code: " + response.code());
-                    Log.d(TAG, "Game details response: " + responseBody);
+                    AppLog.d(TAG, "Game details response code: " + response.code());
+                    AppLog.d(TAG, "Game details response: " + responseBody.length() + " bytes");
                     
                     if (response.isSuccessful()) {
                         try {
@@ -445,7 +464,7 @@ public class GOGLibraryManager {
                             List<DownloadLink> downloadLinks = parseDownloadLinks(gameJson);
                             game.setDownloadLinks(downloadLinks);
                             
-                            Log.d(TAG, "Game details loaded: " + game.getTitle() + 
+                            AppLog.d(TAG, "Game details loaded: " + game.getTitle() + 
                                    " with " + downloadLinks.size() + " download links");
                             callback.onSuccess(game, downloadLinks);
                             
@@ -471,116 +490,15 @@ public class GOGLibraryManager {
     
 
     
-    private List<DownloadLink> parseDownloadLinks(JSONObject gameJson) throws JSONException {
-        List<DownloadLink> downloadLinks = new ArrayList<>();
-        
-        // Estrutura atual da API GOG (2025)
-        JSONObject downloads = gameJson.optJSONObject("downloads");
-        if (downloads == null) {
+    private List<DownloadLink> parseDownloadLinks(JSONObject gameJson) {
+        DownloadLinkParser.Result result = DownloadLinkParser.parse(gameJson);
+        if (!result.hasDownloads()) {
             Log.w(TAG, "No downloads object found in game details");
-            return downloadLinks;
-        }
-        
-        Log.d(TAG, "Found downloads object, parsing installers...");
-        
-        // Parsear installers
-        JSONArray installers = downloads.optJSONArray("installers");
-        if (installers != null) {
-            Log.d(TAG, "Found installers array with " + installers.length() + " items");
-            for (int i = 0; i < installers.length(); i++) {
-                try {
-                    JSONObject installer = installers.getJSONObject(i);
-                    
-                    // Parsear arquivos do installer
-                    JSONArray files = installer.optJSONArray("files");
-                    if (files != null) {
-                        for (int j = 0; j < files.length(); j++) {
-                            try {
-                                JSONObject file = files.getJSONObject(j);
-                                DownloadLink link = DownloadLink.fromJson(file);
-                                
-                                // Definir dados do installer
-                                link.setName(installer.optString("name", "Unknown"));
-                                link.setType(DownloadLink.FileType.INSTALLER);
-                                
-                                // Definir plataforma baseado no campo "os"
-                                String os = installer.optString("os", "windows").toLowerCase();
-                                switch (os) {
-                                    case "mac":
-                                        link.setPlatform(DownloadLink.Platform.MAC);
-                                        break;
-                                    case "linux":
-                                        link.setPlatform(DownloadLink.Platform.LINUX);
-                                        break;
-                                    default:
-                                        link.setPlatform(DownloadLink.Platform.WINDOWS);
-                                        break;
-                                }
-                                
-                                // Definir idioma
-                                link.setLanguage(installer.optString("language", "en"));
-                                
-                                downloadLinks.add(link);
-                                Log.d(TAG, "Added installer file: " + file.optString("id") + 
-                                          " (" + link.getFormattedSize() + ") - " + link.getUrl());
-                            } catch (JSONException e) {
-                                Log.w(TAG, "Error parsing installer file at index " + j, e);
-                            }
-                        }
-                    }
-                } catch (JSONException e) {
-                    Log.w(TAG, "Error parsing installer at index " + i, e);
-                }
-            }
+        } else if (result.getSkipped() > 0) {
+            Log.w(TAG, "Skipped " + result.getSkipped() + " malformed download entries");
         }
-        
-        // Parsear patches
-        JSONArray patches = downloads.optJSONArray("patches");
-        if (patches != null) {
-            Log.d(TAG, "Found patches array with " + patches.length() + " items");
-            for (int i = 0; i < patches.length(); i++) {
-                try {
-                    JSONObject patch = patches.getJSONObject(i);
-                    JSONArray files = patch.optJSONArray("files");
-                    if (files != null) {
-                        for (int j = 0; j < files.length(); j++) {
-                            try {
-                                JSONObject file = files.getJSONObject(j);
-                                DownloadLink link = DownloadLink.fromJson(file);
-                                link.setName(patch.optString("name", "Patch"));
-                                link.setType(DownloadLink.FileType.PATCH);
-                                downloadLinks.add(link);
-                                Log.d(TAG, "Added patch: " + file.optString("id"));
-                            } catch (JSONException e) {
-                                Log.w(TAG, "Error parsing patch file at index " + j, e);
-                            }
-                        }
-                    }
-                } catch (JSONException e) {
-                    Log.w(TAG, "Error parsing patch at index " + i, e);
-                }
-            }
-        }
-        
-        // Parsear bonus content (se existir)
-        JSONArray bonusContent = downloads.optJSONArray("bonus_content");
-        if (bonusContent != null) {
-            Log.d(TAG, "Found bonus content array with " + bonusContent.length() + " items");
-            for (int i = 0; i < bonusContent.length(); i++) {
-                try {
-                    JSONObject extra = bonusContent.getJSONObject(i);
-                    DownloadLink link = DownloadLink.fromJson(extra);
-                    link.setType(DownloadLink.FileType.EXTRA);
-                    downloadLinks.add(link);
-                    Log.d(TAG, "Added extra: " + extra.optString("name"));
-                } catch (JSONException e) {
-                    Log.w(TAG, "Error parsing extra at index " + i, e);
-                }
-            }
-        }
-        
-        Log.d(TAG, "Total download links parsed: " + downloadLinks.size());
-        return downloadLinks;
+        AppLog.d(TAG, "Total download links parsed: " + result.getLinks().size());
+        return result.getLinks();
     }
     
     /**
@@ -597,7 +515,7 @@ public class GOGLibraryManager {
             return;
         }
         
-        Log.d(TAG, "Getting download link for game " + gameId + ", link " + downloadLink.getId());
+        AppLog.d(TAG, "Getting download link for game " + gameId + ", link " + downloadLink.getId());
         
         String url = downloadLink.getUrl();
         
@@ -621,11 +539,10 @@ public class GOGLibraryManager {
                 try (Response autoCloseResponse = response) {
                     String responseBody = autoCloseResponse.body() != null ? autoCloseResponse.body().string() : "";
                     
-                    Log.d(TAG, "Download link response code: " + response.code());
-                    Log.d(TAG, "Download link response: " + responseBody);
+                    AppLog.d(TAG, "Download link response code: " + response.code());
+                    AppLog.d(TAG, "Download link response: " + responseBody.length() + " bytes");
                     
                     if (response.isSuccessful()) {
-                        Log.d(TAG, "Download link response body: " + responseBody);
                         try {
                             JSONObject jsonResponse = new JSONObject(responseBody);
                             String downloadUrl = jsonResponse.optString("downlink", "");
@@ -634,8 +551,12 @@ public class GOGLibraryManager {
                                 downloadUrl = jsonResponse.optString("url", "");
                             }
                             
+                            // XML com o MD5 de cada chunk, usado pelo cache de chunks
+                            String checksumUrl = jsonResponse.optString("checksum", "");
+                            downloadLink.setChecksumUrl(checksumUrl.isEmpty() ? null : checksumUrl);
+                            
                             if (!downloadUrl.isEmpty()) {
-                                Log.d(TAG, "Download link obtained successfully");
+                                AppLog.d(TAG, "Download link obtained successfully");
                                 callback.onSuccess(downloadUrl);
                             } else {
                                 Log.e(TAG, "No download URL in response");
@@ -662,17 +583,118 @@ public class GOGLibraryManager {
         });
     }
     
+    /**
+     * Consulta vários produtos numa única requisição (a API aceita até 50 ids).
+     * Chamada síncrona com requisição condicional: se o ETag ainda for válido,
+     * o servidor responde 304 sem corpo.
+     * @param productIds IDs dos produtos
+     * @param etag ETag da última resposta para o mesmo lote, ou null
+     */
+    public ProductBatchResult getProductsBatch(List<Long> productIds, String etag) throws IOException {
+        String authToken = preferencesManager.getAuthToken();
+        if (authToken == null || authToken.isEmpty()) {
+            throw new IOException("Token de autenticação não encontrado");
+        }
+        
+        StringBuilder ids = new StringBuilder();
+        for (Long productId : productIds) {
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(productId);
+        }
+        
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(String.format(PRODUCTS_BATCH_URL, ids))
+                .get()
+                .addHeader("Authorization", "Bearer " + authToken)
+                .addHeader("User-Agent", "GOGDownloaderApp/1.0")
+                .addHeader("Accept", "application/json");
+        if (etag != null && !etag.isEmpty()) {
+            requestBuilder.addHeader("If-None-Match", etag);
+        }
+        
+        ProductBatchResult result = new ProductBatchResult();
+        
+        try (Response response = httpClient.newCall(requestBuilder.build()).execute()) {
+            AppLog.d(TAG, "Products batch response code: " + response.code() + " (" + productIds.size() + " ids)");
+            
+            if (response.code() == 304) {
+                result.notModified = true;
+                result.etag = etag;
+                return result;
+            }
+            
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Erro ao consultar produtos (" + response.code() + ")");
+            }
+            
+            result.etag = response.header("ETag");
+            
+            try {
+                JSONArray products = new JSONArray(response.body().string());
+                for (int i = 0; i < products.length(); i++) {
+                    JSONObject product = products.getJSONObject(i);
+                    result.downloadLinks.put(product.getLong("id"), parseDownloadLinks(product));
+                }
+            } catch (JSONException e) {
+                throw new IOException("Erro ao processar produtos", e);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Baixa e interpreta o manifesto de chunks de um arquivo.
+     * Chamada síncrona: deve ser usada apenas em threads de download.
+     * @param checksumUrl URL "checksum" retornada pelo downlink
+     * @return manifesto válido, ou null se o arquivo não tiver chunks
+     */
+    public ChunkManifest getChunkManifest(String checksumUrl) {
+        if (checksumUrl == null || checksumUrl.isEmpty()) {
+            return null;
+        }
+        
+        // A URL do CDN já é assinada; não enviar o token de acesso
+        Request request = new Request.Builder()
+                .url(checksumUrl)
+                .get()
+                .addHeader("User-Agent", "GOGDownloaderApp/1.0")
+                .build();
+        
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                Log.w(TAG, "Chunk manifest request failed with code: " + response.code());
+                return null;
+            }
+            
+            ChunkManifest manifest = ChunkManifest.fromXml(response.body().string());
+            if (!manifest.isValid()) {
+                Log.w(TAG, "Chunk manifest has no usable chunks: " + manifest.getFileName());
+                return null;
+            }
+            
+            AppLog.d(TAG, "Chunk manifest loaded: " + manifest.getFileName() + " (" + manifest.getChunks().size() + " chunks)");
+            return manifest;
+            
+        } catch (Exception e) {
+            Log.w(TAG, "Error loading chunk manifest", e);
+            return null;
+        }
+    }
+    
     /**
      * Carrega tamanhos dos jogos de forma assíncrona
      * Atualiza os jogos progressivamente conforme os tamanhos são obtidos
      */
     private void loadGameSizesAsync(List<Game> games) {
         if (games == null || games.isEmpty()) {
-            Log.d(TAG, "No games to load sizes for");
+            AppLog.d(TAG, "No games to load sizes for");
             return;
         }
         
-        Log.d(TAG, "Starting async size loading for " + games.size() + " games");
+        AppLog.d(TAG, "Starting async size loading for " + games.size() + " games");
         
         // Carregar tamanhos em background thread para não bloquear UI
         new Thread(() -> {
@@ -690,7 +712,7 @@ public class GOGLibraryManager {
                             if (detailedGame.getTotalSize() > 0) {
                                 // Atualizar tamanho do jogo original
                                 game.setTotalSize(detailedGame.getTotalSize());
-                                Log.d(TAG, "Updated size for game '" + game.getTitle() + "': " + game.getFormattedSize());
+                                AppLog.d(TAG, "Updated size for game '" + game.getTitle() + "': " + game.getFormattedSize());
                                 
                                 // TODO: Notificar UI para atualizar (implementar observer pattern se necessário)
                             }
@@ -713,7 +735,7 @@ public class GOGLibraryManager {
                 }
             }
             
-            Log.d(TAG, "Finished async size loading");
+            AppLog.d(TAG, "Finished async size loading");
         }).start();
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.util.Log;
 import com.example.gogdownloader.utils.DynamicColorManager;
 import com.example.gogdownloader.services.DownloadService;
+import com.example.gogdownloader.services.UpdateCheckJobService;
 import com.example.gogdownloader.database.DatabaseHelper;
 
 /**
@@ -28,6 +29,9 @@ public class GOGDownloaderApplication extends Application {
         // Inicializar sistema de downloads
         initializeDownloadSystem();
         
+        // Agendar verificação periódica de atualizações
+        UpdateCheckJobService.schedule(this);
+        
         Log.d(TAG, "=== Application Initialization Complete ===");
     }
     
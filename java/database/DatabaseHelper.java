@@ -3,17 +3,28 @@ package com.example.gogdownloader.database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
+import com.example.gogdownloader.models.DownloadLink;
 import com.example.gogdownloader.models.Game;
+import com.example.gogdownloader.models.LibraryFilter;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import android.content.ContentValues;
 import android.database.Cursor;
 
@@ -23,10 +34,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     // Database info
     private static final String DATABASE_NAME = "gog_downloader.db";
-    private static final int DATABASE_VERSION = 2; // Versão atualizada para suporte a múltiplos downloads
+    private static final int DATABASE_VERSION = 11; // Versão 11: índice de título para a paginação da biblioteca
     
     // Table names
     private static final String TABLE_GAMES = "games";
+    private static final String TABLE_GAMES_FTS = "games_fts";
     private static final String TABLE_DOWNLOADS = "downloads";
     
     // Games table columns
@@ -46,6 +58,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_GAME_GENRES = "genres";
     private static final String COLUMN_GAME_JSON_DATA = "json_data";
     private static final String COLUMN_GAME_LAST_UPDATED = "last_updated";
+    private static final String COLUMN_GAME_PLATFORMS = "platforms"; // bit (1 << ordinal) por DownloadLink.Platform; 0 = desconhecido
     
     // Downloads table columns
     private static final String COLUMN_DOWNLOAD_ID = "id";
@@ -75,6 +88,81 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_BATCH_START_TIME = "start_time";
     private static final String COLUMN_BATCH_END_TIME = "end_time";
     
+    // Chunk cache tables
+    private static final String TABLE_CHUNKS = "chunks";
+    private static final String TABLE_CHUNK_REFS = "chunk_refs";
+    private static final String COLUMN_CHUNK_HASH = "hash";
+    private static final String COLUMN_CHUNK_SIZE = "size";
+    private static final String COLUMN_CHUNK_LAST_ACCESS = "last_access";
+    private static final String COLUMN_CHUNK_REF_GAME_ID = "game_id";
+    
+    // Installed files table (um registro por arquivo baixado de um jogo)
+    private static final String TABLE_INSTALLED_FILES = "installed_files";
+    private static final String COLUMN_INSTALLED_GAME_ID = "game_id";
+    private static final String COLUMN_INSTALLED_LINK_ID = "link_id";
+    private static final String COLUMN_INSTALLED_FILE_NAME = "file_name";
+    private static final String COLUMN_INSTALLED_VERSION = "version";
+    private static final String COLUMN_INSTALLED_SIZE = "size";
+    private static final String COLUMN_INSTALLED_MD5 = "md5";
+    private static final String COLUMN_INSTALLED_MANIFEST = "manifest";
+    private static final String COLUMN_INSTALLED_DOCUMENT_URI = "document_uri";
+    private static final String COLUMN_INSTALLED_AT = "installed_at";
+    
+    // Update checker tables
+    private static final String TABLE_GAME_UPDATES = "game_updates";
+    private static final String TABLE_UPDATE_CHECK_ETAGS = "update_check_etags";
+    private static final String COLUMN_UPDATE_GAME_ID = "game_id";
+    private static final String COLUMN_UPDATE_LATEST_LINKS = "latest_links";
+    private static final String COLUMN_UPDATE_AVAILABLE = "update_available";
+    private static final String COLUMN_UPDATE_CHANGED_FILES = "changed_files";
+    private static final String COLUMN_UPDATE_SIZE = "update_size";
+    private static final String COLUMN_UPDATE_CHECKED_AT = "checked_at";
+    private static final String COLUMN_ETAG_BATCH_KEY = "batch_key";
+    private static final String COLUMN_ETAG_VALUE = "etag";
+    
+    // Mirror state table (um registro por arquivo selecionado pelo espelhamento)
+    private static final String TABLE_MIRROR_STATE = "mirror_state";
+    private static final String COLUMN_MIRROR_GAME_ID = "game_id";
+    private static final String COLUMN_MIRROR_LINK_ID = "link_id";
+    private static final String COLUMN_MIRROR_FILE_NAME = "file_name";
+    private static final String COLUMN_MIRROR_VERSION = "version";
+    private static final String COLUMN_MIRROR_SIZE = "size";
+    private static final String COLUMN_MIRROR_STATE = "state";
+    private static final String COLUMN_MIRROR_ERROR = "error_message";
+    private static final String COLUMN_MIRROR_UPDATED_AT = "updated_at";
+    
+    public static final String MIRROR_STATE_PENDING = "PENDING";
+    public static final String MIRROR_STATE_DONE = "DONE";
+    public static final String MIRROR_STATE_FAILED = "FAILED";
+    
+    // Verify results table (último resultado da verificação de cada arquivo)
+    private static final String TABLE_VERIFY_RESULTS = "verify_results";
+    private static final String COLUMN_VERIFY_DOCUMENT_URI = "document_uri";
+    private static final String COLUMN_VERIFY_GAME_ID = "game_id";
+    private static final String COLUMN_VERIFY_FILE_NAME = "file_name";
+    private static final String COLUMN_VERIFY_SIZE = "size";
+    private static final String COLUMN_VERIFY_LAST_MODIFIED = "last_modified";
+    private static final String COLUMN_VERIFY_STATUS = "status";
+    private static final String COLUMN_VERIFY_VERIFIED_AT = "verified_at";
+    
+    // SAF index table (filhos de cada pasta da árvore de downloads, por nome)
+    private static final String TABLE_SAF_INDEX = "saf_index";
+    private static final String COLUMN_SAF_PARENT_URI = "parent_uri";
+    private static final String COLUMN_SAF_NAME = "name";
+    private static final String COLUMN_SAF_DOCUMENT_URI = "document_uri";
+    
+    // Telemetry samples table (amostras de desempenho de cada transferência)
+    private static final String TABLE_TELEMETRY = "telemetry_samples";
+    private static final String COLUMN_TELEMETRY_ID = "id";
+    private static final String COLUMN_TELEMETRY_TRANSFER_ID = "transfer_id";
+    private static final String COLUMN_TELEMETRY_GAME_ID = "game_id";
+    private static final String COLUMN_TELEMETRY_FILE_NAME = "file_name";
+    private static final String COLUMN_TELEMETRY_HOST = "host";
+    private static final String COLUMN_TELEMETRY_TYPE = "type";
+    private static final String COLUMN_TELEMETRY_VALUE = "value";
+    private static final String COLUMN_TELEMETRY_RECORDED_AT = "recorded_at";
+    private static final int MAX_TELEMETRY_SAMPLES = 50000;
+    
     // Create table statements
     private static final String CREATE_GAMES_TABLE = 
         "CREATE TABLE " + TABLE_GAMES + " (" +
@@ -93,9 +181,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             COLUMN_GAME_PUBLISHER + " TEXT, " +
             COLUMN_GAME_GENRES + " TEXT, " +
             COLUMN_GAME_JSON_DATA + " TEXT, " +
-            COLUMN_GAME_LAST_UPDATED + " INTEGER DEFAULT 0" +
+            COLUMN_GAME_LAST_UPDATED + " INTEGER DEFAULT 0, " +
+            COLUMN_GAME_PLATFORMS + " INTEGER DEFAULT 0" +
         ")";
     
+    // Colunas exibidas na lista da biblioteca: a busca não carrega descrição nem JSON
+    private static final String[] LIBRARY_LIST_COLUMNS = {
+            COLUMN_GAME_ID, COLUMN_GAME_TITLE, COLUMN_GAME_COVER_IMAGE, COLUMN_GAME_BACKGROUND_IMAGE,
+            COLUMN_GAME_STATUS, COLUMN_GAME_DOWNLOAD_PROGRESS, COLUMN_GAME_TOTAL_SIZE,
+            COLUMN_GAME_DEVELOPER, COLUMN_GAME_GENRES, COLUMN_GAME_PLATFORMS
+    };
+    
+    // Mesma ordem da lista (título sem diferenciar maiúsculas, depois id): cada página é uma busca no índice
+    private static final String CREATE_GAMES_TITLE_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_games_title ON " + TABLE_GAMES + "(" + COLUMN_GAME_TITLE + " COLLATE NOCASE)";
+    
     private static final String CREATE_DOWNLOADS_TABLE = 
         "CREATE TABLE " + TABLE_DOWNLOADS + " (" +
             COLUMN_DOWNLOAD_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -131,6 +231,94 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 TABLE_GAMES + "(" + COLUMN_GAME_ID + ")" +
         ")";
     
+    private static final String CREATE_CHUNKS_TABLE = 
+        "CREATE TABLE " + TABLE_CHUNKS + " (" +
+            COLUMN_CHUNK_HASH + " TEXT PRIMARY KEY, " +
+            COLUMN_CHUNK_SIZE + " INTEGER NOT NULL, " +
+            COLUMN_CHUNK_LAST_ACCESS + " INTEGER DEFAULT 0" +
+        ")";
+    
+    private static final String CREATE_CHUNK_REFS_TABLE = 
+        "CREATE TABLE " + TABLE_CHUNK_REFS + " (" +
+            COLUMN_CHUNK_HASH + " TEXT NOT NULL, " +
+            COLUMN_CHUNK_REF_GAME_ID + " INTEGER NOT NULL, " +
+            "PRIMARY KEY(" + COLUMN_CHUNK_HASH + ", " + COLUMN_CHUNK_REF_GAME_ID + ")" +
+        ")";
+    
+    private static final String CREATE_INSTALLED_FILES_TABLE = 
+        "CREATE TABLE " + TABLE_INSTALLED_FILES + " (" +
+            COLUMN_INSTALLED_GAME_ID + " INTEGER NOT NULL, " +
+            COLUMN_INSTALLED_LINK_ID + " TEXT NOT NULL, " +
+            COLUMN_INSTALLED_FILE_NAME + " TEXT NOT NULL, " +
+            COLUMN_INSTALLED_VERSION + " TEXT, " +
+            COLUMN_INSTALLED_SIZE + " INTEGER DEFAULT 0, " +
+            COLUMN_INSTALLED_MD5 + " TEXT, " +
+            COLUMN_INSTALLED_MANIFEST + " TEXT, " +
+            COLUMN_INSTALLED_DOCUMENT_URI + " TEXT NOT NULL, " +
+            COLUMN_INSTALLED_AT + " INTEGER DEFAULT 0, " +
+            "PRIMARY KEY(" + COLUMN_INSTALLED_GAME_ID + ", " + COLUMN_INSTALLED_LINK_ID + ")" +
+        ")";
+    
+    private static final String CREATE_GAME_UPDATES_TABLE = 
+        "CREATE TABLE " + TABLE_GAME_UPDATES + " (" +
+            COLUMN_UPDATE_GAME_ID + " INTEGER PRIMARY KEY, " +
+            COLUMN_UPDATE_LATEST_LINKS + " TEXT, " +
+            COLUMN_UPDATE_AVAILABLE + " INTEGER DEFAULT 0, " +
+            COLUMN_UPDATE_CHANGED_FILES + " INTEGER DEFAULT 0, " +
+            COLUMN_UPDATE_SIZE + " INTEGER DEFAULT 0, " +
+            COLUMN_UPDATE_CHECKED_AT + " INTEGER DEFAULT 0" +
+        ")";
+    
+    private static final String CREATE_UPDATE_CHECK_ETAGS_TABLE = 
+        "CREATE TABLE " + TABLE_UPDATE_CHECK_ETAGS + " (" +
+            COLUMN_ETAG_BATCH_KEY + " TEXT PRIMARY KEY, " +
+            COLUMN_ETAG_VALUE + " TEXT" +
+        ")";
+    
+    private static final String CREATE_MIRROR_STATE_TABLE = 
+        "CREATE TABLE " + TABLE_MIRROR_STATE + " (" +
+            COLUMN_MIRROR_GAME_ID + " INTEGER NOT NULL, " +
+            COLUMN_MIRROR_LINK_ID + " TEXT NOT NULL, " +
+            COLUMN_MIRROR_FILE_NAME + " TEXT, " +
+            COLUMN_MIRROR_VERSION + " TEXT, " +
+            COLUMN_MIRROR_SIZE + " INTEGER DEFAULT 0, " +
+            COLUMN_MIRROR_STATE + " TEXT NOT NULL, " +
+            COLUMN_MIRROR_ERROR + " TEXT, " +
+            COLUMN_MIRROR_UPDATED_AT + " INTEGER DEFAULT 0, " +
+            "PRIMARY KEY(" + COLUMN_MIRROR_GAME_ID + ", " + COLUMN_MIRROR_LINK_ID + ")" +
+        ")";
+    
+    private static final String CREATE_VERIFY_RESULTS_TABLE = 
+        "CREATE TABLE " + TABLE_VERIFY_RESULTS + " (" +
+            COLUMN_VERIFY_DOCUMENT_URI + " TEXT PRIMARY KEY, " +
+            COLUMN_VERIFY_GAME_ID + " INTEGER NOT NULL, " +
+            COLUMN_VERIFY_FILE_NAME + " TEXT, " +
+            COLUMN_VERIFY_SIZE + " INTEGER DEFAULT 0, " +
+            COLUMN_VERIFY_LAST_MODIFIED + " INTEGER DEFAULT 0, " +
+            COLUMN_VERIFY_STATUS + " TEXT NOT NULL, " +
+            COLUMN_VERIFY_VERIFIED_AT + " INTEGER DEFAULT 0" +
+        ")";
+    
+    private static final String CREATE_SAF_INDEX_TABLE = 
+        "CREATE TABLE " + TABLE_SAF_INDEX + " (" +
+            COLUMN_SAF_PARENT_URI + " TEXT NOT NULL, " +
+            COLUMN_SAF_NAME + " TEXT NOT NULL, " +
+            COLUMN_SAF_DOCUMENT_URI + " TEXT NOT NULL, " +
+            "PRIMARY KEY(" + COLUMN_SAF_PARENT_URI + ", " + COLUMN_SAF_NAME + ")" +
+        ")";
+    
+    private static final String CREATE_TELEMETRY_TABLE = 
+        "CREATE TABLE " + TABLE_TELEMETRY + " (" +
+            COLUMN_TELEMETRY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            COLUMN_TELEMETRY_TRANSFER_ID + " INTEGER NOT NULL, " +
+            COLUMN_TELEMETRY_GAME_ID + " INTEGER NOT NULL, " +
+            COLUMN_TELEMETRY_FILE_NAME + " TEXT, " +
+            COLUMN_TELEMETRY_HOST + " TEXT, " +
+            COLUMN_TELEMETRY_TYPE + " TEXT NOT NULL, " +
+            COLUMN_TELEMETRY_VALUE + " INTEGER DEFAULT 0, " +
+            COLUMN_TELEMETRY_RECORDED_AT + " INTEGER DEFAULT 0" +
+        ")";
+    
     public DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -143,11 +331,84 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         
         // Criar índices para melhor performance
         db.execSQL("CREATE INDEX idx_games_status ON " + TABLE_GAMES + "(" + COLUMN_GAME_STATUS + ")");
+        db.execSQL(CREATE_GAMES_TITLE_INDEX);
         db.execSQL("CREATE INDEX idx_downloads_game_id ON " + TABLE_DOWNLOADS + "(" + COLUMN_DOWNLOAD_GAME_ID + ")");
         db.execSQL("CREATE INDEX idx_downloads_status ON " + TABLE_DOWNLOADS + "(" + COLUMN_DOWNLOAD_STATUS + ")");
         db.execSQL("CREATE INDEX idx_downloads_link_id ON " + TABLE_DOWNLOADS + "(" + COLUMN_DOWNLOAD_LINK_ID + ")");
         db.execSQL("CREATE INDEX idx_batches_game_id ON " + TABLE_DOWNLOAD_BATCHES + "(" + COLUMN_BATCH_GAME_ID + ")");
         db.execSQL("CREATE INDEX idx_batches_status ON " + TABLE_DOWNLOAD_BATCHES + "(" + COLUMN_BATCH_STATUS + ")");
+        
+        createGamesSearch(db);
+        createChunkTables(db);
+        db.execSQL(CREATE_INSTALLED_FILES_TABLE);
+        db.execSQL(CREATE_GAME_UPDATES_TABLE);
+        db.execSQL(CREATE_UPDATE_CHECK_ETAGS_TABLE);
+        createMirrorStateTable(db);
+        db.execSQL(CREATE_VERIFY_RESULTS_TABLE);
+        db.execSQL(CREATE_SAF_INDEX_TABLE);
+        createTelemetryTable(db);
+    }
+    
+    /**
+     * Tabela FTS4 com os campos de texto dos jogos, mantida pelos triggers, e
+     * índices das colunas usadas como filtro
+     */
+    private void createGamesSearch(SQLiteDatabase db) {
+        String columns = COLUMN_GAME_TITLE + ", " + COLUMN_GAME_DEVELOPER + ", "
+                + COLUMN_GAME_PUBLISHER + ", " + COLUMN_GAME_GENRES;
+        try {
+            // unicode61 ignora acentos: "cronicas" acha "Crônicas"
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_GAMES_FTS + " USING fts4(" + columns
+                    + ", tokenize=unicode61 \"remove_diacritics=1\")");
+        } catch (SQLException e) {
+            Log.w(TAG, "unicode61 tokenizer unavailable, using simple", e);
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_GAMES_FTS + " USING fts4(" + columns + ")");
+        }
+        
+        String newValues = "new." + COLUMN_GAME_ID + ", new." + COLUMN_GAME_TITLE + ", new." + COLUMN_GAME_DEVELOPER
+                + ", new." + COLUMN_GAME_PUBLISHER + ", new." + COLUMN_GAME_GENRES;
+        String insertNew = "INSERT INTO " + TABLE_GAMES_FTS + "(docid, " + columns + ") VALUES (" + newValues + "); ";
+        
+        // O REPLACE de insertWithOnConflict não dispara o trigger de DELETE: limpar o docid antes
+        db.execSQL("CREATE TRIGGER games_fts_insert AFTER INSERT ON " + TABLE_GAMES + " BEGIN " +
+                "DELETE FROM " + TABLE_GAMES_FTS + " WHERE docid = new." + COLUMN_GAME_ID + "; " +
+                insertNew +
+                "END");
+        // Só quando o texto muda: status e progresso são atualizados o tempo todo
+        db.execSQL("CREATE TRIGGER games_fts_update AFTER UPDATE ON " + TABLE_GAMES + " WHEN " +
+                "old." + COLUMN_GAME_TITLE + " IS NOT new." + COLUMN_GAME_TITLE + " OR " +
+                "old." + COLUMN_GAME_DEVELOPER + " IS NOT new." + COLUMN_GAME_DEVELOPER + " OR " +
+                "old." + COLUMN_GAME_PUBLISHER + " IS NOT new." + COLUMN_GAME_PUBLISHER + " OR " +
+                "old." + COLUMN_GAME_GENRES + " IS NOT new." + COLUMN_GAME_GENRES + " BEGIN " +
+                "DELETE FROM " + TABLE_GAMES_FTS + " WHERE docid = old." + COLUMN_GAME_ID + "; " +
+                insertNew +
+                "END");
+        db.execSQL("CREATE TRIGGER games_fts_delete AFTER DELETE ON " + TABLE_GAMES + " BEGIN " +
+                "DELETE FROM " + TABLE_GAMES_FTS + " WHERE docid = old." + COLUMN_GAME_ID + "; " +
+                "END");
+        
+        db.execSQL("INSERT INTO " + TABLE_GAMES_FTS + "(docid, " + columns + ") SELECT " + COLUMN_GAME_ID + ", "
+                + columns + " FROM " + TABLE_GAMES);
+        
+        db.execSQL("CREATE INDEX idx_games_platforms ON " + TABLE_GAMES + "(" + COLUMN_GAME_PLATFORMS + ")");
+        db.execSQL("CREATE INDEX idx_games_total_size ON " + TABLE_GAMES + "(" + COLUMN_GAME_TOTAL_SIZE + ")");
+    }
+    
+    private void createTelemetryTable(SQLiteDatabase db) {
+        db.execSQL(CREATE_TELEMETRY_TABLE);
+        db.execSQL("CREATE INDEX idx_telemetry_transfer_id ON " + TABLE_TELEMETRY + "(" + COLUMN_TELEMETRY_TRANSFER_ID + ")");
+    }
+    
+    private void createMirrorStateTable(SQLiteDatabase db) {
+        db.execSQL(CREATE_MIRROR_STATE_TABLE);
+        db.execSQL("CREATE INDEX idx_mirror_state_state ON " + TABLE_MIRROR_STATE + "(" + COLUMN_MIRROR_STATE + ")");
+    }
+    
+    private void createChunkTables(SQLiteDatabase db) {
+        db.execSQL(CREATE_CHUNKS_TABLE);
+        db.execSQL(CREATE_CHUNK_REFS_TABLE);
+        db.execSQL("CREATE INDEX idx_chunks_last_access ON " + TABLE_CHUNKS + "(" + COLUMN_CHUNK_LAST_ACCESS + ")");
+        db.execSQL("CREATE INDEX idx_chunk_refs_game_id ON " + TABLE_CHUNK_REFS + "(" + COLUMN_CHUNK_REF_GAME_ID + ")");
     }
     
     @Override
@@ -187,11 +448,73 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             
             Log.d(TAG, "Database upgraded successfully to version 2");
         }
+        
+        if (oldVersion < 3) {
+            // Migração da versão 2 para 3: tabelas do cache de chunks
+            createChunkTables(db);
+            Log.d(TAG, "Database upgraded successfully to version 3");
+        }
+        
+        if (oldVersion < 4) {
+            // Migração da versão 3 para 4: registro de arquivos instalados
+            db.execSQL(CREATE_INSTALLED_FILES_TABLE);
+            Log.d(TAG, "Database upgraded successfully to version 4");
+        }
+        
+        if (oldVersion < 5) {
+            // Migração da versão 4 para 5: resultados da verificação de atualizações
+            db.execSQL(CREATE_GAME_UPDATES_TABLE);
+            db.execSQL(CREATE_UPDATE_CHECK_ETAGS_TABLE);
+            Log.d(TAG, "Database upgraded successfully to version 5");
+        }
+        
+        if (oldVersion < 6) {
+            // Migração da versão 5 para 6: estado do espelhamento
+            createMirrorStateTable(db);
+            Log.d(TAG, "Database upgraded successfully to version 6");
+        }
+        
+        if (oldVersion < 7) {
+            // Migração da versão 6 para 7: resultados da verificação de integridade
+            db.execSQL(CREATE_VERIFY_RESULTS_TABLE);
+            Log.d(TAG, "Database upgraded successfully to version 7");
+        }
+        
+        if (oldVersion < 8) {
+            // Migração da versão 7 para 8: índice de documentos do SAF
+            db.execSQL(CREATE_SAF_INDEX_TABLE);
+            Log.d(TAG, "Database upgraded successfully to version 8");
+        }
+        
+        if (oldVersion < 9) {
+            // Migração da versão 8 para 9: telemetria dos downloads
+            createTelemetryTable(db);
+            Log.d(TAG, "Database upgraded successfully to version 9");
+        }
+        
+        if (oldVersion < 10) {
+            // Migração da versão 9 para 10: busca FTS e filtros da biblioteca.
+            // O json_data antigo não guardava worksOn, então não há de onde preencher a coluna:
+            // os jogos ficam com 0 (desconhecido) até a próxima sincronização da biblioteca
+            db.execSQL("ALTER TABLE " + TABLE_GAMES + " ADD COLUMN " + COLUMN_GAME_PLATFORMS + " INTEGER DEFAULT 0");
+            createGamesSearch(db);
+            Log.d(TAG, "Database upgraded successfully to version 10");
+        }
+        
+        if (oldVersion < 11) {
+            // Migração da versão 10 para 11: páginas da biblioteca em ordem de título sem ordenar a tabela
+            db.execSQL(CREATE_GAMES_TITLE_INDEX);
+            Log.d(TAG, "Database upgraded successfully to version 11");
+        }
     }
     
     // Métodos para gerenciar jogos
     
     public long insertGame(Game game) {
+        if (game.isSummary()) {
+            // REPLACE apagaria as colunas que o jogo da lista não carregou
+            return updateGame(game) ? game.getId() : -1;
+        }
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = gameToContentValues(game);
         
@@ -282,6 +605,42 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return games;
     }
     
+    /**
+     * Página da biblioteca em ordem alfabética, só com as colunas da lista.
+     * A próxima página começa depois do último jogo da anterior (título e id),
+     * então o custo não cresce com o número de páginas já lidas.
+     * @param after último jogo da página anterior, ou null para a primeira
+     * @param limit jogos por página; 0 ou menos traz todo o restante
+     */
+    public List<Game> getLibraryPage(Game after, int limit) {
+        List<Game> games = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        String selection = null;
+        String[] args = null;
+        if (after != null) {
+            // ">=" no título limita a busca no índice; o "OR" só desempata títulos iguais
+            selection = COLUMN_GAME_TITLE + " >= ? COLLATE NOCASE AND (" + COLUMN_GAME_TITLE + " > ? COLLATE NOCASE OR "
+                    + COLUMN_GAME_ID + " > ?)";
+            String title = after.getTitle() != null ? after.getTitle() : "";
+            args = new String[]{title, title, String.valueOf(after.getId())};
+        }
+        
+        try (Cursor cursor = db.query(TABLE_GAMES, LIBRARY_LIST_COLUMNS, selection, args, null, null,
+                COLUMN_GAME_TITLE + " COLLATE NOCASE ASC, " + COLUMN_GAME_ID + " ASC",
+                limit > 0 ? String.valueOf(limit) : null)) {
+            while (cursor.moveToNext()) {
+                games.add(cursorToListGame(cursor));
+            }
+        }
+        
+        return games;
+    }
+    
+    public int getGameCount() {
+        return (int) DatabaseUtils.queryNumEntries(this.getReadableDatabase(), TABLE_GAMES);
+    }
+    
     public List<Game> getGamesByStatus(Game.DownloadStatus status) {
         List<Game> games = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
@@ -303,6 +662,276 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return games;
     }
     
+    // Busca e filtros da biblioteca
+    
+    /**
+     * Página dos jogos que atendem à busca e aos filtros, só com as colunas da lista.
+     * Com texto, a ordem é por relevância (ver {@link #buildSearchRank}) e depois
+     * alfabética; a próxima página começa depois do último jogo da anterior, como em
+     * {@link #getLibraryPage}.
+     * @param after último jogo da página anterior, ou null para a primeira
+     * @param limit jogos por página; 0 ou menos traz todo o restante
+     */
+    public List<Game> searchLibrary(LibraryFilter filter, Game after, int limit) {
+        List<Game> games = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        appendLibraryFilter(where, args, filter);
+        
+        List<String> rankArgs = new ArrayList<>();
+        String rank = buildSearchRank(filter, rankArgs);
+        String orderBy = COLUMN_GAME_TITLE + " COLLATE NOCASE ASC, " + COLUMN_GAME_ID + " ASC";
+        
+        try {
+            if (after != null) {
+                String title = after.getTitle() != null ? after.getTitle() : "";
+                String keyset = COLUMN_GAME_TITLE + " >= ? COLLATE NOCASE AND (" + COLUMN_GAME_TITLE
+                        + " > ? COLLATE NOCASE OR " + COLUMN_GAME_ID + " > ?)";
+                if (rank != null) {
+                    // Depois do último jogo dentro da mesma relevância, ou numa relevância seguinte
+                    int afterRank = getSearchRank(db, rank, rankArgs, after.getId());
+                    appendCondition(where, "(" + rank + " > " + afterRank + " OR (" + rank + " = " + afterRank
+                            + " AND " + keyset + "))");
+                    args.addAll(rankArgs);
+                    args.addAll(rankArgs);
+                } else {
+                    appendCondition(where, keyset);
+                }
+                args.add(title);
+                args.add(title);
+                args.add(String.valueOf(after.getId()));
+            }
+            
+            // O ORDER BY vem depois do WHERE: os argumentos da relevância entram por último
+            if (rank != null) {
+                args.addAll(rankArgs);
+            }
+            try (Cursor cursor = db.query(TABLE_GAMES, LIBRARY_LIST_COLUMNS,
+                    where.length() > 0 ? where.toString() : null, args.toArray(new String[0]),
+                    null, null, rank != null ? rank + " ASC, " + orderBy : orderBy,
+                    limit > 0 ? String.valueOf(limit) : null)) {
+                while (cursor.moveToNext()) {
+                    games.add(cursorToListGame(cursor));
+                }
+            }
+        } catch (SQLException e) {
+            // MATCH com sintaxe inválida não deve derrubar a tela
+            Log.w(TAG, "Library search failed: " + filter.getText(), e);
+        }
+        
+        return games;
+    }
+    
+    /**
+     * Quantidade de jogos que atendem à busca e aos filtros
+     */
+    public int getLibrarySearchCount(LibraryFilter filter) {
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        appendLibraryFilter(where, args, filter);
+        
+        try {
+            return (int) DatabaseUtils.queryNumEntries(this.getReadableDatabase(), TABLE_GAMES,
+                    where.length() > 0 ? where.toString() : null, args.toArray(new String[0]));
+        } catch (SQLException e) {
+            Log.w(TAG, "Library search count failed: " + filter.getText(), e);
+            return 0;
+        }
+    }
+    
+    /**
+     * Condições da busca (FTS) e dos filtros da biblioteca
+     */
+    private static void appendLibraryFilter(StringBuilder where, List<String> args, LibraryFilter filter) {
+        String match = buildLibraryMatch(filter);
+        if (match != null) {
+            appendCondition(where, COLUMN_GAME_ID + " IN (SELECT docid FROM " + TABLE_GAMES_FTS
+                    + " WHERE " + TABLE_GAMES_FTS + " MATCH ?)");
+            args.add(match);
+        }
+        
+        if (!filter.getStatuses().isEmpty()) {
+            StringBuilder placeholders = new StringBuilder();
+            for (Game.DownloadStatus status : filter.getStatuses()) {
+                placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+                args.add(status.name());
+            }
+            appendCondition(where, COLUMN_GAME_STATUS + " IN (" + placeholders + ")");
+        }
+        
+        if (!filter.getPlatforms().isEmpty()) {
+            // Todas as combinações com alguma das plataformas pedidas: IN usa o índice, "&" não.
+            // 0 (plataformas desconhecidas, jogo de antes da versão 10) passa em qualquer filtro
+            int wanted = platformMask(filter.getPlatforms());
+            StringBuilder masks = new StringBuilder("0");
+            for (int mask = 1; mask < (1 << DownloadLink.Platform.values().length); mask++) {
+                if ((mask & wanted) != 0) {
+                    masks.append(", ").append(mask);
+                }
+            }
+            appendCondition(where, COLUMN_GAME_PLATFORMS + " IN (" + masks + ")");
+        }
+        
+        if (filter.getMinSize() > 0) {
+            appendCondition(where, COLUMN_GAME_TOTAL_SIZE + " >= ?");
+            args.add(String.valueOf(filter.getMinSize()));
+        }
+        if (filter.getMaxSize() > 0) {
+            appendCondition(where, COLUMN_GAME_TOTAL_SIZE + " <= ?");
+            args.add(String.valueOf(filter.getMaxSize()));
+        }
+    }
+    
+    /**
+     * Relevância de um jogo já exibido, para continuar a paginação a partir dele.
+     * Se o jogo sumiu do banco, recomeça do primeiro nível (nada é pulado).
+     */
+    private static int getSearchRank(SQLiteDatabase db, String rank, List<String> rankArgs, long gameId) {
+        List<String> args = new ArrayList<>(rankArgs);
+        args.add(String.valueOf(gameId));
+        try (Cursor cursor = db.rawQuery("SELECT " + rank + " FROM " + TABLE_GAMES + " WHERE " + COLUMN_GAME_ID
+                + " = ?", args.toArray(new String[0]))) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+    
+    /**
+     * Gêneros da biblioteca com a quantidade de jogos, do mais comum ao menos comum
+     * @return linhas com "genre" e "count"
+     */
+    public List<ContentValues> getGenreFacets() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<String, Integer> counts = new HashMap<>();
+        
+        // Gêneros ficam juntos numa coluna ("Action, Adventure"): agrupar antes de separar
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_GAME_GENRES + ", COUNT(*) FROM " + TABLE_GAMES
+                + " GROUP BY " + COLUMN_GAME_GENRES, null)) {
+            while (cursor.moveToNext()) {
+                int count = cursor.getInt(1);
+                for (String genre : parseGenres(cursor.getString(0))) {
+                    Integer previous = counts.get(genre);
+                    counts.put(genre, previous != null ? previous + count : count);
+                }
+            }
+        }
+        
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        Collections.sort(entries, (a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareToIgnoreCase(b.getKey()) : b.getValue() - a.getValue());
+        
+        List<ContentValues> facets = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            ContentValues values = new ContentValues();
+            values.put("genre", entry.getKey());
+            values.put("count", entry.getValue());
+            facets.add(values);
+        }
+        return facets;
+    }
+    
+    /**
+     * Quantidade de jogos em cada status
+     */
+    public Map<Game.DownloadStatus, Integer> getStatusFacets() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Map<Game.DownloadStatus, Integer> counts = new EnumMap<>(Game.DownloadStatus.class);
+        
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_GAME_STATUS + ", COUNT(*) FROM " + TABLE_GAMES
+                + " GROUP BY " + COLUMN_GAME_STATUS, null)) {
+            while (cursor.moveToNext()) {
+                try {
+                    counts.put(Game.DownloadStatus.valueOf(cursor.getString(0)), cursor.getInt(1));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    // Status desconhecido: ignorar
+                }
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * Texto da busca como prefixos ("witch" acha "Witcher"), mais as palavras do gênero
+     * restritas à coluna de gêneros (o FTS4 não aceita frase com filtro de coluna)
+     * @return null se não houver nada para o FTS
+     */
+    private static String buildLibraryMatch(LibraryFilter filter) {
+        StringBuilder match = new StringBuilder();
+        for (String token : ftsTokens(filter.getText())) {
+            match.append(match.length() == 0 ? "" : " ").append(token).append('*');
+        }
+        if (filter.getGenre() != null) {
+            for (String token : ftsTokens(filter.getGenre())) {
+                match.append(match.length() == 0 ? "" : " ").append(COLUMN_GAME_GENRES).append(':').append(token);
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+    
+    /**
+     * Relevância de cada jogo para o texto da busca: 0 se o título começa pelo
+     * texto, 1 se todas as palavras estão no título, 2 se só casaram desenvolvedor,
+     * distribuidora ou gêneros
+     * @return expressão SQL com os argumentos já adicionados a args, ou null sem texto
+     */
+    private static String buildSearchRank(LibraryFilter filter, List<String> args) {
+        List<String> tokens = ftsTokens(filter.getText());
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        
+        StringBuilder titleMatch = new StringBuilder();
+        for (String token : tokens) {
+            titleMatch.append(titleMatch.length() == 0 ? "" : " ")
+                    .append(COLUMN_GAME_TITLE).append(':').append(token).append('*');
+        }
+        args.add(filter.getText().replaceAll("([\\\\%_])", "\\\\$1") + "%");
+        args.add(titleMatch.toString());
+        
+        return "CASE WHEN " + COLUMN_GAME_TITLE + " LIKE ? ESCAPE '\\' THEN 0"
+                + " WHEN " + COLUMN_GAME_ID + " IN (SELECT docid FROM " + TABLE_GAMES_FTS
+                + " WHERE " + TABLE_GAMES_FTS + " MATCH ?) THEN 1 ELSE 2 END";
+    }
+    
+    /**
+     * Palavras em minúsculas, sem pontuação: nada que o MATCH interprete como operador
+     */
+    private static List<String> ftsTokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    private static void appendCondition(StringBuilder where, String condition) {
+        if (where.length() > 0) {
+            where.append(" AND ");
+        }
+        where.append(condition);
+    }
+    
+    private static int platformMask(Set<DownloadLink.Platform> platforms) {
+        int mask = 0;
+        for (DownloadLink.Platform platform : platforms) {
+            mask |= 1 << platform.ordinal();
+        }
+        return mask;
+    }
+    
+    private static Set<DownloadLink.Platform> platformsFromMask(int mask) {
+        EnumSet<DownloadLink.Platform> platforms = EnumSet.noneOf(DownloadLink.Platform.class);
+        for (DownloadLink.Platform platform : DownloadLink.Platform.values()) {
+            if ((mask & (1 << platform.ordinal())) != 0) {
+                platforms.add(platform);
+            }
+        }
+        return platforms;
+    }
+    
     // Métodos para gerenciar downloads individuais
     
     public long insertDownload(long gameId, String downloadLinkId, String fileName, String downloadUrl) {
@@ -506,9 +1135,549 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return batch;
     }
     
+    // Métodos para o cache de chunks
+    
+    public void insertChunk(String hash, long size) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        
+        values.put(COLUMN_CHUNK_HASH, hash);
+        values.put(COLUMN_CHUNK_SIZE, size);
+        values.put(COLUMN_CHUNK_LAST_ACCESS, System.currentTimeMillis());
+        
+        db.insertWithOnConflict(TABLE_CHUNKS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+    
+    public void touchChunk(String hash) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_CHUNK_LAST_ACCESS, System.currentTimeMillis());
+        
+        db.update(TABLE_CHUNKS, values, COLUMN_CHUNK_HASH + " = ?", new String[]{hash});
+    }
+    
+    public void deleteChunk(String hash) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_CHUNKS, COLUMN_CHUNK_HASH + " = ?", new String[]{hash});
+    }
+    
+    public long getChunkSize(String hash) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long size = -1;
+        
+        Cursor cursor = db.query(TABLE_CHUNKS, new String[]{COLUMN_CHUNK_SIZE},
+                COLUMN_CHUNK_HASH + " = ?", new String[]{hash}, null, null, null);
+        
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                size = cursor.getLong(0);
+            }
+            cursor.close();
+        }
+        
+        return size;
+    }
+    
+    public long getTotalChunkCacheSize() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long total = 0;
+        
+        Cursor cursor = db.rawQuery("SELECT SUM(" + COLUMN_CHUNK_SIZE + ") FROM " + TABLE_CHUNKS, null);
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                total = cursor.getLong(0);
+            }
+            cursor.close();
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Candidatos à remoção do cache: primeiro chunks sem referência de nenhum
+     * jogo, depois os referenciados; em cada grupo, o acesso mais antigo primeiro.
+     */
+    public List<ContentValues> getChunkEvictionCandidates(int limit) {
+        List<ContentValues> chunks = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        String query = "SELECT c." + COLUMN_CHUNK_HASH + ", c." + COLUMN_CHUNK_SIZE + ", " +
+                "(SELECT COUNT(*) FROM " + TABLE_CHUNK_REFS + " r WHERE r." + COLUMN_CHUNK_HASH +
+                " = c." + COLUMN_CHUNK_HASH + ") AS refs " +
+                "FROM " + TABLE_CHUNKS + " c " +
+                "ORDER BY refs > 0 ASC, c." + COLUMN_CHUNK_LAST_ACCESS + " ASC LIMIT " + limit;
+        
+        Cursor cursor = db.rawQuery(query, null);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                values.put("hash", cursor.getString(0));
+                values.put("size", cursor.getLong(1));
+                values.put("refs", cursor.getInt(2));
+                chunks.add(values);
+            }
+            cursor.close();
+        }
+        
+        return chunks;
+    }
+    
+    public void addChunkReference(String hash, long gameId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        
+        values.put(COLUMN_CHUNK_HASH, hash);
+        values.put(COLUMN_CHUNK_REF_GAME_ID, gameId);
+        
+        db.insertWithOnConflict(TABLE_CHUNK_REFS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+    
+    public int deleteChunkReferences(long gameId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        return db.delete(TABLE_CHUNK_REFS, COLUMN_CHUNK_REF_GAME_ID + " = ?", 
+                new String[]{String.valueOf(gameId)});
+    }
+    
+    // Métodos para arquivos instalados
+    
+    public void saveInstalledFile(long gameId, String linkId, String fileName, String version, 
+                                  long size, String md5, String manifestJson, String documentUri) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        
+        values.put(COLUMN_INSTALLED_GAME_ID, gameId);
+        values.put(COLUMN_INSTALLED_LINK_ID, linkId);
+        values.put(COLUMN_INSTALLED_FILE_NAME, fileName);
+        values.put(COLUMN_INSTALLED_VERSION, version);
+        values.put(COLUMN_INSTALLED_SIZE, size);
+        values.put(COLUMN_INSTALLED_MD5, md5);
+        values.put(COLUMN_INSTALLED_MANIFEST, manifestJson);
+        values.put(COLUMN_INSTALLED_DOCUMENT_URI, documentUri);
+        values.put(COLUMN_INSTALLED_AT, System.currentTimeMillis());
+        
+        long id = db.insertWithOnConflict(TABLE_INSTALLED_FILES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        if (id == -1) {
+            Log.e(TAG, "Error saving installed file: " + fileName);
+        }
+    }
+    
+    public void updateInstalledFileVersion(long gameId, String linkId, String version) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_INSTALLED_VERSION, version);
+        
+        db.update(TABLE_INSTALLED_FILES, values, 
+                COLUMN_INSTALLED_GAME_ID + " = ? AND " + COLUMN_INSTALLED_LINK_ID + " = ?",
+                new String[]{String.valueOf(gameId), linkId});
+    }
+    
+    public List<ContentValues> getInstalledFiles(long gameId) {
+        List<ContentValues> files = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        Cursor cursor = db.query(TABLE_INSTALLED_FILES, null, 
+                COLUMN_INSTALLED_GAME_ID + " = ?", new String[]{String.valueOf(gameId)},
+                null, null, COLUMN_INSTALLED_FILE_NAME + " ASC");
+        
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                values.put("link_id", cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_INSTALLED_LINK_ID)));
+                values.put("file_name", cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_INSTALLED_FILE_NAME)));
+                values.put("version", cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_INSTALLED_VERSION)));
+                values.put("size", cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_INSTALLED_SIZE)));
+                values.put("md5", cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_INSTALLED_MD5)));
+                values.put("manifest", cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_INSTALLED_MANIFEST)));
+                values.put("document_uri", cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_INSTALLED_DOCUMENT_URI)));
+                files.add(values);
+            }
+            cursor.close();
+        }
+        
+        return files;
+    }
+    
+    // Métodos para verificação de atualizações
+    
+    public void saveGameUpdate(long gameId, String latestLinksJson, boolean updateAvailable, 
+                               int changedFiles, long updateSize) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        
+        values.put(COLUMN_UPDATE_GAME_ID, gameId);
+        values.put(COLUMN_UPDATE_LATEST_LINKS, latestLinksJson);
+        values.put(COLUMN_UPDATE_AVAILABLE, updateAvailable ? 1 : 0);
+        values.put(COLUMN_UPDATE_CHANGED_FILES, changedFiles);
+        values.put(COLUMN_UPDATE_SIZE, updateSize);
+        values.put(COLUMN_UPDATE_CHECKED_AT, System.currentTimeMillis());
+        
+        db.insertWithOnConflict(TABLE_GAME_UPDATES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+    
+    public String getLatestLinksJson(long gameId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String json = null;
+        
+        Cursor cursor = db.query(TABLE_GAME_UPDATES, new String[]{COLUMN_UPDATE_LATEST_LINKS},
+                COLUMN_UPDATE_GAME_ID + " = ?", new String[]{String.valueOf(gameId)}, null, null, null);
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                json = cursor.getString(0);
+            }
+            cursor.close();
+        }
+        
+        return json;
+    }
+    
+    public void clearGameUpdate(long gameId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_UPDATE_AVAILABLE, 0);
+        values.put(COLUMN_UPDATE_CHANGED_FILES, 0);
+        values.put(COLUMN_UPDATE_SIZE, 0);
+        
+        db.update(TABLE_GAME_UPDATES, values, COLUMN_UPDATE_GAME_ID + " = ?", 
+                new String[]{String.valueOf(gameId)});
+    }
+    
+    public List<ContentValues> getAvailableUpdates() {
+        List<ContentValues> updates = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        String query = "SELECT u." + COLUMN_UPDATE_GAME_ID + ", g." + COLUMN_GAME_TITLE + ", u." + 
+                COLUMN_UPDATE_CHANGED_FILES + ", u." + COLUMN_UPDATE_SIZE + ", u." + COLUMN_UPDATE_CHECKED_AT +
+                " FROM " + TABLE_GAME_UPDATES + " u JOIN " + TABLE_GAMES + " g ON g." + COLUMN_GAME_ID + 
+                " = u." + COLUMN_UPDATE_GAME_ID +
+                " WHERE u." + COLUMN_UPDATE_AVAILABLE + " = 1 ORDER BY g." + COLUMN_GAME_TITLE + " ASC";
+        
+        Cursor cursor = db.rawQuery(query, null);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                values.put("game_id", cursor.getLong(0));
+                values.put("title", cursor.getString(1));
+                values.put("changed_files", cursor.getInt(2));
+                values.put("update_size", cursor.getLong(3));
+                values.put("checked_at", cursor.getLong(4));
+                updates.add(values);
+            }
+            cursor.close();
+        }
+        
+        return updates;
+    }
+    
+    public String getUpdateCheckEtag(String batchKey) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String etag = null;
+        
+        Cursor cursor = db.query(TABLE_UPDATE_CHECK_ETAGS, new String[]{COLUMN_ETAG_VALUE},
+                COLUMN_ETAG_BATCH_KEY + " = ?", new String[]{batchKey}, null, null, null);
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                etag = cursor.getString(0);
+            }
+            cursor.close();
+        }
+        
+        return etag;
+    }
+    
+    public void saveUpdateCheckEtag(String batchKey, String etag) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        
+        if (etag == null || etag.isEmpty()) {
+            db.delete(TABLE_UPDATE_CHECK_ETAGS, COLUMN_ETAG_BATCH_KEY + " = ?", new String[]{batchKey});
+            return;
+        }
+        
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ETAG_BATCH_KEY, batchKey);
+        values.put(COLUMN_ETAG_VALUE, etag);
+        db.insertWithOnConflict(TABLE_UPDATE_CHECK_ETAGS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+    
+    // Métodos para o espelhamento da biblioteca
+    
+    public void saveMirrorFile(long gameId, String linkId, String fileName, String version, long size, String state) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        
+        values.put(COLUMN_MIRROR_GAME_ID, gameId);
+        values.put(COLUMN_MIRROR_LINK_ID, linkId);
+        values.put(COLUMN_MIRROR_FILE_NAME, fileName);
+        values.put(COLUMN_MIRROR_VERSION, version);
+        values.put(COLUMN_MIRROR_SIZE, size);
+        values.put(COLUMN_MIRROR_STATE, state);
+        values.put(COLUMN_MIRROR_UPDATED_AT, System.currentTimeMillis());
+        
+        db.insertWithOnConflict(TABLE_MIRROR_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+    
+    /**
+     * Atualiza o estado de um arquivo espelhado; não faz nada se o arquivo não faz parte do espelho
+     */
+    public void updateMirrorFileState(long gameId, String linkId, String state, String errorMessage) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_MIRROR_STATE, state);
+        values.put(COLUMN_MIRROR_ERROR, errorMessage);
+        values.put(COLUMN_MIRROR_UPDATED_AT, System.currentTimeMillis());
+        
+        db.update(TABLE_MIRROR_STATE, values, 
+                COLUMN_MIRROR_GAME_ID + " = ? AND " + COLUMN_MIRROR_LINK_ID + " = ?",
+                new String[]{String.valueOf(gameId), linkId});
+    }
+    
+    public void clearMirrorState() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_MIRROR_STATE, null, null);
+    }
+    
+    /**
+     * Resumo do espelho: quantidade de arquivos e bytes por estado
+     * (chaves "files_<STATE>" e "bytes_<STATE>")
+     */
+    public ContentValues getMirrorSummary() {
+        ContentValues summary = new ContentValues();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_MIRROR_STATE + ", COUNT(*), SUM(" + COLUMN_MIRROR_SIZE + ")" +
+                " FROM " + TABLE_MIRROR_STATE + " GROUP BY " + COLUMN_MIRROR_STATE, null);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                summary.put("files_" + cursor.getString(0), cursor.getInt(1));
+                summary.put("bytes_" + cursor.getString(0), cursor.getLong(2));
+            }
+            cursor.close();
+        }
+        
+        return summary;
+    }
+    
+    // Métodos para a verificação de integridade
+    
+    public void saveVerifyResult(String documentUri, long gameId, String fileName, long size, 
+                                 long lastModified, String status) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        
+        values.put(COLUMN_VERIFY_DOCUMENT_URI, documentUri);
+        values.put(COLUMN_VERIFY_GAME_ID, gameId);
+        values.put(COLUMN_VERIFY_FILE_NAME, fileName);
+        values.put(COLUMN_VERIFY_SIZE, size);
+        values.put(COLUMN_VERIFY_LAST_MODIFIED, lastModified);
+        values.put(COLUMN_VERIFY_STATUS, status);
+        values.put(COLUMN_VERIFY_VERIFIED_AT, System.currentTimeMillis());
+        
+        db.insertWithOnConflict(TABLE_VERIFY_RESULTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+    
+    public ContentValues getVerifyResult(String documentUri) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        ContentValues values = null;
+        
+        Cursor cursor = db.query(TABLE_VERIFY_RESULTS, 
+                new String[]{COLUMN_VERIFY_SIZE, COLUMN_VERIFY_LAST_MODIFIED, COLUMN_VERIFY_STATUS},
+                COLUMN_VERIFY_DOCUMENT_URI + " = ?", new String[]{documentUri}, null, null, null);
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                values = new ContentValues();
+                values.put("size", cursor.getLong(0));
+                values.put("last_modified", cursor.getLong(1));
+                values.put("status", cursor.getString(2));
+            }
+            cursor.close();
+        }
+        
+        return values;
+    }
+    
+    // Métodos para o índice de documentos do SAF
+    
+    public List<ContentValues> getSafIndexEntries(String parentUri) {
+        List<ContentValues> entries = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        Cursor cursor = db.query(TABLE_SAF_INDEX, new String[]{COLUMN_SAF_NAME, COLUMN_SAF_DOCUMENT_URI},
+                COLUMN_SAF_PARENT_URI + " = ?", new String[]{parentUri}, null, null, null);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                values.put("name", cursor.getString(0));
+                values.put("document_uri", cursor.getString(1));
+                entries.add(values);
+            }
+            cursor.close();
+        }
+        
+        return entries;
+    }
+    
+    /**
+     * Substitui a listagem salva de uma pasta (chaves "name" e "document_uri")
+     */
+    public void replaceSafIndexEntries(String parentUri, List<ContentValues> entries) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_SAF_INDEX, COLUMN_SAF_PARENT_URI + " = ?", new String[]{parentUri});
+            for (ContentValues entry : entries) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_SAF_PARENT_URI, parentUri);
+                values.put(COLUMN_SAF_NAME, entry.getAsString("name"));
+                values.put(COLUMN_SAF_DOCUMENT_URI, entry.getAsString("document_uri"));
+                db.insertWithOnConflict(TABLE_SAF_INDEX, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+    
+    public void saveSafIndexEntry(String parentUri, String name, String documentUri) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        
+        values.put(COLUMN_SAF_PARENT_URI, parentUri);
+        values.put(COLUMN_SAF_NAME, name);
+        values.put(COLUMN_SAF_DOCUMENT_URI, documentUri);
+        
+        db.insertWithOnConflict(TABLE_SAF_INDEX, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+    
+    public void deleteSafIndexEntry(String parentUri, String name) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_SAF_INDEX, COLUMN_SAF_PARENT_URI + " = ? AND " + COLUMN_SAF_NAME + " = ?",
+                new String[]{parentUri, name});
+    }
+    
+    public void deleteSafIndexEntries(String parentUri) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_SAF_INDEX, COLUMN_SAF_PARENT_URI + " = ?", new String[]{parentUri});
+    }
+    
+    // Métodos para a telemetria dos downloads
+    
+    /**
+     * Grava um lote de amostras (chaves iguais às colunas) e descarta as mais
+     * antigas além do limite da tabela
+     */
+    public void insertTelemetrySamples(List<ContentValues> samples) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        
+        db.beginTransaction();
+        try {
+            for (ContentValues values : samples) {
+                db.insert(TABLE_TELEMETRY, null, values);
+            }
+            db.execSQL("DELETE FROM " + TABLE_TELEMETRY + " WHERE " + COLUMN_TELEMETRY_ID + " <= " +
+                    "(SELECT MAX(" + COLUMN_TELEMETRY_ID + ") FROM " + TABLE_TELEMETRY + ") - " + MAX_TELEMETRY_SAMPLES);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+    
+    /**
+     * Resumo das transferências mais recentes, uma linha por transferência
+     * (chaves "transfer_id", "game_id", "file_name", "host", "avg_throughput",
+     * "max_throughput", "samples", "avg_ttfb", "stalls", "stall_ms", "retries"
+     * e "avg_write_latency")
+     */
+    public List<ContentValues> getTelemetrySummaries(int limit) {
+        List<ContentValues> summaries = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_TELEMETRY_TRANSFER_ID + ", " + COLUMN_TELEMETRY_GAME_ID + ", " +
+                "MAX(" + COLUMN_TELEMETRY_FILE_NAME + "), MAX(" + COLUMN_TELEMETRY_HOST + "), " +
+                "AVG(CASE WHEN " + COLUMN_TELEMETRY_TYPE + " = 'THROUGHPUT' THEN " + COLUMN_TELEMETRY_VALUE + " END), " +
+                "MAX(CASE WHEN " + COLUMN_TELEMETRY_TYPE + " = 'THROUGHPUT' THEN " + COLUMN_TELEMETRY_VALUE + " END), " +
+                "SUM(CASE WHEN " + COLUMN_TELEMETRY_TYPE + " = 'THROUGHPUT' THEN 1 ELSE 0 END), " +
+                "AVG(CASE WHEN " + COLUMN_TELEMETRY_TYPE + " = 'TTFB' THEN " + COLUMN_TELEMETRY_VALUE + " END), " +
+                "SUM(CASE WHEN " + COLUMN_TELEMETRY_TYPE + " = 'STALL' THEN 1 ELSE 0 END), " +
+                "SUM(CASE WHEN " + COLUMN_TELEMETRY_TYPE + " = 'STALL' THEN " + COLUMN_TELEMETRY_VALUE + " ELSE 0 END), " +
+                "SUM(CASE WHEN " + COLUMN_TELEMETRY_TYPE + " = 'RETRY' THEN 1 ELSE 0 END), " +
+                "AVG(CASE WHEN " + COLUMN_TELEMETRY_TYPE + " = 'WRITE_LATENCY' THEN " + COLUMN_TELEMETRY_VALUE + " END)" +
+                " FROM " + TABLE_TELEMETRY + " GROUP BY " + COLUMN_TELEMETRY_TRANSFER_ID + ", " + COLUMN_TELEMETRY_GAME_ID +
+                " ORDER BY " + COLUMN_TELEMETRY_TRANSFER_ID + " DESC LIMIT " + limit, null);
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                values.put("transfer_id", cursor.getLong(0));
+                values.put("game_id", cursor.getLong(1));
+                values.put("file_name", cursor.getString(2));
+                values.put("host", cursor.getString(3));
+                values.put("avg_throughput", cursor.getLong(4));
+                values.put("max_throughput", cursor.getLong(5));
+                values.put("samples", cursor.getInt(6));
+                values.put("avg_ttfb", cursor.getLong(7));
+                values.put("stalls", cursor.getInt(8));
+                values.put("stall_ms", cursor.getLong(9));
+                values.put("retries", cursor.getInt(10));
+                values.put("avg_write_latency", cursor.getLong(11));
+                summaries.add(values);
+            }
+            cursor.close();
+        }
+        
+        return summaries;
+    }
+    
+    /**
+     * Amostras brutas em ordem de gravação, em páginas (para exportação)
+     * @param afterId id da última amostra da página anterior (0 na primeira)
+     */
+    public List<ContentValues> getTelemetrySamples(long afterId, int limit) {
+        List<ContentValues> samples = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        Cursor cursor = db.query(TABLE_TELEMETRY, 
+                new String[]{COLUMN_TELEMETRY_ID, COLUMN_TELEMETRY_TRANSFER_ID, COLUMN_TELEMETRY_GAME_ID,
+                        COLUMN_TELEMETRY_FILE_NAME, COLUMN_TELEMETRY_HOST, COLUMN_TELEMETRY_TYPE,
+                        COLUMN_TELEMETRY_VALUE, COLUMN_TELEMETRY_RECORDED_AT},
+                COLUMN_TELEMETRY_ID + " > ?", new String[]{String.valueOf(afterId)},
+                null, null, COLUMN_TELEMETRY_ID, String.valueOf(limit));
+        if (cursor != null) {
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                values.put("id", cursor.getLong(0));
+                values.put("transfer_id", cursor.getLong(1));
+                values.put("game_id", cursor.getLong(2));
+                values.put("file_name", cursor.getString(3));
+                values.put("host", cursor.getString(4));
+                values.put("type", cursor.getString(5));
+                values.put("value", cursor.getLong(6));
+                values.put("recorded_at", cursor.getLong(7));
+                samples.add(values);
+            }
+            cursor.close();
+        }
+        
+        return samples;
+    }
+    
+    public void clearTelemetry() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_TELEMETRY, null, null);
+    }
+    
     public boolean deleteGame(long gameId) {
         SQLiteDatabase db = this.getWritableDatabase();
         
+        // Chunks do jogo deixam de ser referenciados (continuam no cache até a remoção por LRU)
+        deleteChunkReferences(gameId);
+        db.delete(TABLE_INSTALLED_FILES, COLUMN_INSTALLED_GAME_ID + " = ?", 
+                new String[]{String.valueOf(gameId)});
+        db.delete(TABLE_GAME_UPDATES, COLUMN_UPDATE_GAME_ID + " = ?", 
+                new String[]{String.valueOf(gameId)});
+        db.delete(TABLE_MIRROR_STATE, COLUMN_MIRROR_GAME_ID + " = ?", 
+                new String[]{String.valueOf(gameId)});
+        db.delete(TABLE_VERIFY_RESULTS, COLUMN_VERIFY_GAME_ID + " = ?", 
+                new String[]{String.valueOf(gameId)});
+        
         // Primeiro, deletar downloads relacionados
         db.delete(TABLE_DOWNLOADS, COLUMN_DOWNLOAD_GAME_ID + " = ?", 
                 new String[]{String.valueOf(gameId)});
@@ -527,6 +1696,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         try {
             db.delete(TABLE_DOWNLOAD_BATCHES, null, null);
             db.delete(TABLE_DOWNLOADS, null, null);
+            db.delete(TABLE_CHUNK_REFS, null, null);
+            db.delete(TABLE_INSTALLED_FILES, null, null);
+            db.delete(TABLE_GAME_UPDATES, null, null);
+            db.delete(TABLE_UPDATE_CHECK_ETAGS, null, null);
+            db.delete(TABLE_MIRROR_STATE, null, null);
+            db.delete(TABLE_VERIFY_RESULTS, null, null);
             db.delete(TABLE_GAMES, null, null);
             db.setTransactionSuccessful();
             Log.d(TAG, "All games and downloads cleared from database");
@@ -542,6 +1717,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private ContentValues gameToContentValues(Game game) {
         ContentValues values = new ContentValues();
         
+        if (game.isSummary()) {
+            // Jogo da lista: gravar só o que foi carregado, sem apagar descrição, caminho e JSON
+            values.put(COLUMN_GAME_ID, game.getId());
+            values.put(COLUMN_GAME_TITLE, game.getTitle());
+            values.put(COLUMN_GAME_COVER_IMAGE, game.getCoverImage());
+            values.put(COLUMN_GAME_BACKGROUND_IMAGE, game.getBackgroundImage());
+            values.put(COLUMN_GAME_STATUS, game.getStatus().name());
+            values.put(COLUMN_GAME_DOWNLOAD_PROGRESS, game.getDownloadProgress());
+            values.put(COLUMN_GAME_TOTAL_SIZE, game.getTotalSize());
+            values.put(COLUMN_GAME_DEVELOPER, game.getDeveloper());
+            values.put(COLUMN_GAME_GENRES, game.getGenresString());
+            values.put(COLUMN_GAME_PLATFORMS, platformMask(game.getPlatforms()));
+            return values;
+        }
+        
         values.put(COLUMN_GAME_ID, game.getId());
         values.put(COLUMN_GAME_TITLE, game.getTitle());
         values.put(COLUMN_GAME_SLUG, game.getSlug());
@@ -556,6 +1746,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_GAME_DEVELOPER, game.getDeveloper());
         values.put(COLUMN_GAME_PUBLISHER, game.getPublisher());
         values.put(COLUMN_GAME_GENRES, game.getGenresString());
+        values.put(COLUMN_GAME_PLATFORMS, platformMask(game.getPlatforms()));
         
         // Salvar dados JSON completos para recuperação futura
         try {
@@ -595,13 +1786,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             // Parsear gêneros
             String genresStr = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GAME_GENRES));
             if (genresStr != null && !genresStr.isEmpty()) {
-                List<String> genres = new ArrayList<>();
-                for (String genre : genresStr.split(", ")) {
-                    genres.add(genre.trim());
-                }
-                game.setGenres(genres);
+                game.setGenres(parseGenres(genresStr));
             }
             
+            game.setPlatforms(platformsFromMask(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GAME_PLATFORMS))));
+            
             return game;
             
         } catch (Exception e) {
@@ -609,4 +1798,40 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             return null;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Jogo só com as colunas de LIBRARY_LIST_COLUMNS
+     */
+    private Game cursorToListGame(Cursor cursor) {
+        Game game = new Game();
+        game.setSummary(true);
+        game.setId(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_GAME_ID)));
+        game.setTitle(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GAME_TITLE)));
+        game.setCoverImage(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GAME_COVER_IMAGE)));
+        game.setBackgroundImage(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GAME_BACKGROUND_IMAGE)));
+        
+        String statusStr = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GAME_STATUS));
+        try {
+            game.setStatus(Game.DownloadStatus.valueOf(statusStr));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            game.setStatus(Game.DownloadStatus.NOT_DOWNLOADED);
+        }
+        
+        game.setDownloadProgress(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_GAME_DOWNLOAD_PROGRESS)));
+        game.setTotalSize(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_GAME_TOTAL_SIZE)));
+        game.setDeveloper(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GAME_DEVELOPER)));
+        game.setGenres(parseGenres(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_GAME_GENRES))));
+        game.setPlatforms(platformsFromMask(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_GAME_PLATFORMS))));
+        return game;
+    }
+    
+    private static List<String> parseGenres(String genresStr) {
+        List<String> genres = new ArrayList<>();
+        if (genresStr != null && !genresStr.isEmpty()) {
+            for (String genre : genresStr.split(", ")) {
+                genres.add(genre.trim());
+            }
+        }
+        return genres;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.gogdownloader.models;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Manifesto de chunks de um arquivo do GOG.
+ * Cada arquivo de instalador possui um XML de checksum com o MD5 de cada
+ * bloco (normalmente de 10 MB), que usamos como chave do cache de chunks.
+ */
+public class ChunkManifest implements Serializable {
+
+    public static class Chunk implements Serializable {
+        private final int index;
+        private final long from;
+        private final long to;
+        private final String md5;
+
+        public Chunk(int index, long from, long to, String md5) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.md5 = md5;
+        }
+
+        public int getIndex() { return index; }
+        public long getFrom() { return from; }
+        public long getTo() { return to; }
+        public String getMd5() { return md5; }
+
+        public long getSize() {
+            return to - from + 1;
+        }
+    }
+
+    private String fileName;
+    private String md5;
+    private long totalSize;
+    private List<Chunk> chunks = new ArrayList<>();
+
+    public ChunkManifest() {
+    }
+
+    /**
+     * O parser do Android só aceita algumas features e nunca resolve entidades
+     * externas; nele, a verificação de DOCTYPE acima basta
+     */
+    private static void setFeatureIfSupported(DocumentBuilderFactory factory, String feature, boolean value) {
+        try {
+            factory.setFeature(feature, value);
+        } catch (ParserConfigurationException e) {
+            // Feature desconhecida para esta implementação
+        }
+    }
+
+    /**
+     * Faz o parse do XML retornado pela URL "checksum" do downlink:
+     * {@code <file name md5 total_size><chunk id from to method="md5">hash</chunk></file>}
+     */
+    public static ChunkManifest fromXml(String xml) throws Exception {
+        // O XML vem da rede: sem DTD, entidades externas nem XInclude
+        if (xml.contains("<!DOCTYPE")) {
+            throw new IllegalArgumentException("DOCTYPE not allowed in chunk manifest");
+        }
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(false);
+        setFeatureIfSupported(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeatureIfSupported(factory, "http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setExpandEntityReferences(false);
+        factory.setXIncludeAware(false);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document document = builder.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        Element root = document.getDocumentElement();
+        ChunkManifest manifest = new ChunkManifest();
+        manifest.fileName = root.getAttribute("name");
+        manifest.md5 = root.getAttribute("md5").toLowerCase();
+        String totalSize = root.getAttribute("total_size");
+        manifest.totalSize = totalSize.isEmpty() ? 0 : Long.parseLong(totalSize);
+
+        NodeList nodes = root.getElementsByTagName("chunk");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element) nodes.item(i);
+            if (!"md5".equalsIgnoreCase(element.getAttribute("method"))) {
+                continue;
+            }
+            manifest.chunks.add(new Chunk(
+                    Integer.parseInt(element.getAttribute("id")),
+                    Long.parseLong(element.getAttribute("from")),
+                    Long.parseLong(element.getAttribute("to")),
+                    element.getTextContent().trim().toLowerCase()));
+        }
+
+        Collections.sort(manifest.chunks, (a, b) -> Long.compare(a.from, b.from));
+        return manifest;
+    }
+
+    public static ChunkManifest fromJson(JSONObject json) throws JSONException {
+        ChunkManifest manifest = new ChunkManifest();
+        manifest.fileName = json.optString("fileName", "");
+        manifest.md5 = json.optString("md5", "");
+        manifest.totalSize = json.optLong("totalSize", 0);
+
+        JSONArray array = json.optJSONArray("chunks");
+        if (array != null) {
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject chunk = array.getJSONObject(i);
+                manifest.chunks.add(new Chunk(
+                        chunk.getInt("id"),
+                        chunk.getLong("from"),
+                        chunk.getLong("to"),
+                        chunk.getString("md5")));
+            }
+        }
+
+        return manifest;
+    }
+
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("fileName", fileName);
+        json.put("md5", md5);
+        json.put("totalSize", totalSize);
+
+        JSONArray array = new JSONArray();
+        for (Chunk chunk : chunks) {
+            JSONObject item = new JSONObject();
+            item.put("id", chunk.index);
+            item.put("from", chunk.from);
+            item.put("to", chunk.to);
+            item.put("md5", chunk.md5);
+            array.put(item);
+        }
+        json.put("chunks", array);
+
+        return json;
+    }
+
+    /**
+     * Um manifesto só é útil se os chunks cobrem o arquivo inteiro sem lacunas.
+     */
+    public boolean isValid() {
+        if (chunks.isEmpty()) {
+            return false;
+        }
+
+        long expectedFrom = 0;
+        for (Chunk chunk : chunks) {
+            // O hash vira nome de arquivo no cache, então só aceitamos MD5 em hexadecimal
+            if (chunk.from != expectedFrom || chunk.to < chunk.from || !chunk.md5.matches("[0-9a-f]{32}")) {
+                return false;
+            }
+            expectedFrom = chunk.to + 1;
+        }
+
+        return totalSize <= 0 || expectedFrom == totalSize;
+    }
+
+    /**
+     * Retorna o índice do chunk que começa exatamente em {@code offset},
+     * ou -1 se o offset não cair numa fronteira de chunk.
+     */
+    public int chunkIndexStartingAt(long offset) {
+        if (offset == getFileSize()) {
+            return chunks.size();
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            if (chunks.get(i).from == offset) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getFileSize() {
+        if (totalSize > 0) {
+            return totalSize;
+        }
+        return chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).to + 1;
+    }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public String getMd5() { return md5; }
+    public void setMd5(String md5) { this.md5 = md5; }
+
+    public long getTotalSize() { return totalSize; }
+    public void setTotalSize(long totalSize) { this.totalSize = totalSize; }
+
+    public List<Chunk> getChunks() { return chunks; }
+    public void setChunks(List<Chunk> chunks) { this.chunks = chunks; }
+}
@@ -29,6 +29,7 @@ public class DownloadLink implements Serializable {
     private String downloadUrl;
     private long size;
     private String checksum;
+    private String checksumUrl; // XML de chunks retornado junto com o downlink
     private FileType type;
     private Platform platform;
     private String language;
@@ -135,6 +136,9 @@ public class DownloadLink implements Serializable {
     public String getChecksum() { return checksum; }
     public void setChecksum(String checksum) { this.checksum = checksum; }
     
+    public String getChecksumUrl() { return checksumUrl; }
+    public void setChecksumUrl(String checksumUrl) { this.checksumUrl = checksumUrl; }
+    
     public FileType getType() { return type; }
     public void setType(FileType type) { this.type = type; }
     
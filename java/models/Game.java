@@ -1,14 +1,14 @@
 package com.example.gogdownloader.models;
 
-import android.util.Log;
-
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public class Game implements Serializable {
     
@@ -37,6 +37,9 @@ public class Game implements Serializable {
     private List<String> genres;
     private String developer;
     private String publisher;
+    private Set<DownloadLink.Platform> platforms;
+    // Carregado só com as colunas da lista; DatabaseHelper.getGame(id) traz o restante
+    private boolean summary;
     
     // Informações adicionais de download
     private float downloadSpeed; // bytes por segundo
@@ -50,6 +53,7 @@ public class Game implements Serializable {
         this.downloadProgress = 0;
         this.totalSize = 0;
         this.genres = new ArrayList<>();
+        this.platforms = EnumSet.noneOf(DownloadLink.Platform.class);
     }
     
     public Game(long id, String title) {
@@ -99,23 +103,19 @@ public class Game implements Serializable {
         
         // Garantir que URLs de imagem tenham protocolo
         if (game.coverImage != null && !game.coverImage.isEmpty()) {
-            String originalCoverImage = game.coverImage;
             if (game.coverImage.startsWith("//")) {
                 game.coverImage = "https:" + game.coverImage;
             } else if (!game.coverImage.startsWith("http")) {
                 game.coverImage = "https://" + game.coverImage;
             }
-            Log.d("Game", "Cover image: '" + originalCoverImage + "' -> '" + game.coverImage + "'");
         }
         
         if (game.backgroundImage != null && !game.backgroundImage.isEmpty()) {
-            String originalBackgroundImage = game.backgroundImage;
             if (game.backgroundImage.startsWith("//")) {
                 game.backgroundImage = "https:" + game.backgroundImage;
             } else if (!game.backgroundImage.startsWith("http")) {
                 game.backgroundImage = "https://" + game.backgroundImage;
             }
-            Log.d("Game", "Background image: '" + originalBackgroundImage + "' -> '" + game.backgroundImage + "'");
         }
         
         // Descrição
@@ -191,6 +191,14 @@ public class Game implements Serializable {
             game.publisher = json.optString("publisher", "");
         }
         
+        // Plataformas (só a listagem da biblioteca traz)
+        JSONObject worksOn = json.optJSONObject("worksOn");
+        if (worksOn != null) {
+            if (worksOn.optBoolean("Windows")) game.platforms.add(DownloadLink.Platform.WINDOWS);
+            if (worksOn.optBoolean("Mac")) game.platforms.add(DownloadLink.Platform.MAC);
+            if (worksOn.optBoolean("Linux")) game.platforms.add(DownloadLink.Platform.LINUX);
+        }
+        
         return game;
     }
     
@@ -219,6 +227,12 @@ public class Game implements Serializable {
         }
         json.put("genres", genresArray);
         
+        JSONObject worksOn = new JSONObject();
+        worksOn.put("Windows", platforms.contains(DownloadLink.Platform.WINDOWS));
+        worksOn.put("Mac", platforms.contains(DownloadLink.Platform.MAC));
+        worksOn.put("Linux", platforms.contains(DownloadLink.Platform.LINUX));
+        json.put("worksOn", worksOn);
+        
         return json;
     }
     
@@ -268,6 +282,14 @@ public class Game implements Serializable {
     public String getPublisher() { return publisher; }
     public void setPublisher(String publisher) { this.publisher = publisher; }
     
+    public Set<DownloadLink.Platform> getPlatforms() { return platforms; }
+    public void setPlatforms(Set<DownloadLink.Platform> platforms) {
+        this.platforms = platforms.isEmpty() ? EnumSet.noneOf(DownloadLink.Platform.class) : EnumSet.copyOf(platforms);
+    }
+    
+    public boolean isSummary() { return summary; }
+    public void setSummary(boolean summary) { this.summary = summary; }
+    
     public float getDownloadSpeed() { return downloadSpeed; }
     public void setDownloadSpeed(float downloadSpeed) { this.downloadSpeed = downloadSpeed; }
     
@@ -0,0 +1,75 @@
+package com.example.gogdownloader.models;
+
+import java.io.Serializable;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Busca e filtros da biblioteca, executados no banco (FTS + colunas indexadas).
+ * Conjuntos vazios e limites zerados não filtram nada.
+ */
+public class LibraryFilter implements Serializable {
+
+    private String text;
+    private EnumSet<Game.DownloadStatus> statuses;
+    private EnumSet<DownloadLink.Platform> platforms; // o jogo precisa rodar em pelo menos uma
+    private String genre;
+    private long minSize; // bytes
+    private long maxSize; // bytes
+
+    public LibraryFilter() {
+        text = "";
+        statuses = EnumSet.noneOf(Game.DownloadStatus.class);
+        platforms = EnumSet.noneOf(DownloadLink.Platform.class);
+    }
+
+    /**
+     * Cópia para levar a consulta a outra thread
+     */
+    public LibraryFilter copy() {
+        LibraryFilter copy = new LibraryFilter();
+        copy.text = text;
+        copy.statuses = EnumSet.copyOf(statuses);
+        copy.platforms = EnumSet.copyOf(platforms);
+        copy.genre = genre;
+        copy.minSize = minSize;
+        copy.maxSize = maxSize;
+        return copy;
+    }
+
+    /**
+     * Algum filtro além do texto está ativo
+     */
+    public boolean hasFacets() {
+        return !statuses.isEmpty() || !platforms.isEmpty() || genre != null || minSize > 0 || maxSize > 0;
+    }
+
+    /**
+     * Texto ou algum filtro ativo: a lista vem de uma consulta, não das páginas da biblioteca
+     */
+    public boolean isActive() {
+        return !text.isEmpty() || hasFacets();
+    }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text != null ? text.trim() : ""; }
+
+    public Set<Game.DownloadStatus> getStatuses() { return statuses; }
+    public void setStatuses(Set<Game.DownloadStatus> statuses) {
+        this.statuses = statuses.isEmpty() ? EnumSet.noneOf(Game.DownloadStatus.class) : EnumSet.copyOf(statuses);
+    }
+
+    public Set<DownloadLink.Platform> getPlatforms() { return platforms; }
+    public void setPlatforms(Set<DownloadLink.Platform> platforms) {
+        this.platforms = platforms.isEmpty() ? EnumSet.noneOf(DownloadLink.Platform.class) : EnumSet.copyOf(platforms);
+    }
+
+    public String getGenre() { return genre; }
+    public void setGenre(String genre) { this.genre = genre == null || genre.isEmpty() ? null : genre; }
+
+    public long getMinSize() { return minSize; }
+    public void setMinSize(long minSize) { this.minSize = Math.max(0, minSize); }
+
+    public long getMaxSize() { return maxSize; }
+    public void setMaxSize(long maxSize) { this.maxSize = Math.max(0, maxSize); }
+}
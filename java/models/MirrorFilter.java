@@ -0,0 +1,59 @@
+package com.example.gogdownloader.models;
+
+import java.io.Serializable;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Filtros do modo espelho: quais arquivos da conta devem existir no arquivo local.
+ * Extras não têm plataforma nem idioma, então só o tipo é considerado para eles.
+ */
+public class MirrorFilter implements Serializable {
+
+    private EnumSet<DownloadLink.Platform> platforms;
+    private EnumSet<DownloadLink.FileType> fileTypes;
+    private HashSet<String> languages; // vazio = todos os idiomas
+
+    public MirrorFilter() {
+        platforms = EnumSet.of(DownloadLink.Platform.WINDOWS);
+        fileTypes = EnumSet.of(DownloadLink.FileType.INSTALLER, DownloadLink.FileType.PATCH, DownloadLink.FileType.EXTRA);
+        languages = new HashSet<>();
+    }
+
+    public boolean matches(DownloadLink link) {
+        if (link.getType() == null || !fileTypes.contains(link.getType())) {
+            return false;
+        }
+        if (link.getType() == DownloadLink.FileType.EXTRA) {
+            return true;
+        }
+        if (link.getPlatform() != null && !platforms.contains(link.getPlatform())) {
+            return false;
+        }
+        return languages.isEmpty() || link.getLanguage() == null
+                || languages.contains(link.getLanguage().toLowerCase(Locale.ROOT));
+    }
+
+    public Set<DownloadLink.Platform> getPlatforms() { return platforms; }
+    public void setPlatforms(Set<DownloadLink.Platform> platforms) {
+        this.platforms = platforms.isEmpty() ? EnumSet.noneOf(DownloadLink.Platform.class) : EnumSet.copyOf(platforms);
+    }
+
+    public Set<DownloadLink.FileType> getFileTypes() { return fileTypes; }
+    public void setFileTypes(Set<DownloadLink.FileType> fileTypes) {
+        this.fileTypes = fileTypes.isEmpty() ? EnumSet.noneOf(DownloadLink.FileType.class) : EnumSet.copyOf(fileTypes);
+    }
+
+    public Set<String> getLanguages() { return languages; }
+    public void setLanguages(Set<String> languages) {
+        this.languages = new HashSet<>();
+        for (String language : languages) {
+            String trimmed = language.trim().toLowerCase(Locale.ROOT);
+            if (!trimmed.isEmpty()) {
+                this.languages.add(trimmed);
+            }
+        }
+    }
+}
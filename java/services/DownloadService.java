@@ -8,7 +8,9 @@ import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
@@ -17,36 +19,55 @@ import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import com.example.gogdownloader.R;
 import com.example.gogdownloader.activities.LibraryActivity;
 import com.example.gogdownloader.api.GOGLibraryManager;
+import com.example.gogdownloader.core.ProgressListener;
+import com.example.gogdownloader.core.RangeDownloader;
 import com.example.gogdownloader.database.DatabaseHelper;
+import com.example.gogdownloader.models.ChunkManifest;
 import com.example.gogdownloader.models.DownloadLink;
 import com.example.gogdownloader.models.Game;
+import com.example.gogdownloader.models.MirrorFilter;
+import com.example.gogdownloader.utils.ChunkStore;
+import com.example.gogdownloader.utils.ChunkedDownloader;
+import com.example.gogdownloader.utils.DownloadStaging;
+import com.example.gogdownloader.utils.DownloadTelemetry;
+import com.example.gogdownloader.utils.InstalledFileChunkSource;
+import com.example.gogdownloader.utils.MirrorPlanner;
+import com.example.gogdownloader.utils.NetworkMetrics;
+import com.example.gogdownloader.utils.PreflightChecker;
 import com.example.gogdownloader.utils.PreferencesManager;
+import com.example.gogdownloader.utils.ProgressFormatter;
 import com.example.gogdownloader.utils.SAFDownloadManager;
 import com.example.gogdownloader.utils.SpeedMeter;
+import com.example.gogdownloader.utils.StoragePlanner;
+import com.example.gogdownloader.utils.TraceBuffer;
 
 import androidx.documentfile.provider.DocumentFile;
 
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import android.content.ContentValues;
+import android.net.Uri;
+
+import org.json.JSONException;
+import org.json.JSONObject;
 
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 
 public class DownloadService extends Service {
     
@@ -61,6 +82,8 @@ public class DownloadService extends Service {
     private static final String ACTION_RESUME_DOWNLOADS = "com.example.gogdownloader.RESUME_DOWNLOADS";
     private static final String ACTION_CANCEL = "com.example.gogdownloader.CANCEL";
     private static final String ACTION_STOP_SERVICE = "com.example.gogdownloader.STOP_SERVICE";
+    private static final String ACTION_UPDATE = "com.example.gogdownloader.UPDATE";
+    private static final String ACTION_MIRROR = "com.example.gogdownloader.MIRROR";
     
     // Extras
     public static final String EXTRA_GAME_ID = "extra_game_id";
@@ -73,21 +96,34 @@ public class DownloadService extends Service {
     private static final String EXTRA_GAME = "extra_game";
     private static final String EXTRA_DOWNLOAD_LINK = "extra_download_link";
     private static final String EXTRA_DOWNLOAD_LINKS = "extra_download_links";
+    private static final String EXTRA_MIRROR_FILTER = "extra_mirror_filter";
     
     // Notification
     private static final String CHANNEL_ID = "download_channel";
     private static final int NOTIFICATION_ID = 1000;
+    private static final int MIRROR_NOTIFICATION_ID = NOTIFICATION_ID - 1;
     
     private NotificationManager notificationManager;
     private ExecutorService executorService;
     private Map<Long, DownloadTask> activeDownloads;
     private Map<Long, BatchDownloadTask> activeBatchDownloads;
+    private Map<Long, UpdateTask> activeUpdates;
+    private volatile MirrorTask activeMirror;
+    // Início de tarefas (startForeground e mapas de tarefas ativas) acontece na thread principal
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     private GOGLibraryManager libraryManager;
     private DatabaseHelper databaseHelper;
     private PreferencesManager preferencesManager;
     private SAFDownloadManager safDownloadManager;
+    private ChunkStore chunkStore;
+    private PreflightChecker preflightChecker;
+    private DownloadStaging downloadStaging;
+    private StoragePlanner storagePlanner;
+    private DownloadTelemetry telemetry;
     private OkHttpClient httpClient;
+    // Soma de todas as conexões ativas; os medidores das tarefas repassam os bytes para ele
+    private final SpeedMeter aggregateSpeedMeter = new SpeedMeter();
     
     public static Intent createDownloadIntent(Context context, Game game, DownloadLink downloadLink) {
         Intent intent = new Intent(context, DownloadService.class);
@@ -126,19 +162,40 @@ public class DownloadService extends Service {
         return intent;
     }
     
+    public static Intent createUpdateIntent(Context context, Game game) {
+        Intent intent = new Intent(context, DownloadService.class);
+        intent.setAction(ACTION_UPDATE);
+        intent.putExtra(EXTRA_GAME, game);
+        return intent;
+    }
+    
+    public static Intent createMirrorIntent(Context context, MirrorFilter filter) {
+        Intent intent = new Intent(context, DownloadService.class);
+        intent.setAction(ACTION_MIRROR);
+        intent.putExtra(EXTRA_MIRROR_FILTER, filter);
+        return intent;
+    }
+    
     @Override
     public void onCreate() {
         super.onCreate();
         
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
         executorService = Executors.newFixedThreadPool(3); // Máximo 3 downloads simultâneos
-        activeDownloads = new HashMap<>();
-        activeBatchDownloads = new HashMap<>();
+        // Tarefas começam na thread principal, mas terminam (e saem dos mapas) nas threads do executor
+        activeDownloads = new ConcurrentHashMap<>();
+        activeBatchDownloads = new ConcurrentHashMap<>();
+        activeUpdates = new ConcurrentHashMap<>();
         
         libraryManager = new GOGLibraryManager(this);
         databaseHelper = new DatabaseHelper(this);
         preferencesManager = new PreferencesManager(this);
         safDownloadManager = new SAFDownloadManager(this);
+        chunkStore = ChunkStore.getInstance(this);
+        preflightChecker = new PreflightChecker(this, safDownloadManager, databaseHelper);
+        downloadStaging = new DownloadStaging(this);
+        storagePlanner = new StoragePlanner(safDownloadManager, downloadStaging);
+        telemetry = DownloadTelemetry.getInstance(this);
         
         // Configurar cliente HTTP otimizado para downloads rápidos
         httpClient = new OkHttpClient.Builder()
@@ -149,6 +206,7 @@ public class DownloadService extends Service {
                 .retryOnConnectionFailure(true)       // Retry automático em falhas
                 .followRedirects(true)                 // Seguir redirects automaticamente
                 .followSslRedirects(true)
+                .eventListenerFactory(NetworkMetrics.getInstance().getEventListenerFactory())
                 .build();
         
         createNotificationChannel();
@@ -180,6 +238,16 @@ public class DownloadService extends Service {
             if (game != null && downloadLinks != null && !downloadLinks.isEmpty()) {
                 startBatchDownload(game, downloadLinks);
             }
+        } else if (ACTION_UPDATE.equals(action)) {
+            Game game = (Game) intent.getSerializableExtra(EXTRA_GAME);
+            if (game != null) {
+                startUpdate(game);
+            }
+        } else if (ACTION_MIRROR.equals(action)) {
+            MirrorFilter filter = (MirrorFilter) intent.getSerializableExtra(EXTRA_MIRROR_FILTER);
+            if (filter != null) {
+                startMirror(filter);
+            }
         } else if (ACTION_RESUME_DOWNLOADS.equals(action)) {
             Log.d(TAG, "Received RESUME_DOWNLOADS action");
             // Não fazer nada aqui, o resumePendingDownloads() já foi chamado no onCreate
@@ -223,6 +291,14 @@ public class DownloadService extends Service {
             task.cancel();
         }
         
+        for (UpdateTask task : activeUpdates.values()) {
+            task.cancel();
+        }
+        
+        if (activeMirror != null) {
+            activeMirror.cancel();
+        }
+        
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
@@ -302,13 +378,17 @@ public class DownloadService extends Service {
         });
     }
     
-    private void startBatchDownload(Game game, List<DownloadLink> downloadLinks) {
+    /**
+     * @return false se o jogo já estava sendo baixado ou atualizado e nada foi colocado na fila
+     */
+    private boolean startBatchDownload(Game game, List<DownloadLink> downloadLinks) {
         Log.d(TAG, "Starting batch download for game: " + game.getTitle() + " with " + downloadLinks.size() + " files");
         
         // Check if already downloading
-        if (activeBatchDownloads.containsKey(game.getId())) {
+        if (activeDownloads.containsKey(game.getId()) || activeBatchDownloads.containsKey(game.getId())
+                || activeUpdates.containsKey(game.getId())) {
             Log.w(TAG, "Game is already being downloaded: " + game.getTitle());
-            return;
+            return false;
         }
         
         // Update status in db
@@ -326,6 +406,43 @@ public class DownloadService extends Service {
         BatchDownloadTask batchTask = new BatchDownloadTask(game, downloadLinks);
         activeBatchDownloads.put(game.getId(), batchTask);
         executorService.execute(batchTask);
+        return true;
+    }
+    
+    /**
+     * @return false se o jogo já estava sendo baixado ou atualizado e nada foi colocado na fila
+     */
+    private boolean startUpdate(Game game) {
+        Log.d(TAG, "Starting update for game: " + game.getTitle());
+        
+        if (activeDownloads.containsKey(game.getId()) || activeBatchDownloads.containsKey(game.getId())
+                || activeUpdates.containsKey(game.getId())) {
+            Log.w(TAG, "Game is already being downloaded: " + game.getTitle());
+            return false;
+        }
+        
+        showBatchDownloadNotification(game, 0, 1, "Verificando atualizações...");
+        startForeground(NOTIFICATION_ID + (int) game.getId(),
+                createBatchDownloadNotification(game, 0, 1, "Verificando atualizações..."));
+        
+        UpdateTask updateTask = new UpdateTask(game);
+        activeUpdates.put(game.getId(), updateTask);
+        executorService.execute(updateTask);
+        return true;
+    }
+    
+    private void startMirror(MirrorFilter filter) {
+        Log.d(TAG, "Starting library mirror");
+        
+        if (activeMirror != null) {
+            Log.w(TAG, "Library mirror is already being planned");
+            return;
+        }
+        
+        startForeground(MIRROR_NOTIFICATION_ID, createMirrorNotification("Comparando biblioteca com o arquivo local..."));
+        
+        activeMirror = new MirrorTask(filter);
+        executorService.execute(activeMirror);
     }
     
     private void resumePendingDownloads() {
@@ -365,13 +482,14 @@ public class DownloadService extends Service {
                         continue;
                     }
                     
+                    // Tarefas são iniciadas na thread principal
                     if (gameDownloads.size() == 1) {
                         // Download único
                         ContentValues download = gameDownloads.get(0);
-                        resumeSingleDownload(game, download);
+                        mainHandler.post(() -> resumeSingleDownload(game, download));
                     } else {
                         // Batch download
-                        resumeBatchDownload(game, gameDownloads);
+                        mainHandler.post(() -> resumeBatchDownload(game, gameDownloads));
                     }
                 }
                 
@@ -457,6 +575,18 @@ public class DownloadService extends Service {
         
         DownloadTask task = activeDownloads.get(gameId);
         BatchDownloadTask batchTask = activeBatchDownloads.get(gameId);
+        UpdateTask updateTask = activeUpdates.remove(gameId);
+        storagePlanner.cancelWaiting(gameId);
+        downloadStaging.discardGame(gameId);
+        
+        if (updateTask != null) {
+            // A versão instalada continua intacta; só descartamos a atualização
+            updateTask.cancel();
+            notificationManager.cancel(NOTIFICATION_ID + (int) gameId);
+            if (!hasActiveDownloads()) {
+                stopForeground(true);
+            }
+        }
         
         if (task != null) {
             task.cancel();
@@ -477,11 +607,14 @@ public class DownloadService extends Service {
                 databaseHelper.updateGame(game);
             }
             
+            // O jogo não está mais instalado: seus chunks viram candidatos à remoção
+            chunkStore.releaseGame(gameId);
+            
             // Remover notificação
-            notificationManager.cancel(NOTIFICATION_ID + (int) game.getId());
+            notificationManager.cancel(NOTIFICATION_ID + (int) gameId);
             
             // Parar foreground se não há mais downloads
-            if (activeDownloads.isEmpty() && activeBatchDownloads.isEmpty()) {
+            if (!hasActiveDownloads()) {
                 stopForeground(true);
             }
         }
@@ -506,9 +639,31 @@ public class DownloadService extends Service {
         onDownloadProgress(game, bytesDownloaded, totalBytes, 0, 0, 0, 0);
     }
     
+    /**
+     * Velocidade somada de todos os trabalhos, quando há mais de um em andamento
+     */
+    private String getAggregateSpeedText() {
+        int activeJobs = activeDownloads.size() + activeBatchDownloads.size() + activeUpdates.size();
+        if (activeJobs < 2) {
+            return "";
+        }
+        return " · Total " + SpeedMeter.formatSpeed(aggregateSpeedMeter.getSpeed());
+    }
+    
+    /**
+     * Conta no medidor o avanço de um progresso acumulado (ChunkedDownloader).
+     * A primeira leitura só marca o ponto de partida, e recuos (chunk refeito) são ignorados
+     */
+    private static void countBytes(SpeedMeter speedMeter, long lastBytesWritten, long bytesWritten) {
+        if (lastBytesWritten >= 0 && bytesWritten > lastBytesWritten) {
+            speedMeter.addBytes(bytesWritten - lastBytesWritten);
+        }
+    }
+    
     private void onDownloadProgress(Game game, long bytesDownloaded, long totalBytes, 
                                    int currentFileIndex, int totalFiles, double speed, long eta) {
         int progress = totalBytes > 0 ? (int) ((bytesDownloaded * 100) / totalBytes) : 0;
+        storagePlanner.updateProgress(game.getId(), bytesDownloaded);
         
         // Atualizar banco de dados
         game.setDownloadProgress(bytesDownloaded);
@@ -516,27 +671,11 @@ public class DownloadService extends Service {
         databaseHelper.updateGame(game);
         
         // Atualizar notificação
-        String progressText;
+        String progressText = ProgressFormatter.format(currentFileIndex, totalFiles, bytesDownloaded, totalBytes, speed, eta);
         if (totalFiles > 1) {
-            // Batch download
-            String speedText = speed > 0 ? String.format(" - %.1f MB/s", speed / (1024 * 1024)) : "";
-            String etaText = eta > 0 ? String.format(" - ETA: %s", formatETA(eta)) : "";
-            progressText = String.format("Arquivo %d/%d - %d%% - %s / %s%s%s", 
-                    currentFileIndex + 1, totalFiles, progress,
-                    Game.formatFileSize(bytesDownloaded),
-                    Game.formatFileSize(totalBytes),
-                    speedText, etaText);
-            showBatchDownloadNotification(game, currentFileIndex, totalFiles, progressText);
+            showBatchDownloadNotification(game, currentFileIndex, totalFiles, progressText + getAggregateSpeedText());
         } else {
-            // Single download
-            String speedText = speed > 0 ? String.format(" - %.1f MB/s", speed / (1024 * 1024)) : "";
-            String etaText = eta > 0 ? String.format(" - ETA: %s", formatETA(eta)) : "";
-            progressText = String.format("%d%% - %s / %s%s%s", 
-                    progress,
-                    Game.formatFileSize(bytesDownloaded),
-                    Game.formatFileSize(totalBytes),
-                    speedText, etaText);
-            showDownloadNotification(game, progress, progressText);
+            showDownloadNotification(game, progress, progressText + getAggregateSpeedText());
         }
 
         Intent intent = new Intent(ACTION_DOWNLOAD_PROGRESS);
@@ -550,20 +689,9 @@ public class DownloadService extends Service {
         LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
     }
     
-    private String formatETA(long etaSeconds) {
-        if (etaSeconds < 60) {
-            return etaSeconds + "s";
-        } else if (etaSeconds < 3600) {
-            return (etaSeconds / 60) + "m " + (etaSeconds % 60) + "s";
-        } else {
-            long hours = etaSeconds / 3600;
-            long minutes = (etaSeconds % 3600) / 60;
-            return hours + "h " + minutes + "m";
-        }
-    }
-    
     private void onDownloadComplete(Game game, long downloadId, String filePath) {
         Log.d(TAG, "Download completed for game: " + game.getTitle());
+        TraceBuffer.record("download", "completed", game.getId());
         
         // Atualizar status no banco
         game.setStatus(Game.DownloadStatus.DOWNLOADED);
@@ -573,18 +701,21 @@ public class DownloadService extends Service {
         
         // Remover da lista de downloads ativos
         activeDownloads.remove(game.getId());
+        activeBatchDownloads.remove(game.getId());
+        activeUpdates.remove(game.getId());
         
         // Mostrar notificação de conclusão
         showCompletionNotification(game);
         
         // Parar foreground se não há mais downloads
-        if (activeDownloads.isEmpty() && activeBatchDownloads.isEmpty()) {
+        if (!hasActiveDownloads()) {
             stopForeground(true);
         }
     }
     
     private void onDownloadError(Game game, String error) {
         Log.e(TAG, "Download failed for game: " + game.getTitle() + " - " + error);
+        TraceBuffer.record("download", "failed", game.getId(), error);
         
         // Atualizar status no banco
         game.setStatus(Game.DownloadStatus.FAILED);
@@ -593,16 +724,122 @@ public class DownloadService extends Service {
         // Remover da lista de downloads ativos
         activeDownloads.remove(game.getId());
         activeBatchDownloads.remove(game.getId());
+        activeUpdates.remove(game.getId());
         
         // Mostrar notificação de erro
         showErrorNotification(game, error);
         
         // Parar foreground se não há mais downloads
-        if (activeDownloads.isEmpty() && activeBatchDownloads.isEmpty()) {
+        if (!hasActiveDownloads()) {
             stopForeground(true);
         }
     }
     
+    private boolean hasActiveDownloads() {
+        return !activeDownloads.isEmpty() || !activeBatchDownloads.isEmpty() || !activeUpdates.isEmpty()
+                || activeMirror != null;
+    }
+    
+    /**
+     * Arquivo da área de preparação onde o download é escrito
+     */
+    private DocumentFile getStagedDownloadFile(Game game, DownloadLink link) throws IOException {
+        File stagingFile = downloadStaging.getStagingFile(game.getId(), safDownloadManager.getDownloadFileName(link));
+        return DocumentFile.fromFile(stagingFile);
+    }
+    
+    /**
+     * Publica um download completo da área de preparação na pasta do usuário
+     */
+    private DocumentFile publishDownload(Game game, DownloadLink link, DocumentFile stagedFile) throws IOException {
+        File stagingFile = new File(stagedFile.getUri().getPath());
+        if (link.getSize() > 0 && stagingFile.length() != link.getSize()) {
+            throw new IOException("Tamanho inesperado para " + link.getName() + ": " + stagingFile.length()
+                    + " de " + link.getSize() + " bytes");
+        }
+        return safDownloadManager.publishDownloadFile(game, link, stagingFile);
+    }
+    
+    /**
+     * Reserva espaço para baixar os arquivos, descontando o que já está no destino
+     * ou na área de preparação
+     */
+    private boolean reserveSpace(Game game, List<DownloadLink> links, Runnable task) throws IOException {
+        long totalBytes = 0;
+        long existingBytes = 0;
+        for (DownloadLink link : links) {
+            totalBytes += link.getSize();
+            if (safDownloadManager.hasDownloadLocationConfigured()) {
+                DocumentFile existing = safDownloadManager.findDownloadFile(game, link);
+                long presentBytes = existing != null ? existing.length() : 0;
+                long stagedBytes = downloadStaging.getStagedBytes(game.getId(), safDownloadManager.getDownloadFileName(link));
+                existingBytes += Math.min(Math.max(presentBytes, stagedBytes), link.getSize());
+            }
+        }
+        return reserveSpace(game, totalBytes, existingBytes, task);
+    }
+    
+    /**
+     * Reserva espaço no planejador antes de começar um trabalho.
+     * Se outros trabalhos em andamento já ocupam o espaço, este volta para o
+     * executor quando couber (o planejador avisa na thread principal).
+     * @return true se pode começar agora; false se ficou aguardando espaço
+     * @throws IOException se os arquivos não cabem no volume
+     */
+    private boolean reserveSpace(Game game, long totalBytes, long existingBytes, Runnable task) throws IOException {
+        StoragePlanner.Decision decision = storagePlanner.reserve(game.getId(), totalBytes, existingBytes,
+                new StoragePlanner.Callback() {
+            @Override
+            public void onReserved() {
+                executorService.execute(task);
+            }
+            
+            @Override
+            public void onRefused(long requiredBytes, long availableBytes) {
+                onDownloadError(game, formatNoSpaceError(requiredBytes, availableBytes));
+            }
+        });
+        
+        if (decision == StoragePlanner.Decision.REFUSED) {
+            throw new IOException(formatNoSpaceError(totalBytes - existingBytes, storagePlanner.getAvailableBytes()));
+        }
+        if (decision == StoragePlanner.Decision.WAITING) {
+            showDownloadNotification(game, 0, "Aguardando espaço livre...");
+            return false;
+        }
+        return true;
+    }
+    
+    private String formatNoSpaceError(long requiredBytes, long availableBytes) {
+        return "Espaço insuficiente: " + Game.formatFileSize(requiredBytes) + " necessários, "
+                + Game.formatFileSize(Math.max(0, availableBytes)) + " livres";
+    }
+    
+    /**
+     * Registra um arquivo baixado para permitir atualizações diferenciais
+     */
+    private void recordInstalledFile(Game game, DownloadLink downloadLink, DocumentFile file, ChunkManifest manifest) {
+        String manifestJson = null;
+        if (manifest != null) {
+            try {
+                manifestJson = manifest.toJson().toString();
+            } catch (JSONException e) {
+                Log.w(TAG, "Error serializing chunk manifest", e);
+            }
+        }
+        
+        databaseHelper.saveInstalledFile(
+                game.getId(),
+                downloadLink.getId(),
+                file.getName() != null ? file.getName() : downloadLink.getFileName(),
+                downloadLink.getVersion(),
+                safDownloadManager.getFileSize(file),
+                manifest != null ? manifest.getMd5() : null,
+                manifestJson,
+                file.getUri().toString());
+        databaseHelper.updateMirrorFileState(game.getId(), downloadLink.getId(), DatabaseHelper.MIRROR_STATE_DONE, null);
+    }
+    
     private void showDownloadNotification(Game game, int progress, String progressText) {
         Notification notification = createDownloadNotification(game, progress, progressText);
         notificationManager.notify(NOTIFICATION_ID + (int) game.getId(), notification);
@@ -662,6 +899,33 @@ public class DownloadService extends Service {
         notificationManager.notify(NOTIFICATION_ID + (int) game.getId(), notification);
     }
     
+    private Notification createMirrorNotification(String progressText) {
+        Intent intent = new Intent(this, LibraryActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent, 
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("Espelhamento da biblioteca")
+                .setContentText(progressText)
+                .setSmallIcon(android.R.drawable.stat_sys_download)
+                .setProgress(0, 0, true)
+                .setContentIntent(pendingIntent)
+                .setOngoing(true)
+                .setAutoCancel(false)
+                .build();
+    }
+    
+    private void showMirrorResultNotification(String text) {
+        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("Espelhamento da biblioteca")
+                .setContentText(text)
+                .setSmallIcon(android.R.drawable.stat_sys_download_done)
+                .setAutoCancel(true)
+                .build();
+        
+        notificationManager.notify(MIRROR_NOTIFICATION_ID, notification);
+    }
+    
     private void showBatchDownloadNotification(Game game, int currentFileIndex, int totalFiles, String progressText) {
         Notification notification = createBatchDownloadNotification(game, currentFileIndex, totalFiles, progressText);
         notificationManager.notify(NOTIFICATION_ID + (int) game.getId(), notification);
@@ -698,7 +962,7 @@ public class DownloadService extends Service {
         private long downloadId;
         private volatile boolean cancelled = false;
         private volatile boolean paused = false;
-        private SpeedMeter speedMeter = new SpeedMeter();
+        private SpeedMeter speedMeter = new SpeedMeter(aggregateSpeedMeter);
         
         public DownloadTask(Game game, DownloadLink downloadLink, long downloadId) {
             this.game = game;
@@ -729,6 +993,8 @@ public class DownloadService extends Service {
                 } else {
                     databaseHelper.updateDownloadStatus(downloadId, "CANCELLED", null);
                 }
+            } finally {
+                storagePlanner.release(game.getId());
             }
         }
         
@@ -738,6 +1004,10 @@ public class DownloadService extends Service {
                 throw new IOException("URL de download inválida");
             }
             
+            if (cancelled || !reserveSpace(game, Collections.singletonList(downloadLink), this)) {
+                return;
+            }
+            
             Log.d(TAG, "Starting download using SAF for: " + game.getTitle());
             
             // Tentar usar SAF primeiro
@@ -752,20 +1022,40 @@ public class DownloadService extends Service {
         private void downloadFileUsingSAF() throws IOException {
             Log.d(TAG, "Using SAF for download: " + game.getTitle());
             
-            // Check for existing progress to determine if it's a resume
-            ContentValues downloadData = databaseHelper.getDownload(downloadId);
-            boolean isResume = (downloadData != null && downloadData.getAsLong("downloaded_bytes") > 0);
-
-            // Criar arquivo usando SAF
-            DocumentFile downloadFile = safDownloadManager.createDownloadFile(game, downloadLink, isResume);
-            if (downloadFile == null) {
-                throw new IOException("Não foi possível criar arquivo de download");
+            // Arquivos com manifesto de chunks passam pelo cache de chunks
+            ChunkManifest manifest = libraryManager.getChunkManifest(downloadLink.getChecksumUrl());
+            
+            // Conferir o que já existe no destino antes de baixar
+            PreflightChecker.Result preflight = preflightChecker.check(game, downloadLink, manifest);
+            if (preflight.getStatus() == PreflightChecker.Status.COMPLETE) {
+                DocumentFile existingFile = preflight.getFile();
+                Log.d(TAG, "File already present, skipping download: " + existingFile.getName());
+                recordInstalledFile(game, downloadLink, existingFile, manifest);
+                onDownloadProgress(game, preflight.getResumeOffset(), preflight.getResumeOffset());
+                onDownloadComplete(game, downloadId, existingFile.getUri().toString());
+                return;
             }
             
-            Log.d(TAG, "Created download file: " + downloadFile.getName());
+            DocumentFile downloadFile = getStagedDownloadFile(game, downloadLink);
+            PreflightChecker.Result staged = preflightChecker.checkStagedFile(game, downloadLink, manifest, downloadFile);
+            if (staged.getStatus() == PreflightChecker.Status.COMPLETE) {
+                // Já baixado numa execução anterior, faltou só publicar
+                DocumentFile publishedFile = publishDownload(game, downloadLink, downloadFile);
+                recordInstalledFile(game, downloadLink, publishedFile, manifest);
+                onDownloadProgress(game, staged.getResumeOffset(), staged.getResumeOffset());
+                onDownloadComplete(game, downloadId, publishedFile.getUri().toString());
+                return;
+            }
+            long resumeOffset = staged.getStatus() == PreflightChecker.Status.PARTIAL ? staged.getResumeOffset() : 0;
+            
+            Log.d(TAG, "Download file: " + downloadFile.getName() + " (resuming at " + resumeOffset + ")");
             
             // Download real usando SAF
-            realDownloadSAF(downloadFile);
+            if (manifest != null) {
+                realDownloadChunkedSAF(downloadFile, manifest);
+            } else {
+                realDownloadSAF(downloadFile, resumeOffset);
+            }
         }
         
         private void downloadFileLegacy() throws IOException {
@@ -785,101 +1075,151 @@ public class DownloadService extends Service {
             realDownloadLegacy(outputFile);
         }
         
-        private void realDownloadSAF(DocumentFile outputFile) throws IOException {
+        private void realDownloadSAF(DocumentFile outputFile, long resumeOffset) throws IOException {
             String downloadUrl = downloadLink.getDownloadUrl();
             Log.d(TAG, "Starting real SAF download from: " + downloadUrl);
 
-            // Check for existing progress
-            ContentValues downloadData = databaseHelper.getDownload(downloadId);
-            long downloadedBytes = 0;
-            if (downloadData != null) {
-                downloadedBytes = downloadData.getAsLong("downloaded_bytes");
+            // O ponto de retomada vem do arquivo no destino, não do progresso salvo
+            if (resumeOffset > 0) {
+                Log.d(TAG, "Resuming download from " + resumeOffset + " bytes.");
             }
 
-            Request.Builder requestBuilder = new Request.Builder()
-                    .url(downloadUrl)
-                    .get()
-                    .addHeader("User-Agent", "Mozilla/5.0 (Android 10; Mobile; rv:91.0) Gecko/91.0 Firefox/91.0")
-                    .addHeader("Accept", "*/*")
-                    .addHeader("Accept-Language", "en-US,en;q=0.5")
-                    .addHeader("Accept-Encoding", "gzip, deflate")
-                    .addHeader("DNT", "1")
-                    .addHeader("Connection", "keep-alive")
-                    .addHeader("Referer", "https://www.gog.com/");
+            RangeDownloader downloader = new RangeDownloader(httpClient);
+            DownloadTelemetry.Transfer transfer = telemetry.startTransfer(game.getId(), downloadLink.getFileName());
+            downloader.setObserver(transfer);
+            RangeDownloader.Result result;
 
-            if (downloadedBytes > 0) {
-                Log.d(TAG, "Resuming download from " + downloadedBytes + " bytes.");
-                requestBuilder.addHeader("Range", "bytes=" + downloadedBytes + "-");
-            }
+            try {
+                speedMeter.reset(); // Reset do medidor
+                result = downloader.download(downloadUrl, downloadLink.getSize(), resumeOffset,
+                        append -> safDownloadManager.getOutputStream(outputFile, append),
+                        new ProgressListener() {
+                    private long lastProgressUpdate = System.currentTimeMillis();
+                    private long lastBytesWritten = resumeOffset;
+
+                    @Override
+                    public boolean isStopped() {
+                        return cancelled || paused;
+                    }
+
+                    @Override
+                    public void onProgress(long bytesDone, long totalBytes) {
+                        countBytes(speedMeter, lastBytesWritten, bytesDone);
+                        lastBytesWritten = bytesDone;
 
-            Request request = requestBuilder.build();
-            
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful() && response.code() != 206) { // 206 Partial Content is OK
-                    throw new IOException("HTTP Error: " + response.code() + " - " + response.message());
-                }
-                
-                long totalBytes = response.body().contentLength();
-                if (totalBytes <= 0) {
-                    totalBytes = downloadLink.getSize();
-                } else {
-                    totalBytes += downloadedBytes; // Add the already downloaded bytes to the total
-                }
-                
-                Log.d(TAG, "Content-Length: " + totalBytes + " bytes");
-                
-                try (InputStream inputStream = response.body().byteStream();
-                     OutputStream outputStream = safDownloadManager.getOutputStream(outputFile, downloadedBytes > 0)) {
-                    
-                    byte[] buffer = new byte[65536]; // 64KB buffer para melhor performance
-                    int bytesRead;
-                    
-                    long lastProgressUpdate = System.currentTimeMillis();
-                    speedMeter.reset(); // Reset do medidor
-                    
-                    while ((bytesRead = inputStream.read(buffer)) != -1 && !cancelled && !paused) {
-                        outputStream.write(buffer, 0, bytesRead);
-                        downloadedBytes += bytesRead;
-                        
                         // Atualizar progresso e velocidade
                         long currentTime = System.currentTimeMillis();
                         if (currentTime - lastProgressUpdate > 1000) { // Update every second
-                            double speed = speedMeter.updateSpeed(downloadedBytes);
-                            long eta = speedMeter.calculateETA(downloadedBytes, totalBytes);
-                            onDownloadProgress(game, downloadedBytes, totalBytes, 0, 0, speed, eta);
-                            databaseHelper.updateDownloadProgress(downloadId, downloadedBytes, totalBytes, speed, eta);
+                            double speed = speedMeter.getSpeed();
+                            long eta = speedMeter.calculateETA(bytesDone, totalBytes);
+                            onDownloadProgress(game, bytesDone, totalBytes, 0, 0, speed, eta);
+                            databaseHelper.updateDownloadProgress(downloadId, bytesDone, totalBytes, speed, eta);
                             lastProgressUpdate = currentTime;
                         }
                     }
+                });
+            } finally {
+                transfer.finish();
+            }
+            // Em caso de erro o parcial fica na área de preparação; o preflight confere e retoma
+
+            if (paused) {
+                // Don't delete the file on pause
+                return;
+            }
+
+            if (cancelled) {
+                outputFile.delete();
+                return;
+            }
+
+            if (result.isRestarted()) {
+                Log.w(TAG, "Server ignored Range request, file was downloaded from zero");
+            }
+
+            // Progresso final
+            onDownloadProgress(game, result.getBytesDone(), result.getTotalBytes());
+
+            // Download completo: mover para a pasta do usuário
+            DocumentFile publishedFile = publishDownload(game, downloadLink, outputFile);
+            String filePath = publishedFile.getUri().toString();
+            Log.d(TAG, "SAF download completed: " + filePath + " (" + result.getBytesDone() + " bytes)");
+            recordInstalledFile(game, downloadLink, publishedFile, null);
+            onDownloadComplete(game, downloadId, filePath);
+        }
+        
+        private void realDownloadChunkedSAF(DocumentFile outputFile, ChunkManifest manifest) throws IOException {
+            // O arquivo só cresce em chunks verificados, então um tamanho que cai numa
+            // fronteira de chunk pode ser retomado; qualquer outro é reescrito do início
+            // (os chunks já baixados saem do cache local)
+            long existingBytes = safDownloadManager.getFileSize(outputFile);
+            int startChunk = manifest.chunkIndexStartingAt(existingBytes);
+            if (startChunk < 0) {
+                startChunk = 0;
+            }
+
+            long totalBytes = manifest.getFileSize();
+            Log.d(TAG, "Chunked download: " + manifest.getChunks().size() + " chunks, starting at chunk " + startChunk);
+
+            ChunkedDownloader downloader = new ChunkedDownloader(httpClient, chunkStore, game.getId());
+            DownloadTelemetry.Transfer transfer = telemetry.startTransfer(game.getId(), downloadLink.getFileName());
+            downloader.setTelemetry(transfer);
+            ChunkedDownloader.Result result;
 
-                    if (paused) {
-                        // Don't delete the file on pause
-                        return;
+            try (FileChannel channel = safDownloadManager.openWriteChannel(outputFile)) {
+                speedMeter.reset();
+                result = downloader.download(downloadLink.getDownloadUrl(), manifest, startChunk, channel,
+                        new ChunkedDownloader.Listener() {
+                    private long lastProgressUpdate = System.currentTimeMillis();
+                    private long lastBytesWritten = -1;
+                    private double speed;
+                    private long eta;
+
+                    @Override
+                    public boolean isStopped() {
+                        return cancelled || paused;
                     }
-                    
-                    if (cancelled) {
-                        outputFile.delete();
-                        return;
+
+                    @Override
+                    public void onProgress(long bytesWritten) {
+                        countBytes(speedMeter, lastBytesWritten, bytesWritten);
+                        lastBytesWritten = bytesWritten;
+                        long currentTime = System.currentTimeMillis();
+                        if (currentTime - lastProgressUpdate > 1000) {
+                            speed = speedMeter.getSpeed();
+                            eta = speedMeter.calculateETA(bytesWritten, totalBytes);
+                            onDownloadProgress(game, bytesWritten, totalBytes, 0, 0, speed, eta);
+                            lastProgressUpdate = currentTime;
+                        }
                     }
-                    
-                    // Flush final
-                    outputStream.flush();
 
-                    // Progresso final
-                    onDownloadProgress(game, downloadedBytes, totalBytes);
-                    
-                    // Download completo
-                    String filePath = outputFile.getUri().toString();
-                    Log.d(TAG, "SAF download completed: " + filePath + " (" + downloadedBytes + " bytes)");
-                    onDownloadComplete(game, downloadId, filePath);
-                    
-                } catch (IOException e) {
-                    // Deletar arquivo em caso de erro
-                    if (outputFile.exists()) {
-                        outputFile.delete();
+                    @Override
+                    public void onChunkCommitted(int chunkIndex, long committedBytes) {
+                        databaseHelper.updateDownloadProgress(downloadId, committedBytes, totalBytes, speed, eta);
                     }
-                    throw e;
-                }
+                });
+            } finally {
+                transfer.finish();
+            }
+            // Em caso de erro o arquivo parcial é mantido: ele termina numa fronteira
+            // de chunk verificada e serve de ponto de retomada
+
+            if (paused) {
+                return;
+            }
+
+            if (cancelled) {
+                outputFile.delete();
+                return;
+            }
+
+            if (result.isComplete()) {
+                onDownloadProgress(game, totalBytes, totalBytes);
+                DocumentFile publishedFile = publishDownload(game, downloadLink, outputFile);
+                String filePath = publishedFile.getUri().toString();
+                Log.d(TAG, "Chunked SAF download completed: " + filePath + " (" + result.getBytesFromCache() + " bytes from cache)");
+                recordInstalledFile(game, downloadLink, publishedFile, manifest);
+                onDownloadComplete(game, downloadId, filePath);
             }
         }
         
@@ -887,83 +1227,74 @@ public class DownloadService extends Service {
             String downloadUrl = downloadLink.getDownloadUrl();
             Log.d(TAG, "Starting real legacy download from: " + downloadUrl);
             
-            Request request = new Request.Builder()
-                    .url(downloadUrl)
-                    .get()
-                    .addHeader("User-Agent", "Mozilla/5.0 (Android 10; Mobile; rv:91.0) Gecko/91.0 Firefox/91.0")
-                    .addHeader("Accept", "*/*")
-                    .addHeader("Accept-Language", "en-US,en;q=0.5")
-                    .addHeader("Accept-Encoding", "gzip, deflate")
-                    .addHeader("DNT", "1")
-                    .addHeader("Connection", "keep-alive")
-                    .addHeader("Referer", "https://www.gog.com/")
-                    .build();
-            
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    throw new IOException("HTTP Error: " + response.code() + " - " + response.message());
-                }
-                
-                long totalBytes = response.body().contentLength();
-                if (totalBytes <= 0) {
-                    totalBytes = downloadLink.getSize();
-                }
-                
-                Log.d(TAG, "Content-Length: " + totalBytes + " bytes");
-                
-                try (InputStream inputStream = response.body().byteStream();
-                     FileOutputStream outputStream = new FileOutputStream(outputFile)) {
-                    
-                    long bytesDownloaded = 0;
-                    byte[] buffer = new byte[65536]; // 64KB buffer para melhor performance
-                    int bytesRead;
+            // Retomar do parcial deixado por uma falha anterior; maior que o esperado não é deste arquivo
+            long resumeOffset = outputFile.length();
+            if (downloadLink.getSize() > 0 && resumeOffset > downloadLink.getSize()) {
+                resumeOffset = 0;
+            }
+            if (resumeOffset > 0) {
+                Log.d(TAG, "Resuming legacy download from " + resumeOffset + " bytes.");
+            }
+            long startOffset = resumeOffset;
+            
+            RangeDownloader downloader = new RangeDownloader(httpClient);
+            DownloadTelemetry.Transfer transfer = telemetry.startTransfer(game.getId(), downloadLink.getFileName());
+            downloader.setObserver(transfer);
+            RangeDownloader.Result result;
+            
+            try {
+                speedMeter.reset(); // Reset do medidor
+                // 206 continua o arquivo; 200 (Range ignorado) trunca e recomeça
+                result = downloader.download(downloadUrl, downloadLink.getSize(), resumeOffset,
+                        append -> new FileOutputStream(outputFile, append),
+                        new ProgressListener() {
+                    private long lastProgressUpdate = System.currentTimeMillis();
+                    private long lastBytesWritten = startOffset;
                     
-                    long lastProgressUpdate = System.currentTimeMillis();
-                    speedMeter.reset(); // Reset do medidor
+                    @Override
+                    public boolean isStopped() {
+                        return cancelled || paused;
+                    }
                     
-                    while ((bytesRead = inputStream.read(buffer)) != -1 && !cancelled) {
-                        outputStream.write(buffer, 0, bytesRead);
-                        bytesDownloaded += bytesRead;
+                    @Override
+                    public void onProgress(long bytesDone, long totalBytes) {
+                        countBytes(speedMeter, lastBytesWritten, bytesDone);
+                        lastBytesWritten = bytesDone;
                         
                         // Atualizar progresso e velocidade
                         long currentTime = System.currentTimeMillis();
                         if (currentTime - lastProgressUpdate > 250) {
-                            double speed = speedMeter.updateSpeed(bytesDownloaded);
-                            long eta = speedMeter.calculateETA(bytesDownloaded, totalBytes);
-                            onDownloadProgress(game, bytesDownloaded, totalBytes, 0, 0, speed, eta);
+                            double speed = speedMeter.getSpeed();
+                            long eta = speedMeter.calculateETA(bytesDone, totalBytes);
+                            onDownloadProgress(game, bytesDone, totalBytes, 0, 0, speed, eta);
                             lastProgressUpdate = currentTime;
                         }
-                        
-                        // Verificar se foi cancelado
-                        if (cancelled) {
-                            outputFile.delete();
-                            return;
-                        }
-                    }
-                    
-                    // Flush final
-                    outputStream.flush();
-                    
-                    if (cancelled) {
-                        outputFile.delete();
-                        return;
                     }
-                    
-                    // Progresso final
-                    onDownloadProgress(game, bytesDownloaded, bytesDownloaded);
-                    
-                    // Download completo
-                    Log.d(TAG, "Legacy download completed: " + outputFile.getAbsolutePath() + " (" + bytesDownloaded + " bytes)");
-                    onDownloadComplete(game, downloadId, outputFile.getAbsolutePath());
-                    
-                } catch (IOException e) {
-                    // Deletar arquivo em caso de erro
-                    if (outputFile.exists()) {
-                        outputFile.delete();
-                    }
-                    throw e;
-                }
+                });
+            } finally {
+                transfer.finish();
+            }
+            // Em caso de erro os bytes já baixados ficam no arquivo e a próxima tentativa continua deles
+            
+            if (paused) {
+                return;
             }
+            
+            if (cancelled) {
+                outputFile.delete();
+                return;
+            }
+            
+            if (result.isRestarted()) {
+                Log.w(TAG, "Server ignored Range request, file was downloaded from zero");
+            }
+            
+            // Progresso final
+            onDownloadProgress(game, result.getBytesDone(), result.getBytesDone());
+            
+            // Download completo
+            Log.d(TAG, "Legacy download completed: " + outputFile.getAbsolutePath() + " (" + result.getBytesDone() + " bytes)");
+            onDownloadComplete(game, downloadId, outputFile.getAbsolutePath());
         }
     }
     
@@ -973,7 +1304,7 @@ public class DownloadService extends Service {
         private List<DownloadLink> downloadLinks;
         private volatile boolean cancelled = false;
         private int currentFileIndex = 0;
-        private SpeedMeter speedMeter = new SpeedMeter();
+        private SpeedMeter speedMeter = new SpeedMeter(aggregateSpeedMeter);
         
         public BatchDownloadTask(Game game, List<DownloadLink> downloadLinks) {
             this.game = game;
@@ -993,10 +1324,16 @@ public class DownloadService extends Service {
                     Log.e(TAG, "Batch download error", e);
                     onDownloadError(game, "Erro no download em lote: " + e.getMessage());
                 }
+            } finally {
+                storagePlanner.release(game.getId());
             }
         }
         
-        private void downloadFiles() {
+        private void downloadFiles() throws IOException {
+            if (cancelled || !reserveSpace(game, downloadLinks, this)) {
+                return;
+            }
+            
             Log.d(TAG, "Starting batch download of " + downloadLinks.size() + " files for: " + game.getTitle());
             
             long totalBytesAllFiles = 0;
@@ -1071,6 +1408,8 @@ public class DownloadService extends Service {
                     
                 } catch (Exception e) {
                     Log.e(TAG, "Error downloading file: " + currentLink.getName(), e);
+                    databaseHelper.updateMirrorFileState(game.getId(), currentLink.getId(),
+                            DatabaseHelper.MIRROR_STATE_FAILED, e.getMessage());
                     // Continuar com o próximo arquivo em caso de erro
                     onDownloadProgress(game, totalBytesDownloaded, totalBytesAllFiles, 
                                      currentFileIndex, downloadLinks.size(), 0, 0);
@@ -1096,84 +1435,460 @@ public class DownloadService extends Service {
             String downloadUrl = downloadLink.getDownloadUrl();
             Log.d(TAG, "Starting download from: " + downloadUrl);
             
-            DocumentFile outputFile = null;
-            
-            // Criar arquivo usando SAF
-            if (safDownloadManager.hasDownloadLocationConfigured()) {
-                outputFile = safDownloadManager.createDownloadFile(game, downloadLink, false);
-                if (outputFile == null) {
-                    throw new IOException("Não foi possível criar arquivo de download");
-                }
-            } else {
+            if (!safDownloadManager.hasDownloadLocationConfigured()) {
                 throw new IOException("Pasta de download não configurada");
             }
             
-            Request request = new Request.Builder()
-                    .url(downloadUrl)
-                    .get()
-                    .addHeader("User-Agent", "Mozilla/5.0 (Android 10; Mobile; rv:91.0) Gecko/91.0 Firefox/91.0")
-                    .addHeader("Accept", "*/*")
-                    .addHeader("Accept-Language", "en-US,en;q=0.5")
-                    .addHeader("Accept-Encoding", "gzip, deflate")
-                    .addHeader("DNT", "1")
-                    .addHeader("Connection", "keep-alive")
-                    .addHeader("Referer", "https://www.gog.com/")
-                    .build();
-            
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    throw new IOException("HTTP Error: " + response.code() + " - " + response.message());
-                }
-                
-                long fileSize = response.body().contentLength();
-                if (fileSize <= 0) {
-                    fileSize = downloadLink.getSize();
-                }
-                
-                try (InputStream inputStream = response.body().byteStream();
-                     OutputStream outputStream = safDownloadManager.getOutputStream(outputFile, false)) {
-                    
-                    long fileBytesDownloaded = 0;
-                    byte[] buffer = new byte[65536]; // 64KB buffer para melhor performance
-                    int bytesRead;
+            ChunkManifest manifest = libraryManager.getChunkManifest(downloadLink.getChecksumUrl());
+            
+            // Arquivos já presentes e íntegros são pulados; parciais são retomados
+            PreflightChecker.Result preflight = preflightChecker.check(game, downloadLink, manifest);
+            if (preflight.getStatus() == PreflightChecker.Status.COMPLETE) {
+                Log.d(TAG, "File already present, skipping download: " + downloadLink.getName());
+                recordInstalledFile(game, downloadLink, preflight.getFile(), manifest);
+                return preflight.getResumeOffset();
+            }
+            
+            DocumentFile outputFile = getStagedDownloadFile(game, downloadLink);
+            PreflightChecker.Result staged = preflightChecker.checkStagedFile(game, downloadLink, manifest, outputFile);
+            if (staged.getStatus() == PreflightChecker.Status.COMPLETE) {
+                recordInstalledFile(game, downloadLink, publishDownload(game, downloadLink, outputFile), manifest);
+                return staged.getResumeOffset();
+            }
+            long resumeOffset = staged.getStatus() == PreflightChecker.Status.PARTIAL ? staged.getResumeOffset() : 0;
+            
+            if (manifest != null) {
+                return downloadFileChunked(downloadLink, outputFile, manifest, resumeOffset,
+                        totalBytesDownloadedSoFar, totalBytesAllFiles);
+            }
+            
+            if (resumeOffset > 0) {
+                Log.d(TAG, "Resuming " + downloadLink.getName() + " from " + resumeOffset + " bytes");
+            }
+            
+            RangeDownloader downloader = new RangeDownloader(httpClient);
+            DownloadTelemetry.Transfer transfer = telemetry.startTransfer(game.getId(), downloadLink.getFileName());
+            downloader.setObserver(transfer);
+            RangeDownloader.Result result;
+            long startOffset = resumeOffset;
+            
+            try {
+                result = downloader.download(downloadUrl, downloadLink.getSize(), resumeOffset,
+                        append -> safDownloadManager.getOutputStream(outputFile, append),
+                        new ProgressListener() {
+                    private long lastProgressUpdate = System.currentTimeMillis();
+                    private long lastBytesWritten = startOffset;
                     
-                    long lastProgressUpdate = System.currentTimeMillis();
-                    speedMeter.reset(); // Reset do medidor para este arquivo
+                    @Override
+                    public boolean isStopped() {
+                        return cancelled;
+                    }
                     
-                    while ((bytesRead = inputStream.read(buffer)) != -1 && !cancelled) {
-                        outputStream.write(buffer, 0, bytesRead);
-                        fileBytesDownloaded += bytesRead;
+                    @Override
+                    public void onProgress(long fileBytesDownloaded, long fileSize) {
+                        countBytes(speedMeter, lastBytesWritten, fileBytesDownloaded);
+                        lastBytesWritten = fileBytesDownloaded;
                         
+                        // Atualizar progresso e velocidade usando SpeedMeter (ETA do lote inteiro)
                         long currentTime = System.currentTimeMillis();
-                        
-                        // Atualizar progresso e velocidade usando SpeedMeter
                         if (currentTime - lastProgressUpdate > 250) {
-                            double speed = speedMeter.updateSpeed(fileBytesDownloaded);
-                            long eta = speedMeter.calculateETA(fileBytesDownloaded, fileSize);
                             long totalDownloadedIncludingThis = totalBytesDownloadedSoFar + fileBytesDownloaded;
+                            double speed = speedMeter.getSpeed();
+                            long eta = speedMeter.calculateETA(totalDownloadedIncludingThis, totalBytesAllFiles);
                             onDownloadProgress(game, totalDownloadedIncludingThis, totalBytesAllFiles, 
                                              currentFileIndex, downloadLinks.size(), speed, eta);
                             lastProgressUpdate = currentTime;
                         }
                     }
+                });
+            } finally {
+                transfer.finish();
+            }
+            // Em caso de erro o parcial fica na área de preparação; o preflight confere e retoma
+            
+            if (cancelled) {
+                outputFile.delete();
+                return 0;
+            }
+            
+            Log.d(TAG, "File download completed: " + downloadLink.getName() + " (" + result.getBytesDone() + " bytes)");
+            recordInstalledFile(game, downloadLink, publishDownload(game, downloadLink, outputFile), null);
+            return result.getBytesDone();
+        }
+        
+        private long downloadFileChunked(DownloadLink downloadLink, DocumentFile outputFile, ChunkManifest manifest,
+                                         long resumeOffset, long totalBytesDownloadedSoFar, long totalBytesAllFiles) throws IOException {
+            long fileSize = manifest.getFileSize();
+            int startChunk = Math.max(0, manifest.chunkIndexStartingAt(resumeOffset));
+            ChunkedDownloader downloader = new ChunkedDownloader(httpClient, chunkStore, game.getId());
+            DownloadTelemetry.Transfer transfer = telemetry.startTransfer(game.getId(), downloadLink.getFileName());
+            downloader.setTelemetry(transfer);
+            ChunkedDownloader.Result result;
+            
+            try (FileChannel channel = safDownloadManager.openWriteChannel(outputFile)) {
+                result = downloader.download(downloadLink.getDownloadUrl(), manifest, startChunk, channel,
+                        new ChunkedDownloader.Listener() {
+                    private long lastProgressUpdate = System.currentTimeMillis();
+                    private long lastBytesWritten = -1;
                     
-                    if (cancelled) {
-                        outputFile.delete();
-                        return 0;
+                    @Override
+                    public boolean isStopped() {
+                        return cancelled;
                     }
                     
-                    // Flush final
-                    outputStream.flush();
+                    @Override
+                    public void onProgress(long bytesWritten) {
+                        countBytes(speedMeter, lastBytesWritten, bytesWritten);
+                        lastBytesWritten = bytesWritten;
+                        long currentTime = System.currentTimeMillis();
+                        if (currentTime - lastProgressUpdate > 250) {
+                            double speed = speedMeter.getSpeed();
+                            long eta = speedMeter.calculateETA(totalBytesDownloadedSoFar + bytesWritten, totalBytesAllFiles);
+                            onDownloadProgress(game, totalBytesDownloadedSoFar + bytesWritten, totalBytesAllFiles,
+                                             currentFileIndex, downloadLinks.size(), speed, eta);
+                            lastProgressUpdate = currentTime;
+                        }
+                    }
                     
-                    Log.d(TAG, "File download completed: " + downloadLink.getName() + " (" + fileBytesDownloaded + " bytes)");
-                    return fileBytesDownloaded;
+                    @Override
+                    public void onChunkCommitted(int chunkIndex, long committedBytes) {
+                        // O arquivo preparado é o ponto de retomada (conferido no preflight)
+                    }
+                });
+            } finally {
+                transfer.finish();
+            }
+            
+            if (cancelled) {
+                outputFile.delete();
+                return 0;
+            }
+            
+            Log.d(TAG, "File download completed: " + downloadLink.getName() + " (" + result.getBytesFromCache() + " bytes from cache)");
+            recordInstalledFile(game, downloadLink, publishDownload(game, downloadLink, outputFile), manifest);
+            return result.getCommittedBytes();
+        }
+    }
+    
+    // Classe interna que planeja o espelho da biblioteca e agenda os downloads
+    private class MirrorTask implements Runnable {
+        private final MirrorFilter filter;
+        private final MirrorPlanner planner;
+        
+        public MirrorTask(MirrorFilter filter) {
+            this.filter = filter;
+            this.planner = new MirrorPlanner(DownloadService.this, databaseHelper);
+        }
+        
+        public void cancel() {
+            planner.cancel();
+        }
+        
+        @Override
+        public void run() {
+            List<MirrorPlanner.GameDiff> diffs;
+            try {
+                if (!safDownloadManager.hasDownloadLocationConfigured()) {
+                    throw new IOException("Pasta de download não configurada");
+                }
+                diffs = planner.plan(filter);
+            } catch (Exception e) {
+                Log.e(TAG, "Mirror planning error", e);
+                String error = "Erro ao comparar biblioteca: " + e.getMessage();
+                mainHandler.post(() -> finish(error));
+                return;
+            }
+            
+            // O plano é feito aqui; os downloads são iniciados na thread principal, como os pedidos pela tela
+            mainHandler.post(() -> finish(scheduleMissingFiles(diffs)));
+        }
+        
+        private void finish(String result) {
+            activeMirror = null;
+            showMirrorResultNotification(result);
+            if (!hasActiveDownloads()) {
+                stopForeground(false);
+            }
+        }
+        
+        /**
+         * Coloca na fila os jogos com diferenças; só conta os que realmente entraram
+         * (jogos já em andamento são pulados)
+         */
+        private String scheduleMissingFiles(List<MirrorPlanner.GameDiff> diffs) {
+            int scheduledGames = 0;
+            int scheduledFiles = 0;
+            long scheduledBytes = 0;
+            for (MirrorPlanner.GameDiff diff : diffs) {
+                Game game = diff.getGame();
+                boolean queued;
+                if (diff.getMissingLinks().isEmpty()) {
+                    // Só arquivos desatualizados: atualização diferencial reaproveita o que não mudou
+                    queued = startUpdate(game);
+                } else {
+                    List<DownloadLink> links = new ArrayList<>(diff.getMissingLinks());
+                    links.addAll(diff.getChangedLinks());
+                    queued = startBatchDownload(game, links);
+                }
+                if (queued) {
+                    scheduledGames++;
+                    scheduledFiles += diff.getMissingLinks().size() + diff.getChangedLinks().size();
+                    scheduledBytes += diff.getTotalBytes();
+                }
+            }
+            
+            if (diffs.isEmpty()) {
+                return "Arquivo local já está sincronizado";
+            }
+            if (scheduledGames == 0) {
+                return "Nenhum download novo: os jogos com diferenças já estão sendo baixados";
+            }
+            return scheduledFiles + " arquivo(s) de " + scheduledGames + " jogo(s) na fila ("
+                    + Game.formatFileSize(scheduledBytes) + ")";
+        }
+    }
+    
+    // Classe interna para atualizar os arquivos de um jogo já baixado
+    private class UpdateTask implements Runnable {
+        private Game game;
+        private volatile boolean cancelled = false;
+        private SpeedMeter speedMeter = new SpeedMeter(aggregateSpeedMeter);
+        
+        public UpdateTask(Game game) {
+            this.game = game;
+        }
+        
+        public void cancel() {
+            cancelled = true;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                applyUpdate();
+            } catch (Exception e) {
+                if (!cancelled) {
+                    Log.e(TAG, "Update error", e);
+                    onDownloadError(game, "Erro na atualização: " + e.getMessage());
+                }
+            } finally {
+                storagePlanner.release(game.getId());
+            }
+        }
+        
+        private void applyUpdate() throws IOException {
+            if (!safDownloadManager.hasDownloadLocationConfigured()) {
+                throw new IOException("Pasta de download não configurada");
+            }
+            
+            List<ContentValues> installedFiles = databaseHelper.getInstalledFiles(game.getId());
+            if (installedFiles.isEmpty()) {
+                throw new IOException("Nenhum arquivo instalado registrado para este jogo");
+            }
+            
+            Map<String, DownloadLink> latestLinks = new HashMap<>();
+            for (DownloadLink link : loadLatestLinks()) {
+                latestLinks.put(link.getId(), link);
+            }
+            if (cancelled) return;
+            
+            // Arquivos cuja versão ou tamanho mudou; os demais ficam onde estão
+            List<ContentValues> changedFiles = new ArrayList<>();
+            List<DownloadLink> changedLinks = new ArrayList<>();
+            long totalBytes = 0;
+            for (ContentValues installed : installedFiles) {
+                DownloadLink latest = latestLinks.get(installed.getAsString("link_id"));
+                if (latest == null) {
+                    Log.d(TAG, "Installed file no longer offered, keeping it: " + installed.getAsString("file_name"));
+                    continue;
+                }
+                
+                String installedVersion = installed.getAsString("version");
+                boolean sameVersion = installedVersion != null && installedVersion.equals(latest.getVersion());
+                boolean sameSize = latest.getSize() <= 0 || latest.getSize() == installed.getAsLong("size");
+                if (sameVersion && sameSize) {
+                    continue;
+                }
+                
+                changedFiles.add(installed);
+                changedLinks.add(latest);
+                totalBytes += latest.getSize();
+            }
+            
+            Log.d(TAG, "Update plan for " + game.getTitle() + ": " + changedFiles.size() + " of " 
+                    + installedFiles.size() + " files changed");
+            
+            // Os arquivos novos são montados ao lado dos instalados antes de substituí-los
+            if (cancelled || !reserveSpace(game, totalBytes, 0, this)) {
+                return;
+            }
+            
+            long bytesSoFar = 0;
+            for (int i = 0; i < changedFiles.size() && !cancelled; i++) {
+                bytesSoFar += updateFile(changedFiles.get(i), changedLinks.get(i), i, changedFiles.size(),
+                        bytesSoFar, totalBytes);
+            }
+            
+            if (!cancelled) {
+                game.setStatus(Game.DownloadStatus.DOWNLOADED);
+                databaseHelper.clearGameUpdate(game.getId());
+                onDownloadComplete(game, -1, game.getLocalPath());
+            }
+        }
+        
+        private long updateFile(ContentValues installed, DownloadLink latest, int fileIndex, int totalFiles,
+                                long bytesSoFar, long totalBytes) throws IOException {
+            resolveDownloadUrl(latest);
+            if (cancelled) return 0;
+            
+            ChunkManifest manifest = libraryManager.getChunkManifest(latest.getChecksumUrl());
+            if (manifest != null && manifest.getMd5() != null && manifest.getMd5().equals(installed.getAsString("md5"))) {
+                // Mesmo conteúdo com outra etiqueta de versão
+                databaseHelper.updateInstalledFileVersion(game.getId(), latest.getId(), latest.getVersion());
+                return 0;
+            }
+            if (manifest == null) {
+                throw new IOException("Manifesto de chunks indisponível para " + latest.getName());
+            }
+            
+            DocumentFile stagedFile = safDownloadManager.createStagingFile(game, latest.getFileName());
+            if (stagedFile == null) {
+                throw new IOException("Não foi possível criar arquivo temporário de atualização");
+            }
+            
+            Uri installedUri = Uri.parse(installed.getAsString("document_uri"));
+            ChunkedDownloader downloader = new ChunkedDownloader(httpClient, chunkStore, game.getId());
+            DownloadTelemetry.Transfer transfer = telemetry.startTransfer(game.getId(), latest.getFileName());
+            downloader.setTelemetry(transfer);
+            ChunkManifest installedManifest = null;
+            String installedManifestJson = installed.getAsString("manifest");
+            if (installedManifestJson != null) {
+                try {
+                    installedManifest = ChunkManifest.fromJson(new JSONObject(installedManifestJson));
+                } catch (JSONException e) {
+                    Log.w(TAG, "Invalid stored manifest for " + installed.getAsString("file_name"), e);
+                }
+            }
+            // Sem manifesto antigo, a fonte local tenta cada chunk na mesma posição
+            InstalledFileChunkSource localSource = new InstalledFileChunkSource(DownloadService.this, 
+                    installedUri, installedManifest);
+            downloader.setLocalSource(localSource);
+            
+            ChunkedDownloader.Result result;
+            try (FileChannel channel = safDownloadManager.openWriteChannel(stagedFile)) {
+                result = downloader.download(latest.getDownloadUrl(), manifest, 0, channel,
+                        new ChunkedDownloader.Listener() {
+                    private long lastProgressUpdate = System.currentTimeMillis();
+                    private long lastBytesWritten = -1;
                     
-                } catch (IOException e) {
-                    if (outputFile.exists()) {
-                        outputFile.delete();
+                    @Override
+                    public boolean isStopped() {
+                        return cancelled;
                     }
-                    throw e;
+                    
+                    @Override
+                    public void onProgress(long bytesWritten) {
+                        countBytes(speedMeter, lastBytesWritten, bytesWritten);
+                        lastBytesWritten = bytesWritten;
+                        long currentTime = System.currentTimeMillis();
+                        if (currentTime - lastProgressUpdate > 1000) {
+                            double speed = speedMeter.getSpeed();
+                            long eta = speedMeter.calculateETA(bytesSoFar + bytesWritten, totalBytes);
+                            onDownloadProgress(game, bytesSoFar + bytesWritten, totalBytes,
+                                    fileIndex, totalFiles, speed, eta);
+                            lastProgressUpdate = currentTime;
+                        }
+                    }
+                    
+                    @Override
+                    public void onChunkCommitted(int chunkIndex, long committedBytes) {
+                    }
+                });
+            } catch (IOException e) {
+                // O arquivo instalado não foi tocado; basta descartar o temporário
+                stagedFile.delete();
+                throw e;
+            } finally {
+                localSource.close();
+                transfer.finish();
+            }
+            
+            if (!result.isComplete()) {
+                stagedFile.delete();
+                return 0;
+            }
+            
+            DocumentFile publishedFile = safDownloadManager.publishStagedFile(game, stagedFile, 
+                    latest.getFileName(), installedUri);
+            if (publishedFile == null) {
+                throw new IOException("Não foi possível substituir " + installed.getAsString("file_name"));
+            }
+            
+            recordInstalledFile(game, latest, publishedFile, manifest);
+            Log.d(TAG, "Updated " + latest.getName() + ": " + result.getBytesFromNetwork() + " bytes downloaded, "
+                    + (result.getBytesFromLocalSource() + result.getBytesFromCache()) + " bytes reused");
+            return manifest.getFileSize();
+        }
+        
+        private List<DownloadLink> loadLatestLinks() throws IOException {
+            List<DownloadLink> links = new ArrayList<>();
+            String[] errorMessage = new String[1];
+            CountDownLatch latch = new CountDownLatch(1);
+            
+            libraryManager.loadGameDetails(game.getId(), new GOGLibraryManager.GameDetailsCallback() {
+                @Override
+                public void onSuccess(Game detailedGame, List<DownloadLink> downloadLinks) {
+                    links.addAll(downloadLinks);
+                    latch.countDown();
+                }
+                
+                @Override
+                public void onError(String error) {
+                    errorMessage[0] = error;
+                    latch.countDown();
+                }
+            });
+            
+            awaitLatch(latch);
+            if (errorMessage[0] != null) {
+                throw new IOException("Erro ao obter detalhes do jogo: " + errorMessage[0]);
+            }
+            return links;
+        }
+        
+        private void resolveDownloadUrl(DownloadLink link) throws IOException {
+            String[] errorMessage = new String[1];
+            CountDownLatch latch = new CountDownLatch(1);
+            
+            libraryManager.getDownloadLink(game.getId(), link, "installer",
+                    new GOGLibraryManager.DownloadLinkCallback() {
+                @Override
+                public void onSuccess(String url) {
+                    link.setDownloadUrl(url);
+                    latch.countDown();
+                }
+                
+                @Override
+                public void onError(String error) {
+                    errorMessage[0] = error;
+                    latch.countDown();
+                }
+            });
+            
+            awaitLatch(latch);
+            if (errorMessage[0] != null) {
+                throw new IOException("Erro ao obter URL de download: " + errorMessage[0]);
+            }
+        }
+        
+        private void awaitLatch(CountDownLatch latch) throws IOException {
+            try {
+                while (!cancelled && !latch.await(1, TimeUnit.SECONDS)) {
+                    // Aguardar resposta da API verificando cancelamento
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Atualização interrompida");
             }
         }
     }
@@ -0,0 +1,94 @@
+package com.example.gogdownloader.services;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.gogdownloader.utils.PreferencesManager;
+import com.example.gogdownloader.utils.UpdateChecker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Job periódico que verifica atualizações dos jogos baixados.
+ * Roda só com rede disponível e com janela flexível, para o sistema agrupar
+ * a execução com outros jobs em vez de ligar o rádio só para isso.
+ */
+public class UpdateCheckJobService extends JobService {
+
+    private static final String TAG = "UpdateCheckJobService";
+    private static final int JOB_ID = 2001;
+    private static final long CHECK_INTERVAL_MS = TimeUnit.HOURS.toMillis(12);
+    private static final long CHECK_FLEX_MS = TimeUnit.HOURS.toMillis(3);
+    private static final long ESTIMATED_DOWNLOAD_BYTES = 256 * 1024;
+    private static final long ESTIMATED_UPLOAD_BYTES = 4 * 1024;
+
+    private UpdateChecker updateChecker;
+
+    /**
+     * Agenda a verificação periódica se ainda não estiver agendada
+     */
+    public static void schedule(Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null || jobScheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID, new ComponentName(context, UpdateCheckJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setPeriodic(CHECK_INTERVAL_MS, CHECK_FLEX_MS)
+                .setPersisted(true);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(true);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            builder.setEstimatedNetworkBytes(ESTIMATED_DOWNLOAD_BYTES, ESTIMATED_UPLOAD_BYTES);
+        }
+
+        int result = jobScheduler.schedule(builder.build());
+        Log.d(TAG, "Update check job scheduled: " + (result == JobScheduler.RESULT_SUCCESS));
+    }
+
+    public static void cancel(Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler != null) {
+            jobScheduler.cancel(JOB_ID);
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        if (!new PreferencesManager(this).isLoggedIn()) {
+            Log.d(TAG, "Not logged in, skipping update check");
+            return false;
+        }
+
+        updateChecker = new UpdateChecker(this);
+        UpdateChecker checker = updateChecker;
+
+        new Thread(() -> {
+            try {
+                checker.checkAll();
+            } catch (Exception e) {
+                Log.e(TAG, "Update check failed", e);
+            }
+            jobFinished(params, false);
+        }, "UpdateCheck").start();
+
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        if (updateChecker != null) {
+            updateChecker.cancel();
+        }
+        return true; // Reagendar com backoff
+    }
+}
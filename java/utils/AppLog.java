@@ -0,0 +1,51 @@
+package com.example.gogdownloader.utils;
+
+import android.util.Log;
+
+import com.example.gogdownloader.BuildConfig;
+
+/**
+ * Fachada de log. As chamadas de d() e v() são removidas do build de release
+ * pelo R8 (ver proguard-rules.pro), junto com a montagem das mensagens; em
+ * código quente, montar mensagens caras dentro de {@code if (AppLog.DEBUG)}.
+ * Avisos e erros sempre vão para o logcat.
+ */
+public final class AppLog {
+
+    public static final boolean DEBUG = BuildConfig.DEBUG;
+
+    private AppLog() {
+    }
+
+    public static void v(String tag, String message) {
+        if (DEBUG) {
+            Log.v(tag, message);
+        }
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG) {
+            Log.d(tag, message);
+        }
+    }
+
+    public static void i(String tag, String message) {
+        Log.i(tag, message);
+    }
+
+    public static void w(String tag, String message) {
+        Log.w(tag, message);
+    }
+
+    public static void w(String tag, String message, Throwable throwable) {
+        Log.w(tag, message, throwable);
+    }
+
+    public static void e(String tag, String message) {
+        Log.e(tag, message);
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        Log.e(tag, message, throwable);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.gogdownloader.utils;
+
+import android.graphics.Bitmap;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Bitmaps que saíram do cache de memória e podem ser reaproveitados como
+ * {@code inBitmap} na próxima decodificação, evitando alocar (e coletar) um
+ * bitmap novo por capa durante a rolagem.
+ * Um bitmap só entra no pool quando foi removido do cache E não está em
+ * nenhuma ImageView: reaproveitar um bitmap visível trocaria a imagem na tela.
+ * Quem exibe um bitmap chama {@link #retain} antes e {@link #release} quando a
+ * view passa a mostrar outra coisa.
+ */
+public class BitmapPool {
+
+    private final long maxBytes;
+    private final LinkedList<Bitmap> pool = new LinkedList<>();
+    private final Map<Bitmap, Integer> displayCount = new IdentityHashMap<>();
+    private final Map<Bitmap, Boolean> evicted = new IdentityHashMap<>();
+    private long poolBytes;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * O bitmap vai ser exibido (ou está a caminho de uma view)
+     */
+    public synchronized void retain(Bitmap bitmap) {
+        Integer count = displayCount.get(bitmap);
+        displayCount.put(bitmap, count != null ? count + 1 : 1);
+    }
+
+    /**
+     * Uma view deixou de exibir o bitmap
+     */
+    public synchronized void release(Bitmap bitmap) {
+        Integer count = displayCount.get(bitmap);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            displayCount.put(bitmap, count - 1);
+            return;
+        }
+        displayCount.remove(bitmap);
+        if (evicted.remove(bitmap) != null) {
+            offer(bitmap);
+        }
+    }
+
+    /**
+     * O cache de memória soltou o bitmap; ele vai para o pool assim que não estiver visível
+     */
+    public synchronized void onEvicted(Bitmap bitmap) {
+        if (displayCount.containsKey(bitmap)) {
+            evicted.put(bitmap, Boolean.TRUE);
+        } else {
+            offer(bitmap);
+        }
+    }
+
+    /**
+     * Retira do pool um bitmap que comporte a decodificação pedida
+     * @return null se nenhum servir
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        Iterator<Bitmap> iterator = pool.iterator();
+        while (iterator.hasNext()) {
+            Bitmap candidate = iterator.next();
+            if (candidate.getConfig() == config && candidate.getAllocationByteCount() >= needed
+                    // Não desperdiçar um bitmap muito maior que o necessário
+                    && candidate.getAllocationByteCount() <= needed * 4) {
+                iterator.remove();
+                poolBytes -= candidate.getAllocationByteCount();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Devolve um bitmap que foi retirado mas não chegou a ser usado
+     */
+    public synchronized void put(Bitmap bitmap) {
+        offer(bitmap);
+    }
+
+    public synchronized void clear() {
+        pool.clear();
+        poolBytes = 0;
+    }
+
+    private void offer(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getAllocationByteCount() > maxBytes) {
+            return;
+        }
+        pool.addFirst(bitmap);
+        poolBytes += bitmap.getAllocationByteCount();
+        while (poolBytes > maxBytes) {
+            poolBytes -= pool.removeLast().getAllocationByteCount();
+        }
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        return config == Bitmap.Config.RGB_565 ? 2 : 4;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.gogdownloader.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import com.example.gogdownloader.database.DatabaseHelper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Cache local de chunks endereçado por conteúdo (MD5 do chunk).
+ * Chunks repetidos entre versões, DLCs e pacotes de idioma são baixados uma
+ * única vez e servidos daqui nas próximas vezes. O tamanho é limitado por
+ * preferência: chunks novos só entram se couberem abaixo do limite, e a
+ * remoção (ao reduzir o limite ou limpar) é LRU, começando pelos sem referência.
+ */
+public class ChunkStore {
+
+    private static final String TAG = "ChunkStore";
+    private static final String CHUNKS_DIR = "chunks";
+    private static final int EVICTION_BATCH = 64;
+
+    private static ChunkStore instance;
+
+    private final File chunksDir;
+    private final File tempDir;
+    private final DatabaseHelper databaseHelper;
+    private final PreferencesManager preferencesManager;
+    // Tamanho total do cache: lido do banco uma vez e mantido a cada inserção e remoção
+    private long totalBytes = -1;
+
+    private ChunkStore(Context context) {
+        // no_backup: cache grande que não deve ir para o backup automático
+        chunksDir = new File(context.getNoBackupFilesDir(), CHUNKS_DIR);
+        tempDir = new File(chunksDir, "tmp");
+        if (!tempDir.exists()) {
+            tempDir.mkdirs();
+        }
+
+        databaseHelper = new DatabaseHelper(context);
+        preferencesManager = new PreferencesManager(context);
+
+        // Temporários de uma execução anterior interrompida não valem nada
+        File[] leftovers = tempDir.listFiles();
+        if (leftovers != null) {
+            for (File file : leftovers) {
+                file.delete();
+            }
+        }
+    }
+
+    public static synchronized ChunkStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChunkStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Verifica se o chunk está no cache com o tamanho esperado
+     */
+    public boolean contains(String hash, long size) {
+        File file = chunkFile(hash);
+        if (!file.exists()) {
+            return false;
+        }
+        if (file.length() != size || databaseHelper.getChunkSize(hash) != size) {
+            Log.w(TAG, "Discarding inconsistent chunk: " + hash);
+            discard(hash);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copia um chunk do cache para o destino e registra a referência do jogo.
+     * @return false se o chunk não estiver mais disponível
+     */
+    public boolean copyTo(String hash, long gameId, OutputStream outputStream, byte[] buffer) throws IOException {
+        File file = chunkFile(hash);
+        InputStream inputStream;
+        try {
+            inputStream = new FileInputStream(file);
+        } catch (IOException e) {
+            // Removido por outra thread entre contains() e a cópia
+            return false;
+        }
+
+        try (InputStream in = inputStream) {
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+        }
+
+        databaseHelper.touchChunk(hash);
+        databaseHelper.addChunkReference(hash, gameId);
+        return true;
+    }
+
+    /**
+     * Arquivo temporário para a cópia de um chunk que vai entrar no cache
+     * @return null se o chunk não couber abaixo do limite (não vale gravar para remover em seguida)
+     */
+    public File createTempFileIfRoom(long size) throws IOException {
+        synchronized (this) {
+            if (getTotalBytes() + size > preferencesManager.getChunkCacheMaxSize()) {
+                return null;
+            }
+        }
+        if (!tempDir.exists()) {
+            tempDir.mkdirs();
+        }
+        return File.createTempFile("chunk", ".part", tempDir);
+    }
+
+    /**
+     * Move um chunk já verificado para o cache
+     */
+    public void commit(String hash, File tempFile, long gameId) {
+        long size = tempFile.length();
+
+        synchronized (this) {
+            File target = chunkFile(hash);
+            if (target.exists() && target.length() == size) {
+                tempFile.delete();
+            } else if (!tempFile.renameTo(target)) {
+                Log.w(TAG, "Failed to store chunk: " + hash);
+                tempFile.delete();
+                return;
+            } else {
+                totalBytes = getTotalBytes() + size;
+            }
+
+            databaseHelper.insertChunk(hash, size);
+            databaseHelper.addChunkReference(hash, gameId);
+
+            // Downloads simultâneos podem ter passado juntos pela checagem de espaço
+            long maxBytes = preferencesManager.getChunkCacheMaxSize();
+            if (totalBytes > maxBytes) {
+                trimToSize(maxBytes);
+            }
+        }
+    }
+
+    /**
+     * Remove as referências de um jogo; os chunks passam a ser os primeiros
+     * candidatos à remoção, mas continuam servindo outros downloads.
+     */
+    public void releaseGame(long gameId) {
+        int released = databaseHelper.deleteChunkReferences(gameId);
+        Log.d(TAG, "Released " + released + " chunk references for game " + gameId);
+    }
+
+    public synchronized void trimToSize(long maxBytes) {
+        while (getTotalBytes() > maxBytes) {
+            List<ContentValues> candidates = databaseHelper.getChunkEvictionCandidates(EVICTION_BATCH);
+            if (candidates.isEmpty()) {
+                break;
+            }
+
+            for (ContentValues candidate : candidates) {
+                if (totalBytes <= maxBytes) {
+                    break;
+                }
+                remove(candidate.getAsString("hash"));
+                totalBytes -= candidate.getAsLong("size");
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized long getSize() {
+        return getTotalBytes();
+    }
+
+    private long getTotalBytes() {
+        if (totalBytes < 0) {
+            totalBytes = databaseHelper.getTotalChunkCacheSize();
+        }
+        return totalBytes;
+    }
+
+    /**
+     * Remove um chunk com tamanho divergente do registrado; o total é relido do banco
+     */
+    private synchronized void discard(String hash) {
+        remove(hash);
+        totalBytes = -1;
+    }
+
+    private void remove(String hash) {
+        chunkFile(hash).delete();
+        databaseHelper.deleteChunk(hash);
+    }
+
+    private File chunkFile(String hash) {
+        return new File(chunksDir, hash);
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.gogdownloader.utils;
+
+import android.util.Log;
+
+import com.example.gogdownloader.core.DownloadRequests;
+import com.example.gogdownloader.core.Hashes;
+import com.example.gogdownloader.core.TransferObserver;
+import com.example.gogdownloader.models.ChunkManifest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Baixa um arquivo chunk a chunk usando o manifesto de checksums do GOG.
+ * Chunks já presentes no {@link ChunkStore} são copiados localmente; os demais
+ * são baixados com Range e gravados direto no destino enquanto o MD5 é
+ * calculado. Um chunk com checksum errado, interrompido ou que falhou é
+ * desfeito (o destino volta ao início dele), de forma que o arquivo de saída
+ * sempre termina numa fronteira de chunk válida. A cópia para o cache é feita
+ * na mesma passada, só quando o chunk cabe abaixo do limite do cache.
+ */
+public class ChunkedDownloader {
+
+    private static final String TAG = "ChunkedDownloader";
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Fonte local adicional de chunks (ex.: versão instalada do mesmo arquivo)
+     */
+    public interface LocalChunkSource {
+        boolean readChunk(ChunkManifest.Chunk chunk, OutputStream outputStream, byte[] buffer) throws IOException;
+    }
+
+    public interface Listener {
+        boolean isStopped();
+        void onProgress(long bytesWritten);
+        void onChunkCommitted(int chunkIndex, long committedBytes);
+    }
+
+    public static class Result {
+        private long bytesFromNetwork;
+        private long bytesFromCache;
+        private long bytesFromLocalSource;
+        private long committedBytes;
+        private boolean complete;
+
+        public long getBytesFromNetwork() { return bytesFromNetwork; }
+        public long getBytesFromCache() { return bytesFromCache; }
+        public long getBytesFromLocalSource() { return bytesFromLocalSource; }
+        public long getCommittedBytes() { return committedBytes; }
+        public boolean isComplete() { return complete; }
+    }
+
+    private final OkHttpClient httpClient;
+    private final ChunkStore chunkStore;
+    private final long gameId;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private LocalChunkSource localSource;
+    private TransferObserver telemetry;
+
+    // URL final após os redirects do GOG, reaproveitada entre chunks
+    private String resolvedUrl;
+
+    // Destino do download em andamento; o stream escreve na posição atual do canal
+    private FileChannel channel;
+    private OutputStream output;
+
+    public ChunkedDownloader(OkHttpClient httpClient, ChunkStore chunkStore, long gameId) {
+        this.httpClient = httpClient;
+        this.chunkStore = chunkStore;
+        this.gameId = gameId;
+    }
+
+    public void setLocalSource(LocalChunkSource localSource) {
+        this.localSource = localSource;
+    }
+
+    public void setTelemetry(TransferObserver telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * @param channel arquivo de destino, aberto para leitura e escrita; o que houver
+     *                depois do início de {@code startChunk} é descartado
+     * @param startChunk primeiro chunk a gravar; os anteriores já estão no destino
+     */
+    public Result download(String url, ChunkManifest manifest, int startChunk,
+                           FileChannel channel, Listener listener) throws IOException {
+        Result result = new Result();
+        List<ChunkManifest.Chunk> chunks = manifest.getChunks();
+        result.committedBytes = startChunk < chunks.size() ? chunks.get(startChunk).getFrom() : manifest.getFileSize();
+
+        this.channel = channel;
+        this.output = Channels.newOutputStream(channel);
+        rewind(result.committedBytes);
+
+        for (int i = startChunk; i < chunks.size(); i++) {
+            if (listener.isStopped()) {
+                return result;
+            }
+
+            ChunkManifest.Chunk chunk = chunks.get(i);
+            boolean written = false;
+            try {
+                written = writeChunk(url, chunk, result, listener);
+            } finally {
+                if (!written) {
+                    // Interrompido ou com erro: o destino volta à fronteira do chunk
+                    rewind(chunk.getFrom());
+                }
+            }
+            if (!written) {
+                return result;
+            }
+
+            result.committedBytes = chunk.getTo() + 1;
+            listener.onProgress(result.committedBytes);
+            listener.onChunkCommitted(i, result.committedBytes);
+        }
+
+        Log.d(TAG, "Chunked download finished: " + result.bytesFromNetwork + " bytes from network, "
+                + result.bytesFromCache + " bytes from cache, " + result.bytesFromLocalSource + " bytes reused locally");
+        result.complete = true;
+        return result;
+    }
+
+    /**
+     * Grava um chunk no destino pelo cache, pela fonte local ou pela rede, nessa ordem
+     * @return false se o download foi interrompido
+     */
+    private boolean writeChunk(String url, ChunkManifest.Chunk chunk, Result result, Listener listener) throws IOException {
+        if (chunkStore.contains(chunk.getMd5(), chunk.getSize())
+                && chunkStore.copyTo(chunk.getMd5(), gameId, output, buffer)) {
+            result.bytesFromCache += chunk.getSize();
+            return true;
+        }
+        if (readLocalChunk(chunk)) {
+            result.bytesFromLocalSource += chunk.getSize();
+            return true;
+        }
+        if (fetchChunk(url, chunk, result.committedBytes, listener)) {
+            result.bytesFromNetwork += chunk.getSize();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tenta gravar o chunk a partir da fonte local, conferindo o MD5.
+     * @return false se a fonte não tiver o chunk (o destino volta ao início dele)
+     */
+    private boolean readLocalChunk(ChunkManifest.Chunk chunk) throws IOException {
+        if (localSource == null) {
+            return false;
+        }
+
+        ChunkWriter writer = new ChunkWriter(chunk);
+        boolean keep = false;
+
+        try {
+            if (localSource.readChunk(chunk, writer, buffer)) {
+                keep = writer.matches(chunk);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Local chunk source failed for chunk " + chunk.getIndex(), e);
+        } finally {
+            writer.finish(keep);
+        }
+
+        if (!keep) {
+            rewind(chunk.getFrom());
+        }
+        return keep;
+    }
+
+    /**
+     * Baixa um chunk direto para o destino e confere o MD5.
+     * @return false se o download foi interrompido
+     */
+    private boolean fetchChunk(String url, ChunkManifest.Chunk chunk, long committedBytes, Listener listener) throws IOException {
+        IOException lastError = null;
+
+        for (int attempt = 1; attempt <= MAX_CHUNK_ATTEMPTS; attempt++) {
+            ChunkWriter writer = new ChunkWriter(chunk);
+            boolean keep = false;
+
+            try {
+                if (telemetry != null) {
+                    telemetry.onRequestStarted(attempt > 1);
+                }
+                if (!fetchTo(resolvedUrl != null ? resolvedUrl : url, chunk, writer, committedBytes, listener)) {
+                    return false;
+                }
+                if (writer.matches(chunk)) {
+                    keep = true;
+                    return true;
+                }
+                lastError = new IOException("Checksum inválido no chunk " + chunk.getIndex());
+                Log.w(TAG, "MD5 mismatch for chunk " + chunk.getIndex() + " (attempt " + attempt + ")");
+            } catch (IOException e) {
+                lastError = e;
+                Log.w(TAG, "Error fetching chunk " + chunk.getIndex() + " (attempt " + attempt + ")", e);
+                // A URL resolvida pode ter expirado; voltar para a URL original
+                resolvedUrl = null;
+            } finally {
+                writer.finish(keep);
+                if (!keep) {
+                    rewind(chunk.getFrom());
+                }
+            }
+        }
+
+        throw lastError;
+    }
+
+    /**
+     * @return false se o download foi interrompido
+     */
+    private boolean fetchTo(String url, ChunkManifest.Chunk chunk, ChunkWriter writer,
+                            long committedBytes, Listener listener) throws IOException {
+        Request request = DownloadRequests.newRangeRequest(url, chunk.getFrom(), chunk.getTo()).build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() != 206) {
+                throw new IOException("HTTP Error: " + response.code() + " - " + response.message());
+            }
+
+            resolvedUrl = response.request().url().toString();
+            if (telemetry != null) {
+                telemetry.onResponse(response.request().url().host());
+            }
+
+            try (InputStream inputStream = response.body().byteStream()) {
+                int bytesRead;
+                while ((bytesRead = inputStream.read(buffer)) != -1) {
+                    if (listener.isStopped()) {
+                        return false;
+                    }
+                    if (telemetry != null) {
+                        telemetry.onBytes(bytesRead);
+                    }
+                    writer.write(buffer, 0, bytesRead);
+                    listener.onProgress(committedBytes + writer.getBytesWritten());
+                }
+            }
+
+            if (writer.getBytesWritten() != chunk.getSize()) {
+                throw new IOException("Chunk incompleto: " + writer.getBytesWritten() + "/" + chunk.getSize() + " bytes");
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Descarta o que foi escrito depois de {@code position}
+     */
+    private void rewind(long position) throws IOException {
+        if (channel.size() > position) {
+            channel.truncate(position);
+        }
+        channel.position(position);
+    }
+
+    /**
+     * Escreve um chunk no destino calculando o MD5 e, se ele couber no cache,
+     * guardando a cópia na mesma passada
+     */
+    private class ChunkWriter extends OutputStream {
+        private final MessageDigest md5 = Hashes.newMd5();
+        private final String hash;
+        private final File cacheFile;
+        private OutputStream cacheStream;
+        private long bytesWritten;
+
+        ChunkWriter(ChunkManifest.Chunk chunk) throws IOException {
+            hash = chunk.getMd5();
+            cacheFile = chunkStore.createTempFileIfRoom(chunk.getSize());
+            if (cacheFile != null) {
+                cacheStream = new FileOutputStream(cacheFile);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            long writeStart = System.nanoTime();
+            output.write(bytes, offset, length);
+            if (telemetry != null) {
+                telemetry.onWrite(System.nanoTime() - writeStart);
+            }
+            if (cacheStream != null) {
+                try {
+                    cacheStream.write(bytes, offset, length);
+                } catch (IOException e) {
+                    // Falha no cache não deve derrubar o download
+                    Log.w(TAG, "Chunk cache write failed, skipping cache copy", e);
+                    closeCacheStream();
+                    cacheFile.delete();
+                    cacheStream = null;
+                }
+            }
+            md5.update(bytes, offset, length);
+            bytesWritten += length;
+        }
+
+        long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        boolean matches(ChunkManifest.Chunk chunk) {
+            return bytesWritten == chunk.getSize() && Hashes.toHex(md5.digest()).equals(chunk.getMd5());
+        }
+
+        /**
+         * Guarda a cópia no cache se o chunk foi aceito; senão a descarta
+         */
+        void finish(boolean keep) {
+            boolean cached = closeCacheStream();
+            if (keep && cached) {
+                chunkStore.commit(hash, cacheFile, gameId);
+            } else if (cacheFile != null) {
+                cacheFile.delete();
+            }
+        }
+
+        /**
+         * @return true se havia uma cópia para o cache e ela foi gravada por inteiro
+         */
+        private boolean closeCacheStream() {
+            if (cacheStream == null) {
+                return false;
+            }
+            try {
+                cacheStream.close();
+                return true;
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing chunk cache file", e);
+                return false;
+            } finally {
+                cacheStream = null;
+            }
+        }
+    }
+}
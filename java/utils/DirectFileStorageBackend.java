@@ -0,0 +1,148 @@
+package com.example.gogdownloader.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.provider.DocumentsContract;
+
+import androidx.documentfile.provider.DocumentFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Acesso direto pelo sistema de arquivos quando o documento do SAF corresponde
+ * a um caminho real que o app pode escrever: pastas do próprio app no
+ * armazenamento externo ou qualquer pasta com acesso a todos os arquivos.
+ * Evita a passagem de cada escrita pelo processo do ExternalStorageProvider.
+ */
+public class DirectFileStorageBackend implements StorageBackend {
+
+    private static final String EXTERNAL_STORAGE_AUTHORITY = "com.android.externalstorage.documents";
+
+    private final Context context;
+    private final PermissionHelper permissionHelper;
+
+    public DirectFileStorageBackend(Context context) {
+        this.context = context;
+        this.permissionHelper = new PermissionHelper(context);
+    }
+
+    /**
+     * Caminho de um documento (ou árvore) do provedor de armazenamento externo,
+     * cujos IDs têm o formato "volume:caminho relativo", ou de um URI file://
+     * @return o caminho, ou null para outros provedores
+     */
+    public static File resolvePath(Uri uri) {
+        if (uri != null && "file".equals(uri.getScheme()) && uri.getPath() != null) {
+            return new File(uri.getPath());
+        }
+        if (uri == null || !EXTERNAL_STORAGE_AUTHORITY.equals(uri.getAuthority())) {
+            return null;
+        }
+
+        String documentId;
+        try {
+            documentId = DocumentsContract.getDocumentId(uri);
+        } catch (IllegalArgumentException e) {
+            try {
+                documentId = DocumentsContract.getTreeDocumentId(uri);
+            } catch (IllegalArgumentException e2) {
+                return null;
+            }
+        }
+
+        int separator = documentId.indexOf(':');
+        String volumeId = separator >= 0 ? documentId.substring(0, separator) : documentId;
+        String relativePath = separator >= 0 ? documentId.substring(separator + 1) : "";
+
+        File volume = "primary".equalsIgnoreCase(volumeId)
+                ? Environment.getExternalStorageDirectory()
+                : new File("/storage/" + volumeId);
+        return relativePath.isEmpty() ? volume : new File(volume, relativePath);
+    }
+
+    /**
+     * Verifica se o arquivo pode ser acessado diretamente
+     */
+    public boolean canAccess(DocumentFile file) {
+        File path = resolvePath(file.getUri());
+        if (path == null || !isAccessAllowed(path)) {
+            return false;
+        }
+        File parent = path.getParentFile();
+        return path.exists() ? path.canWrite() : parent != null && parent.canWrite();
+    }
+
+    /**
+     * Fora das pastas do app, só com permissão ampla e sem armazenamento isolado
+     */
+    private boolean isAccessAllowed(File path) {
+        if (path.getAbsolutePath().startsWith(context.getFilesDir().getParentFile().getAbsolutePath())) {
+            return true;
+        }
+        for (File appDir : context.getExternalFilesDirs(null)) {
+            if (appDir != null && path.getAbsolutePath().startsWith(appDir.getParentFile().getAbsolutePath())) {
+                return true;
+            }
+        }
+
+        if (!permissionHelper.hasStoragePermissions()) {
+            return false;
+        }
+        return Build.VERSION.SDK_INT != Build.VERSION_CODES.Q || Environment.isExternalStorageLegacy();
+    }
+
+    @Override
+    public String getName() {
+        return "Direto";
+    }
+
+    @Override
+    public OutputStream openOutputStream(DocumentFile file, boolean append) throws IOException {
+        FileChannel channel = new RandomAccessFile(getPath(file), "rw").getChannel();
+        if (append) {
+            channel.position(channel.size());
+        } else {
+            channel.truncate(0);
+        }
+        return Channels.newOutputStream(channel);
+    }
+
+    @Override
+    public InputStream openInputStream(DocumentFile file) throws IOException {
+        return new FileInputStream(getPath(file));
+    }
+
+    @Override
+    public FileChannel openReadChannel(DocumentFile file) throws IOException {
+        return new FileInputStream(getPath(file)).getChannel();
+    }
+
+    @Override
+    public FileChannel openWriteChannel(DocumentFile file) throws IOException {
+        return new RandomAccessFile(getPath(file), "rw").getChannel();
+    }
+
+    @Override
+    public void truncate(DocumentFile file, long size) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(getPath(file), "rw")) {
+            randomAccessFile.getChannel().truncate(size);
+        }
+    }
+
+    private static File getPath(DocumentFile file) throws IOException {
+        File path = resolvePath(file.getUri());
+        if (path == null) {
+            throw new IOException("No filesystem path for " + file.getUri());
+        }
+        return path;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.gogdownloader.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.gogdownloader.core.Hashes;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache em disco dos bytes das imagens (capas e avatares), como vieram da rede.
+ * Cada URL vira um arquivo .img com a imagem e um .meta com os validadores HTTP
+ * (ETag/Last-Modified) e a hora da última validação. O índice LRU fica em
+ * memória e é reconstruído na primeira leitura listando a pasta, ordenada pela
+ * data de modificação, que é atualizada a cada acerto.
+ */
+public class DiskImageCache {
+
+    private static final String TAG = "DiskImageCache";
+    private static final String IMAGES_DIR = "images";
+    private static final String DATA_SUFFIX = ".img";
+    private static final String META_SUFFIX = ".meta";
+    private static final long MAX_SIZE = 100L * 1024 * 1024; // 100MB
+    private static final long MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000; // revalidar depois de 7 dias
+
+    private static DiskImageCache instance;
+
+    public static class Entry {
+        private final File file;
+        private final String etag;
+        private final String lastModified;
+        private final long validatedAt;
+
+        Entry(File file, String etag, String lastModified, long validatedAt) {
+            this.file = file;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.validatedAt = validatedAt;
+        }
+
+        public File getFile() { return file; }
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+
+        /**
+         * Precisa de uma requisição condicional antes de ser considerada atual
+         */
+        public boolean isStale() {
+            return System.currentTimeMillis() - validatedAt > MAX_AGE_MS;
+        }
+    }
+
+    private final File imagesDir;
+    // Chave -> tamanho em bytes, do menos para o mais recentemente usado
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalSize;
+    private boolean indexed;
+
+    private DiskImageCache(Context context) {
+        // cacheDir: o sistema pode apagar quando faltar espaço, e tudo bem
+        imagesDir = new File(context.getCacheDir(), IMAGES_DIR);
+    }
+
+    public static synchronized DiskImageCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new DiskImageCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Entrada da URL, ou null se não estiver no cache. Conta como uso para o LRU
+     */
+    public Entry get(String url) {
+        String key = keyFor(url);
+        File dataFile;
+        synchronized (this) {
+            ensureIndexed();
+            if (index.get(key) == null) {
+                return null;
+            }
+            dataFile = new File(imagesDir, key + DATA_SUFFIX);
+        }
+
+        // Guardar a recência para a próxima reconstrução do índice
+        dataFile.setLastModified(System.currentTimeMillis());
+        return readEntry(key, dataFile);
+    }
+
+    /**
+     * Grava a imagem baixada, substituindo a anterior da mesma URL
+     * @return arquivo com os bytes, ou null se não foi possível gravar
+     */
+    public File put(String url, byte[] data, String etag, String lastModified) {
+        String key = keyFor(url);
+        File dataFile = new File(imagesDir, key + DATA_SUFFIX);
+        File tempFile = new File(imagesDir, key + ".tmp" + Thread.currentThread().getId());
+
+        try {
+            synchronized (this) {
+                ensureIndexed();
+            }
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                out.write(data);
+            }
+            writeMeta(key, etag, lastModified);
+
+            synchronized (this) {
+                if (!tempFile.renameTo(dataFile)) {
+                    throw new IOException("rename failed");
+                }
+                Long previous = index.put(key, (long) data.length);
+                totalSize += data.length - (previous != null ? previous : 0);
+                trimToSize(MAX_SIZE);
+            }
+            return dataFile;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to store image for " + url, e);
+            tempFile.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Servidor respondeu 304: a cópia local continua valendo
+     */
+    public void markValidated(String url, String etag, String lastModified) {
+        try {
+            writeMeta(keyFor(url), etag, lastModified);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to update image metadata for " + url, e);
+        }
+    }
+
+    /**
+     * Descarta uma entrada que não pôde ser decodificada
+     */
+    public synchronized void remove(String url) {
+        String key = keyFor(url);
+        Long size = index.remove(key);
+        if (size != null) {
+            totalSize -= size;
+        }
+        deleteFiles(key);
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+        File[] files = imagesDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    public synchronized long getSize() {
+        ensureIndexed();
+        return totalSize;
+    }
+
+    private void trimToSize(long maxBytes) {
+        Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while (totalSize > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalSize -= eldest.getValue();
+            deleteFiles(eldest.getKey());
+        }
+    }
+
+    /**
+     * Monta o índice a partir da pasta: só nomes, tamanhos e datas, sem abrir os arquivos
+     */
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        indexed = true;
+
+        if (!imagesDir.exists() && !imagesDir.mkdirs()) {
+            Log.w(TAG, "Could not create image cache directory");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        File[] files = imagesDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        File[] dataFiles = new File[files.length];
+        long[] modified = new long[files.length];
+        int count = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(DATA_SUFFIX)) {
+                dataFiles[count] = file;
+                modified[count] = file.lastModified();
+                count++;
+            } else if (!name.endsWith(META_SUFFIX)) {
+                file.delete(); // temporário de uma gravação interrompida
+            }
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(modified[a], modified[b]));
+
+        for (int i : order) {
+            String name = dataFiles[i].getName();
+            long size = dataFiles[i].length();
+            index.put(name.substring(0, name.length() - DATA_SUFFIX.length()), size);
+            totalSize += size;
+        }
+        trimToSize(MAX_SIZE);
+
+        AppLog.d(TAG, "Indexed " + index.size() + " cached images (" + totalSize + " bytes) in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private Entry readEntry(String key, File dataFile) {
+        File metaFile = new File(imagesDir, key + META_SUFFIX);
+        try (DataInputStream in = new DataInputStream(new FileInputStream(metaFile))) {
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            long validatedAt = in.readLong();
+            return new Entry(dataFile, etag.isEmpty() ? null : etag,
+                    lastModified.isEmpty() ? null : lastModified, validatedAt);
+        } catch (IOException e) {
+            // Sem metadados: usar a imagem, mas revalidar já
+            return new Entry(dataFile, null, null, 0);
+        }
+    }
+
+    private void writeMeta(String key, String etag, String lastModified) throws IOException {
+        File metaFile = new File(imagesDir, key + META_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(metaFile))) {
+            out.writeUTF(etag != null ? etag : "");
+            out.writeUTF(lastModified != null ? lastModified : "");
+            out.writeLong(System.currentTimeMillis());
+        }
+    }
+
+    private void deleteFiles(String key) {
+        new File(imagesDir, key + DATA_SUFFIX).delete();
+        new File(imagesDir, key + META_SUFFIX).delete();
+    }
+
+    private static String keyFor(String url) {
+        return Hashes.toHex(Hashes.newMd5().digest(url.getBytes(StandardCharsets.UTF_8)));
+    }
+}
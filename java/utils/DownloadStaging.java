@@ -0,0 +1,157 @@
+package com.example.gogdownloader.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.StatFs;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Área de preparação dos downloads no armazenamento privado do app.
+ * Os arquivos são baixados aqui com acesso direto e só vão para a pasta do
+ * usuário quando estiverem completos; parciais ficam guardados entre falhas.
+ * Sempre que possível usa o mesmo volume da pasta de destino, para que a
+ * publicação seja um rename em vez de uma cópia.
+ */
+public class DownloadStaging {
+
+    private static final String TAG = "DownloadStaging";
+    private static final String STAGING_DIR = "staging";
+
+    private final Context context;
+    private final PreferencesManager preferencesManager;
+
+    public DownloadStaging(Context context) {
+        this.context = context;
+        this.preferencesManager = new PreferencesManager(context);
+    }
+
+    /**
+     * Arquivo de preparação de um download (criado vazio se ainda não existir)
+     */
+    public File getStagingFile(long gameId, String fileName) throws IOException {
+        File gameDir = new File(getStagingRoot(), String.valueOf(gameId));
+        if (!gameDir.exists() && !gameDir.mkdirs()) {
+            throw new IOException("Não foi possível criar a área de preparação: " + gameDir);
+        }
+
+        File file = new File(gameDir, fileName);
+        if (!file.exists() && !file.createNewFile()) {
+            throw new IOException("Não foi possível criar o arquivo de preparação: " + file);
+        }
+        return file;
+    }
+
+    /**
+     * Bytes já preparados de um download (0 se não houver parcial)
+     */
+    public long getStagedBytes(long gameId, String fileName) {
+        return new File(new File(getStagingRoot(), String.valueOf(gameId)), fileName).length();
+    }
+
+    /**
+     * Apaga os downloads preparados de um jogo (download cancelado)
+     */
+    public void discardGame(long gameId) {
+        for (File root : getCandidateRoots()) {
+            File gameDir = new File(root, String.valueOf(gameId));
+            File[] files = gameDir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (!file.delete()) {
+                    Log.w(TAG, "Failed to delete staged file: " + file);
+                }
+            }
+            gameDir.delete();
+        }
+    }
+
+    /**
+     * Espaço livre na área de preparação quando ela não está no volume do destino
+     * (o download ocupa os dois até ser publicado)
+     * @return bytes livres, ou -1 se estiver no mesmo volume do destino ou não puder ser medido
+     */
+    public long getAvailableBytes() {
+        if (findDestinationRoot() != null) {
+            return -1;
+        }
+
+        File root = getCandidateRoots()[0];
+        if (!root.exists() && !root.mkdirs()) {
+            return -1;
+        }
+        try {
+            return new StatFs(root.getPath()).getAvailableBytes();
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Cannot stat staging volume: " + root, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Pasta privada no mesmo volume do destino; sem correspondência, a do volume principal
+     */
+    private File getStagingRoot() {
+        File root = findDestinationRoot();
+        return root != null ? root : getCandidateRoots()[0];
+    }
+
+    /**
+     * Pasta privada no volume da pasta de destino, ou null se nenhuma estiver nele
+     */
+    private File findDestinationRoot() {
+        String uriString = preferencesManager.getDownloadUri();
+        if (uriString == null || uriString.isEmpty()) {
+            return null;
+        }
+        File target = DirectFileStorageBackend.resolvePath(Uri.parse(uriString));
+        if (target == null) {
+            return null;
+        }
+
+        for (File root : getCandidateRoots()) {
+            String volumePath = getVolumePath(root);
+            if (volumePath != null && target.getAbsolutePath().startsWith(volumePath)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private File[] getCandidateRoots() {
+        File[] appDirs = context.getExternalFilesDirs(STAGING_DIR);
+        int count = 0;
+        for (File appDir : appDirs) {
+            if (appDir != null) {
+                count++;
+            }
+        }
+
+        // Sem armazenamento externo montado: usar o armazenamento interno do app
+        if (count == 0) {
+            return new File[]{new File(context.getFilesDir(), STAGING_DIR)};
+        }
+
+        File[] roots = new File[count];
+        int index = 0;
+        for (File appDir : appDirs) {
+            if (appDir != null) {
+                roots[index++] = appDir;
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Raiz do volume de uma pasta do app ("/storage/XXXX-XXXX/Android/data/..." -> "/storage/XXXX-XXXX/")
+     */
+    private static String getVolumePath(File appDir) {
+        String path = appDir.getAbsolutePath();
+        int androidIndex = path.indexOf("/Android/");
+        return androidIndex > 0 ? path.substring(0, androidIndex + 1) : null;
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.gogdownloader.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import com.example.gogdownloader.core.TransferObserver;
+import com.example.gogdownloader.database.DatabaseHelper;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Telemetria dos downloads: vazão por segundo, tempo até o primeiro byte,
+ * travamentos, novas tentativas, host da CDN e latência de gravação.
+ * As amostras entram num buffer circular de tamanho fixo e são gravadas no
+ * banco em lotes, numa thread própria; se o banco atrasar, as amostras mais
+ * antigas ainda não gravadas são descartadas em vez de crescer a memória.
+ */
+public class DownloadTelemetry {
+
+    private static final String TAG = "DownloadTelemetry";
+    private static final int BUFFER_CAPACITY = 1024;
+    private static final int FLUSH_THRESHOLD = 128;
+    private static final long STALL_THRESHOLD_MS = 3000;
+    private static final long MIN_PARTIAL_SECOND_MS = 200;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    public static final String TYPE_THROUGHPUT = "THROUGHPUT";       // bytes/s em cada segundo
+    public static final String TYPE_TTFB = "TTFB";                   // ms até o primeiro byte
+    public static final String TYPE_STALL = "STALL";                 // ms sem receber dados
+    public static final String TYPE_RETRY = "RETRY";                 // número da nova tentativa
+    public static final String TYPE_WRITE_LATENCY = "WRITE_LATENCY"; // µs médios por gravação no segundo
+
+    public enum ExportFormat { JSON, CSV }
+
+    private static DownloadTelemetry instance;
+
+    private static class Sample {
+        long transferId;
+        long gameId;
+        String fileName;
+        String host;
+        String type;
+        long value;
+        long recordedAt;
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final Sample[] buffer = new Sample[BUFFER_CAPACITY];
+    private int head = 0;  // próxima amostra a gravar
+    private int size = 0;
+    private long droppedSamples = 0;
+    private boolean flushScheduled = false;
+
+    public static synchronized DownloadTelemetry getInstance(Context context) {
+        if (instance == null) {
+            instance = new DownloadTelemetry(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DownloadTelemetry(Context context) {
+        this.databaseHelper = new DatabaseHelper(context);
+    }
+
+    /**
+     * Inicia a medição da transferência de um arquivo
+     */
+    public Transfer startTransfer(long gameId, String fileName) {
+        return new Transfer(gameId, fileName);
+    }
+
+    /**
+     * Grava no banco as amostras pendentes (em segundo plano)
+     */
+    public synchronized void flush() {
+        if (size == 0 || flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        writer.execute(this::writePending);
+    }
+
+    /**
+     * Grava as amostras pendentes e espera terminar. Bloqueante: chamar fora da thread principal
+     */
+    public void flushNow() throws IOException {
+        try {
+            writer.submit(this::writePending).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Falha ao gravar amostras pendentes", e);
+        }
+    }
+
+    /**
+     * Exporta todas as amostras gravadas. Bloqueante: chamar fora da thread principal
+     */
+    public void export(ExportFormat format, OutputStream outputStream) throws IOException {
+        // Gravar primeiro o que ainda está no buffer
+        flushNow();
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+        out.write(format == ExportFormat.JSON ? "[" : "id,transfer_id,game_id,file_name,host,type,value,recorded_at\n");
+
+        long lastId = 0;
+        boolean first = true;
+        List<ContentValues> page;
+        while (!(page = databaseHelper.getTelemetrySamples(lastId, EXPORT_PAGE_SIZE)).isEmpty()) {
+            for (ContentValues sample : page) {
+                if (format == ExportFormat.JSON) {
+                    out.write(first ? "\n" : ",\n");
+                    out.write(toJson(sample));
+                } else {
+                    out.write(toCsv(sample));
+                    out.write('\n');
+                }
+                first = false;
+                lastId = sample.getAsLong("id");
+            }
+        }
+
+        if (format == ExportFormat.JSON) {
+            out.write("\n]\n");
+        }
+        out.flush();
+    }
+
+    private static String toJson(ContentValues sample) throws IOException {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("id", sample.getAsLong("id"));
+            json.put("transfer_id", sample.getAsLong("transfer_id"));
+            json.put("game_id", sample.getAsLong("game_id"));
+            json.put("file_name", sample.getAsString("file_name"));
+            json.put("host", sample.getAsString("host"));
+            json.put("type", sample.getAsString("type"));
+            json.put("value", sample.getAsLong("value"));
+            json.put("recorded_at", sample.getAsLong("recorded_at"));
+            return json.toString();
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String toCsv(ContentValues sample) {
+        return sample.getAsLong("id") + "," + sample.getAsLong("transfer_id") + "," + sample.getAsLong("game_id") + ","
+                + csvField(sample.getAsString("file_name")) + "," + csvField(sample.getAsString("host")) + ","
+                + sample.getAsString("type") + "," + sample.getAsLong("value") + "," + sample.getAsLong("recorded_at");
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Apaga as amostras do buffer e do banco. Bloqueante: chamar fora da thread principal
+     */
+    public void clear() throws IOException {
+        synchronized (this) {
+            while (size > 0) {
+                buffer[head] = null;
+                head = (head + 1) % BUFFER_CAPACITY;
+                size--;
+            }
+        }
+        try {
+            writer.submit(databaseHelper::clearTelemetry).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Falha ao apagar a telemetria", e);
+        }
+    }
+
+    private synchronized void record(Transfer transfer, String type, long value) {
+        Sample sample = new Sample();
+        sample.transferId = transfer.transferId;
+        sample.gameId = transfer.gameId;
+        sample.fileName = transfer.fileName;
+        sample.host = transfer.host;
+        sample.type = type;
+        sample.value = value;
+        sample.recordedAt = System.currentTimeMillis();
+
+        if (size == BUFFER_CAPACITY) {
+            // Buffer cheio: sobrescrever a amostra mais antiga
+            head = (head + 1) % BUFFER_CAPACITY;
+            size--;
+            droppedSamples++;
+        }
+        buffer[(head + size) % BUFFER_CAPACITY] = sample;
+        size++;
+
+        if (size >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    private void writePending() {
+        List<ContentValues> rows = new ArrayList<>();
+        long dropped;
+        synchronized (this) {
+            while (size > 0) {
+                Sample sample = buffer[head];
+                buffer[head] = null;
+                head = (head + 1) % BUFFER_CAPACITY;
+                size--;
+
+                ContentValues values = new ContentValues();
+                values.put("transfer_id", sample.transferId);
+                values.put("game_id", sample.gameId);
+                values.put("file_name", sample.fileName);
+                values.put("host", sample.host);
+                values.put("type", sample.type);
+                values.put("value", sample.value);
+                values.put("recorded_at", sample.recordedAt);
+                rows.add(values);
+            }
+            dropped = droppedSamples;
+            droppedSamples = 0;
+            flushScheduled = false;
+        }
+
+        if (dropped > 0) {
+            Log.w(TAG, "Telemetry buffer overflow, dropped " + dropped + " samples");
+        }
+        try {
+            databaseHelper.insertTelemetrySamples(rows);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to store telemetry samples", e);
+        }
+    }
+
+    /**
+     * Medição de uma transferência. Usada só pela thread que faz o download,
+     * então os contadores não precisam de sincronização.
+     */
+    public class Transfer implements TransferObserver {
+        private final long transferId = System.currentTimeMillis();
+        private final long gameId;
+        private final String fileName;
+        private String host;
+
+        private long requestStartTime;
+        private boolean awaitingFirstByte;
+        private int attempt;
+
+        private long secondStartTime;
+        private long lastBytesTime;
+        private long secondBytes;
+        private long secondWriteNanos;
+        private int secondWrites;
+
+        Transfer(long gameId, String fileName) {
+            this.gameId = gameId;
+            this.fileName = fileName;
+        }
+
+        /**
+         * Antes de cada requisição; a partir da segunda, registra nova tentativa
+         * @param retry se a requisição repete uma que falhou
+         */
+        @Override
+        public void onRequestStarted(boolean retry) {
+            if (retry) {
+                attempt++;
+                record(this, TYPE_RETRY, attempt);
+            }
+            requestStartTime = System.currentTimeMillis();
+            awaitingFirstByte = true;
+            lastBytesTime = 0; // espera pela resposta conta como TTFB, não travamento
+        }
+
+        /**
+         * Host que respondeu, depois dos redirects (CDN)
+         */
+        @Override
+        public void onResponse(String host) {
+            this.host = host;
+        }
+
+        /**
+         * Bytes recebidos numa leitura da rede
+         */
+        @Override
+        public void onBytes(long bytes) {
+            long now = System.currentTimeMillis();
+            if (awaitingFirstByte) {
+                awaitingFirstByte = false;
+                record(this, TYPE_TTFB, now - requestStartTime);
+            } else if (lastBytesTime > 0 && now - lastBytesTime >= STALL_THRESHOLD_MS) {
+                record(this, TYPE_STALL, now - lastBytesTime);
+            }
+            lastBytesTime = now;
+
+            if (secondStartTime == 0) {
+                secondStartTime = now;
+            } else if (now - secondStartTime >= 1000) {
+                emitSecond(now);
+                secondStartTime = now;
+            }
+            secondBytes += bytes;
+        }
+
+        /**
+         * Tempo gasto numa gravação no destino
+         */
+        @Override
+        public void onWrite(long elapsedNanos) {
+            secondWriteNanos += elapsedNanos;
+            secondWrites++;
+        }
+
+        /**
+         * Fim da transferência (concluída, pausada ou com erro)
+         */
+        public void finish() {
+            long now = System.currentTimeMillis();
+            if (secondStartTime > 0 && now - secondStartTime >= MIN_PARTIAL_SECOND_MS) {
+                emitSecond(now);
+            }
+            secondStartTime = 0;
+            TraceBuffer.record("download", "transfer_end", gameId, fileName);
+            flush();
+        }
+
+        private void emitSecond(long now) {
+            long elapsed = now - secondStartTime;
+            record(this, TYPE_THROUGHPUT, secondBytes * 1000 / Math.max(1, elapsed));
+            if (secondWrites > 0) {
+                record(this, TYPE_WRITE_LATENCY, secondWriteNanos / secondWrites / 1000);
+            }
+            secondBytes = 0;
+            secondWriteNanos = 0;
+            secondWrites = 0;
+        }
+    }
+}
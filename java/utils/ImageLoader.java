@@ -5,27 +5,42 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 import android.util.LruCache;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import com.example.gogdownloader.R;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class ImageLoader {
     
     private static final String TAG = "ImageLoader";
     private static final int CACHE_SIZE = 20 * 1024 * 1024; // 20MB
+    private static final int POOL_SIZE = 8 * 1024 * 1024; // 8MB de bitmaps reaproveitáveis
+    private static final int DEFAULT_TARGET_SIZE = 300; // view ainda sem tamanho (ex.: pré-carregamento)
     
     private static ImageLoader instance;
     private LruCache<String, Bitmap> memoryCache;
-    private ExecutorService executorService;
+    private DiskImageCache diskCache;
+    private final BitmapPool bitmapPool = new BitmapPool(POOL_SIZE);
+    // Bitmap que cada view está exibindo; acessado só na thread principal
+    private final Map<ImageView, Bitmap> displayed = new WeakHashMap<>();
+    // Carregamentos em andamento ou na fila, por URL
+    private final Map<String, Job> inFlight = new HashMap<>();
+    private ThreadPoolExecutor executorService;
     private Handler mainHandler;
     
     private ImageLoader() {
@@ -33,11 +48,20 @@ public class ImageLoader {
         memoryCache = new LruCache<String, Bitmap>(CACHE_SIZE) {
             @Override
             protected int sizeOf(String key, Bitmap bitmap) {
-                return bitmap.getByteCount();
+                // Um bitmap reaproveitado pode ter mais memória que os pixels atuais
+                return bitmap.getAllocationByteCount();
+            }
+            
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    bitmapPool.onEvicted(oldValue);
+                }
             }
         };
         
-        executorService = Executors.newFixedThreadPool(4);
+        // LIFO: as linhas que acabaram de aparecer na tela carregam antes das que já passaram
+        executorService = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS, new LifoQueue());
         mainHandler = new Handler(Looper.getMainLooper());
     }
     
@@ -57,71 +81,284 @@ public class ImageLoader {
     }
     
     public void load(Context context, String coverImageUrl, String backgroundImageUrl, ImageView imageView) {
-        Log.d(TAG, "=== LOADING IMAGE ===");
-        Log.d(TAG, "Cover URL: '" + coverImageUrl + "'");
-        Log.d(TAG, "Background URL: '" + backgroundImageUrl + "'");
-
+        // A view pode ter sido reciclada: o pedido anterior não vale mais
+        cancel(imageView);
+        
         if (coverImageUrl == null || coverImageUrl.isEmpty()) {
             if (backgroundImageUrl != null && !backgroundImageUrl.isEmpty()) {
                 load(context, backgroundImageUrl, null, imageView);
             } else {
-                Log.w(TAG, "Image URLs are empty, using placeholder");
-                imageView.setImageResource(android.R.drawable.ic_menu_gallery);
+                AppLog.d(TAG, "Image URLs are empty, using placeholder");
+                showPlaceholder(imageView);
             }
             return;
         }
         
+        if (diskCache == null) {
+            diskCache = DiskImageCache.getInstance(context);
+        }
+        
         // Verificar cache primeiro
-        Bitmap cachedBitmap = memoryCache.get(coverImageUrl);
+        Bitmap cachedBitmap;
+        synchronized (bitmapPool) {
+            // Reter junto com a leitura: o bitmap não pode ir para o pool entre as duas
+            cachedBitmap = memoryCache.get(coverImageUrl);
+            if (cachedBitmap != null) {
+                bitmapPool.retain(cachedBitmap);
+            }
+        }
         if (cachedBitmap != null) {
-            Log.d(TAG, "Image found in cache: " + coverImageUrl);
-            imageView.setImageBitmap(cachedBitmap);
+            TraceBuffer.record("image", "cache_hit", cachedBitmap.getAllocationByteCount());
+            display(imageView, cachedBitmap);
             return;
         }
         
         // Definir placeholder enquanto carrega
-        Log.d(TAG, "Setting placeholder for: " + coverImageUrl);
-        imageView.setImageResource(android.R.drawable.ic_menu_gallery);
+        showPlaceholder(imageView);
+        
+        Request request = new Request(context, coverImageUrl, backgroundImageUrl, imageView);
+        imageView.setTag(R.id.image_request, request);
+        
+        synchronized (inFlight) {
+            // Mesma URL já sendo carregada para outra view: só esperar o resultado
+            Job job = inFlight.get(coverImageUrl);
+            if (job != null) {
+                job.requests.add(request);
+                TraceBuffer.record("image", "deduplicated", 0);
+                return;
+            }
+            job = new Job(coverImageUrl,
+                    targetSize(imageView.getWidth(), imageView.getLayoutParams(), true),
+                    targetSize(imageView.getHeight(), imageView.getLayoutParams(), false));
+            job.requests.add(request);
+            inFlight.put(coverImageUrl, job);
+            // Carregar imagem em background
+            executorService.execute(job);
+        }
+    }
+    
+    /**
+     * Cancela o pedido pendente da view, se houver. Um carregamento que ninguém
+     * mais espera e ainda não começou sai da fila; um já em andamento termina e
+     * fica nos caches, mas não é exibido.
+     */
+    public void cancel(ImageView imageView) {
+        Object tag = imageView.getTag(R.id.image_request);
+        if (!(tag instanceof Request)) {
+            return;
+        }
+        imageView.setTag(R.id.image_request, null);
+        Request request = (Request) tag;
+        request.cancelled = true;
+        
+        synchronized (inFlight) {
+            Job job = inFlight.get(request.url);
+            if (job != null && job.requests.remove(request) && job.requests.isEmpty()
+                    && executorService.remove(job)) {
+                inFlight.remove(request.url);
+                TraceBuffer.record("image", "cancelled", 0);
+            }
+        }
+    }
+    
+    /**
+     * Cancela o pedido e solta o bitmap exibido, para a view sair da tela sem segurar memória
+     */
+    public void clear(ImageView imageView) {
+        cancel(imageView);
+        showPlaceholder(imageView);
+    }
+    
+    private static class Request {
+        final Context context;
+        final String url;
+        final String fallbackUrl;
+        final ImageView imageView;
+        volatile boolean cancelled;
         
-        // Carregar imagem em background
-        Log.d(TAG, "Starting background download for: " + coverImageUrl);
-        executorService.execute(() -> {
+        Request(Context context, String url, String fallbackUrl, ImageView imageView) {
+            this.context = context;
+            this.url = url;
+            this.fallbackUrl = fallbackUrl;
+            this.imageView = imageView;
+        }
+    }
+    
+    /**
+     * Um carregamento por URL, entregue a todas as views que pediram
+     */
+    private class Job implements Runnable {
+        final String url;
+        final int targetWidth;
+        final int targetHeight;
+        // Protegida por inFlight
+        final List<Request> requests = new ArrayList<>();
+        
+        Job(String url, int targetWidth, int targetHeight) {
+            this.url = url;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+        }
+        
+        @Override
+        public void run() {
+            Bitmap bitmap = null;
             try {
-                Log.d(TAG, "Downloading bitmap: " + coverImageUrl);
-                Bitmap bitmap = downloadBitmap(coverImageUrl);
+                long start = System.nanoTime();
+                bitmap = loadBitmap(url, targetWidth, targetHeight);
                 if (bitmap != null) {
-                    Log.d(TAG, "Bitmap downloaded successfully: " + coverImageUrl);
+                    TraceBuffer.record("image", "loaded_ms", (System.nanoTime() - start) / 1000000);
+                    // Reter antes de entrar no cache, para uma remoção imediata não reciclá-lo
+                    bitmapPool.retain(bitmap);
                     // Adicionar ao cache
-                    memoryCache.put(coverImageUrl, bitmap);
-                    
-                    // Atualizar UI na thread principal
-                    mainHandler.post(() -> {
-                        Log.d(TAG, "Setting bitmap to ImageView: " + coverImageUrl);
-                        imageView.setImageBitmap(bitmap);
-                    });
+                    memoryCache.put(url, bitmap);
                 } else {
-                    Log.e(TAG, "Failed to download bitmap: " + coverImageUrl);
-                    if (backgroundImageUrl != null && !backgroundImageUrl.isEmpty()) {
-                        load(context, backgroundImageUrl, null, imageView);
-                    }
+                    TraceBuffer.record("image", "failed", 0);
+                    AppLog.w(TAG, "Failed to download bitmap: " + url);
                 }
             } catch (Exception e) {
-                Log.e(TAG, "Error loading image: " + coverImageUrl, e);
-                if (backgroundImageUrl != null && !backgroundImageUrl.isEmpty()) {
-                    load(context, backgroundImageUrl, null, imageView);
+                AppLog.e(TAG, "Error loading image: " + url, e);
+            }
+            
+            List<Request> waiting;
+            synchronized (inFlight) {
+                inFlight.remove(url);
+                waiting = new ArrayList<>(requests);
+            }
+            
+            Bitmap result = bitmap;
+            // Atualizar UI na thread principal
+            mainHandler.post(() -> deliver(result, waiting));
+        }
+    }
+    
+    private void deliver(Bitmap bitmap, List<Request> waiting) {
+        for (Request request : waiting) {
+            // A view pode estar mostrando outro jogo agora
+            if (request.cancelled || request.imageView.getTag(R.id.image_request) != request) {
+                continue;
+            }
+            request.imageView.setTag(R.id.image_request, null);
+            if (bitmap != null) {
+                bitmapPool.retain(bitmap);
+                display(request.imageView, bitmap);
+            } else if (request.fallbackUrl != null && !request.fallbackUrl.isEmpty()) {
+                load(request.context, request.fallbackUrl, null, request.imageView);
+            }
+        }
+        if (bitmap != null) {
+            // Retenção do carregamento; as views seguram as suas
+            bitmapPool.release(bitmap);
+        }
+    }
+    
+    /**
+     * Exibe um bitmap já retido, soltando o que a view mostrava antes
+     */
+    private void display(ImageView imageView, Bitmap bitmap) {
+        imageView.setImageBitmap(bitmap);
+        Bitmap previous = displayed.put(imageView, bitmap);
+        if (previous != null) {
+            bitmapPool.release(previous);
+        }
+    }
+    
+    private void showPlaceholder(ImageView imageView) {
+        imageView.setImageResource(android.R.drawable.ic_menu_gallery);
+        Bitmap previous = displayed.remove(imageView);
+        if (previous != null) {
+            bitmapPool.release(previous);
+        }
+    }
+    
+    /**
+     * Tamanho da view para decodificar; antes do layout, usa o dos LayoutParams
+     */
+    private static int targetSize(int measured, ViewGroup.LayoutParams params, boolean width) {
+        if (measured > 0) {
+            return measured;
+        }
+        if (params != null) {
+            int size = width ? params.width : params.height;
+            if (size > 0) {
+                return size;
+            }
+        }
+        return DEFAULT_TARGET_SIZE;
+    }
+    
+    /**
+     * Carrega do cache em disco ou, se não houver, da rede (gravando no disco).
+     * Entradas antigas são exibidas na hora e revalidadas em segundo plano.
+     */
+    private Bitmap loadBitmap(String imageUrl, int targetWidth, int targetHeight) {
+        DiskImageCache.Entry entry = diskCache != null ? diskCache.get(imageUrl) : null;
+        if (entry != null) {
+            String path = entry.getFile().getPath();
+            Bitmap bitmap = decodeSampled(options -> BitmapFactory.decodeFile(path, options),
+                    targetWidth, targetHeight);
+            if (bitmap != null) {
+                TraceBuffer.record("image", "disk_hit", entry.getFile().length());
+                if (entry.isStale()) {
+                    executorService.execute(() -> revalidate(imageUrl, entry, targetWidth, targetHeight));
                 }
+                return bitmap;
+            }
+            AppLog.w(TAG, "Discarding undecodable cached image: " + imageUrl);
+            diskCache.remove(imageUrl);
+        }
+        
+        FetchResult result = fetch(imageUrl, null);
+        if (result == null || result.data == null) {
+            return null;
+        }
+        if (diskCache != null) {
+            diskCache.put(imageUrl, result.data, result.etag, result.lastModified);
+        }
+        
+        Bitmap bitmap = decodeBytes(result.data, targetWidth, targetHeight);
+        if (bitmap == null) {
+            AppLog.w(TAG, "Failed to decode bitmap from stream");
+        }
+        return bitmap;
+    }
+    
+    /**
+     * Requisição condicional para uma entrada antiga do disco
+     */
+    private void revalidate(String imageUrl, DiskImageCache.Entry entry, int targetWidth, int targetHeight) {
+        FetchResult result = fetch(imageUrl, entry);
+        if (result == null) {
+            return;
+        }
+        if (result.notModified) {
+            TraceBuffer.record("image", "not_modified", 0);
+            diskCache.markValidated(imageUrl, result.etag != null ? result.etag : entry.getEtag(),
+                    result.lastModified != null ? result.lastModified : entry.getLastModified());
+        } else if (result.data != null) {
+            diskCache.put(imageUrl, result.data, result.etag, result.lastModified);
+            Bitmap bitmap = decodeBytes(result.data, targetWidth, targetHeight);
+            if (bitmap != null) {
+                memoryCache.put(imageUrl, bitmap);
             }
-        });
+        }
     }
     
-    private Bitmap downloadBitmap(String imageUrl) {
+    private static class FetchResult {
+        byte[] data;
+        String etag;
+        String lastModified;
+        boolean notModified;
+    }
+    
+    /**
+     * Baixa os bytes da imagem; com {@code cached}, envia os validadores dela
+     * @return null em caso de erro
+     */
+    private FetchResult fetch(String imageUrl, DiskImageCache.Entry cached) {
         HttpURLConnection connection = null;
-        InputStream inputStream = null;
         
         try {
-            Log.d(TAG, "=== STARTING BITMAP DOWNLOAD ===");
-            Log.d(TAG, "Target URL: " + imageUrl);
-            
             URL url = new URL(imageUrl);
             connection = (HttpURLConnection) url.openConnection();
             connection.setConnectTimeout(15000); // Aumentar timeout
@@ -130,87 +367,126 @@ public class ImageLoader {
             connection.setDoInput(true);
             connection.setInstanceFollowRedirects(true);
             
-            // Headers importantes para GOG
+            // Headers importantes para GOG (sem Accept-Encoding: os bytes vão direto para o cache)
             connection.setRequestProperty("User-Agent", 
                 "Mozilla/5.0 (Android 10; Mobile; rv:91.0) Gecko/91.0 Firefox/91.0");
             connection.setRequestProperty("Accept", 
                 "image/webp,image/apng,image/*,*/*;q=0.8");
             connection.setRequestProperty("Accept-Language", "en-US,en;q=0.5");
-            connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
             connection.setRequestProperty("DNT", "1");
             connection.setRequestProperty("Connection", "keep-alive");
             connection.setRequestProperty("Upgrade-Insecure-Requests", "1");
             connection.setRequestProperty("Referer", "https://www.gog.com/");
+            if (cached != null) {
+                if (cached.getEtag() != null) {
+                    connection.setRequestProperty("If-None-Match", cached.getEtag());
+                }
+                if (cached.getLastModified() != null) {
+                    connection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+                }
+            }
             
-            Log.d(TAG, "Connecting to: " + url.getHost());
             connection.connect();
             
             int responseCode = connection.getResponseCode();
-            Log.d(TAG, "HTTP Response Code: " + responseCode);
-            Log.d(TAG, "Response Message: " + connection.getResponseMessage());
             
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                Log.d(TAG, "Connection successful, reading image data...");
-                inputStream = connection.getInputStream();
-                
-                // Decodificar bitmap diretamente sem sampling primeiro
-                Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-                
-                if (bitmap != null) {
-                    Log.d(TAG, "Bitmap decoded successfully. Size: " + bitmap.getWidth() + "x" + bitmap.getHeight());
-                    // Se a imagem for muito grande, redimensionar
-                    if (bitmap.getWidth() > 300 || bitmap.getHeight() > 300) {
-                        Log.d(TAG, "Resizing large bitmap...");
-                        bitmap = Bitmap.createScaledBitmap(bitmap, 300, 300, true);
-                    }
-                    return bitmap;
-                } else {
-                    Log.e(TAG, "Failed to decode bitmap from stream");
+            if (responseCode == HttpURLConnection.HTTP_OK || responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                FetchResult result = new FetchResult();
+                result.etag = connection.getHeaderField("ETag");
+                result.lastModified = connection.getHeaderField("Last-Modified");
+                result.notModified = responseCode == HttpURLConnection.HTTP_NOT_MODIFIED;
+                if (!result.notModified) {
+                    result.data = readFully(connection);
                 }
+                return result;
             } else if (responseCode == HttpURLConnection.HTTP_MOVED_TEMP || 
                       responseCode == HttpURLConnection.HTTP_MOVED_PERM ||
                       responseCode == HttpURLConnection.HTTP_SEE_OTHER) {
                 String redirectUrl = connection.getHeaderField("Location");
-                Log.d(TAG, "Redirect detected to: " + redirectUrl);
                 if (redirectUrl != null) {
-                    return downloadBitmap(redirectUrl);
+                    return fetch(redirectUrl, cached);
                 }
             } else {
-                Log.e(TAG, "HTTP Error " + responseCode + ": " + connection.getResponseMessage());
-                // Ler error stream para mais detalhes
-                try {
-                    InputStream errorStream = connection.getErrorStream();
-                    if (errorStream != null) {
-                        byte[] errorBytes = new byte[1024];
-                        int bytesRead = errorStream.read(errorBytes);
-                        String errorMsg = new String(errorBytes, 0, bytesRead);
-                        Log.e(TAG, "Error response body: " + errorMsg);
-                        errorStream.close();
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to read error stream", e);
-                }
+                AppLog.w(TAG, "HTTP Error " + responseCode + " for image " + imageUrl);
+                TraceBuffer.record("image", "http_error", responseCode);
             }
             
         } catch (Exception e) {
-            Log.e(TAG, "Exception during image download: " + imageUrl, e);
+            AppLog.w(TAG, "Exception during image download: " + imageUrl, e);
         } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    Log.e(TAG, "Error closing input stream", e);
-                }
-            }
             if (connection != null) {
                 connection.disconnect();
             }
         }
         
-        Log.e(TAG, "Download failed for: " + imageUrl);
         return null;
     }
     
+    private static byte[] readFully(HttpURLConnection connection) throws IOException {
+        int length = connection.getContentLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 ? length : 64 * 1024);
+        try (InputStream inputStream = connection.getInputStream()) {
+            byte[] buffer = new byte[16 * 1024];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                out.write(buffer, 0, bytesRead);
+            }
+        }
+        return out.toByteArray();
+    }    
+    private static class LifoQueue extends LinkedBlockingDeque<Runnable> {
+        @Override
+        public boolean offer(Runnable runnable) {
+            return offerFirst(runnable);
+        }
+    }
+    
+    private interface Decoder {
+        Bitmap decode(BitmapFactory.Options options);
+    }
+    
+    private Bitmap decodeBytes(byte[] data, int targetWidth, int targetHeight) {
+        return decodeSampled(options -> BitmapFactory.decodeByteArray(data, 0, data.length, options),
+                targetWidth, targetHeight);
+    }
+    
+    /**
+     * Lê só as dimensões, depois decodifica já reduzida para o tamanho da view,
+     * em RGB_565 quando a imagem não tem alfa, reaproveitando um bitmap do pool
+     */
+    private Bitmap decodeSampled(Decoder decoder, int reqWidth, int reqHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decoder.decode(options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
+        // JPEG não tem transparência: metade da memória por pixel
+        options.inPreferredConfig = "image/jpeg".equals(options.outMimeType)
+                ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        
+        int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+        Bitmap reusable = bitmapPool.get(width, height, options.inPreferredConfig);
+        options.inBitmap = reusable;
+        try {
+            Bitmap bitmap = decoder.decode(options);
+            if (bitmap == null && reusable != null) {
+                bitmapPool.put(reusable);
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            // Bitmap do pool incompatível com esta imagem: descartá-lo e alocar um novo
+            AppLog.d(TAG, "inBitmap rejected, decoding without reuse");
+            options.inBitmap = null;
+            return decoder.decode(options);
+        }
+    }
+    
     private int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
         final int height = options.outHeight;
         final int width = options.outWidth;
@@ -230,23 +506,30 @@ public class ImageLoader {
     
     public void clearCache() {
         memoryCache.evictAll();
+        bitmapPool.clear();
     }
     
     public void preloadImage(String imageUrl) {
-        if (imageUrl == null || imageUrl.isEmpty() || memoryCache.get(imageUrl) != null) {
+        preloadImage(imageUrl, DEFAULT_TARGET_SIZE, DEFAULT_TARGET_SIZE);
+    }
+    
+    /**
+     * Carrega a imagem só para o cache de memória. Um bind que chegar durante o
+     * carregamento espera por ele em vez de baixar de novo.
+     */
+    public void preloadImage(String imageUrl, int targetWidth, int targetHeight) {
+        if (imageUrl == null || imageUrl.isEmpty()) {
             return;
         }
         
-        executorService.execute(() -> {
-            try {
-                Bitmap bitmap = downloadBitmap(imageUrl);
-                if (bitmap != null) {
-                    memoryCache.put(imageUrl, bitmap);
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error preloading image: " + imageUrl, e);
+        synchronized (inFlight) {
+            if (inFlight.containsKey(imageUrl) || memoryCache.get(imageUrl) != null) {
+                return;
             }
-        });
+            Job job = new Job(imageUrl, targetWidth, targetHeight);
+            inFlight.put(imageUrl, job);
+            executorService.execute(job);
+        }
     }
     
     public void shutdown() {
@@ -254,4 +537,4 @@ public class ImageLoader {
             executorService.shutdown();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.example.gogdownloader.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.example.gogdownloader.models.ChunkManifest;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fonte de chunks a partir de um arquivo já instalado (versão anterior).
+ * Durante uma atualização, chunks cujo MD5 não mudou são lidos do arquivo
+ * antigo por posição em vez de baixados de novo.
+ */
+public class InstalledFileChunkSource implements ChunkedDownloader.LocalChunkSource, Closeable {
+
+    private static final String TAG = "InstalledFileChunkSource";
+
+    private final Context context;
+    private final Uri documentUri;
+    private final Map<String, ChunkManifest.Chunk> chunksByHash = new HashMap<>();
+    private final boolean sameOffsetFallback;
+
+    private ParcelFileDescriptor descriptor;
+    private FileInputStream inputStream;
+    private FileChannel channel;
+
+    /**
+     * @param installedManifest manifesto da versão instalada; se null, tenta o chunk
+     *                          na mesma posição do arquivo antigo (o MD5 é conferido depois)
+     */
+    public InstalledFileChunkSource(Context context, Uri documentUri, ChunkManifest installedManifest) {
+        this.context = context;
+        this.documentUri = documentUri;
+        this.sameOffsetFallback = installedManifest == null;
+        if (installedManifest != null) {
+            for (ChunkManifest.Chunk chunk : installedManifest.getChunks()) {
+                chunksByHash.put(chunk.getMd5(), chunk);
+            }
+        }
+    }
+
+    @Override
+    public boolean readChunk(ChunkManifest.Chunk chunk, OutputStream outputStream, byte[] buffer) throws IOException {
+        ChunkManifest.Chunk installed = sameOffsetFallback ? chunk : chunksByHash.get(chunk.getMd5());
+        if (installed == null || installed.getSize() != chunk.getSize()) {
+            return false;
+        }
+
+        FileChannel fileChannel = openChannel();
+        if (fileChannel == null) {
+            return false;
+        }
+
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long position = installed.getFrom();
+        long remaining = installed.getSize();
+
+        while (remaining > 0) {
+            byteBuffer.clear();
+            byteBuffer.limit((int) Math.min(buffer.length, remaining));
+            int bytesRead = fileChannel.read(byteBuffer, position);
+            if (bytesRead <= 0) {
+                return false; // arquivo antigo truncado
+            }
+            outputStream.write(buffer, 0, bytesRead);
+            position += bytesRead;
+            remaining -= bytesRead;
+        }
+
+        return true;
+    }
+
+    private FileChannel openChannel() {
+        if (channel == null) {
+            try {
+                descriptor = context.getContentResolver().openFileDescriptor(documentUri, "r");
+                if (descriptor == null) {
+                    return null;
+                }
+                inputStream = new FileInputStream(descriptor.getFileDescriptor());
+                channel = inputStream.getChannel();
+            } catch (Exception e) {
+                Log.w(TAG, "Installed file is not readable: " + documentUri, e);
+                return null;
+            }
+        }
+        return channel;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            if (descriptor != null) {
+                descriptor.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing installed file", e);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.example.gogdownloader.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.documentfile.provider.DocumentFile;
+
+import com.example.gogdownloader.core.Hashes;
+import com.example.gogdownloader.database.DatabaseHelper;
+import com.example.gogdownloader.models.ChunkManifest;
+import com.example.gogdownloader.models.Game;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifica a integridade dos arquivos baixados comparando com os checksums do GOG.
+ * Cada arquivo é conferido numa thread do pool (uma por núcleo), lendo o conteúdo
+ * por mmap (pelo caminho direto ou pelo descritor do SAF). O resultado de cada arquivo é salvo, e arquivos
+ * com tamanho e data de modificação iguais aos da última verificação são pulados.
+ */
+public class LibraryVerifier {
+
+    private static final String TAG = "LibraryVerifier";
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    public enum Status {
+        OK,             // conteúdo confere com o checksum
+        CORRUPT,        // checksum diferente
+        SIZE_MISMATCH,  // tamanho diferente do registrado
+        NO_CHECKSUM,    // sem checksum conhecido; só o tamanho foi conferido
+        ERROR           // não foi possível ler o arquivo; não é salvo, volta a ser conferido
+    }
+
+    public interface Listener {
+        void onProgress(int filesDone, int filesTotal, long bytesHashed, double bytesPerSecond);
+    }
+
+    public static class Summary {
+        private int totalFiles;
+        private int skippedFiles;
+        private int okFiles;
+        private int noChecksumFiles;
+        private int errorFiles;
+        private long bytesHashed;
+        private long elapsedMs;
+        private final List<String> problems = Collections.synchronizedList(new ArrayList<>());
+
+        public int getTotalFiles() { return totalFiles; }
+        public int getSkippedFiles() { return skippedFiles; }
+        public int getOkFiles() { return okFiles; }
+        public int getNoChecksumFiles() { return noChecksumFiles; }
+        public int getErrorFiles() { return errorFiles; }
+        public long getBytesHashed() { return bytesHashed; }
+        public long getElapsedMs() { return elapsedMs; }
+        public List<String> getProblems() { return problems; }
+
+        public double getBytesPerSecond() {
+            return elapsedMs > 0 ? bytesHashed * 1000.0 / elapsedMs : 0;
+        }
+    }
+
+    private static class FileTask {
+        final Game game;
+        final DocumentFile file;
+        final ContentValues installed;
+
+        FileTask(Game game, DocumentFile file, ContentValues installed) {
+            this.game = game;
+            this.file = file;
+            this.installed = installed;
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final SAFDownloadManager safDownloadManager;
+    private final AtomicLong bytesHashed = new AtomicLong();
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private volatile long lastProgressReport = 0;
+    private long startTime;
+    private int filesToHash;
+
+    public LibraryVerifier(Context context, DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+        this.safDownloadManager = new SAFDownloadManager(context);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Verifica todos os jogos baixados. Bloqueante: chamar fora da thread principal.
+     */
+    public Summary verify(Listener listener) {
+        startTime = System.currentTimeMillis();
+        Summary summary = new Summary();
+        List<FileTask> tasks = collectFiles(summary);
+        summary.totalFiles = tasks.size() + summary.skippedFiles;
+        filesToHash = tasks.size();
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Status>> results = new ArrayList<>();
+        for (FileTask task : tasks) {
+            results.add(executor.submit(() -> verifyFile(task, summary, listener)));
+        }
+
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    Status status = results.get(i).get();
+                    if (status == Status.OK) {
+                        summary.okFiles++;
+                    } else if (status == Status.NO_CHECKSUM) {
+                        summary.noChecksumFiles++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelled = true;
+                } catch (Exception e) {
+                    if (!cancelled) {
+                        FileTask task = tasks.get(i);
+                        Log.w(TAG, "Verification failed for " + task.file.getName(), e);
+                        summary.errorFiles++;
+                        summary.problems.add(task.game.getTitle() + ": " + task.file.getName() + " ("
+                                + Status.ERROR.name() + ")");
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        summary.bytesHashed = bytesHashed.get();
+        summary.elapsedMs = System.currentTimeMillis() - startTime;
+        Log.d(TAG, "Library verification finished: " + summary.totalFiles + " files, " + summary.skippedFiles
+                + " unchanged, " + summary.problems.size() + " problems (" + summary.errorFiles + " unreadable), "
+                + SpeedMeter.formatSpeed(summary.getBytesPerSecond()));
+        return summary;
+    }
+
+    /**
+     * Lista os arquivos dos jogos baixados; arquivos sem mudança desde a última
+     * verificação entram direto no resumo com o resultado anterior
+     */
+    private List<FileTask> collectFiles(Summary summary) {
+        List<FileTask> tasks = new ArrayList<>();
+
+        for (Game game : databaseHelper.getAllGames()) {
+            List<ContentValues> installedFiles = databaseHelper.getInstalledFiles(game.getId());
+            // Não criar pastas vazias para jogos que nunca foram baixados
+            if (installedFiles.isEmpty() && game.getStatus() != Game.DownloadStatus.DOWNLOADED) {
+                continue;
+            }
+
+            for (DocumentFile file : safDownloadManager.getGameFiles(game)) {
+                String name = file.getName();
+                if (file.isDirectory() || name == null || name.endsWith(".update")) {
+                    continue;
+                }
+
+                ContentValues previous = databaseHelper.getVerifyResult(file.getUri().toString());
+                if (previous != null && previous.getAsLong("size") == file.length()
+                        && previous.getAsLong("last_modified") == file.lastModified()) {
+                    summary.skippedFiles++;
+                    String status = previous.getAsString("status");
+                    if (Status.OK.name().equals(status)) {
+                        summary.okFiles++;
+                    } else if (Status.NO_CHECKSUM.name().equals(status)) {
+                        summary.noChecksumFiles++;
+                    } else {
+                        summary.problems.add(game.getTitle() + ": " + name + " (" + status + ")");
+                    }
+                    continue;
+                }
+
+                tasks.add(new FileTask(game, file, findInstalledFile(installedFiles, name)));
+            }
+        }
+
+        return tasks;
+    }
+
+    private Status verifyFile(FileTask task, Summary summary, Listener listener) throws IOException {
+        if (cancelled) {
+            return null;
+        }
+
+        DocumentFile file = task.file;
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Status status;
+
+        ChunkManifest manifest = task.installed != null ? parseManifest(task.installed.getAsString("manifest")) : null;
+        long expectedSize = manifest != null ? manifest.getFileSize()
+                : task.installed != null ? task.installed.getAsLong("size") : 0;
+
+        if (expectedSize > 0 && size != expectedSize) {
+            status = Status.SIZE_MISMATCH;
+        } else if (manifest != null) {
+            status = verifyChunks(file, manifest, listener) ? Status.OK : Status.CORRUPT;
+        } else {
+            status = Status.NO_CHECKSUM;
+        }
+
+        if (cancelled) {
+            return null;
+        }
+
+        databaseHelper.saveVerifyResult(file.getUri().toString(), task.game.getId(), file.getName(), size,
+                lastModified, status.name());
+        if (status == Status.CORRUPT || status == Status.SIZE_MISMATCH) {
+            summary.problems.add(task.game.getTitle() + ": " + file.getName() + " (" + status.name() + ")");
+        }
+
+        filesDone.incrementAndGet();
+        reportProgress(listener, true);
+        return status;
+    }
+
+    private boolean verifyChunks(DocumentFile file, ChunkManifest manifest, Listener listener) throws IOException {
+        try (FileChannel channel = safDownloadManager.openReadChannel(file)) {
+            MessageDigest md5 = Hashes.newMd5();
+            boolean[] mappable = {true};
+
+            for (ChunkManifest.Chunk chunk : manifest.getChunks()) {
+                if (cancelled) {
+                    return false;
+                }
+                md5.reset();
+                hashRange(channel, chunk.getFrom(), chunk.getSize(), md5, mappable);
+                if (!Hashes.toHex(md5.digest()).equals(chunk.getMd5())) {
+                    Log.w(TAG, "Chunk " + chunk.getIndex() + " of " + file.getName() + " does not match");
+                    return false;
+                }
+                reportProgress(listener, false);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Leitura sequencial grande: mmap em janelas, com leitura comum se o
+     * provedor não entregar um arquivo mapeável
+     */
+    private void hashRange(FileChannel channel, long position, long length, MessageDigest md5,
+                           boolean[] mappable) throws IOException {
+        long end = position + length;
+        ByteBuffer readBuffer = null;
+
+        while (position < end && !cancelled) {
+            if (mappable[0]) {
+                long windowSize = Math.min(MAP_WINDOW_SIZE, end - position);
+                try {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                    md5.update(mapped);
+                    bytesHashed.addAndGet(windowSize);
+                    position += windowSize;
+                    continue;
+                } catch (IOException | UnsupportedOperationException e) {
+                    Log.d(TAG, "File is not mappable, falling back to reads", e);
+                    mappable[0] = false;
+                }
+            }
+
+            if (readBuffer == null) {
+                readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            }
+            readBuffer.clear();
+            readBuffer.limit((int) Math.min(READ_BUFFER_SIZE, end - position));
+            int bytesRead = channel.read(readBuffer, position);
+            if (bytesRead <= 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            md5.update(readBuffer.array(), 0, bytesRead);
+            bytesHashed.addAndGet(bytesRead);
+            position += bytesRead;
+        }
+    }
+
+    private void reportProgress(Listener listener, boolean force) {
+        if (listener == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (!force && now - lastProgressReport < PROGRESS_INTERVAL_MS) {
+            return;
+        }
+        lastProgressReport = now;
+
+        long hashed = bytesHashed.get();
+        long elapsed = now - startTime;
+        double bytesPerSecond = elapsed > 0 ? hashed * 1000.0 / elapsed : 0;
+        listener.onProgress(filesDone.get(), filesToHash, hashed, bytesPerSecond);
+    }
+
+    private static ContentValues findInstalledFile(List<ContentValues> installedFiles, String fileName) {
+        for (ContentValues installed : installedFiles) {
+            if (fileName.equals(installed.getAsString("file_name"))) {
+                return installed;
+            }
+        }
+        return null;
+    }
+
+    private static ChunkManifest parseManifest(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            ChunkManifest manifest = ChunkManifest.fromJson(new JSONObject(json));
+            return manifest.isValid() ? manifest : null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+}
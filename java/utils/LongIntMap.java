@@ -0,0 +1,111 @@
+package com.example.gogdownloader.utils;
+
+import java.util.Arrays;
+
+/**
+ * Mapa long -> int com endereçamento aberto (sondagem linear), sem boxing:
+ * um acesso é um hash e algumas comparações de arrays primitivos. Feito para
+ * índices reconstruídos inteiros (como id do jogo -> posição na lista), por isso
+ * não tem remoção individual.
+ */
+public class LongIntMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public void put(long key, int value) {
+        int slot = slotOf(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        // Carga máxima de 50%: as sondagens continuam curtas
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * @return valor da chave, ou {@code missing} se ela não estiver no mapa
+     */
+    public int get(long key, int missing) {
+        int slot = slotOf(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Esvazia o mapa, garantindo espaço para {@code expectedSize} chaves sem rehash
+     */
+    public void clear(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > keys.length) {
+            allocate(capacity);
+        } else {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private int slotOf(long key) {
+        // Ids do GOG são sequenciais: espalhar os bits antes de mascarar
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.gogdownloader.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import com.example.gogdownloader.api.GOGLibraryManager;
+import com.example.gogdownloader.database.DatabaseHelper;
+import com.example.gogdownloader.models.DownloadLink;
+import com.example.gogdownloader.models.Game;
+import com.example.gogdownloader.models.MirrorFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calcula a diferença entre os arquivos da conta e o arquivo local.
+ * Os produtos são consultados em lotes e cada arquivo que passa pelo filtro
+ * é comparado com o registro de arquivos instalados; o resultado fica na
+ * tabela mirror_state para acompanhar o progresso do espelho.
+ */
+public class MirrorPlanner {
+
+    private static final String TAG = "MirrorPlanner";
+    private static final int MAX_IDS_PER_REQUEST = 50;
+
+    /**
+     * Arquivos de um jogo que precisam ser baixados
+     */
+    public static class GameDiff {
+        private final Game game;
+        private final List<DownloadLink> missingLinks = new ArrayList<>();
+        private final List<DownloadLink> changedLinks = new ArrayList<>();
+        private long totalBytes;
+        private int upToDateFiles;
+
+        GameDiff(Game game) {
+            this.game = game;
+        }
+
+        public Game getGame() { return game; }
+        public List<DownloadLink> getMissingLinks() { return missingLinks; }
+        public List<DownloadLink> getChangedLinks() { return changedLinks; }
+        public long getTotalBytes() { return totalBytes; }
+
+        public boolean isEmpty() {
+            return missingLinks.isEmpty() && changedLinks.isEmpty();
+        }
+    }
+
+    private final GOGLibraryManager libraryManager;
+    private final DatabaseHelper databaseHelper;
+    private volatile boolean cancelled = false;
+
+    public MirrorPlanner(Context context, DatabaseHelper databaseHelper) {
+        this.libraryManager = new GOGLibraryManager(context);
+        this.databaseHelper = databaseHelper;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Monta o plano do espelho. Bloqueante: chamar fora da thread principal.
+     * @return jogos com arquivos faltando ou desatualizados
+     */
+    public List<GameDiff> plan(MirrorFilter filter) throws IOException {
+        Map<Long, Game> gamesById = new HashMap<>();
+        List<Long> gameIds = new ArrayList<>();
+        for (Game game : databaseHelper.getAllGames()) {
+            gamesById.put(game.getId(), game);
+            gameIds.add(game.getId());
+        }
+
+        databaseHelper.clearMirrorState();
+        List<GameDiff> diffs = new ArrayList<>();
+        int upToDateFiles = 0;
+
+        for (int i = 0; i < gameIds.size() && !cancelled; i += MAX_IDS_PER_REQUEST) {
+            List<Long> batch = gameIds.subList(i, Math.min(i + MAX_IDS_PER_REQUEST, gameIds.size()));
+            GOGLibraryManager.ProductBatchResult result = libraryManager.getProductsBatch(batch, null);
+
+            for (Map.Entry<Long, List<DownloadLink>> entry : result.getDownloadLinks().entrySet()) {
+                Game game = gamesById.get(entry.getKey());
+                if (game == null) {
+                    continue;
+                }
+
+                GameDiff diff = diffGame(game, entry.getValue(), filter);
+                upToDateFiles += diff.upToDateFiles;
+                if (!diff.isEmpty()) {
+                    diffs.add(diff);
+                }
+            }
+        }
+
+        Log.d(TAG, "Mirror plan: " + diffs.size() + " of " + gameIds.size() + " games need files, "
+                + upToDateFiles + " files already up to date");
+        return diffs;
+    }
+
+    private GameDiff diffGame(Game game, List<DownloadLink> links, MirrorFilter filter) {
+        Map<String, ContentValues> installedById = new HashMap<>();
+        for (ContentValues installed : databaseHelper.getInstalledFiles(game.getId())) {
+            installedById.put(installed.getAsString("link_id"), installed);
+        }
+
+        GameDiff diff = new GameDiff(game);
+        for (DownloadLink link : links) {
+            if (!filter.matches(link)) {
+                continue;
+            }
+
+            ContentValues installed = installedById.get(link.getId());
+            String state = DatabaseHelper.MIRROR_STATE_PENDING;
+
+            if (installed == null) {
+                diff.missingLinks.add(link);
+                diff.totalBytes += link.getSize();
+            } else if (isChanged(installed, link)) {
+                diff.changedLinks.add(link);
+                diff.totalBytes += link.getSize();
+            } else {
+                state = DatabaseHelper.MIRROR_STATE_DONE;
+                diff.upToDateFiles++;
+            }
+
+            databaseHelper.saveMirrorFile(game.getId(), link.getId(), link.getName(), link.getVersion(),
+                    link.getSize(), state);
+        }
+
+        return diff;
+    }
+
+    private static boolean isChanged(ContentValues installed, DownloadLink link) {
+        String version = link.getVersion();
+        boolean versionChanged = version != null && !version.isEmpty() && !version.equals(installed.getAsString("version"));
+        boolean sizeChanged = link.getSize() > 0 && link.getSize() != installed.getAsLong("size");
+        return versionChanged || sizeChanged;
+    }
+}
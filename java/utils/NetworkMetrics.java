@@ -0,0 +1,409 @@
+package com.example.gogdownloader.utils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+/**
+ * Tempos de rede de todas as chamadas do OkHttp, medidos por um EventListener:
+ * DNS, conexão TCP, TLS, envio da requisição, espera pelo servidor e leitura
+ * da resposta, além de reuso de conexão e bytes enviados/recebidos.
+ * Os tempos são agregados em histogramas por host e endpoint (caminho com os
+ * trechos variáveis trocados por "*"), só em memória.
+ */
+public class NetworkMetrics {
+
+    public enum Phase {
+        DNS, CONNECT, TLS, REQUEST, SERVER, RESPONSE, TOTAL
+    }
+
+    private static NetworkMetrics instance;
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final EventListener.Factory eventListenerFactory = call -> new CallListener();
+
+    public static synchronized NetworkMetrics getInstance() {
+        if (instance == null) {
+            instance = new NetworkMetrics();
+        }
+        return instance;
+    }
+
+    private NetworkMetrics() {
+    }
+
+    /**
+     * Factory para instalar em cada OkHttpClient.Builder
+     */
+    public EventListener.Factory getEventListenerFactory() {
+        return eventListenerFactory;
+    }
+
+    /**
+     * Estatísticas atuais, das mais chamadas para as menos chamadas
+     */
+    public List<EndpointStats> getSnapshot() {
+        List<EndpointStats> snapshot = new ArrayList<>();
+        for (EndpointStats stats : endpoints.values()) {
+            snapshot.add(stats.copy());
+        }
+        Collections.sort(snapshot, (a, b) -> Long.compare(b.calls, a.calls));
+        return snapshot;
+    }
+
+    /**
+     * Relatório em texto (p50/p90/p99 de cada fase por endpoint), para logs e depuração
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (EndpointStats stats : getSnapshot()) {
+            builder.append(stats.getHost()).append(stats.getEndpoint()).append('\n')
+                    .append(stats.describe()).append("\n\n");
+        }
+        return builder.toString().trim();
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    /**
+     * Caminho do endpoint com cada trecho variável trocado por um asterisco:
+     * trechos com dígitos ou longos (ids, tokens de download) não separam endpoints
+     */
+    static String normalizePath(HttpUrl url) {
+        StringBuilder builder = new StringBuilder();
+        for (String segment : url.pathSegments()) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            builder.append('/');
+            boolean variable = segment.length() > 24;
+            for (int i = 0; i < segment.length() && !variable; i++) {
+                variable = Character.isDigit(segment.charAt(i));
+            }
+            builder.append(variable ? "*" : segment);
+        }
+        return builder.length() > 0 ? builder.toString() : "/";
+    }
+
+    private void record(CallListener call) {
+        String key = call.host + call.endpoint;
+        EndpointStats stats = endpoints.get(key);
+        if (stats == null) {
+            EndpointStats created = new EndpointStats(call.host, call.endpoint);
+            stats = endpoints.putIfAbsent(key, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        stats.add(call);
+    }
+
+    /**
+     * Histograma de durações em baldes de escala logarítmica (de 1 ms a ~2 min,
+     * cada balde ~25% maior que o anterior); percentis saem do limite do balde
+     */
+    public static class Histogram {
+        private static final long[] BUCKET_LIMITS_MS;
+
+        static {
+            List<Long> limits = new ArrayList<>();
+            double limit = 1;
+            while (limit < 120000) {
+                long rounded = Math.round(limit);
+                if (limits.isEmpty() || limits.get(limits.size() - 1) != rounded) {
+                    limits.add(rounded);
+                }
+                limit *= 1.25;
+            }
+            BUCKET_LIMITS_MS = new long[limits.size()];
+            for (int i = 0; i < limits.size(); i++) {
+                BUCKET_LIMITS_MS[i] = limits.get(i);
+            }
+        }
+
+        private final long[] counts = new long[BUCKET_LIMITS_MS.length + 1];
+        private long total;
+        private long maxMs;
+
+        void add(long durationMs) {
+            int index = 0;
+            while (index < BUCKET_LIMITS_MS.length && durationMs > BUCKET_LIMITS_MS[index]) {
+                index++;
+            }
+            counts[index]++;
+            total++;
+            maxMs = Math.max(maxMs, durationMs);
+        }
+
+        Histogram copy() {
+            Histogram copy = new Histogram();
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            copy.total = total;
+            copy.maxMs = maxMs;
+            return copy;
+        }
+
+        public long getCount() {
+            return total;
+        }
+
+        /**
+         * @param percentile entre 0 e 100
+         * @return limite superior do balde do percentil, em ms (-1 sem amostras)
+         */
+        public long getPercentile(double percentile) {
+            if (total == 0) {
+                return -1;
+            }
+            long target = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, target)) {
+                    return i < BUCKET_LIMITS_MS.length ? Math.min(BUCKET_LIMITS_MS[i], maxMs) : maxMs;
+                }
+            }
+            return maxMs;
+        }
+    }
+
+    public static class EndpointStats {
+        private final String host;
+        private final String endpoint;
+        private final Histogram[] phases = new Histogram[Phase.values().length];
+        private long calls;
+        private long failures;
+        private long reusedConnections;
+        private long bytesSent;
+        private long bytesReceived;
+
+        EndpointStats(String host, String endpoint) {
+            this.host = host;
+            this.endpoint = endpoint;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new Histogram();
+            }
+        }
+
+        synchronized void add(CallListener call) {
+            calls++;
+            if (call.failed) {
+                failures++;
+            }
+            if (call.connectionReused) {
+                reusedConnections++;
+            }
+            bytesSent += call.bytesSent;
+            bytesReceived += call.bytesReceived;
+            for (Phase phase : Phase.values()) {
+                long nanos = call.phaseNanos[phase.ordinal()];
+                // Fases de conexão só contam quando houve conexão nova
+                if (nanos > 0 || phase == Phase.TOTAL) {
+                    phases[phase.ordinal()].add(nanos / 1000000);
+                }
+            }
+        }
+
+        synchronized EndpointStats copy() {
+            EndpointStats copy = new EndpointStats(host, endpoint);
+            for (int i = 0; i < phases.length; i++) {
+                copy.phases[i] = phases[i].copy();
+            }
+            copy.calls = calls;
+            copy.failures = failures;
+            copy.reusedConnections = reusedConnections;
+            copy.bytesSent = bytesSent;
+            copy.bytesReceived = bytesReceived;
+            return copy;
+        }
+
+        public String getHost() { return host; }
+        public String getEndpoint() { return endpoint; }
+        public Histogram getHistogram(Phase phase) { return phases[phase.ordinal()]; }
+        public long getCalls() { return calls; }
+        public long getFailures() { return failures; }
+        public long getReusedConnections() { return reusedConnections; }
+        public long getBytesSent() { return bytesSent; }
+        public long getBytesReceived() { return bytesReceived; }
+
+        /**
+         * Resumo legível: contadores e p50/p90/p99 das fases medidas
+         */
+        public String describe() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.US, "%d chamadas, %d falhas, %d%% conexões reusadas, %s enviados, %s recebidos",
+                    calls, failures, calls > 0 ? reusedConnections * 100 / calls : 0,
+                    formatBytes(bytesSent), formatBytes(bytesReceived)));
+            for (Phase phase : Phase.values()) {
+                Histogram histogram = phases[phase.ordinal()];
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                builder.append(String.format(Locale.US, "\n%s: p50 %d ms, p90 %d ms, p99 %d ms (n=%d)",
+                        phase.name(), histogram.getPercentile(50), histogram.getPercentile(90),
+                        histogram.getPercentile(99), histogram.getCount()));
+            }
+            return builder.toString();
+        }
+
+        private static String formatBytes(long bytes) {
+            if (bytes < 1024) {
+                return bytes + " B";
+            } else if (bytes < 1024 * 1024) {
+                return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+            }
+            return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024));
+        }
+    }
+
+    /**
+     * Um listener por chamada: o OkHttp entrega os eventos de uma chamada em
+     * sequência, então os campos não precisam de sincronização. Com redirects,
+     * as fases de cada salto são somadas.
+     */
+    private class CallListener extends EventListener {
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private String host;
+        private String endpoint;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long tlsNanos;
+        private long requestStart;
+        private long requestEnd;
+        private long responseStart;
+        private boolean connecting;
+        private boolean connectionReused;
+        private boolean failed;
+        private long bytesSent;
+        private long bytesReceived;
+
+        @Override
+        public void callStart(Call call) {
+            HttpUrl url = call.request().url();
+            host = url.host();
+            endpoint = normalizePath(url);
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            addPhase(Phase.DNS, dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+            connecting = true;
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            tlsNanos = System.nanoTime() - secureConnectStart;
+            phaseNanos[Phase.TLS.ordinal()] += tlsNanos;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            long elapsed = System.nanoTime() - connectStart;
+            // O TLS acontece dentro do connect; a fase de conexão fica só com o TCP
+            long tls = secureConnectStart > connectStart ? tlsNanos : 0;
+            phaseNanos[Phase.CONNECT.ordinal()] += Math.max(0, elapsed - tls);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                                  Protocol protocol, IOException ioe) {
+            addPhase(Phase.CONNECT, connectStart);
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (!connecting) {
+                connectionReused = true;
+            }
+            connecting = false;
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            requestEnd = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            requestEnd = System.nanoTime();
+            bytesSent += byteCount;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            responseStart = System.nanoTime();
+            if (requestStart > 0) {
+                phaseNanos[Phase.REQUEST.ordinal()] += requestEnd - requestStart;
+                phaseNanos[Phase.SERVER.ordinal()] += responseStart - requestEnd;
+            }
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            addPhase(Phase.RESPONSE, responseStart);
+            bytesReceived += byteCount;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            failed = true;
+            finish();
+        }
+
+        private void addPhase(Phase phase, long start) {
+            if (start > 0) {
+                phaseNanos[phase.ordinal()] += System.nanoTime() - start;
+            }
+        }
+
+        private void finish() {
+            phaseNanos[Phase.TOTAL.ordinal()] = System.nanoTime() - callStart;
+            record(this);
+        }
+    }
+}
@@ -4,7 +4,13 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Environment;
 
+import com.example.gogdownloader.models.DownloadLink;
+import com.example.gogdownloader.models.MirrorFilter;
+
 import java.io.File;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
 
 public class PreferencesManager {
     
@@ -18,6 +24,12 @@ public class PreferencesManager {
     private static final String KEY_DOWNLOAD_PATH = "download_path";
     private static final String KEY_FIRST_RUN = "first_run";
     private static final String KEY_LOGIN_TIME = "login_time";
+    private static final String KEY_CHUNK_CACHE_MAX_SIZE = "chunk_cache_max_size";
+    private static final String KEY_MIRROR_PLATFORMS = "mirror_platforms";
+    private static final String KEY_MIRROR_FILE_TYPES = "mirror_file_types";
+    private static final String KEY_MIRROR_LANGUAGES = "mirror_languages";
+    
+    private static final long DEFAULT_CHUNK_CACHE_MAX_SIZE = 2L * 1024 * 1024 * 1024; // 2 GB
     
     private SharedPreferences preferences;
     private SharedPreferences.Editor editor;
@@ -186,6 +198,16 @@ public class PreferencesManager {
         return gogDir.getAbsolutePath();
     }
     
+    // Cache de chunks
+    public long getChunkCacheMaxSize() {
+        return preferences.getLong(KEY_CHUNK_CACHE_MAX_SIZE, DEFAULT_CHUNK_CACHE_MAX_SIZE);
+    }
+    
+    public void setChunkCacheMaxSize(long maxBytes) {
+        editor.putLong(KEY_CHUNK_CACHE_MAX_SIZE, maxBytes);
+        editor.apply();
+    }
+    
     // Primeira execução
     public boolean isFirstRun() {
         return preferences.getBoolean(KEY_FIRST_RUN, true);
@@ -225,4 +247,59 @@ public class PreferencesManager {
         
         return dir.isDirectory() && dir.canWrite();
     }
-}
\ No newline at end of file
+    
+    // Filtros do modo espelho
+    public MirrorFilter getMirrorFilter() {
+        MirrorFilter filter = new MirrorFilter();
+        
+        Set<String> platforms = preferences.getStringSet(KEY_MIRROR_PLATFORMS, null);
+        if (platforms != null) {
+            Set<DownloadLink.Platform> values = EnumSet.noneOf(DownloadLink.Platform.class);
+            for (String name : platforms) {
+                try {
+                    values.add(DownloadLink.Platform.valueOf(name));
+                } catch (IllegalArgumentException e) {
+                    // Valor antigo/inválido, ignorar
+                }
+            }
+            filter.setPlatforms(values);
+        }
+        
+        Set<String> fileTypes = preferences.getStringSet(KEY_MIRROR_FILE_TYPES, null);
+        if (fileTypes != null) {
+            Set<DownloadLink.FileType> values = EnumSet.noneOf(DownloadLink.FileType.class);
+            for (String name : fileTypes) {
+                try {
+                    values.add(DownloadLink.FileType.valueOf(name));
+                } catch (IllegalArgumentException e) {
+                    // Valor antigo/inválido, ignorar
+                }
+            }
+            filter.setFileTypes(values);
+        }
+        
+        Set<String> languages = preferences.getStringSet(KEY_MIRROR_LANGUAGES, null);
+        if (languages != null) {
+            filter.setLanguages(languages);
+        }
+        
+        return filter;
+    }
+    
+    public void setMirrorFilter(MirrorFilter filter) {
+        Set<String> platforms = new HashSet<>();
+        for (DownloadLink.Platform platform : filter.getPlatforms()) {
+            platforms.add(platform.name());
+        }
+        
+        Set<String> fileTypes = new HashSet<>();
+        for (DownloadLink.FileType fileType : filter.getFileTypes()) {
+            fileTypes.add(fileType.name());
+        }
+        
+        editor.putStringSet(KEY_MIRROR_PLATFORMS, platforms);
+        editor.putStringSet(KEY_MIRROR_FILE_TYPES, fileTypes);
+        editor.putStringSet(KEY_MIRROR_LANGUAGES, new HashSet<>(filter.getLanguages()));
+        editor.apply();
+    }
+}
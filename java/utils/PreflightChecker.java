@@ -0,0 +1,238 @@
+package com.example.gogdownloader.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.documentfile.provider.DocumentFile;
+
+import com.example.gogdownloader.core.Hashes;
+import com.example.gogdownloader.database.DatabaseHelper;
+import com.example.gogdownloader.models.ChunkManifest;
+import com.example.gogdownloader.models.DownloadLink;
+import com.example.gogdownloader.models.Game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verificação antes do download: confere se o arquivo já existe no destino.
+ * Com manifesto de chunks o conteúdo é conferido chunk a chunk (em paralelo);
+ * sem manifesto, só o tamanho. Arquivos completos são pulados e parciais são
+ * retomados a partir do último byte verificado em vez de recriados.
+ */
+public class PreflightChecker {
+
+    private static final String TAG = "PreflightChecker";
+    private static final int BUFFER_SIZE = 65536;
+
+    // Compartilhado entre downloads simultâneos para não multiplicar as threads de hash
+    private static final ExecutorService HASH_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    public enum Status {
+        MISSING,   // nada no destino
+        COMPLETE,  // arquivo íntegro, não precisa baixar
+        PARTIAL,   // início válido, retomar a partir de resumeOffset
+        MISMATCH   // conteúdo diferente, baixar do zero
+    }
+
+    public static class Result {
+        private final Status status;
+        private final DocumentFile file;
+        private final long resumeOffset;
+
+        Result(Status status, DocumentFile file, long resumeOffset) {
+            this.status = status;
+            this.file = file;
+            this.resumeOffset = resumeOffset;
+        }
+
+        public Status getStatus() { return status; }
+        public DocumentFile getFile() { return file; }
+        public long getResumeOffset() { return resumeOffset; }
+    }
+
+    private final SAFDownloadManager safDownloadManager;
+    private final DatabaseHelper databaseHelper;
+
+    public PreflightChecker(Context context, SAFDownloadManager safDownloadManager, DatabaseHelper databaseHelper) {
+        this.safDownloadManager = safDownloadManager;
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Bloqueante: chamar apenas em threads de download.
+     * Nunca altera o arquivo de destino: um PARTIAL aqui é retomado na área de preparação.
+     */
+    public Result check(Game game, DownloadLink link, ChunkManifest manifest) {
+        return checkFile(game, link, manifest, safDownloadManager.findDownloadFile(game, link), true);
+    }
+
+    /**
+     * Confere um download parcial da área de preparação. O registro de arquivos
+     * instalados descreve a pasta de destino, então não vale para este arquivo.
+     */
+    public Result checkStagedFile(Game game, DownloadLink link, ChunkManifest manifest, DocumentFile stagedFile) {
+        Result result = checkFile(game, link, manifest, stagedFile.exists() ? stagedFile : null, false);
+        // Para PARTIAL o arquivo preparado é cortado em {@link Result#getResumeOffset()}
+        if (result.status == Status.PARTIAL && safDownloadManager.getFileSize(stagedFile) > result.resumeOffset) {
+            try {
+                safDownloadManager.truncateFile(stagedFile, result.resumeOffset);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to truncate " + stagedFile.getName() + ", downloading again", e);
+                return new Result(Status.MISMATCH, stagedFile, 0);
+            }
+        }
+        return result;
+    }
+
+    private Result checkFile(Game game, DownloadLink link, ChunkManifest manifest, DocumentFile file,
+                             boolean useInstalledRecord) {
+        if (file == null) {
+            return new Result(Status.MISSING, null, 0);
+        }
+
+        long fileSize = safDownloadManager.getFileSize(file);
+        Result result;
+        try {
+            result = manifest != null
+                    ? checkWithManifest(file, fileSize, manifest)
+                    : checkWithSize(useInstalledRecord ? findInstalledFile(game.getId(), link.getId()) : null,
+                            link, file, fileSize);
+
+        } catch (IOException e) {
+            Log.w(TAG, "Preflight failed for " + file.getName() + ", downloading again", e);
+            result = new Result(Status.MISMATCH, file, 0);
+        }
+
+        Log.d(TAG, "Preflight " + file.getName() + ": " + result.status + " (" + fileSize + " bytes on disk, resume at "
+                + result.resumeOffset + ")");
+        return result;
+    }
+
+    private Result checkWithManifest(DocumentFile file, long fileSize, ChunkManifest manifest) throws IOException {
+        if (fileSize > manifest.getFileSize()) {
+            return new Result(Status.MISMATCH, file, 0);
+        }
+
+        long verifiedBytes = verifyChunkPrefix(file, fileSize, manifest);
+        if (verifiedBytes == manifest.getFileSize()) {
+            return new Result(Status.COMPLETE, file, verifiedBytes);
+        }
+        if (verifiedBytes > 0) {
+            return new Result(Status.PARTIAL, file, verifiedBytes);
+        }
+        return new Result(Status.MISMATCH, file, 0);
+    }
+
+    /**
+     * Sem checksum só dá para confiar no tamanho, e apenas se o arquivo não for
+     * de uma versão anterior já registrada
+     */
+    private Result checkWithSize(ContentValues installed, DownloadLink link, DocumentFile file, long fileSize) {
+        long expectedSize = link.getSize();
+
+        if (installed != null) {
+            String version = link.getVersion();
+            boolean sameVersion = version == null || version.isEmpty() || version.equals(installed.getAsString("version"));
+            boolean sameSize = installed.getAsLong("size") == fileSize && (expectedSize <= 0 || expectedSize == fileSize);
+            return sameVersion && sameSize
+                    ? new Result(Status.COMPLETE, file, fileSize)
+                    : new Result(Status.MISMATCH, file, 0);
+        }
+
+        if (expectedSize > 0 && fileSize == expectedSize) {
+            return new Result(Status.COMPLETE, file, fileSize);
+        }
+        if (fileSize > 0 && fileSize < expectedSize) {
+            return new Result(Status.PARTIAL, file, fileSize);
+        }
+        return new Result(Status.MISMATCH, file, 0);
+    }
+
+    /**
+     * Confere em paralelo os chunks contidos no arquivo.
+     * @return bytes do maior prefixo de chunks com MD5 correto
+     */
+    private long verifyChunkPrefix(DocumentFile file, long fileSize, ChunkManifest manifest) throws IOException {
+        List<ChunkManifest.Chunk> chunks = new ArrayList<>();
+        for (ChunkManifest.Chunk chunk : manifest.getChunks()) {
+            if (chunk.getTo() >= fileSize) {
+                break;
+            }
+            chunks.add(chunk);
+        }
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+
+        // Leituras posicionais no mesmo canal são seguras entre threads
+        try (FileChannel channel = safDownloadManager.openReadChannel(file)) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (ChunkManifest.Chunk chunk : chunks) {
+                results.add(HASH_EXECUTOR.submit(() -> chunkMatches(channel, chunk)));
+            }
+
+            long verifiedBytes = 0;
+            try {
+                for (int i = 0; i < results.size(); i++) {
+                    if (!results.get(i).get()) {
+                        break;
+                    }
+                    verifiedBytes = chunks.get(i).getTo() + 1;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Verificação interrompida", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Erro ao verificar chunks", e.getCause());
+            } finally {
+                for (Future<Boolean> result : results) {
+                    result.cancel(false);
+                }
+            }
+
+            return verifiedBytes;
+        }
+    }
+
+    private static boolean chunkMatches(FileChannel channel, ChunkManifest.Chunk chunk) throws IOException {
+        MessageDigest md5 = Hashes.newMd5();
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = chunk.getFrom();
+        long remaining = chunk.getSize();
+
+        while (remaining > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, remaining));
+            int bytesRead = channel.read(buffer, position);
+            if (bytesRead <= 0) {
+                return false;
+            }
+            md5.update(buffer.array(), 0, bytesRead);
+            position += bytesRead;
+            remaining -= bytesRead;
+        }
+
+        return Hashes.toHex(md5.digest()).equals(chunk.getMd5());
+    }
+
+    private ContentValues findInstalledFile(long gameId, String linkId) {
+        for (ContentValues installed : databaseHelper.getInstalledFiles(gameId)) {
+            if (installed.getAsString("link_id").equals(linkId)) {
+                return installed;
+            }
+        }
+        return null;
+    }
+}
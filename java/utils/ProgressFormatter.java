@@ -0,0 +1,49 @@
+package com.example.gogdownloader.utils;
+
+import com.example.gogdownloader.models.Game;
+
+/**
+ * Texto de progresso das notificações de download
+ */
+public final class ProgressFormatter {
+
+    private ProgressFormatter() {
+    }
+
+    /**
+     * @param totalFiles mais de um arquivo mostra "Arquivo n/total" (lote)
+     * @param speed bytes/s; 0 omite a velocidade
+     * @param eta segundos; 0 omite o ETA
+     */
+    public static String format(int currentFileIndex, int totalFiles, long bytesDownloaded, long totalBytes,
+                                double speed, long eta) {
+        int progress = totalBytes > 0 ? (int) ((bytesDownloaded * 100) / totalBytes) : 0;
+        String speedText = speed > 0 ? String.format(" - %.1f MB/s", speed / (1024 * 1024)) : "";
+        String etaText = eta > 0 ? String.format(" - ETA: %s", formatETA(eta)) : "";
+
+        if (totalFiles > 1) {
+            return String.format("Arquivo %d/%d - %d%% - %s / %s%s%s",
+                    currentFileIndex + 1, totalFiles, progress,
+                    Game.formatFileSize(bytesDownloaded),
+                    Game.formatFileSize(totalBytes),
+                    speedText, etaText);
+        }
+        return String.format("%d%% - %s / %s%s%s",
+                progress,
+                Game.formatFileSize(bytesDownloaded),
+                Game.formatFileSize(totalBytes),
+                speedText, etaText);
+    }
+
+    public static String formatETA(long etaSeconds) {
+        if (etaSeconds < 60) {
+            return etaSeconds + "s";
+        } else if (etaSeconds < 3600) {
+            return (etaSeconds / 60) + "m " + (etaSeconds % 60) + "s";
+        } else {
+            long hours = etaSeconds / 3600;
+            long minutes = (etaSeconds % 3600) / 60;
+            return hours + "h " + minutes + "m";
+        }
+    }
+}
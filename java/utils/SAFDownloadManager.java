@@ -2,6 +2,7 @@ package com.example.gogdownloader.utils;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.StatFs;
 import android.util.Log;
 
 import androidx.documentfile.provider.DocumentFile;
@@ -9,9 +10,12 @@ import androidx.documentfile.provider.DocumentFile;
 import com.example.gogdownloader.models.DownloadLink;
 import com.example.gogdownloader.models.Game;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 /**
  * Gerenciador de downloads usando Storage Access Framework (SAF)
@@ -20,13 +24,22 @@ import java.io.OutputStream;
 public class SAFDownloadManager {
     
     private static final String TAG = "SAFDownloadManager";
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+    private static final String PUBLISH_SUFFIX = ".part";
+    private static final String PREVIOUS_SUFFIX = ".old";
     
     private Context context;
     private PreferencesManager preferencesManager;
+    private SafDocumentIndex documentIndex;
+    private SafStorageBackend safBackend;
+    private DirectFileStorageBackend directBackend;
     
     public SAFDownloadManager(Context context) {
         this.context = context;
         this.preferencesManager = new PreferencesManager(context);
+        this.documentIndex = SafDocumentIndex.getInstance(context);
+        this.safBackend = new SafStorageBackend(context);
+        this.directBackend = new DirectFileStorageBackend(context);
     }
     
     /**
@@ -75,16 +88,16 @@ public class SAFDownloadManager {
         // Limpar nome do jogo para usar como nome de diretório
         String gameDirName = sanitizeFileName(game.getTitle());
         
-        // Verificar se o diretório já existe
-        DocumentFile gameDir = downloadDir.findFile(gameDirName);
-        if (gameDir != null && gameDir.isDirectory()) {
-            Log.d(TAG, "Using existing game directory: " + gameDirName);
+        // Verificar se o diretório já existe (pelo índice, sem listar a pasta de downloads)
+        DocumentFile gameDir = documentIndex.findChild(downloadDir, gameDirName);
+        if (gameDir != null) {
             return gameDir;
         }
         
         // Criar novo diretório
         gameDir = downloadDir.createDirectory(gameDirName);
         if (gameDir != null) {
+            documentIndex.onCreated(downloadDir, gameDir);
             Log.d(TAG, "Created game directory: " + gameDirName);
             return gameDir;
         }
@@ -102,13 +115,10 @@ public class SAFDownloadManager {
             return null;
         }
         
-        String fileName = sanitizeFileName(downloadLink.getFileName());
-        if (fileName == null || fileName.isEmpty()) {
-            fileName = "installer.exe"; // Fallback
-        }
+        String fileName = getDownloadFileName(downloadLink);
         
         // Verificar se arquivo já existe
-        DocumentFile existingFile = gameDir.findFile(fileName);
+        DocumentFile existingFile = documentIndex.findChild(gameDir, fileName);
         if (existingFile != null) {
             if (isResume) {
                 Log.d(TAG, "File already exists, resuming: " + fileName);
@@ -116,6 +126,7 @@ public class SAFDownloadManager {
             } else {
                 Log.d(TAG, "File already exists, deleting: " + fileName);
                 existingFile.delete();
+                documentIndex.onRemoved(gameDir, fileName);
             }
         }
         
@@ -125,14 +136,206 @@ public class SAFDownloadManager {
         // Criar novo arquivo
         DocumentFile file = gameDir.createFile(mimeType, fileName);
         if (file != null) {
+            documentIndex.onCreated(gameDir, file);
             Log.d(TAG, "Created download file: " + fileName);
             return file;
         }
         
         Log.e(TAG, "Failed to create download file: " + fileName);
+        // A pasta do jogo pode ter sido removida fora do app
+        DocumentFile downloadDir = getDownloadDirectory();
+        if (downloadDir != null) {
+            documentIndex.invalidate(downloadDir);
+        }
         return null;
     }
     
+    /**
+     * Nome do arquivo de um download na pasta do jogo
+     */
+    public String getDownloadFileName(DownloadLink downloadLink) {
+        String fileName = sanitizeFileName(downloadLink.getFileName());
+        if (fileName == null || fileName.isEmpty()) {
+            fileName = "installer.exe"; // Fallback
+        }
+        return fileName;
+    }
+    
+    /**
+     * Move um download completo da área de preparação para a pasta do jogo.
+     * Com acesso direto ao destino é só um rename (se estiver no mesmo volume);
+     * senão o conteúdo é copiado para um temporário ao lado e renomeado no lugar.
+     * Se algo falhar o arquivo preparado e o publicado anterior continuam intactos.
+     * @return o arquivo publicado
+     */
+    public DocumentFile publishDownloadFile(Game game, DownloadLink downloadLink, File stagedFile) throws IOException {
+        DocumentFile gameDir = createGameDirectory(game);
+        if (gameDir == null) {
+            throw new IOException("Não foi possível criar a pasta do jogo");
+        }
+        
+        String fileName = getDownloadFileName(downloadLink);
+        
+        if (directBackend.canAccess(gameDir)) {
+            // rename substitui o arquivo anterior de uma vez; se falhar, o anterior continua intacto
+            File target = new File(DirectFileStorageBackend.resolvePath(gameDir.getUri()), fileName);
+            if (stagedFile.renameTo(target)) {
+                // O provedor não sabe do rename: listar a pasta de novo
+                documentIndex.invalidate(gameDir);
+                DocumentFile published = documentIndex.findChild(gameDir, fileName);
+                if (published == null) {
+                    throw new IOException("Arquivo publicado não encontrado: " + fileName);
+                }
+                Log.d(TAG, "Published download by rename: " + fileName);
+                return published;
+            }
+            Log.d(TAG, "Rename not possible (different volume?), copying " + fileName);
+        }
+        
+        // A cópia vai para um temporário ao lado do final: o nome final só aparece com o conteúdo completo
+        String tempName = fileName + PUBLISH_SUFFIX;
+        deleteChild(gameDir, tempName); // sobra de uma publicação interrompida
+        DocumentFile temp = gameDir.createFile("application/octet-stream", tempName);
+        if (temp == null) {
+            throw new IOException("Não foi possível criar arquivo de download");
+        }
+        documentIndex.onCreated(gameDir, temp);
+        
+        try (InputStream inputStream = new FileInputStream(stagedFile);
+             OutputStream outputStream = getOutputStream(temp, false)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+        } catch (IOException e) {
+            // A cópia incompleta não tem valor; os bytes continuam na área de preparação
+            temp.delete();
+            documentIndex.onRemoved(gameDir, tempName);
+            throw e;
+        }
+        
+        if (temp.length() != stagedFile.length()) {
+            temp.delete();
+            documentIndex.onRemoved(gameDir, tempName);
+            throw new IOException("Cópia incompleta de " + fileName);
+        }
+        
+        DocumentFile published = moveIntoPlace(gameDir, temp, tempName, fileName);
+        stagedFile.delete();
+        Log.d(TAG, "Published download by copy: " + fileName);
+        return published;
+    }
+    
+    /**
+     * Dá o nome final a um temporário já completo (renameDocument do provedor).
+     * O arquivo anterior é afastado antes e só apagado depois do rename; se o
+     * rename falhar, ele volta ao nome original.
+     */
+    private DocumentFile moveIntoPlace(DocumentFile gameDir, DocumentFile temp, String tempName, String fileName) throws IOException {
+        String previousName = fileName + PREVIOUS_SUFFIX;
+        deleteChild(gameDir, previousName);
+        
+        DocumentFile previous = documentIndex.findChild(gameDir, fileName);
+        if (previous != null) {
+            if (!previous.renameTo(previousName)) {
+                temp.delete();
+                documentIndex.onRemoved(gameDir, tempName);
+                throw new IOException("Não foi possível substituir " + fileName);
+            }
+            documentIndex.onRemoved(gameDir, fileName);
+            documentIndex.onCreated(gameDir, previous);
+        }
+        
+        if (!temp.renameTo(fileName)) {
+            if (previous != null && previous.renameTo(fileName)) {
+                documentIndex.onRemoved(gameDir, previousName);
+                documentIndex.onCreated(gameDir, previous);
+            }
+            temp.delete();
+            documentIndex.onRemoved(gameDir, tempName);
+            throw new IOException("Não foi possível publicar " + fileName);
+        }
+        documentIndex.onRemoved(gameDir, tempName);
+        documentIndex.onCreated(gameDir, temp);
+        
+        if (previous != null) {
+            previous.delete();
+            documentIndex.onRemoved(gameDir, previousName);
+        }
+        return temp;
+    }
+    
+    private void deleteChild(DocumentFile parent, String name) {
+        DocumentFile child = documentIndex.findChild(parent, name);
+        if (child != null) {
+            child.delete();
+            documentIndex.onRemoved(parent, name);
+        }
+    }
+    
+    /**
+     * Cria um arquivo temporário ao lado do arquivo final, usado por atualizações
+     * para não tocar no arquivo instalado até o novo estar completo
+     */
+    public DocumentFile createStagingFile(Game game, String fileName) {
+        DocumentFile gameDir = createGameDirectory(game);
+        if (gameDir == null) {
+            return null;
+        }
+        
+        String stagingName = sanitizeFileName(fileName) + ".update";
+        DocumentFile existing = documentIndex.findChild(gameDir, stagingName);
+        if (existing != null) {
+            existing.delete();
+            documentIndex.onRemoved(gameDir, stagingName);
+        }
+        
+        DocumentFile stagingFile = gameDir.createFile("application/octet-stream", stagingName);
+        if (stagingFile != null) {
+            documentIndex.onCreated(gameDir, stagingFile);
+        }
+        return stagingFile;
+    }
+    
+    /**
+     * Substitui o arquivo instalado pelo arquivo temporário já completo.
+     * Como em {@link #moveIntoPlace}, o arquivo com o nome final é afastado e só
+     * apagado depois do rename; a versão anterior com outro nome só é apagada
+     * depois que a nova está no lugar. Em caso de falha, a instalada fica intacta.
+     * @param replacedUri URI do arquivo da versão anterior (pode ter outro nome)
+     * @return o arquivo publicado, ou null em caso de falha
+     */
+    public DocumentFile publishStagedFile(Game game, DocumentFile stagedFile, String fileName, Uri replacedUri) {
+        DocumentFile gameDir = createGameDirectory(game);
+        if (gameDir == null) {
+            return null;
+        }
+        
+        String finalName = sanitizeFileName(fileName);
+        DocumentFile published;
+        try {
+            published = moveIntoPlace(gameDir, stagedFile, stagedFile.getName(), finalName);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to publish staged file: " + finalName, e);
+            documentIndex.invalidate(gameDir);
+            return null;
+        }
+        
+        // Versão anterior com outro nome: só agora, com a nova publicada
+        if (replacedUri != null) {
+            DocumentFile replaced = DocumentFile.fromSingleUri(context, replacedUri);
+            String replacedName = replaced != null ? replaced.getName() : null;
+            if (replacedName != null && !replacedName.equals(finalName) && replaced.exists()) {
+                replaced.delete();
+                documentIndex.onRemoved(gameDir, replacedName);
+            }
+        }
+        
+        Log.d(TAG, "Published updated file: " + finalName);
+        return published;
+    }
+    
     /**
      * Obtém OutputStream para escrita no arquivo
      */
@@ -141,7 +344,7 @@ public class SAFDownloadManager {
             throw new IOException("Cannot write to file");
         }
         
-        return context.getContentResolver().openOutputStream(file.getUri(), append ? "wa" : "w");
+        return getStorageBackend(file).openOutputStream(file, append);
     }
     
     /**
@@ -152,7 +355,33 @@ public class SAFDownloadManager {
             throw new IOException("File does not exist");
         }
         
-        return context.getContentResolver().openInputStream(file.getUri());
+        return getStorageBackend(file).openInputStream(file);
+    }
+    
+    /**
+     * Abre o arquivo para leituras posicionais (verificação de chunks)
+     */
+    public FileChannel openReadChannel(DocumentFile file) throws IOException {
+        return getStorageBackend(file).openReadChannel(file);
+    }
+    
+    /**
+     * Abre o arquivo para escrita posicional (downloads por chunks, que voltam
+     * à fronteira do chunk quando ele falha)
+     */
+    public FileChannel openWriteChannel(DocumentFile file) throws IOException {
+        if (file == null || !file.canWrite()) {
+            throw new IOException("Cannot write to file");
+        }
+        return getStorageBackend(file).openWriteChannel(file);
+    }
+    
+    /**
+     * Escolhe como acessar o conteúdo do arquivo: direto pelo caminho quando
+     * permitido, senão pelo SAF
+     */
+    public StorageBackend getStorageBackend(DocumentFile file) {
+        return directBackend.canAccess(file) ? directBackend : safBackend;
     }
     
     /**
@@ -169,14 +398,33 @@ public class SAFDownloadManager {
      * Verifica se um arquivo existe
      */
     public boolean fileExists(Game game, DownloadLink downloadLink) {
+        return findDownloadFile(game, downloadLink) != null;
+    }
+    
+    /**
+     * Procura o arquivo de um download na pasta do jogo, sem criar nem apagar nada
+     */
+    public DocumentFile findDownloadFile(Game game, DownloadLink downloadLink) {
         DocumentFile gameDir = createGameDirectory(game);
         if (gameDir == null) {
-            return false;
+            return null;
         }
         
-        String fileName = sanitizeFileName(downloadLink.getFileName());
-        DocumentFile file = gameDir.findFile(fileName);
-        return file != null && file.exists();
+        String fileName = getDownloadFileName(downloadLink);
+        DocumentFile file = documentIndex.findChild(gameDir, fileName);
+        if (file != null && !file.exists()) {
+            // Apagado fora do app desde a última listagem
+            documentIndex.invalidate(gameDir);
+            return null;
+        }
+        return file;
+    }
+    
+    /**
+     * Corta o arquivo no tamanho indicado (usado para descartar o final não verificado de um parcial)
+     */
+    public void truncateFile(DocumentFile file, long size) throws IOException {
+        getStorageBackend(file).truncate(file, size);
     }
     
     /**
@@ -220,13 +468,55 @@ public class SAFDownloadManager {
     }
     
     /**
-     * Obtém informações sobre o espaço disponível
-     * Nota: DocumentFile não oferece uma maneira direta de verificar espaço livre
+     * Verifica se há espaço livre no volume de destino
+     * Se o volume não puder ser identificado, assume que há espaço
      */
     public boolean hasAvailableSpace(long requiredBytes) {
-        // Para SAF, assumimos que há espaço suficiente
-        // O sistema operacional lidará com erro de espaço insuficiente
-        return true;
+        long availableBytes = getAvailableBytes();
+        return availableBytes < 0 || availableBytes >= requiredBytes;
+    }
+    
+    /**
+     * Espaço livre no volume da pasta de download, via StatFs
+     * @return bytes livres, ou -1 se o volume não puder ser identificado
+     */
+    public long getAvailableBytes() {
+        File volume = resolveDownloadVolume();
+        if (volume == null) {
+            return -1;
+        }
+        
+        try {
+            return new StatFs(volume.getPath()).getAvailableBytes();
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Cannot stat download volume: " + volume, e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Caminho do volume da pasta de download (o diretório existente mais próximo)
+     */
+    private File resolveDownloadVolume() {
+        String uriString = preferencesManager.getDownloadUri();
+        if (uriString == null || uriString.isEmpty()) {
+            String legacyPath = preferencesManager.getDownloadPathLegacy();
+            if (legacyPath == null || legacyPath.isEmpty()) {
+                return null;
+            }
+            // O diretório pode ainda não existir; usar o ancestral mais próximo
+            File dir = new File(legacyPath);
+            while (dir != null && !dir.exists()) {
+                dir = dir.getParentFile();
+            }
+            return dir;
+        }
+        
+        File dir = DirectFileStorageBackend.resolvePath(Uri.parse(uriString));
+        while (dir != null && !dir.exists()) {
+            dir = dir.getParentFile();
+        }
+        return dir;
     }
     
     /**
@@ -238,9 +528,10 @@ public class SAFDownloadManager {
             return false;
         }
         
-        String fileName = sanitizeFileName(downloadLink.getFileName());
-        DocumentFile file = gameDir.findFile(fileName);
+        String fileName = getDownloadFileName(downloadLink);
+        DocumentFile file = documentIndex.findChild(gameDir, fileName);
         if (file != null && file.exists()) {
+            documentIndex.onRemoved(gameDir, fileName);
             return file.delete();
         }
         
@@ -0,0 +1,201 @@
+package com.example.gogdownloader.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import androidx.documentfile.provider.DocumentFile;
+
+import com.example.gogdownloader.database.DatabaseHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice dos documentos da pasta de downloads: (pasta, nome) -> URI.
+ * DocumentFile.findFile lista os filhos e consulta o nome de cada um, o que
+ * custa uma consulta ao provedor por arquivo; aqui cada pasta é listada com
+ * uma única consulta de filhos e o resultado fica em memória e no banco.
+ * Escritas do app atualizam o índice; listagens vindas do banco são
+ * revalidadas na primeira vez que falham (entrada sumida ou nome ausente).
+ */
+public class SafDocumentIndex {
+
+    private static final String TAG = "SafDocumentIndex";
+
+    private static final String[] CHILD_PROJECTION = {
+            DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME
+    };
+
+    private static SafDocumentIndex instance;
+
+    private static class Entry {
+        final String documentUri;
+        volatile boolean verified;
+
+        Entry(String documentUri, boolean verified) {
+            this.documentUri = documentUri;
+            this.verified = verified;
+        }
+    }
+
+    private static class Listing {
+        final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        final boolean fresh; // listada do provedor neste processo
+
+        Listing(boolean fresh) {
+            this.fresh = fresh;
+        }
+    }
+
+    private final Context context;
+    private final DatabaseHelper databaseHelper;
+    private final Map<String, Listing> listings = new ConcurrentHashMap<>();
+
+    public static synchronized SafDocumentIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new SafDocumentIndex(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private SafDocumentIndex(Context context) {
+        this.context = context;
+        this.databaseHelper = new DatabaseHelper(context);
+    }
+
+    /**
+     * Procura um filho da pasta pelo nome
+     * @return o documento, ou null se não existir
+     */
+    public DocumentFile findChild(DocumentFile parent, String name) {
+        String parentKey = parent.getUri().toString();
+        Listing listing = getListing(parent, parentKey);
+        Entry entry = listing.entries.get(name);
+
+        if (entry == null && !listing.fresh) {
+            // A listagem salva pode não conhecer arquivos criados fora do app
+            listing = refresh(parent, parentKey);
+            entry = listing.entries.get(name);
+        }
+        if (entry == null) {
+            return null;
+        }
+
+        DocumentFile file = DocumentFile.fromTreeUri(context, Uri.parse(entry.documentUri));
+        if (entry.verified) {
+            return file;
+        }
+
+        if (file != null && file.exists()) {
+            entry.verified = true;
+            return file;
+        }
+
+        Log.d(TAG, "Stale index entry for " + name + ", listing folder again");
+        entry = refresh(parent, parentKey).entries.get(name);
+        return entry != null ? DocumentFile.fromTreeUri(context, Uri.parse(entry.documentUri)) : null;
+    }
+
+    /**
+     * Registra um documento criado pelo app
+     */
+    public void onCreated(DocumentFile parent, DocumentFile child) {
+        String name = child.getName();
+        if (name == null) {
+            invalidate(parent);
+            return;
+        }
+
+        String parentKey = parent.getUri().toString();
+        Listing listing = listings.get(parentKey);
+        if (listing != null) {
+            listing.entries.put(name, new Entry(child.getUri().toString(), true));
+        }
+        databaseHelper.saveSafIndexEntry(parentKey, name, child.getUri().toString());
+    }
+
+    /**
+     * Remove um documento apagado ou renomeado pelo app
+     */
+    public void onRemoved(DocumentFile parent, String name) {
+        String parentKey = parent.getUri().toString();
+        Listing listing = listings.get(parentKey);
+        if (listing != null) {
+            listing.entries.remove(name);
+        }
+        databaseHelper.deleteSafIndexEntry(parentKey, name);
+    }
+
+    /**
+     * Descarta a listagem da pasta; a próxima busca consulta o provedor de novo
+     */
+    public void invalidate(DocumentFile parent) {
+        String parentKey = parent.getUri().toString();
+        listings.remove(parentKey);
+        databaseHelper.deleteSafIndexEntries(parentKey);
+    }
+
+    private Listing getListing(DocumentFile parent, String parentKey) {
+        Listing listing = listings.get(parentKey);
+        if (listing != null) {
+            return listing;
+        }
+
+        List<ContentValues> persisted = databaseHelper.getSafIndexEntries(parentKey);
+        if (persisted.isEmpty()) {
+            return refresh(parent, parentKey);
+        }
+
+        listing = new Listing(false);
+        for (ContentValues values : persisted) {
+            listing.entries.put(values.getAsString("name"), new Entry(values.getAsString("document_uri"), false));
+        }
+        listings.put(parentKey, listing);
+        return listing;
+    }
+
+    /**
+     * Lista a pasta com uma única consulta de filhos ao provedor
+     */
+    private Listing refresh(DocumentFile parent, String parentKey) {
+        Uri parentUri = parent.getUri();
+        Listing listing = new Listing(true);
+        List<ContentValues> rows = new ArrayList<>();
+
+        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(parentUri,
+                DocumentsContract.getDocumentId(parentUri));
+        try (Cursor cursor = context.getContentResolver().query(childrenUri, CHILD_PROJECTION, null, null, null)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    String name = cursor.getString(1);
+                    if (name == null) {
+                        continue;
+                    }
+                    Uri documentUri = DocumentsContract.buildDocumentUriUsingTree(parentUri, cursor.getString(0));
+                    listing.entries.put(name, new Entry(documentUri.toString(), true));
+
+                    ContentValues values = new ContentValues();
+                    values.put("name", name);
+                    values.put("document_uri", documentUri.toString());
+                    rows.add(values);
+                }
+            }
+        } catch (Exception e) {
+            // Sem cache: a próxima busca tenta listar de novo
+            Log.w(TAG, "Failed to list " + parentUri, e);
+            return new Listing(false);
+        }
+
+        listings.put(parentKey, listing);
+        databaseHelper.replaceSafIndexEntries(parentKey, rows);
+        Log.d(TAG, "Indexed " + rows.size() + " documents in " + DocumentsContract.getDocumentId(parentUri));
+        return listing;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.gogdownloader.utils;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+
+import androidx.documentfile.provider.DocumentFile;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Acesso pelo ContentResolver: funciona com qualquer provedor, mas cada
+ * escrita passa pelo processo do provedor
+ */
+public class SafStorageBackend implements StorageBackend {
+
+    private final Context context;
+
+    public SafStorageBackend(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public String getName() {
+        return "SAF";
+    }
+
+    @Override
+    public OutputStream openOutputStream(DocumentFile file, boolean append) throws IOException {
+        OutputStream outputStream = context.getContentResolver().openOutputStream(file.getUri(), append ? "wa" : "w");
+        if (outputStream == null) {
+            throw new IOException("Cannot open file: " + file.getUri());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public InputStream openInputStream(DocumentFile file) throws IOException {
+        InputStream inputStream = context.getContentResolver().openInputStream(file.getUri());
+        if (inputStream == null) {
+            throw new IOException("Cannot open file: " + file.getUri());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public FileChannel openReadChannel(DocumentFile file) throws IOException {
+        // O stream fecha o descritor junto com o canal
+        return new ParcelFileDescriptor.AutoCloseInputStream(openDescriptor(file, "r")).getChannel();
+    }
+
+    @Override
+    public FileChannel openWriteChannel(DocumentFile file) throws IOException {
+        return new ParcelFileDescriptor.AutoCloseOutputStream(openDescriptor(file, "rw")).getChannel();
+    }
+
+    @Override
+    public void truncate(DocumentFile file, long size) throws IOException {
+        try (ParcelFileDescriptor descriptor = openDescriptor(file, "rw");
+             FileOutputStream outputStream = new FileOutputStream(descriptor.getFileDescriptor())) {
+            outputStream.getChannel().truncate(size);
+        }
+    }
+
+    private ParcelFileDescriptor openDescriptor(DocumentFile file, String mode) throws IOException {
+        ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(file.getUri(), mode);
+        if (descriptor == null) {
+            throw new IOException("Cannot open file: " + file.getUri());
+        }
+        return descriptor;
+    }
+}
@@ -1,42 +1,126 @@
 package com.example.gogdownloader.utils;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 /**
- * Classe para medir velocidade de download em tempo real
+ * Classe para medir velocidade de download em tempo real.
+ * Os bytes caem em baldes de tempo (janela deslizante de alguns segundos) e a
+ * taxa da janela é suavizada por média móvel exponencial, para a velocidade
+ * não pular a cada amostra. {@link #addBytes(long)} não usa locks e pode ser
+ * chamado por várias conexões ao mesmo tempo; um medidor pode repassar os
+ * bytes para um medidor pai que mede o total de todas as conexões.
+ * Cada balde guarda época e contagem no mesmo long, trocados num único CAS:
+ * recomeçar um balde antigo e somar bytes nele nunca se atropelam.
  */
 public class SpeedMeter {
-    private static final long SPEED_CALCULATION_INTERVAL = 500; // 500ms
-    private long lastSpeedUpdate = 0;
-    private long lastBytesForSpeed = 0;
+    private static final long BUCKET_MS = 250;
+    private static final int BUCKET_COUNT = 32; // janela de 8 segundos (potência de 2)
+    // Contagem nos 40 bits baixos (1 TB por balde), bits baixos da época nos 24 altos (~48 dias)
+    private static final int COUNT_BITS = 40;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long EPOCH_MASK = (1L << (64 - COUNT_BITS)) - 1;
+    private static final double EWMA_TIME_CONSTANT_MS = 3000;
+    
+    private final SpeedMeter parent;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong startTime = new AtomicLong();
+    
+    // Estado da média móvel, só tocado na leitura da velocidade
     private double currentSpeed = 0.0;
+    private long lastSampleTime = 0;
+    
+    public SpeedMeter() {
+        this(null);
+    }
+    
+    public SpeedMeter(SpeedMeter parent) {
+        this.parent = parent;
+    }
     
-    public double updateSpeed(long totalBytesDownloaded) {
-        long currentTime = System.currentTimeMillis();
+    /**
+     * Registra bytes recebidos. Barato o bastante para ser chamado a cada read()
+     */
+    public void addBytes(long bytes) {
+        long now = nowMs();
+        startTime.compareAndSet(0, now);
         
-        if (currentTime - lastSpeedUpdate >= SPEED_CALCULATION_INTERVAL) {
-            if (lastSpeedUpdate > 0) {
-                long timeDiff = currentTime - lastSpeedUpdate;
-                long bytesDiff = totalBytesDownloaded - lastBytesForSpeed;
-                currentSpeed = (bytesDiff * 1000.0) / timeDiff; // bytes por segundo
-            }
-            
-            lastSpeedUpdate = currentTime;
-            lastBytesForSpeed = totalBytesDownloaded;
+        long epoch = now / BUCKET_MS;
+        int index = (int) (epoch & (BUCKET_COUNT - 1));
+        long tag = epoch & EPOCH_MASK;
+        long bucket;
+        long updated;
+        do {
+            bucket = buckets.get(index);
+            // Balde de uma volta anterior da janela: recomeçar a contagem no mesmo CAS
+            updated = (bucket >>> COUNT_BITS) == tag ? bucket + bytes : (tag << COUNT_BITS) | bytes;
+        } while (!buckets.compareAndSet(index, bucket, updated));
+        
+        if (parent != null) {
+            parent.addBytes(bytes);
         }
+    }
+    
+    /**
+     * Velocidade suavizada em bytes por segundo
+     */
+    public synchronized double getSpeed() {
+        long now = nowMs();
+        double windowSpeed = getWindowSpeed(now);
         
+        if (lastSampleTime == 0) {
+            currentSpeed = windowSpeed;
+        } else {
+            double alpha = 1 - Math.exp(-(now - lastSampleTime) / EWMA_TIME_CONSTANT_MS);
+            currentSpeed += alpha * (windowSpeed - currentSpeed);
+        }
+        lastSampleTime = now;
         return currentSpeed;
     }
     
+    /**
+     * Taxa média dos baldes dentro da janela (desde o primeiro byte, se a janela ainda não encheu)
+     */
+    private double getWindowSpeed(long now) {
+        long start = startTime.get();
+        if (start == 0) {
+            return 0;
+        }
+        
+        long currentEpoch = now / BUCKET_MS;
+        long bytes = 0;
+        for (long epoch = currentEpoch - BUCKET_COUNT + 1; epoch <= currentEpoch; epoch++) {
+            // Baldes de outra volta da janela são ignorados, não zerados
+            long bucket = buckets.get((int) (epoch & (BUCKET_COUNT - 1)));
+            if ((bucket >>> COUNT_BITS) == (epoch & EPOCH_MASK)) {
+                bytes += bucket & COUNT_MASK;
+            }
+        }
+        
+        long windowMs = Math.min((BUCKET_COUNT - 1) * BUCKET_MS + now % BUCKET_MS, now - start);
+        return windowMs > 0 ? bytes * 1000.0 / windowMs : 0;
+    }
+    
+    /**
+     * Tempo restante em segundos para os bytes que faltam; para um lote, passar
+     * os totais do lote inteiro e não só do arquivo atual
+     */
     public long calculateETA(long bytesDownloaded, long totalBytes) {
-        if (currentSpeed <= 0 || totalBytes <= bytesDownloaded) {
+        double speed = getSpeed();
+        if (speed <= 0 || totalBytes <= bytesDownloaded) {
             return 0;
         }
-        return (long) ((totalBytes - bytesDownloaded) / currentSpeed);
+        return (long) ((totalBytes - bytesDownloaded) / speed);
     }
     
-    public double getCurrentSpeed() {
+    public synchronized double getCurrentSpeed() {
         return currentSpeed;
     }
     
+    private static long nowMs() {
+        return System.nanoTime() / 1000000;
+    }
+    
     /**
      * Formata a velocidade de download em formato legível
      */
@@ -72,9 +156,12 @@ public class SpeedMeter {
     /**
      * Reset do medidor para reiniciar a medição
      */
-    public void reset() {
-        lastSpeedUpdate = 0;
-        lastBytesForSpeed = 0;
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        startTime.set(0);
         currentSpeed = 0.0;
+        lastSampleTime = 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.example.gogdownloader.utils;
+
+import androidx.documentfile.provider.DocumentFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Forma de acesso ao conteúdo dos arquivos da pasta de download.
+ * Os arquivos continuam sendo localizados e criados pelo SAF; o backend só
+ * decide como os bytes são lidos e escritos.
+ */
+public interface StorageBackend {
+
+    String getName();
+
+    OutputStream openOutputStream(DocumentFile file, boolean append) throws IOException;
+
+    InputStream openInputStream(DocumentFile file) throws IOException;
+
+    /**
+     * Canal só de leitura; leituras posicionais podem ser feitas de várias threads
+     */
+    FileChannel openReadChannel(DocumentFile file) throws IOException;
+
+    /**
+     * Canal de leitura e escrita, sem truncar: quem escreve pode voltar a uma posição e truncar
+     */
+    FileChannel openWriteChannel(DocumentFile file) throws IOException;
+
+    void truncate(DocumentFile file, long size) throws IOException;
+}
@@ -0,0 +1,127 @@
+package com.example.gogdownloader.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.documentfile.provider.DocumentFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compara os backends de armazenamento no mesmo aparelho: grava e lê um
+ * arquivo temporário na pasta de download com cada backend disponível.
+ */
+public class StorageBenchmark {
+
+    private static final String TAG = "StorageBenchmark";
+    private static final String TEMP_FILE_NAME = ".gog_storage_benchmark.tmp";
+    private static final int BUFFER_SIZE = 65536; // mesmo buffer dos downloads
+
+    public static class Result {
+        private final String backendName;
+        private final double writeBytesPerSecond;
+        private final double readBytesPerSecond;
+
+        Result(String backendName, double writeBytesPerSecond, double readBytesPerSecond) {
+            this.backendName = backendName;
+            this.writeBytesPerSecond = writeBytesPerSecond;
+            this.readBytesPerSecond = readBytesPerSecond;
+        }
+
+        public String getBackendName() { return backendName; }
+        public double getWriteBytesPerSecond() { return writeBytesPerSecond; }
+        public double getReadBytesPerSecond() { return readBytesPerSecond; }
+    }
+
+    private final SAFDownloadManager safDownloadManager;
+    private final List<StorageBackend> backends = new ArrayList<>();
+
+    public StorageBenchmark(Context context, SAFDownloadManager safDownloadManager) {
+        this.safDownloadManager = safDownloadManager;
+        backends.add(new SafStorageBackend(context));
+        backends.add(new DirectFileStorageBackend(context));
+    }
+
+    /**
+     * Bloqueante: chamar fora da thread principal.
+     * Backends que não conseguem acessar a pasta ficam fora do resultado.
+     */
+    public List<Result> run(long sizeBytes) throws IOException {
+        DocumentFile downloadDir = safDownloadManager.getDownloadDirectory();
+        if (downloadDir == null) {
+            throw new IOException("Pasta de download não configurada");
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        new Random().nextBytes(buffer);
+
+        List<Result> results = new ArrayList<>();
+        for (StorageBackend backend : backends) {
+            DocumentFile existing = downloadDir.findFile(TEMP_FILE_NAME);
+            if (existing != null) {
+                existing.delete();
+            }
+            DocumentFile file = downloadDir.createFile("application/octet-stream", TEMP_FILE_NAME);
+            if (file == null) {
+                throw new IOException("Não foi possível criar arquivo de teste");
+            }
+
+            try {
+                if (backend instanceof DirectFileStorageBackend
+                        && !((DirectFileStorageBackend) backend).canAccess(file)) {
+                    Log.d(TAG, "Direct access not available for the download folder");
+                    continue;
+                }
+
+                double writeSpeed = measureWrite(backend, file, buffer, sizeBytes);
+                double readSpeed = measureRead(backend, file);
+                Log.d(TAG, backend.getName() + ": write " + SpeedMeter.formatSpeed(writeSpeed)
+                        + ", read " + SpeedMeter.formatSpeed(readSpeed));
+                results.add(new Result(backend.getName(), writeSpeed, readSpeed));
+            } finally {
+                file.delete();
+            }
+        }
+
+        return results;
+    }
+
+    private static double measureWrite(StorageBackend backend, DocumentFile file, byte[] buffer,
+                                       long sizeBytes) throws IOException {
+        long start = System.nanoTime();
+        long written = 0;
+        try (OutputStream outputStream = backend.openOutputStream(file, false)) {
+            while (written < sizeBytes) {
+                int length = (int) Math.min(buffer.length, sizeBytes - written);
+                outputStream.write(buffer, 0, length);
+                written += length;
+            }
+            outputStream.flush();
+        }
+        return toBytesPerSecond(written, System.nanoTime() - start);
+    }
+
+    private static double measureRead(StorageBackend backend, DocumentFile file) throws IOException {
+        long start = System.nanoTime();
+        long read = 0;
+        try (FileChannel channel = backend.openReadChannel(file)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            int bytesRead;
+            while ((bytesRead = channel.read(buffer)) > 0) {
+                read += bytesRead;
+                buffer.clear();
+            }
+        }
+        return toBytesPerSecond(read, System.nanoTime() - start);
+    }
+
+    private static double toBytesPerSecond(long bytes, long elapsedNanos) {
+        return elapsedNanos > 0 ? bytes * 1e9 / elapsedNanos : 0;
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.gogdownloader.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Planeja o espaço em disco de toda a fila de downloads.
+ * Cada trabalho reserva os bytes que ainda faltam baixar; um novo trabalho só
+ * começa se couber no espaço livre menos o que os trabalhos em andamento ainda
+ * vão escrever. Os que não cabem esperam e são replanejados (menores primeiro)
+ * quando uma reserva é liberada ou o espaço livre muda; os que não cabem nem
+ * sozinhos são recusados logo.
+ * Os callbacks de trabalhos que aguardavam são sempre entregues na thread
+ * principal, qualquer que seja a thread que liberou espaço ou replanejou.
+ */
+public class StoragePlanner {
+
+    private static final String TAG = "StoragePlanner";
+    private static final long SAFETY_MARGIN_BYTES = 64L * 1024 * 1024;
+    private static final long RECHECK_INTERVAL_MS = 30000;
+
+    public enum Decision {
+        RESERVED,  // pode começar
+        WAITING,   // aguardando outro trabalho liberar espaço
+        REFUSED    // não cabe no volume
+    }
+
+    /**
+     * Chamado na thread principal
+     */
+    public interface Callback {
+        void onReserved();
+        void onRefused(long requiredBytes, long availableBytes);
+    }
+
+    private static class Reservation {
+        final long totalBytes;
+        final long existingBytes;
+        long progressBytes;
+
+        Reservation(long totalBytes, long existingBytes) {
+            this.totalBytes = totalBytes;
+            this.existingBytes = existingBytes;
+        }
+
+        long getRemainingBytes() {
+            return Math.max(0, totalBytes - Math.max(existingBytes, progressBytes));
+        }
+    }
+
+    private static class WaitingJob {
+        final long key;
+        final Reservation reservation;
+        final Callback callback;
+
+        WaitingJob(long key, Reservation reservation, Callback callback) {
+            this.key = key;
+            this.reservation = reservation;
+            this.callback = callback;
+        }
+    }
+
+    private final SAFDownloadManager safDownloadManager;
+    private final DownloadStaging downloadStaging;
+    private final Map<Long, Reservation> reservations = new HashMap<>();
+    private final List<WaitingJob> waitingJobs = new ArrayList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable recheckRunnable = this::replan;
+
+    public StoragePlanner(SAFDownloadManager safDownloadManager, DownloadStaging downloadStaging) {
+        this.safDownloadManager = safDownloadManager;
+        this.downloadStaging = downloadStaging;
+    }
+
+    /**
+     * Reserva espaço para o trabalho de um jogo
+     * @param totalBytes tamanho final de todos os arquivos do trabalho
+     * @param existingBytes bytes desses arquivos que já estão no destino
+     * @param callback chamado se o trabalho ficar aguardando e depois couber (ou for recusado)
+     */
+    public synchronized Decision reserve(long key, long totalBytes, long existingBytes, Callback callback) {
+        Reservation reservation = new Reservation(totalBytes, existingBytes);
+        removeWaiting(key);
+        reservations.remove(key);
+
+        long requiredBytes = reservation.getRemainingBytes();
+        long availableBytes = getAvailableBytes();
+        if (availableBytes < 0) {
+            // Volume desconhecido: sem como planejar, deixar o sistema acusar falta de espaço
+            reservations.put(key, reservation);
+            return Decision.RESERVED;
+        }
+
+        if (requiredBytes + SAFETY_MARGIN_BYTES > availableBytes) {
+            Log.w(TAG, "Job " + key + " needs " + requiredBytes + " bytes, only " + availableBytes + " free");
+            return Decision.REFUSED;
+        }
+
+        if (requiredBytes + SAFETY_MARGIN_BYTES > availableBytes - getReservedBytes()) {
+            Log.d(TAG, "Job " + key + " waiting for space: needs " + requiredBytes + ", "
+                    + getReservedBytes() + " reserved of " + availableBytes + " free");
+            waitingJobs.add(new WaitingJob(key, reservation, callback));
+            scheduleRecheck();
+            return Decision.WAITING;
+        }
+
+        reservations.put(key, reservation);
+        return Decision.RESERVED;
+    }
+
+    /**
+     * Atualiza quanto do trabalho já foi escrito (bytes do trabalho inteiro)
+     */
+    public synchronized void updateProgress(long key, long bytesWritten) {
+        Reservation reservation = reservations.get(key);
+        if (reservation != null) {
+            reservation.progressBytes = bytesWritten;
+        }
+    }
+
+    /**
+     * Libera a reserva de um trabalho encerrado e replaneja os que aguardam
+     */
+    public void release(long key) {
+        synchronized (this) {
+            if (reservations.remove(key) == null) {
+                return;
+            }
+        }
+        replan();
+    }
+
+    /**
+     * Retira da fila de espera um trabalho cancelado
+     */
+    public synchronized void cancelWaiting(long key) {
+        removeWaiting(key);
+    }
+
+    /**
+     * Confere de novo os trabalhos em espera contra o espaço livre atual
+     */
+    public void replan() {
+        List<WaitingJob> started = new ArrayList<>();
+        List<WaitingJob> refused = new ArrayList<>();
+        long availableBytes;
+
+        synchronized (this) {
+            handler.removeCallbacks(recheckRunnable);
+            if (waitingJobs.isEmpty()) {
+                return;
+            }
+
+            availableBytes = getAvailableBytes();
+            long freeBytes = availableBytes < 0 ? Long.MAX_VALUE : availableBytes - getReservedBytes();
+
+            // Menores primeiro: aproveitam o espaço que sobrou enquanto os maiores esperam
+            Collections.sort(waitingJobs, (a, b) -> Long.compare(a.reservation.getRemainingBytes(),
+                    b.reservation.getRemainingBytes()));
+            for (WaitingJob job : new ArrayList<>(waitingJobs)) {
+                long requiredBytes = job.reservation.getRemainingBytes() + SAFETY_MARGIN_BYTES;
+                if (requiredBytes <= freeBytes) {
+                    waitingJobs.remove(job);
+                    reservations.put(job.key, job.reservation);
+                    freeBytes -= job.reservation.getRemainingBytes();
+                    started.add(job);
+                } else if (reservations.isEmpty() || requiredBytes > availableBytes) {
+                    // Ninguém mais vai liberar espaço reservado: não adianta esperar
+                    waitingJobs.remove(job);
+                    refused.add(job);
+                }
+            }
+
+            if (!waitingJobs.isEmpty()) {
+                scheduleRecheck();
+            }
+        }
+
+        for (WaitingJob job : started) {
+            Log.d(TAG, "Job " + job.key + " fits now, starting");
+            handler.post(job.callback::onReserved);
+        }
+        for (WaitingJob job : refused) {
+            long requiredBytes = job.reservation.getRemainingBytes();
+            handler.post(() -> job.callback.onRefused(requiredBytes, availableBytes));
+        }
+    }
+
+    /**
+     * Espaço livre para a fila: o do destino e, se a área de preparação estiver
+     * em outro volume, o menor dos dois (cada arquivo passa pelos dois)
+     * @return bytes livres, ou -1 se nenhum volume puder ser medido
+     */
+    public long getAvailableBytes() {
+        long destinationBytes = safDownloadManager.getAvailableBytes();
+        long stagingBytes = downloadStaging.getAvailableBytes();
+        if (stagingBytes < 0) {
+            return destinationBytes;
+        }
+        if (destinationBytes < 0) {
+            return stagingBytes;
+        }
+        return Math.min(destinationBytes, stagingBytes);
+    }
+
+    private long getReservedBytes() {
+        long reservedBytes = 0;
+        for (Reservation reservation : reservations.values()) {
+            reservedBytes += reservation.getRemainingBytes();
+        }
+        return reservedBytes;
+    }
+
+    private void removeWaiting(long key) {
+        for (int i = waitingJobs.size() - 1; i >= 0; i--) {
+            if (waitingJobs.get(i).key == key) {
+                waitingJobs.remove(i);
+            }
+        }
+    }
+
+    /**
+     * O espaço livre também muda fora do app (arquivos apagados pelo usuário)
+     */
+    private void scheduleRecheck() {
+        handler.removeCallbacks(recheckRunnable);
+        handler.postDelayed(recheckRunnable, RECHECK_INTERVAL_MS);
+    }
+}
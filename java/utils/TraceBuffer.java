@@ -0,0 +1,102 @@
+package com.example.gogdownloader.utils;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Buffer circular em memória de eventos de trace estruturados (categoria,
+ * evento, valor numérico e detalhe curto). Gravar não usa locks nem toca no
+ * logcat: cada evento pega uma posição com um incremento atômico e sobrescreve
+ * o mais antigo. Fica ativo também em release; o conteúdo só é lido quando
+ * alguém pede o dump (tela de diagnóstico).
+ */
+public final class TraceBuffer {
+
+    private static final int CAPACITY = 2048; // potência de 2
+    private static final int MASK = CAPACITY - 1;
+
+    private static final AtomicReferenceArray<Event> events = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong sequence = new AtomicLong();
+
+    public static final class Event {
+        public final long sequence;
+        public final long timestamp;
+        public final String thread;
+        public final String category;
+        public final String name;
+        public final long value;
+        public final String detail;
+
+        Event(long sequence, String category, String name, long value, String detail) {
+            this.sequence = sequence;
+            this.timestamp = System.currentTimeMillis();
+            this.thread = Thread.currentThread().getName();
+            this.category = category;
+            this.name = name;
+            this.value = value;
+            this.detail = detail;
+        }
+    }
+
+    private TraceBuffer() {
+    }
+
+    public static void record(String category, String name, long value) {
+        record(category, name, value, null);
+    }
+
+    /**
+     * @param detail texto curto já pronto (evitar montar strings só para o trace)
+     */
+    public static void record(String category, String name, long value, String detail) {
+        long index = sequence.getAndIncrement();
+        events.set((int) (index & MASK), new Event(index, category, name, value, detail));
+    }
+
+    /**
+     * Eventos ainda no buffer, do mais antigo para o mais recente
+     */
+    public static List<Event> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(0, end - CAPACITY);
+        List<Event> snapshot = new ArrayList<>();
+        for (long index = start; index < end; index++) {
+            Event event = events.get((int) (index & MASK));
+            // Posição já sobrescrita por um evento mais novo ou ainda não publicada
+            if (event != null && event.sequence == index) {
+                snapshot.add(event);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Dump em texto, uma linha por evento
+     */
+    public static String dump() {
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        StringBuilder builder = new StringBuilder();
+        for (Event event : snapshot()) {
+            builder.append(format.format(new Date(event.timestamp))).append(' ')
+                    .append('[').append(event.thread).append("] ")
+                    .append(event.category).append('/').append(event.name)
+                    .append(' ').append(event.value);
+            if (event.detail != null) {
+                builder.append(' ').append(event.detail);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    public static void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            events.set(i, null);
+        }
+    }
+}
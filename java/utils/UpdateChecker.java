@@ -0,0 +1,202 @@
+package com.example.gogdownloader.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import com.example.gogdownloader.api.GOGLibraryManager;
+import com.example.gogdownloader.database.DatabaseHelper;
+import com.example.gogdownloader.models.DownloadLink;
+import com.example.gogdownloader.models.Game;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verifica quais jogos baixados têm instaladores mais novos.
+ * Os produtos são consultados em lotes (uma requisição para até 50 jogos),
+ * com poucas requisições simultâneas e ETag, para que uma biblioteca sem
+ * novidades custe apenas respostas 304.
+ */
+public class UpdateChecker {
+
+    private static final String TAG = "UpdateChecker";
+    private static final int MAX_IDS_PER_REQUEST = 50;
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+
+    private final GOGLibraryManager libraryManager;
+    private final DatabaseHelper databaseHelper;
+    private volatile boolean cancelled = false;
+
+    public UpdateChecker(Context context) {
+        this.libraryManager = new GOGLibraryManager(context);
+        this.databaseHelper = new DatabaseHelper(context);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Executa a verificação completa. Bloqueante: chamar fora da thread principal.
+     * @return número de jogos com atualização disponível
+     */
+    public int checkAll() {
+        List<Long> gameIds = new ArrayList<>();
+        for (Game game : databaseHelper.getGamesByStatus(Game.DownloadStatus.DOWNLOADED)) {
+            gameIds.add(game.getId());
+        }
+        if (gameIds.isEmpty()) {
+            Log.d(TAG, "No downloaded games to check");
+            return 0;
+        }
+
+        // Ordenar mantém a composição dos lotes estável entre execuções (e o ETag útil)
+        Collections.sort(gameIds);
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < gameIds.size(); i += MAX_IDS_PER_REQUEST) {
+            batches.add(gameIds.subList(i, Math.min(i + MAX_IDS_PER_REQUEST, gameIds.size())));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (List<Long> batch : batches) {
+            results.add(executor.submit((Callable<Integer>) () -> checkBatch(batch)));
+        }
+
+        int updatesAvailable = 0;
+        try {
+            for (Future<Integer> result : results) {
+                try {
+                    updatesAvailable += result.get();
+                } catch (Exception e) {
+                    Log.w(TAG, "Update check batch failed", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Log.d(TAG, "Update check finished: " + updatesAvailable + " of " + gameIds.size() + " games have updates");
+        return updatesAvailable;
+    }
+
+    private int checkBatch(List<Long> gameIds) throws Exception {
+        if (cancelled) {
+            return 0;
+        }
+
+        String batchKey = batchKey(gameIds);
+        GOGLibraryManager.ProductBatchResult result =
+                libraryManager.getProductsBatch(gameIds, databaseHelper.getUpdateCheckEtag(batchKey));
+
+        int updatesAvailable = 0;
+        boolean missingCachedLinks = false;
+        for (Long gameId : gameIds) {
+            Map<String, JSONObject> latestLinks;
+            if (result.isNotModified()) {
+                // Nada mudou no servidor; recalcular contra os arquivos instalados atuais
+                String cachedLinks = databaseHelper.getLatestLinksJson(gameId);
+                if (cachedLinks == null) {
+                    missingCachedLinks = true;
+                    continue;
+                }
+                latestLinks = parseLatestLinks(cachedLinks);
+            } else {
+                List<DownloadLink> links = result.getDownloadLinks().get(gameId);
+                if (links == null) {
+                    continue;
+                }
+                latestLinks = toLatestLinks(links);
+            }
+
+            if (compareAndSave(gameId, latestLinks)) {
+                updatesAvailable++;
+            }
+        }
+
+        if (!result.isNotModified()) {
+            databaseHelper.saveUpdateCheckEtag(batchKey, result.getEtag());
+        } else if (missingCachedLinks) {
+            // Sem dados locais para comparar: forçar resposta completa na próxima execução
+            databaseHelper.saveUpdateCheckEtag(batchKey, null);
+        }
+
+        return updatesAvailable;
+    }
+
+    /**
+     * Compara os arquivos instalados com as versões mais recentes e grava o resultado
+     */
+    private boolean compareAndSave(long gameId, Map<String, JSONObject> latestLinks) {
+        int changedFiles = 0;
+        long updateSize = 0;
+
+        for (ContentValues installed : databaseHelper.getInstalledFiles(gameId)) {
+            JSONObject latest = latestLinks.get(installed.getAsString("link_id"));
+            if (latest == null) {
+                continue;
+            }
+
+            String installedVersion = installed.getAsString("version");
+            String latestVersion = latest.optString("version", "");
+            long latestSize = latest.optLong("size", 0);
+
+            boolean versionChanged = !latestVersion.isEmpty() && !latestVersion.equals(installedVersion);
+            boolean sizeChanged = latestSize > 0 && latestSize != installed.getAsLong("size");
+            if (versionChanged || sizeChanged) {
+                changedFiles++;
+                updateSize += latestSize;
+            }
+        }
+
+        JSONArray json = new JSONArray();
+        for (JSONObject link : latestLinks.values()) {
+            json.put(link);
+        }
+
+        databaseHelper.saveGameUpdate(gameId, json.toString(), changedFiles > 0, changedFiles, updateSize);
+        return changedFiles > 0;
+    }
+
+    private Map<String, JSONObject> toLatestLinks(List<DownloadLink> links) throws JSONException {
+        Map<String, JSONObject> latestLinks = new HashMap<>();
+        for (DownloadLink link : links) {
+            JSONObject json = new JSONObject();
+            json.put("id", link.getId());
+            json.put("version", link.getVersion());
+            json.put("size", link.getSize());
+            latestLinks.put(link.getId(), json);
+        }
+        return latestLinks;
+    }
+
+    private Map<String, JSONObject> parseLatestLinks(String json) throws JSONException {
+        Map<String, JSONObject> latestLinks = new HashMap<>();
+        JSONArray array = new JSONArray(json);
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject link = array.getJSONObject(i);
+            latestLinks.put(link.optString("id"), link);
+        }
+        return latestLinks;
+    }
+
+    private static String batchKey(List<Long> gameIds) {
+        StringBuilder key = new StringBuilder("products:");
+        for (Long gameId : gameIds) {
+            key.append(gameId).append(',');
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,21 @@
+# Regras do R8 para o build de release.
+
+# Logs de depuração: as chamadas somem junto com a montagem das mensagens.
+# Avisos e erros continuam no logcat; o TraceBuffer continua ativo.
+-assumenosideeffects class com.example.gogdownloader.utils.AppLog {
+    public static void v(...);
+    public static void d(...);
+}
+-assumenosideeffects class android.util.Log {
+    public static int v(...);
+    public static int d(...);
+}
+
+# Modelos passados entre telas e para o serviço como Serializable
+-keepclassmembers class com.example.gogdownloader.models.** implements java.io.Serializable {
+    static final long serialVersionUID;
+    private static final java.io.ObjectStreamField[] serialPersistentFields;
+    !static !transient <fields>;
+    private void writeObject(java.io.ObjectOutputStream);
+    private void readObject(java.io.ObjectInputStream);
+}